@@ -0,0 +1,130 @@
+package com.example.ftcfieldsimulator;
+
+/**
+ * Automatic Y limits for one plot axis.
+ *
+ * In follow mode the axis tracks the extrema of a sliding time window with two monotonic deques
+ * (timestamps and values in ring buffers): a sample pops the tail entries it dominates and is
+ * pushed, samples leaving the window are popped from the head, so both operations are O(1)
+ * amortized and the current min and max are always at the heads. After a reset the deques start
+ * empty; a seed (e.g. the range of the window already on screen, from the store's chunk index)
+ * stands in for the older samples until the window has slid past all of them.
+ *
+ * Limit changes are damped: the limits grow as soon as the data leaves them, but only shrink once
+ * the data spans less than half of them, in both cases to the data range plus a margin. A slowly
+ * wandering signal therefore rescales the axis now and then instead of every frame.
+ */
+public class AxisAutoRange {
+
+    private static final double MARGIN_FRACTION = 0.1;
+    private static final double SHRINK_BELOW_FRACTION = 0.5;
+
+    // --- Sliding window extrema ---
+    private final Deque maxDeque = new Deque(), minDeque = new Deque();
+    private double seedMin = Double.NaN, seedMax = Double.NaN;
+    private long seedEndTs = Long.MIN_VALUE;
+
+    // --- Damped limits ---
+    private boolean hasLimits = false;
+    private double min, max;
+
+    /** Forgets the window's samples and seed; the current limits are kept. */
+    public void reset() {
+        maxDeque.clear();
+        minDeque.clear();
+        seedMin = seedMax = Double.NaN;
+        seedEndTs = Long.MIN_VALUE;
+    }
+
+    /**
+     * Covers samples up to endTs that were not added individually, by their overall range. The seed
+     * expires once the window start passes endTs.
+     */
+    public void seed(double seedMin, double seedMax, long endTs) {
+        this.seedMin = seedMin;
+        this.seedMax = seedMax;
+        this.seedEndTs = endTs;
+    }
+
+    public void addSample(long timestamp, double value) {
+        if (Double.isNaN(value)) return;
+        while (!maxDeque.isEmpty() && maxDeque.lastValue() <= value) maxDeque.removeLast();
+        maxDeque.addLast(timestamp, value);
+        while (!minDeque.isEmpty() && minDeque.lastValue() >= value) minDeque.removeLast();
+        minDeque.addLast(timestamp, value);
+    }
+
+    /** Drops samples older than the window start. */
+    public void evictBefore(long windowStartTs) {
+        while (!maxDeque.isEmpty() && maxDeque.firstTimestamp() < windowStartTs) maxDeque.removeFirst();
+        while (!minDeque.isEmpty() && minDeque.firstTimestamp() < windowStartTs) minDeque.removeFirst();
+        if (windowStartTs > seedEndTs) seedMin = seedMax = Double.NaN;
+    }
+
+    /** @return the minimum of the window (NaN if it is empty). */
+    public double getWindowMin() {
+        double m = minDeque.isEmpty() ? Double.NaN : minDeque.firstValue();
+        return Double.isNaN(seedMin) ? m : Double.isNaN(m) ? seedMin : Math.min(m, seedMin);
+    }
+
+    /** @return the maximum of the window (NaN if it is empty). */
+    public double getWindowMax() {
+        double m = maxDeque.isEmpty() ? Double.NaN : maxDeque.firstValue();
+        return Double.isNaN(seedMax) ? m : Double.isNaN(m) ? seedMax : Math.max(m, seedMax);
+    }
+
+    /**
+     * Moves the limits towards a data range, with hysteresis.
+     * @return true if the limits changed.
+     */
+    public boolean update(double dataMin, double dataMax) {
+        if (Double.isNaN(dataMin) || Double.isNaN(dataMax) || Double.isInfinite(dataMin) || Double.isInfinite(dataMax)) return false;
+        double span = dataMax - dataMin;
+        boolean grow = !hasLimits || dataMin < min || dataMax > max;
+        boolean shrink = hasLimits && span < (max - min) * SHRINK_BELOW_FRACTION;
+        if (!grow && !shrink) return false;
+        // A flat signal still gets a usable range around its value.
+        double margin = span > 0 ? span * MARGIN_FRACTION : Math.max(Math.abs(dataMax) * MARGIN_FRACTION, 1e-3);
+        min = dataMin - margin;
+        max = dataMax + margin;
+        hasLimits = true;
+        return true;
+    }
+
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+
+    /** Double-ended queue of (timestamp, value) in ring buffers that grow as needed. */
+    private static final class Deque {
+        private long[] timestamps = new long[64];
+        private double[] values = new double[64];
+        private int head = 0, size = 0;
+
+        boolean isEmpty() { return size == 0; }
+        void clear() { head = 0; size = 0; }
+        long firstTimestamp() { return timestamps[head]; }
+        double firstValue() { return values[head]; }
+        double lastValue() { return values[(head + size - 1) & (values.length - 1)]; }
+        void removeFirst() { head = (head + 1) & (values.length - 1); size--; }
+        void removeLast() { size--; }
+
+        void addLast(long timestamp, double value) {
+            if (size == values.length) {
+                // Unroll into larger arrays; capacities stay powers of two for the index masks.
+                long[] t = new long[size * 2];
+                double[] v = new double[size * 2];
+                for (int i = 0; i < size; i++) {
+                    t[i] = timestamps[(head + i) & (values.length - 1)];
+                    v[i] = values[(head + i) & (values.length - 1)];
+                }
+                timestamps = t;
+                values = v;
+                head = 0;
+            }
+            int i = (head + size) & (values.length - 1);
+            timestamps[i] = timestamp;
+            values[i] = value;
+            size++;
+        }
+    }
+}
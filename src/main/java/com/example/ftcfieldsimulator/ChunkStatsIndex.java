@@ -0,0 +1,192 @@
+package com.example.ftcfieldsimulator;
+
+import java.util.Arrays;
+
+/**
+ * Aggregates of one series' chunks, indexed by chunk position, for answering range statistics
+ * without touching samples.
+ *
+ * The additive aggregates (sample count, sum, sum of squares, trapezoidal integral) are kept as
+ * prefix sums over the chunks, so any run of chunks is answered by two lookups. The integral of a
+ * chunk includes the junction segment from the previous chunk's last sample, which is subtracted
+ * again at the start of a run. Value extrema are kept in a segment tree (min and max per node).
+ * Prefix maxima and suffix minima of the chunk time ranges are monotonic even when late arrivals
+ * make neighbouring chunks overlap, so the chunks touching or lying wholly inside a time window are
+ * found by binary search.
+ *
+ * Only the last chunk (the tail, while samples are appended) or a new one after it may be updated,
+ * which keeps every update O(log n) in the number of chunks. Not thread-safe; the owning
+ * {@link PlotDataStore} guards it with its own lock.
+ */
+public final class ChunkStatsIndex {
+
+    private int size = 0;
+    private long[] prefixCount = new long[16];
+    private double[] prefixSum = new double[16], prefixSumSq = new double[16], prefixIntegral = new double[16];
+    private double[] junction = new double[16];
+    private long[] prefixMaxTimestamp = new long[16], suffixMinTimestamp = new long[16];
+
+    // Segment tree over chunk positions: leaves at [leaves, 2 * leaves), root at 1.
+    private int leaves = 16;
+    private double[] treeMin = newTree(16, Double.POSITIVE_INFINITY), treeMax = newTree(16, Double.NEGATIVE_INFINITY);
+
+    public int size() { return size; }
+
+    /**
+     * Sets the aggregates of chunk i, which must be the last chunk or the one after it.
+     * @param junctionIntegral the trapezoid from the previous chunk's last sample to this chunk's first
+     */
+    public void update(int i, long minTimestamp, long maxTimestamp, double minValue, double maxValue,
+                       long count, double sum, double sumSq, double integral, double junctionIntegral) {
+        if (i != size && i != size - 1) throw new IllegalArgumentException("Only the last chunk can be updated: " + i);
+        if (i == size) {
+            if (size == prefixCount.length) grow();
+            size++;
+        }
+        boolean first = i == 0;
+        prefixCount[i] = (first ? 0 : prefixCount[i - 1]) + count;
+        prefixSum[i] = (first ? 0 : prefixSum[i - 1]) + sum;
+        prefixSumSq[i] = (first ? 0 : prefixSumSq[i - 1]) + sumSq;
+        prefixIntegral[i] = (first ? 0 : prefixIntegral[i - 1]) + integral + junctionIntegral;
+        junction[i] = junctionIntegral;
+        prefixMaxTimestamp[i] = first ? maxTimestamp : Math.max(prefixMaxTimestamp[i - 1], maxTimestamp);
+        // A late arrival can lower the suffix minima of earlier chunks too, but only as far back as
+        // they exceed it.
+        suffixMinTimestamp[i] = minTimestamp;
+        for (int j = i - 1; j >= 0 && suffixMinTimestamp[j] > minTimestamp; j--) suffixMinTimestamp[j] = minTimestamp;
+
+        if (i >= leaves) growTree();
+        int node = leaves + i;
+        treeMin[node] = minValue;
+        treeMax[node] = maxValue;
+        for (node >>= 1; node >= 1; node >>= 1) {
+            treeMin[node] = Math.min(treeMin[2 * node], treeMin[2 * node + 1]);
+            treeMax[node] = Math.max(treeMax[2 * node], treeMax[2 * node + 1]);
+        }
+    }
+
+    public void clear() {
+        size = 0;
+        Arrays.fill(treeMin, Double.POSITIVE_INFINITY);
+        Arrays.fill(treeMax, Double.NEGATIVE_INFINITY);
+    }
+
+    // --- Locating chunks (each returns size or -1 when no chunk qualifies) ---
+
+    /** @return the first chunk at or after which some chunk ends at or after ts. Earlier chunks lie wholly before ts. */
+    public int firstEndingAtOrAfter(long ts) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prefixMaxTimestamp[mid] < ts) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /** @return the first chunk from which on every chunk starts at or after ts. */
+    public int firstStartingAtOrAfter(long ts) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (suffixMinTimestamp[mid] < ts) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /** @return the last chunk from which on some chunk starts at or before ts. Later chunks lie wholly after ts. */
+    public int lastStartingAtOrBefore(long ts) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (suffixMinTimestamp[mid] <= ts) lo = mid + 1; else hi = mid;
+        }
+        return lo - 1;
+    }
+
+    /** @return the last chunk up to which every chunk ends at or before ts. */
+    public int lastEndingAtOrBefore(long ts) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prefixMaxTimestamp[mid] <= ts) lo = mid + 1; else hi = mid;
+        }
+        return lo - 1;
+    }
+
+    /** @return the latest end of chunks 0..i. */
+    public long maxTimestampThrough(int i) { return prefixMaxTimestamp[i]; }
+
+    /** @return the earliest start of chunks i..size() - 1. */
+    public long minTimestampFrom(int i) { return suffixMinTimestamp[i]; }
+
+    // --- Aggregates over chunks from..to (inclusive, from <= to) ---
+
+    public long count(int from, int to) { return prefixCount[to] - (from > 0 ? prefixCount[from - 1] : 0); }
+    public double sum(int from, int to) { return prefixSum[to] - (from > 0 ? prefixSum[from - 1] : 0); }
+    public double sumSq(int from, int to) { return prefixSumSq[to] - (from > 0 ? prefixSumSq[from - 1] : 0); }
+
+    /** @return the integral over the run, excluding the junction into its first chunk. */
+    public double integral(int from, int to) { return prefixIntegral[to] - (from > 0 ? prefixIntegral[from - 1] : 0) - junction[from]; }
+
+    public double min(int from, int to) {
+        double m = Double.POSITIVE_INFINITY;
+        for (int l = from + leaves, r = to + leaves + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) m = Math.min(m, treeMin[l++]);
+            if ((r & 1) == 1) m = Math.min(m, treeMin[--r]);
+        }
+        return m;
+    }
+
+    public double max(int from, int to) {
+        double m = Double.NEGATIVE_INFINITY;
+        for (int l = from + leaves, r = to + leaves + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) m = Math.max(m, treeMax[l++]);
+            if ((r & 1) == 1) m = Math.max(m, treeMax[--r]);
+        }
+        return m;
+    }
+
+    /** @return the last chunk in from..to holding a value below low or above high, or -1 if none does. */
+    public int lastOutside(int from, int to, double low, double high) {
+        return lastOutside(1, 0, leaves - 1, from, to, low, high);
+    }
+
+    private int lastOutside(int node, int nodeFrom, int nodeTo, int from, int to, double low, double high) {
+        if (nodeTo < from || nodeFrom > to || (treeMin[node] >= low && treeMax[node] <= high)) return -1;
+        if (nodeFrom == nodeTo) return nodeFrom;
+        int mid = (nodeFrom + nodeTo) >>> 1;
+        int right = lastOutside(2 * node + 1, mid + 1, nodeTo, from, to, low, high);
+        return right >= 0 ? right : lastOutside(2 * node, nodeFrom, mid, from, to, low, high);
+    }
+
+    private void grow() {
+        int capacity = prefixCount.length * 2;
+        prefixCount = Arrays.copyOf(prefixCount, capacity);
+        prefixSum = Arrays.copyOf(prefixSum, capacity);
+        prefixSumSq = Arrays.copyOf(prefixSumSq, capacity);
+        prefixIntegral = Arrays.copyOf(prefixIntegral, capacity);
+        junction = Arrays.copyOf(junction, capacity);
+        prefixMaxTimestamp = Arrays.copyOf(prefixMaxTimestamp, capacity);
+        suffixMinTimestamp = Arrays.copyOf(suffixMinTimestamp, capacity);
+    }
+
+    private void growTree() {
+        int newLeaves = leaves * 2;
+        double[] newMin = newTree(newLeaves, Double.POSITIVE_INFINITY), newMax = newTree(newLeaves, Double.NEGATIVE_INFINITY);
+        System.arraycopy(treeMin, leaves, newMin, newLeaves, leaves);
+        System.arraycopy(treeMax, leaves, newMax, newLeaves, leaves);
+        for (int node = newLeaves - 1; node >= 1; node--) {
+            newMin[node] = Math.min(newMin[2 * node], newMin[2 * node + 1]);
+            newMax[node] = Math.max(newMax[2 * node], newMax[2 * node + 1]);
+        }
+        leaves = newLeaves;
+        treeMin = newMin;
+        treeMax = newMax;
+    }
+
+    private static double[] newTree(int leaves, double fill) {
+        double[] tree = new double[2 * leaves];
+        Arrays.fill(tree, fill);
+        return tree;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.ftcfieldsimulator;
 
 import javafx.beans.value.ChangeListener;
 import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
@@ -28,14 +29,20 @@ public class ControlPanel extends VBox {
     public static final double PREFERRED_WIDTH_RATIO_TO_FIELD = 1.0 / 3.0;
     public static final String ALL_POINTS_MARKER = "ALL Points";
     public static final String TEXTFIELD_VARIES_TEXT = "-- Varies --";
+    private static final String PLAYBACK_SPEED_MAX = "Max";
 
     // --- UI Elements ---
     private Button newPathButton, deletePathButton, importCodeButton, exportCodeButton, clearTrailButton, clearNamedLinesButton;
     private ComboBox<String> ipAddressComboBox;
     private Button sendPathButton;
     private Button recordButton, playPauseButton, reverseButton, forwardButton;
+    private ComboBox<String> playbackSpeedComboBox;
     private Button instantReplayButton, returnToLiveButton;
     private Button openButton, saveButton, clearButton;
+    private ProgressBar saveProgressBar;
+    private Label saveStatusLabel;
+    private VBox saveProgressBox;
+    private Task<?> trackedSave;
     private ImageView recordIcon, stopIcon, playIcon, pauseIcon, reverseIcon, forwardIcon;
     private Slider timelineSlider;
     private Button showPlotButton;
@@ -178,6 +185,15 @@ public class ControlPanel extends VBox {
         HBox.setHgrow(openButton, Priority.ALWAYS);
         HBox.setHgrow(saveButton, Priority.ALWAYS);
         HBox.setHgrow(clearButton, Priority.ALWAYS);
+
+        // --- Save progress, hidden until a save starts ---
+        saveProgressBar = new ProgressBar(0);
+        saveProgressBar.setMaxWidth(Double.MAX_VALUE);
+        saveStatusLabel = new Label();
+        saveStatusLabel.setFont(Font.font("Arial", 11));
+        saveProgressBox = new VBox(3, saveProgressBar, saveStatusLabel);
+        setSaveProgressVisible(false);
+
         recordButton = new Button();
         recordButton.setGraphic(recordIcon);
         playPauseButton = new Button();
@@ -186,7 +202,12 @@ public class ControlPanel extends VBox {
         reverseButton.setGraphic(reverseIcon);
         forwardButton = new Button();
         forwardButton.setGraphic(forwardIcon);
-        HBox recordingButtons = new HBox(10, reverseButton, playPauseButton, forwardButton, recordButton);
+        playbackSpeedComboBox = new ComboBox<>();
+        playbackSpeedComboBox.getItems().addAll("0.1x", "0.25x", "0.5x", "1x", "2x", "4x", "8x", "16x", "32x", PLAYBACK_SPEED_MAX);
+        playbackSpeedComboBox.setValue("1x");
+        playbackSpeedComboBox.setTooltip(new Tooltip("Playback speed (Max plays as fast as the display keeps up)"));
+        playbackSpeedComboBox.setStyle("-fx-font-size: 12px;");
+        HBox recordingButtons = new HBox(10, reverseButton, playPauseButton, forwardButton, recordButton, playbackSpeedComboBox);
         recordingButtons.setAlignment(Pos.CENTER);
 
         // --- Instant Replay Section ---
@@ -207,7 +228,7 @@ public class ControlPanel extends VBox {
         timeLapsedLabel.setAlignment(Pos.CENTER_RIGHT);
         timeLapsedLabel.setPadding(new Insets(2, 0, 0, 0));
 
-        VBox recordingControlsBox = new VBox(sectionSpacing, recordingTitle, fileButtons, recordingButtons, replayControlsBox, timelineSlider, timeLapsedLabel);
+        VBox recordingControlsBox = new VBox(sectionSpacing, recordingTitle, fileButtons, saveProgressBox, recordingButtons, replayControlsBox, timelineSlider, timeLapsedLabel);
 
         // --- Tools Section ---
         showPlotButton = createMaxWidthButton("Show Time Plot");
@@ -359,6 +380,29 @@ public class ControlPanel extends VBox {
         }
     }
 
+    /**
+     * Shows the progress and status message of a recording save until the task finishes. Call on
+     * the FX thread before the task starts.
+     */
+    public void trackSaveTask(Task<?> task) {
+        trackedSave = task;
+        saveProgressBar.progressProperty().bind(task.progressProperty());
+        saveStatusLabel.textProperty().bind(task.messageProperty());
+        setSaveProgressVisible(true);
+        task.runningProperty().addListener((obs, wasRunning, running) -> {
+            if (running || trackedSave != task) return; // A newer save took over the panel
+            trackedSave = null;
+            saveProgressBar.progressProperty().unbind();
+            saveStatusLabel.textProperty().unbind();
+            setSaveProgressVisible(false);
+        });
+    }
+
+    private void setSaveProgressVisible(boolean visible) {
+        saveProgressBox.setVisible(visible);
+        saveProgressBox.setManaged(visible);
+    }
+
     public void setOnNewPathAction(EventHandler<ActionEvent> handler) { newPathButton.setOnAction(handler); }
     public void setOnDeletePathAction(EventHandler<ActionEvent> handler) { deletePathButton.setOnAction(handler); }
     public void setOnImportCodeAction(EventHandler<ActionEvent> handler) { importCodeButton.setOnAction(handler); }    public void setOnExportCodeAction(EventHandler<ActionEvent> handler) { exportCodeButton.setOnAction(handler); }
@@ -371,6 +415,16 @@ public class ControlPanel extends VBox {
     public void setOnForwardAction(Runnable action) { if (forwardButton != null) { forwardButton.setOnAction(e -> action.run()); } }
     public void setOnReverseAction(Runnable action) { if (reverseButton != null) { reverseButton.setOnAction(e -> action.run()); } }
 
+    public void setOnPlaybackSpeedAction(EventHandler<ActionEvent> handler) { playbackSpeedComboBox.setOnAction(handler); }
+
+    /** @return the selected playback speed factor, RecordingManager.AS_FAST_AS_POSSIBLE for "Max". */
+    public double getPlaybackSpeed() {
+        String value = playbackSpeedComboBox.getValue();
+        if (value == null) return 1.0;
+        if (value.equals(PLAYBACK_SPEED_MAX)) return RecordingManager.AS_FAST_AS_POSSIBLE;
+        return Double.parseDouble(value.substring(0, value.length() - 1));
+    }
+
     public void setOnTimelineSliderChanged(ChangeListener<Number> listener) { timelineSlider.valueProperty().addListener(listener); }
     public void setOnSliderMouseReleased(EventHandler<MouseEvent> handler) { timelineSlider.setOnMouseReleased(handler); }
 
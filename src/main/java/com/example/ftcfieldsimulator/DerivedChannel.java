@@ -0,0 +1,158 @@
+package com.example.ftcfieldsimulator;
+
+/**
+ * A plot series computed from other series as their samples arrive.
+ *
+ * Every operation keeps constant-size state, so each input sample costs O(1) whatever the length of
+ * the history: the derivative keeps the previous sample, the EMA its running value, the rolling
+ * statistics a ring buffer of the last N values with a running mean and sum of squared deviations
+ * (Welford's update, applied in both directions as values enter and leave the window), and the
+ * difference the latest value of each input (sample-and-hold).
+ *
+ * Input samples of NaN are gaps: they are passed through as NaN and restart the derivative.
+ */
+public class DerivedChannel {
+
+    public enum Operation {
+        DERIVATIVE("d/dt", false),
+        EMA("EMA", false),
+        ROLLING_MEAN("Rolling mean", false),
+        ROLLING_STD("Rolling std", false),
+        DIFFERENCE("A - B", true),
+        SCALE("Scale + offset", false);
+
+        private final String label;
+        private final boolean binary;
+
+        Operation(String label, boolean binary) { this.label = label; this.binary = binary; }
+
+        /** @return true if the operation takes a second input series. */
+        public boolean isBinary() { return binary; }
+        /** @return true if the operation takes a window size N. */
+        public boolean usesWindow() { return this == EMA || this == ROLLING_MEAN || this == ROLLING_STD; }
+
+        @Override public String toString() { return label; }
+    }
+
+    /** An input series, identified like in the store by kind and style number. */
+    public static final class Source {
+        public final int kind, style;
+        private final String label;
+
+        public Source(int kind, int style, String label) {
+            this.kind = kind; this.style = style; this.label = label;
+        }
+
+        boolean matches(int kind, int style) { return this.kind == kind && this.style == style; }
+
+        @Override public String toString() { return label; }
+    }
+
+    /** What the user asked for; the output series is assigned when the channel is added. */
+    public static final class Definition {
+        public final Operation operation;
+        public final Source a, b; // b is null unless the operation is binary
+        public final int window;
+        public final double scale, offset;
+        public final String name;
+        public final boolean secondaryAxis;
+
+        public Definition(Operation operation, Source a, Source b, int window, double scale, double offset, String name, boolean secondaryAxis) {
+            this.operation = operation; this.a = a; this.b = b; this.window = window;
+            this.scale = scale; this.offset = offset; this.name = name; this.secondaryAxis = secondaryAxis;
+        }
+    }
+
+    private final Definition definition;
+    private final int outputKind, outputStyle;
+
+    // --- Incremental state ---
+    private long lastTimestamp;
+    private double lastValue = Double.NaN;   // DERIVATIVE: previous sample; EMA: running value
+    private double latestA = Double.NaN, latestB = Double.NaN;
+    private double[] ring;                   // ROLLING_*: last N values
+    private int ringStart = 0, ringCount = 0;
+    private double mean = 0, m2 = 0;         // ROLLING_*: running mean and sum of squared deviations
+
+    public DerivedChannel(Definition definition, int outputStyle) {
+        if (definition.operation.isBinary() && definition.b == null) throw new IllegalArgumentException(definition.operation + " needs two input series");
+        if (definition.operation.usesWindow() && definition.window < 1) throw new IllegalArgumentException("Window must be at least 1 sample");
+        this.definition = definition;
+        this.outputKind = definition.secondaryAxis ? PlotDataStore.KIND_LINE2 : PlotDataStore.KIND_LINE;
+        this.outputStyle = outputStyle;
+        reset();
+    }
+
+    public Definition getDefinition() { return definition; }
+    public int getOutputKind() { return outputKind; }
+    public int getOutputStyle() { return outputStyle; }
+
+    /** @return true if samples of the given series feed this channel. */
+    public boolean isInput(int kind, int style) {
+        return definition.a.matches(kind, style) || (definition.b != null && definition.b.matches(kind, style));
+    }
+
+    /** Forgets all state, e.g. when the plot is cleared. */
+    public void reset() {
+        lastValue = Double.NaN;
+        latestA = Double.NaN;
+        latestB = Double.NaN;
+        ring = definition.operation == Operation.ROLLING_MEAN || definition.operation == Operation.ROLLING_STD ? new double[definition.window] : null;
+        ringStart = 0;
+        ringCount = 0;
+        mean = 0;
+        m2 = 0;
+    }
+
+    /**
+     * Feeds one input sample and passes the resulting output sample, if any, to out.
+     * Samples must arrive in time order per input.
+     */
+    public void accept(int kind, int style, long timestamp, double value, PlotDataStore.SampleVisitor out) {
+        switch (definition.operation) {
+            case DERIVATIVE -> {
+                if (Double.isNaN(value)) {
+                    lastValue = Double.NaN;
+                    out.visit(timestamp, Double.NaN);
+                    return;
+                }
+                long dtMs = timestamp - lastTimestamp;
+                if (!Double.isNaN(lastValue) && dtMs > 0) out.visit(timestamp, (value - lastValue) * 1000.0 / dtMs);
+                if (Double.isNaN(lastValue) || dtMs > 0) { lastValue = value; lastTimestamp = timestamp; }
+            }
+            case EMA -> {
+                if (Double.isNaN(value)) { out.visit(timestamp, Double.NaN); return; }
+                double alpha = 2.0 / (definition.window + 1);
+                lastValue = Double.isNaN(lastValue) ? value : lastValue + alpha * (value - lastValue);
+                out.visit(timestamp, lastValue);
+            }
+            case ROLLING_MEAN, ROLLING_STD -> {
+                if (Double.isNaN(value)) { out.visit(timestamp, Double.NaN); return; }
+                if (ringCount == ring.length) {
+                    double old = ring[ringStart];
+                    ringStart = (ringStart + 1) % ring.length;
+                    ringCount--;
+                    if (ringCount == 0) { mean = 0; m2 = 0; }
+                    else {
+                        double delta = old - mean;
+                        mean -= delta / ringCount;
+                        m2 -= delta * (old - mean);
+                    }
+                }
+                ring[(ringStart + ringCount) % ring.length] = value;
+                ringCount++;
+                double delta = value - mean;
+                mean += delta / ringCount;
+                m2 += delta * (value - mean);
+                out.visit(timestamp, definition.operation == Operation.ROLLING_MEAN ? mean : Math.sqrt(Math.max(m2, 0) / ringCount));
+            }
+            case DIFFERENCE -> {
+                if (definition.a.matches(kind, style)) latestA = value;
+                if (definition.b.matches(kind, style)) latestB = value;
+                if (!Double.isNaN(latestA) && !Double.isNaN(latestB)) out.visit(timestamp, latestA - latestB);
+                else if (Double.isNaN(value)) out.visit(timestamp, Double.NaN);
+            }
+            case SCALE -> out.visit(timestamp, value * definition.scale + definition.offset);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.ftcfieldsimulator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates the {@link DerivedChannel}s of a plot as samples are ingested.
+ *
+ * Channels are indexed by input series, so a sample only reaches the channels it feeds. The output
+ * of a channel is fed back in, so a channel can be computed from another derived channel (e.g. the
+ * rolling mean of a velocity). Since a channel can only be defined over series that already exist,
+ * the channels always form a DAG and this terminates.
+ *
+ * Not thread safe; PlotDisplay uses it on the FX thread only.
+ */
+public class DerivedChannelEngine {
+
+    /** First style number handed to derived series, clear of the styles robot code uses. */
+    public static final int FIRST_OUTPUT_STYLE = 1000;
+
+    /** Receives every output sample, including those of chained channels. */
+    public interface OutputSink {
+        void sample(DerivedChannel channel, long timestamp, double value);
+    }
+
+    private final List<DerivedChannel> channels = new ArrayList<>();
+    private final Map<Long, List<DerivedChannel>> channelsByInput = new HashMap<>();
+
+    private static long key(int kind, int style) { return ((long) style << 8) | kind; }
+
+    /**
+     * Adds a channel writing to the first style number from {@link #FIRST_OUTPUT_STYLE} that is free
+     * on the output axis, both in the registry and among the existing channels.
+     */
+    public DerivedChannel add(DerivedChannel.Definition definition, PlotSeriesRegistry registry) {
+        int kind = definition.secondaryAxis ? PlotDataStore.KIND_LINE2 : PlotDataStore.KIND_LINE;
+        int style = FIRST_OUTPUT_STYLE;
+        while (registry.find(kind, style) >= 0 || isOutput(kind, style)) style++;
+        DerivedChannel channel = new DerivedChannel(definition, style);
+        channels.add(channel);
+        addInput(definition.a, channel);
+        if (definition.b != null) addInput(definition.b, channel);
+        return channel;
+    }
+
+    private void addInput(DerivedChannel.Source source, DerivedChannel channel) {
+        List<DerivedChannel> list = channelsByInput.computeIfAbsent(key(source.kind, source.style), k -> new ArrayList<>());
+        if (!list.contains(channel)) list.add(channel);
+    }
+
+    private boolean isOutput(int kind, int style) {
+        for (DerivedChannel c : channels) if (c.getOutputKind() == kind && c.getOutputStyle() == style) return true;
+        return false;
+    }
+
+    public List<DerivedChannel> getChannels() { return new ArrayList<>(channels); }
+    public boolean isEmpty() { return channels.isEmpty(); }
+
+    /** Feeds one ingested sample to the channels that use its series, and their outputs onwards. */
+    public void process(int kind, int style, long timestamp, double value, OutputSink sink) {
+        List<DerivedChannel> targets = channelsByInput.get(key(kind, style));
+        if (targets == null) return;
+        for (DerivedChannel channel : targets) {
+            channel.accept(kind, style, timestamp, value, (ts, v) -> {
+                sink.sample(channel, ts, v);
+                process(channel.getOutputKind(), channel.getOutputStyle(), ts, v, sink);
+            });
+        }
+    }
+
+    /** Resets the state of every channel; the definitions are kept. */
+    public void reset() {
+        for (DerivedChannel channel : channels) channel.reset();
+    }
+}
@@ -79,6 +79,14 @@ public class FieldKeyValueTable extends VBox {
     public void updateValue(String key, String value) {
         dataMap.put(key, value);
     }
+
+    /** Replaces the table's contents, touching only the keys that differ. */
+    public void setValues(Map<String, String> values) {
+        dataMap.keySet().retainAll(values.keySet());
+        values.forEach((key, value) -> {
+            if (!value.equals(dataMap.get(key))) dataMap.put(key, value);
+        });
+    }
 }
 
 
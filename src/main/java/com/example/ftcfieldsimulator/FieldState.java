@@ -0,0 +1,85 @@
+package com.example.ftcfieldsimulator;
+
+import com.example.ftcfieldsimulator.UdpPositionListener.CircleData;
+import com.example.ftcfieldsimulator.UdpPositionListener.KeyValueData;
+import com.example.ftcfieldsimulator.UdpPositionListener.LineData;
+import com.example.ftcfieldsimulator.UdpPositionListener.PositionData;
+import com.example.ftcfieldsimulator.UdpPositionListener.TextData;
+import com.example.ftcfieldsimulator.UdpPositionListener.UdpMessageData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What the field shows after a prefix of a recording has been played: robot pose, named lines,
+ * key-values, robot text, debug circle and the length of the trail.
+ *
+ * Every event kind is last-write-wins (per name or key for lines and key-values), so the state is
+ * computed by {@link #apply}ing events without drawing anything, and copied as a keyframe. The
+ * trail is kept as a length only: its dots are the poses before the current one, which the recording
+ * already holds, and are filled into {@link #trailX}/{@link #trailY} when a state is restored.
+ */
+public class FieldState {
+
+    /** Index of the last event applied, -1 for the state before the first event. */
+    public int eventIndex = -1;
+
+    public boolean hasPose = false;
+    public double x, y, heading;
+    public int trailLength = 0;
+
+    public final Map<String, LineData> namedLines;
+    public final Map<String, String> keyValues;
+    public String text = null;
+
+    /** The last debug circle and the robot position it was drawn at (NaN if there was no pose yet). */
+    public CircleData circle = null;
+    public double circleX = Double.NaN, circleY = Double.NaN;
+
+    /** Trail dots in field inches, oldest first; only set on a state being restored. */
+    public double[] trailX, trailY;
+
+    public FieldState() {
+        namedLines = new LinkedHashMap<>();
+        keyValues = new LinkedHashMap<>();
+    }
+
+    private FieldState(FieldState other) {
+        eventIndex = other.eventIndex;
+        hasPose = other.hasPose;
+        x = other.x; y = other.y; heading = other.heading;
+        trailLength = other.trailLength;
+        namedLines = new LinkedHashMap<>(other.namedLines);
+        keyValues = new LinkedHashMap<>(other.keyValues);
+        text = other.text;
+        circle = other.circle;
+        circleX = other.circleX; circleY = other.circleY;
+    }
+
+    public FieldState copy() {
+        return new FieldState(this);
+    }
+
+    /** Advances the state over the next event of the recording. */
+    public void apply(UdpMessageData data) {
+        eventIndex++;
+        if (data instanceof PositionData) {
+            PositionData p = (PositionData) data;
+            if (hasPose) trailLength = Math.min(trailLength + 1, FieldDisplay.MAX_TRAIL_DOTS);
+            hasPose = true;
+            x = p.x; y = p.y; heading = p.heading;
+        } else if (data instanceof CircleData) {
+            circle = (CircleData) data;
+            circleX = hasPose ? x : Double.NaN;
+            circleY = hasPose ? y : Double.NaN;
+        } else if (data instanceof LineData) {
+            LineData l = (LineData) data;
+            namedLines.put(l.name, l);
+        } else if (data instanceof TextData) {
+            text = ((TextData) data).text;
+        } else if (data instanceof KeyValueData) {
+            KeyValueData kv = (KeyValueData) data;
+            keyValues.put(kv.key, kv.value);
+        }
+    }
+}
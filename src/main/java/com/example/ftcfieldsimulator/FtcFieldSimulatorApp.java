@@ -36,17 +36,14 @@ import com.example.ftcfieldsimulator.UdpPositionListener.PositionData;
 import com.example.ftcfieldsimulator.UdpPositionListener.TextData;
 import com.example.ftcfieldsimulator.UdpPositionListener.UdpMessageData;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -126,6 +123,8 @@ public class FtcFieldSimulatorApp extends Application {
             }
             updateTimeLapsedDisplay();
         });
+        recordingManager.setOnStateRestore(this::restoreFieldState);
+        recordingManager.setOnEventBatch(this::processUdpBatchAndUpdateUI);
 
         instructionLabel = new Label("Create a new path or select a point to edit its parameters.");
         instructionLabel.setPadding(new Insets(5));
@@ -179,6 +178,12 @@ public class FtcFieldSimulatorApp extends Application {
         updateUIFromRobotState();
         updateControlPanelForPathState();
         updateTimeLapsedDisplay();
+
+        List<Path> recovered = recordingManager.recoverJournals();
+        if (!recovered.isEmpty()) {
+            instructionLabel.setText("Recovered " + recovered.size() + " unsaved recording(s) to " + recovered.get(0).getParent()
+                    + " (" + recovered.get(recovered.size() - 1).getFileName() + ")");
+        }
     }
 
     // --- To set up the delete action ---
@@ -1274,6 +1279,7 @@ public class FtcFieldSimulatorApp extends Application {
             }
             updateTimeLapsedDisplay();
         });
+        controlPanel.setOnPlaybackSpeedAction(e -> recordingManager.setPlaybackSpeed(controlPanel.getPlaybackSpeed()));
         controlPanel.setOnTimelineSliderChanged((observable, oldValue, newValue) -> {
             if (controlPanel.getTimelineSlider().isValueChanging() && recordingManager.getCurrentState() != RecordingManager.PlaybackState.PLAYING) {
                 recordingManager.seekTo(newValue.intValue());
@@ -1344,69 +1350,54 @@ public class FtcFieldSimulatorApp extends Application {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Recording");
         fileChooser.setInitialFileName("recording.rec");
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Recording Files", "*.rec"));
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Recording Files", "*" + RecordingTextFormat.EXTENSION),
+                new FileChooser.ExtensionFilter("Binary Recording Files", "*" + RecordingBinaryFile.EXTENSION),
+                new FileChooser.ExtensionFilter("Compressed Recording Files", "*" + RecordingCompressedFile.EXTENSION)
+        );
         File file = fileChooser.showSaveDialog(primaryStage);
         if (file == null) { instructionLabel.setText("Save cancelled."); return; }
-        ArrayList<RecordingManager.RecordedEvent> events = recordingManager.getRecordedSession();
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            for (RecordingManager.RecordedEvent event : events) {
-                String line = formatEventToString(event);
-                if (line != null) {
-                    writer.write(line);
-                    writer.newLine();
-                }
-            }
+        // Written on a background thread from a snapshot, so live telemetry keeps flowing meanwhile
+        RecordingSaveTask saveTask = new RecordingSaveTask(file, recordingManager.getSessionSnapshot());
+        saveTask.setOnSucceeded(e -> {
+            recordingManager.discardJournal(saveTask.getSnapshot()); // Saved; no longer needed for crash recovery
             instructionLabel.setText("Recording saved: " + file.getName());
-        } catch (IOException e) {
-            instructionLabel.setText("Error saving recording: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
-    private String formatEventToString(RecordingManager.RecordedEvent event) {
-        String payload; UdpMessageData data = event.messageData;
-        if (data instanceof PositionData) { PositionData d = (PositionData) data; payload = String.format(Locale.US,"pos:%.3f,%.3f,%.3f", d.x, d.y, d.heading); }
-        else if (data instanceof CircleData) { CircleData d = (CircleData) data; payload = String.format(Locale.US,"cir:%.3f,%.3f", d.radiusInches, d.heading); }
-        else if (data instanceof LineData) { LineData d = (LineData) data; payload = String.format(Locale.US,"line:%s,%.3f,%.3f,%.3f,%.3f,%d", d.name, d.x1, d.y1, d.x2, d.y2, d.styleCode); }
-        else if (data instanceof TextData) { TextData d = (TextData) data; payload = "txt:" + d.text; }
-        else if (data instanceof KeyValueData) {
-            KeyValueData kv = (KeyValueData) data;
-            // Simple escaping for now to handle potential issues in the value string
-            payload = String.format("kv:%s,%s", kv.key, kv.value);
-        }
-        else { return null; }
-        return event.timestamp + "|" + payload;
+        });
+        saveTask.setOnFailed(e -> {
+            Throwable error = saveTask.getException();
+            instructionLabel.setText("Error saving recording: " + error.getMessage());
+            error.printStackTrace();
+        });
+        controlPanel.trackSaveTask(saveTask);
+        instructionLabel.setText("Saving recording: " + file.getName());
+        Thread thread = new Thread(saveTask, "RecordingSaveThread");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     private void handleOpenRecording() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Open Recording");
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Recording Files", "*.rec"));
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Recording Files", "*" + RecordingTextFormat.EXTENSION, "*" + RecordingBinaryFile.EXTENSION,
+                        "*" + RecordingCompressedFile.EXTENSION),
+                new FileChooser.ExtensionFilter("All Files", "*.*")
+        );
         File file = fileChooser.showOpenDialog(primaryStage);
         if (file == null) { instructionLabel.setText("Open cancelled."); return; }
-        ArrayList<RecordingManager.RecordedEvent> loadedEvents = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] lineParts = line.split("\\|", 2);
-                if (lineParts.length != 2) continue;
-                long timestamp = Long.parseLong(lineParts[0]); String payload = lineParts[1];
-                UdpMessageData parsedData = null;
-                if (payload.startsWith("pos:")) { String c = payload.substring(4); String[] p = c.split(","); if (p.length == 3) parsedData = new PositionData(Double.parseDouble(p[0]), Double.parseDouble(p[1]), Double.parseDouble(p[2])); }
-                else if (payload.startsWith("cir:")) { String c = payload.substring(4); String[] p = c.split(","); if (p.length == 2) parsedData = new CircleData(Double.parseDouble(p[0]), Double.parseDouble(p[1])); }
-                else if (payload.startsWith("line:")) { String c = payload.substring(5); String[] p = c.split(",", 6); if (p.length == 6) parsedData = new LineData(p[0], Double.parseDouble(p[1]), Double.parseDouble(p[2]), Double.parseDouble(p[3]), Double.parseDouble(p[4]), Integer.parseInt(p[5]));}
-                else if (payload.startsWith("txt:")) { parsedData = new TextData(payload.substring(4));}
-                else if (payload.startsWith("kv:")) {
-                    String c = payload.substring(3);
-                    String[] p = c.split(",", 2);
-                    if (p.length == 2) parsedData = new KeyValueData(p[0], p[1]);
-                }
-                if (parsedData != null) loadedEvents.add(new RecordingManager.RecordedEvent(timestamp, parsedData));
+        try {
+            if (RecordingBinaryFile.isBinaryRecording(file)) {
+                // Mapped, not read: events are decoded as playback and seeking reach them
+                recordingManager.loadRecordingView(RecordingBinaryFile.open(file));
+            } else if (RecordingCompressedFile.isCompressedRecording(file)) {
+                recordingManager.loadRecordingView(RecordingCompressedFile.open(file)); // Blocks decoded as reached
+            } else {
+                recordingManager.loadRecording(RecordingTextFormat.read(file));
             }
-            recordingManager.loadRecording(loadedEvents);
-            controlPanel.setPlaybackControlsDisabled(loadedEvents.isEmpty());
-            controlPanel.updateTimelineSlider(0, recordingManager.getTotalEvents());
-            controlPanel.setSaveButtonDisabled(loadedEvents.isEmpty());
+            int totalEvents = recordingManager.getTotalEvents();
+            controlPanel.setPlaybackControlsDisabled(totalEvents == 0);
+            controlPanel.updateTimelineSlider(0, totalEvents);
+            controlPanel.setSaveButtonDisabled(totalEvents == 0);
             controlPanel.togglePlayPauseButtonIcon(false);
             instructionLabel.setText("Opened: " + file.getName());
             updateTimeLapsedDisplay();
@@ -1449,6 +1440,38 @@ public class FtcFieldSimulatorApp extends Application {
     private void processUdpDataAndUpdateUI(UdpMessageData messageData) {
         if (messageData == null) return;
 
+        applyUdpData(messageData);
+
+        // After processing, redraw the UI
+        if (messageData instanceof PositionData) {
+            // This also updates status text fields and redraws the field
+            updateUIFromRobotState();
+        } else {
+            // For non-positional data, just redraw the field to show new lines, circles, etc.
+            fieldDisplay.drawCurrentState();
+        }
+    }
+
+    /**
+     * Like processUdpDataAndUpdateUI for the events of one playback frame: all are applied, then
+     * the UI is redrawn once. Called on the JavaFX Application Thread.
+     */
+    private void processUdpBatchAndUpdateUI(List<UdpMessageData> batch) {
+        boolean moved = false;
+        for (UdpMessageData messageData : batch) {
+            if (messageData == null) continue;
+            applyUdpData(messageData);
+            moved |= messageData instanceof PositionData;
+        }
+        if (moved) {
+            updateUIFromRobotState();
+        } else if (!batch.isEmpty()) {
+            fieldDisplay.drawCurrentState();
+        }
+    }
+
+    /** Applies one message to the robot, field and telemetry table without redrawing. */
+    private void applyUdpData(UdpMessageData messageData) {
         // Process the data based on its type
         if (messageData instanceof PositionData) {
             PositionData p = (PositionData) messageData;
@@ -1477,18 +1500,35 @@ public class FtcFieldSimulatorApp extends Application {
                 keyValueTable.updateValue(kv.key, kv.value);
             }
         }
+    }
 
-        // After processing, redraw the UI
-        if (messageData instanceof PositionData) {
-            // This also updates status text fields and redraws the field
-            updateUIFromRobotState();
+    /**
+     * Makes the field show a recorded state exactly, replacing the robot pose, trail, named lines,
+     * key-values, text and debug circle. Called on the FX thread after a seek or step.
+     */
+    private void restoreFieldState(FieldState state) {
+        if (robot == null || fieldDisplay == null) return;
+        if (state.hasPose) robot.setPosition(state.x, state.y, state.heading);
+        fieldDisplay.clearTrail();
+        for (int i = 0; i < state.trailX.length; i++) {
+            fieldDisplay.addTrailDot(state.trailX[i], state.trailY[i]);
+        }
+        synchronized (namedLinesLock) {
+            namedLinesToDraw.clear();
+            namedLinesToDraw.putAll(state.namedLines);
+        }
+        if (keyValueTable != null) keyValueTable.setValues(state.keyValues);
+        if (state.text != null) fieldDisplay.setRobotTextMessage(state.text); else fieldDisplay.clearRobotTextMessage();
+        if (state.circle != null) {
+            double cx = Double.isNaN(state.circleX) ? robot.getXInches() : state.circleX;
+            double cy = Double.isNaN(state.circleY) ? robot.getYInches() : state.circleY;
+            fieldDisplay.addDebugCircle(cx, cy, state.circle.radiusInches, state.circle.heading, Color.rgb(255, 165, 0, 0.7));
         } else {
-            // For non-positional data, just redraw the field to show new lines, circles, etc.
-            fieldDisplay.drawCurrentState();
+            fieldDisplay.clearDebugCircle();
         }
+        updateUIFromRobotState();
     }
 
-
 //    private void handleUdpMessage(UdpMessageData messageData) {
 //        if (messageData == null) return;
 //        Platform.runLater(() -> {
@@ -1567,6 +1607,9 @@ public class FtcFieldSimulatorApp extends Application {
         if (plotDisplayWindow != null && plotDisplayWindow.isShowing()){ // Close plot window if open
             plotDisplayWindow.hide();
         }
+        if (plotDisplayWindow != null) {
+            plotDisplayWindow.dispose(); // Deletes the plot's spill file
+        }
         System.out.println("Exiting application.");
         Platform.exit();
         System.exit(0);
@@ -0,0 +1,162 @@
+package com.example.ftcfieldsimulator;
+
+import java.util.Arrays;
+
+/**
+ * Compression for blocks of (timestamp, double) samples, after the scheme used by Facebook's Gorilla
+ * time series database.
+ *
+ * Timestamps are stored as delta-of-deltas, so a regularly sampled series costs about one bit per
+ * timestamp. Values are XORed with their predecessor and only the meaningful bits of the XOR are
+ * stored, so a slowly varying or constant signal costs a few bits per value.
+ *
+ * The sample count is not part of the encoding; callers keep it alongside the encoded bytes.
+ */
+public final class GorillaCodec {
+
+    private GorillaCodec() {}
+
+    public static byte[] encode(long[] timestamps, double[] values, int count) {
+        BitWriter out = new BitWriter(count * 2 + 16);
+        if (count == 0) return out.toByteArray();
+
+        out.writeBits(timestamps[0], 64);
+        long previousBits = Double.doubleToRawLongBits(values[0]);
+        out.writeBits(previousBits, 64);
+
+        long previousTimestamp = timestamps[0], previousDelta = 0;
+        int previousLeading = -1, previousTrailing = 0;
+        for (int i = 1; i < count; i++) {
+            // --- Timestamp: delta-of-delta in variable-size buckets ---
+            long delta = timestamps[i] - previousTimestamp;
+            long deltaOfDelta = delta - previousDelta;
+            if (deltaOfDelta == 0) {
+                out.writeBits(0, 1);
+            } else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+                out.writeBits(0b10, 2);
+                out.writeBits(deltaOfDelta, 7);
+            } else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+                out.writeBits(0b110, 3);
+                out.writeBits(deltaOfDelta, 9);
+            } else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(deltaOfDelta, 12);
+            } else {
+                out.writeBits(0b1111, 4);
+                out.writeBits(deltaOfDelta, 64);
+            }
+            previousDelta = delta;
+            previousTimestamp = timestamps[i];
+
+            // --- Value: XOR with the previous value ---
+            long bits = Double.doubleToRawLongBits(values[i]);
+            long xor = bits ^ previousBits;
+            if (xor == 0) {
+                out.writeBits(0, 1);
+            } else {
+                out.writeBits(1, 1);
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (previousLeading != -1 && leading >= previousLeading && trailing >= previousTrailing) {
+                    // Meaningful bits fit in the previous window: reuse it.
+                    out.writeBits(0, 1);
+                    out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                } else {
+                    int significant = 64 - leading - trailing;
+                    out.writeBits(1, 1);
+                    out.writeBits(leading, 5);
+                    out.writeBits(significant - 1, 6);
+                    out.writeBits(xor >>> trailing, significant);
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+            }
+            previousBits = bits;
+        }
+        return out.toByteArray();
+    }
+
+    /** Decodes count samples into timestamps[0..count) and values[0..count). */
+    public static void decode(byte[] data, int count, long[] timestamps, double[] values) {
+        if (count == 0) return;
+        BitReader in = new BitReader(data);
+
+        long timestamp = in.readBits(64);
+        long bits = in.readBits(64);
+        timestamps[0] = timestamp;
+        values[0] = Double.longBitsToDouble(bits);
+
+        long delta = 0;
+        int leading = 0, trailing = 0;
+        for (int i = 1; i < count; i++) {
+            long deltaOfDelta;
+            if (in.readBits(1) == 0) deltaOfDelta = 0;
+            else if (in.readBits(1) == 0) deltaOfDelta = signExtend(in.readBits(7), 7);
+            else if (in.readBits(1) == 0) deltaOfDelta = signExtend(in.readBits(9), 9);
+            else if (in.readBits(1) == 0) deltaOfDelta = signExtend(in.readBits(12), 12);
+            else deltaOfDelta = in.readBits(64);
+            delta += deltaOfDelta;
+            timestamp += delta;
+            timestamps[i] = timestamp;
+
+            if (in.readBits(1) == 1) {
+                if (in.readBits(1) == 1) {
+                    leading = (int) in.readBits(5);
+                    int significant = (int) in.readBits(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                bits ^= in.readBits(64 - leading - trailing) << trailing;
+            }
+            values[i] = Double.longBitsToDouble(bits);
+        }
+    }
+
+    private static long signExtend(long value, int bitCount) {
+        int shift = 64 - bitCount;
+        return (value << shift) >> shift;
+    }
+
+    private static final class BitWriter {
+        private byte[] buffer;
+        private long bitPosition = 0;
+
+        BitWriter(int initialBytes) { buffer = new byte[Math.max(initialBytes, 16)]; }
+
+        /** Writes the low bitCount bits of value, most significant first. */
+        void writeBits(long value, int bitCount) {
+            while (bitCount > 0) {
+                int byteIndex = (int) (bitPosition >>> 3);
+                if (byteIndex >= buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                int free = 8 - (int) (bitPosition & 7);
+                int take = Math.min(free, bitCount);
+                int chunk = (int) ((value >>> (bitCount - take)) & ((1 << take) - 1));
+                buffer[byteIndex] |= (byte) (chunk << (free - take));
+                bitPosition += take;
+                bitCount -= take;
+            }
+        }
+
+        byte[] toByteArray() { return Arrays.copyOf(buffer, (int) ((bitPosition + 7) >>> 3)); }
+    }
+
+    private static final class BitReader {
+        private final byte[] buffer;
+        private long bitPosition = 0;
+
+        BitReader(byte[] buffer) { this.buffer = buffer; }
+
+        long readBits(int bitCount) {
+            long result = 0;
+            while (bitCount > 0) {
+                int byteIndex = (int) (bitPosition >>> 3);
+                int available = 8 - (int) (bitPosition & 7);
+                int take = Math.min(available, bitCount);
+                int chunk = ((buffer[byteIndex] & 0xFF) >>> (available - take)) & ((1 << take) - 1);
+                result = (result << take) | chunk;
+                bitPosition += take;
+                bitCount -= take;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.ftcfieldsimulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Time-ordered history of the "KV" messages received by the plot.
+ *
+ * Keys are dictionary-encoded to dense ints and values are interned into a shared value
+ * dictionary, so a key that repeats the same few values at loop rate (e.g. a state machine
+ * name) costs one long and one int per sample. Samples that arrive in timestamp order are
+ * appended in O(1); late arrivals are inserted at their binary-searched position.
+ *
+ * Concurrency: every public method is synchronized on this instance. Callers never need
+ * (and should not use) external locking.
+ */
+public class KeyValueHistory {
+
+    /** Receives one key-value sample. Called with the history's lock held, so keep it short. */
+    public interface EntryVisitor {
+        void visit(String key, long timestamp, String value);
+    }
+
+    private static final int INITIAL_COLUMN_CAPACITY = 16;
+
+    // --- Dictionaries ---
+    private final Map<String, Integer> keyIds = new HashMap<>();
+    private final List<String> keyNames = new ArrayList<>();
+    private final Map<String, Integer> valueIds = new HashMap<>();
+    private final List<String> valueNames = new ArrayList<>();
+
+    // --- Per-key columns, indexed by key id ---
+    private final List<KeyColumn> columns = new ArrayList<>();
+
+    private long minTimestamp = Long.MAX_VALUE, maxTimestamp = Long.MIN_VALUE;
+    private int totalSize = 0;
+
+    private static class KeyColumn {
+        long[] timestamps = new long[INITIAL_COLUMN_CAPACITY];
+        int[] valueIds = new int[INITIAL_COLUMN_CAPACITY];
+        int size = 0;
+
+        void insert(long ts, int valueId) {
+            if (size == timestamps.length) {
+                int newCapacity = timestamps.length * 2;
+                timestamps = Arrays.copyOf(timestamps, newCapacity);
+                valueIds = Arrays.copyOf(valueIds, newCapacity);
+            }
+            if (size == 0 || ts >= timestamps[size - 1]) {
+                // Fast path: in-order arrival.
+                timestamps[size] = ts;
+                valueIds[size] = valueId;
+            } else {
+                // Late arrival: insert after any samples with the same timestamp to keep arrival order.
+                int pos = upperBound(ts);
+                System.arraycopy(timestamps, pos, timestamps, pos + 1, size - pos);
+                System.arraycopy(valueIds, pos, valueIds, pos + 1, size - pos);
+                timestamps[pos] = ts;
+                valueIds[pos] = valueId;
+            }
+            size++;
+        }
+
+        /** @return the index of the first sample with a timestamp strictly greater than ts. */
+        int upperBound(long ts) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (timestamps[mid] <= ts) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    public synchronized void append(long timestamp, String key, String value) {
+        if (key == null) return;
+        int keyId = keyIds.computeIfAbsent(key, k -> {
+            keyNames.add(k);
+            columns.add(new KeyColumn());
+            return keyNames.size() - 1;
+        });
+        columns.get(keyId).insert(timestamp, internValue(value != null ? value : ""));
+        if (timestamp < minTimestamp) minTimestamp = timestamp;
+        if (timestamp > maxTimestamp) maxTimestamp = timestamp;
+        totalSize++;
+    }
+
+    private int internValue(String value) {
+        return valueIds.computeIfAbsent(value, v -> {
+            valueNames.add(v);
+            return valueNames.size() - 1;
+        });
+    }
+
+    public synchronized void clear() {
+        keyIds.clear();
+        keyNames.clear();
+        valueIds.clear();
+        valueNames.clear();
+        columns.clear();
+        minTimestamp = Long.MAX_VALUE;
+        maxTimestamp = Long.MIN_VALUE;
+        totalSize = 0;
+    }
+
+    public synchronized boolean isEmpty() { return totalSize == 0; }
+    public synchronized int size() { return totalSize; }
+
+    /** @return the earliest timestamp in the history, or Long.MAX_VALUE if empty. */
+    public synchronized long getMinTimestamp() { return minTimestamp; }
+
+    /** @return the latest timestamp in the history, or Long.MIN_VALUE if empty. */
+    public synchronized long getMaxTimestamp() { return maxTimestamp; }
+
+    /**
+     * Visits, for every key, the most recent sample at or before the given time.
+     * Keys with no sample at or before that time are skipped. O(keys * log samples).
+     */
+    public synchronized void forEachValueAt(long time, EntryVisitor visitor) {
+        for (int keyId = 0; keyId < columns.size(); keyId++) {
+            KeyColumn column = columns.get(keyId);
+            int idx = column.upperBound(time) - 1;
+            if (idx >= 0) {
+                visitor.visit(keyNames.get(keyId), column.timestamps[idx], valueNames.get(column.valueIds[idx]));
+            }
+        }
+    }
+
+    /** Visits the latest sample of every key. */
+    public synchronized void forEachLatest(EntryVisitor visitor) {
+        for (int keyId = 0; keyId < columns.size(); keyId++) {
+            KeyColumn column = columns.get(keyId);
+            if (column.size > 0) {
+                int last = column.size - 1;
+                visitor.visit(keyNames.get(keyId), column.timestamps[last], valueNames.get(column.valueIds[last]));
+            }
+        }
+    }
+
+    /** Visits every sample, key by key, each key in timestamp order. */
+    public synchronized void forEach(EntryVisitor visitor) {
+        for (int keyId = 0; keyId < columns.size(); keyId++) {
+            KeyColumn column = columns.get(keyId);
+            String key = keyNames.get(keyId);
+            for (int i = 0; i < column.size; i++) {
+                visitor.visit(key, column.timestamps[i], valueNames.get(column.valueIds[i]));
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.ftcfieldsimulator;
+
+import com.example.ftcfieldsimulator.RecordingManager.RecordedEvent;
+import com.example.ftcfieldsimulator.UdpPositionListener.KeyValueData;
+import com.example.ftcfieldsimulator.UdpPositionListener.LineData;
+import com.example.ftcfieldsimulator.UdpPositionListener.TextData;
+import com.example.ftcfieldsimulator.UdpPositionListener.UdpMessageData;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Time- and memory-bounded buffer of the most recent live events, for instant replay.
+ *
+ * Events are appended into fixed-size chunks held in a ring (deque); expiry drops whole chunks from
+ * the head, so an append is O(1) amortized however many events the window holds. A chunk goes once
+ * its newest event is older than the window, or while the estimated size of the buffer is over its
+ * byte budget, so up to one chunk of events older than the window may linger; snapshots skip them.
+ *
+ * Events below a chunk's fill count are never written again, so a {@link #snapshot()} shares the
+ * chunks instead of copying the events, and stays valid while appends and evictions go on.
+ *
+ * Not thread safe; the recording manager guards it with its state lock.
+ */
+public class LiveEventBuffer {
+
+    public static final int CHUNK_SIZE = 4096;
+    public static final long DEFAULT_BUDGET_BYTES = Long.getLong("ftcsim.replay.bufferMb", 256) * 1024 * 1024;
+
+    private static final class Chunk {
+        final RecordedEvent[] events = new RecordedEvent[CHUNK_SIZE];
+        int count = 0;
+        long bytes = 0;
+    }
+
+    private final long durationMs;
+    private long budgetBytes = DEFAULT_BUDGET_BYTES;
+    private ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+    private int size = 0;
+    private long usedBytes = 0;
+
+    public LiveEventBuffer(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public void add(RecordedEvent event) {
+        Chunk tail = chunks.peekLast();
+        if (tail == null || tail.count == CHUNK_SIZE) {
+            tail = new Chunk();
+            chunks.addLast(tail);
+        }
+        tail.events[tail.count++] = event;
+        long bytes = estimateBytes(event.messageData);
+        tail.bytes += bytes;
+        usedBytes += bytes;
+        size++;
+
+        long cutoff = event.timestamp - durationMs;
+        while (chunks.size() > 1) {
+            Chunk head = chunks.peekFirst();
+            if (head.events[head.count - 1].timestamp >= cutoff && usedBytes <= budgetBytes) break;
+            chunks.pollFirst();
+            size -= head.count;
+            usedBytes -= head.bytes;
+        }
+    }
+
+    /**
+     * @return an immutable view of the events within the window ending at the newest event, sharing
+     *         the buffer's chunks; O(number of chunks).
+     */
+    public List<RecordedEvent> snapshot() {
+        Chunk[] shared = chunks.toArray(new Chunk[0]);
+        if (shared.length == 0) return List.of();
+        int tailCount = shared[shared.length - 1].count;
+        long cutoff = shared[shared.length - 1].events[tailCount - 1].timestamp - durationMs;
+        // Skip the expired events at the start of the head chunk; timestamps are non-decreasing.
+        Chunk head = shared[0];
+        int lo = 0, hi = shared.length == 1 ? tailCount : head.count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (head.events[mid].timestamp < cutoff) lo = mid + 1; else hi = mid;
+        }
+        int total = (shared.length - 1) * CHUNK_SIZE + tailCount;
+        return new Snapshot(shared, lo, total - lo);
+    }
+
+    /** Forgets all events; snapshots already taken are unaffected. */
+    public void clear() {
+        chunks = new ArrayDeque<>();
+        size = 0;
+        usedBytes = 0;
+    }
+
+    /** @return the number of events held, including any expired ones in the head chunk. */
+    public int size() {
+        return size;
+    }
+
+    public void setBudgetBytes(long bytes) {
+        budgetBytes = bytes;
+    }
+
+    /** Rough heap footprint of an event: the event and message objects plus any strings. */
+    static long estimateBytes(UdpMessageData data) {
+        long bytes = 64;
+        if (data instanceof LineData) bytes += stringBytes(((LineData) data).name);
+        else if (data instanceof TextData) bytes += stringBytes(((TextData) data).text);
+        else if (data instanceof KeyValueData) bytes += stringBytes(((KeyValueData) data).key) + stringBytes(((KeyValueData) data).value);
+        return bytes;
+    }
+
+    private static long stringBytes(String s) {
+        return s == null ? 0 : 40 + s.length();
+    }
+
+    private static final class Snapshot extends AbstractList<RecordedEvent> implements RandomAccess {
+        private final Chunk[] chunks;
+        private final int offset, size;
+
+        Snapshot(Chunk[] chunks, int offset, int size) {
+            this.chunks = chunks;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public RecordedEvent get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+            int i = index + offset;
+            return chunks[i / CHUNK_SIZE].events[i % CHUNK_SIZE];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
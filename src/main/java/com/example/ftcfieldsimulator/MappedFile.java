@@ -0,0 +1,60 @@
+package com.example.ftcfieldsimulator;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A whole file mapped read-only in segments, for the recording formats that are opened without
+ * being read. Consecutive segments overlap by more than any single number, so a number is always
+ * read from the segment its start falls in; byte ranges may span segments.
+ *
+ * Numbers are big-endian. The mapping stays valid after the channel it was made from is closed.
+ */
+public final class MappedFile {
+
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final long OVERLAP = 8;
+
+    final long size;
+    private final MappedByteBuffer[] segments;
+
+    MappedFile(FileChannel channel) throws IOException {
+        size = channel.size();
+        int count = (int) Math.max(1, (size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = i * SEGMENT_SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE + OVERLAP, size - start));
+        }
+    }
+
+    private MappedByteBuffer segment(long position) { return segments[(int) (position / SEGMENT_SIZE)]; }
+    private int offset(long position) { return (int) (position % SEGMENT_SIZE); }
+
+    byte getByte(long position) { return segment(position).get(offset(position)); }
+    int getInt(long position) { return segment(position).getInt(offset(position)); }
+    long getLong(long position) { return segment(position).getLong(offset(position)); }
+    double getDouble(long position) { return segment(position).getDouble(offset(position)); }
+
+    void getBytes(long position, byte[] dest, int length) {
+        int done = 0;
+        while (done < length) {
+            MappedByteBuffer segment = segment(position + done);
+            int offset = offset(position + done);
+            int n = Math.min(length - done, segment.limit() - offset);
+            segment.get(offset, dest, done, n);
+            done += n;
+        }
+    }
+
+    /** Reads an int byte length and that many UTF-8 bytes. */
+    String getString(long position, int maxBytes) {
+        int length = getInt(position);
+        if (length < 0 || length > maxBytes || position + 4 + length > size) throw new IllegalStateException("Corrupt string at " + position);
+        byte[] bytes = new byte[length];
+        getBytes(position + 4, bytes, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
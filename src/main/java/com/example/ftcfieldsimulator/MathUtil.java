@@ -60,4 +60,16 @@ public class MathUtil {
     }
 
     // You can add clip methods for float if needed.
+
+    /**
+     * Rounds a rough axis tick spacing up to the next 1, 2 or 5 times a power of ten.
+     *
+     * @param rough The spacing that would give the wanted number of ticks; must be positive.
+     * @return The tick spacing to use.
+     */
+    public static double niceStep(double rough) {
+        double magnitude = Math.pow(10, Math.floor(Math.log10(rough)));
+        double residual = rough / magnitude;
+        return (residual > 5 ? 10 : residual > 2 ? 5 : residual > 1 ? 2 : 1) * magnitude;
+    }
 }
@@ -0,0 +1,387 @@
+package com.example.ftcfieldsimulator;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes plot sessions in the binary ".plotbin" format.
+ *
+ * Layout (all numbers big-endian):
+ * <pre>
+ *   header:  magic "FTCPLOTB", int version, int seriesCount,
+ *            per series: byte kind, int style, string name (length -1 if unnamed), byte visible
+ *   blocks:  byte tag, then
+ *            SAMPLES:    int seriesIndex, int count, int byteLength, Gorilla-encoded samples
+ *            META:       int count, count meta events (byte type, long timestamp, fields)
+ *            KEY_VALUES: string key, int count, count (long timestamp, string value) pairs
+ *   END tag
+ * </pre>
+ * Strings are an int byte length followed by UTF-8 bytes. Sample blocks hold at most
+ * {@link #BLOCK_SAMPLES} samples and reuse {@link GorillaCodec}, so a session is streamed through a
+ * fixed-size buffer in both directions and never has to fit in memory as a whole.
+ *
+ * Reading either fills a {@link PlotDataStore} and {@link KeyValueHistory} directly, the caller
+ * redrawing once when it is done, or streams the blocks into a {@link Sink}.
+ */
+public final class PlotBinaryFile {
+
+    public static final String EXTENSION = ".plotbin";
+
+    private static final byte[] MAGIC = "FTCPLOTB".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int BLOCK_SAMPLES = 4096;
+    private static final int META_BLOCK_EVENTS = 1024;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final byte TAG_END = 0, TAG_SAMPLES = 1, TAG_META = 2, TAG_KEY_VALUES = 3;
+
+    private static final byte META_MARKER = 1, META_YLIMITS = 2, META_YUNITS = 3, META_YLIMITS2 = 4, META_YUNITS2 = 5,
+            META_NAME_LINE = 6, META_NAME_POINT = 7, META_NAME_LINE2 = 8, META_NAME_POINT2 = 9;
+
+    private PlotBinaryFile() {}
+
+    /** @return true if the file starts with the .plotbin magic, whatever its extension. */
+    public static boolean isPlotBinFile(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) { }
+            return !magic.hasRemaining() && ByteBuffer.wrap(MAGIC).equals(magic.flip());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static void write(File file, PlotDataStore store, KeyValueHistory keyValues) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChannelWriter out = new ChannelWriter(channel);
+
+            // --- Header: every registered series, including named series without samples ---
+            PlotSeriesRegistry registry = store.getRegistry();
+            int seriesCount = registry.size();
+            out.putBytes(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(seriesCount);
+            for (int id = 0; id < seriesCount; id++) {
+                out.putByte((byte) registry.getKind(id));
+                out.putInt(registry.getStyleNumber(id));
+                out.putString(registry.getName(id));
+                out.putByte((byte) (registry.isVisible(id) ? 1 : 0));
+            }
+
+            // --- Samples, series by series, one Gorilla block per BLOCK_SAMPLES ---
+            long[] timestamps = new long[BLOCK_SAMPLES];
+            double[] values = new double[BLOCK_SAMPLES];
+            for (PlotDataStore.Series series : store.getSeries()) {
+                int[] count = {0};
+                IOException[] failure = {null};
+                store.forEachSample(series, Long.MIN_VALUE, Long.MAX_VALUE, false, (ts, value) -> {
+                    if (failure[0] != null) return;
+                    timestamps[count[0]] = ts;
+                    values[count[0]] = value;
+                    if (++count[0] == BLOCK_SAMPLES) {
+                        try {
+                            writeSampleBlock(out, series.getId(), timestamps, values, count[0]);
+                        } catch (IOException e) {
+                            failure[0] = e;
+                        }
+                        count[0] = 0;
+                    }
+                });
+                if (failure[0] != null) throw failure[0];
+                if (count[0] > 0) writeSampleBlock(out, series.getId(), timestamps, values, count[0]);
+            }
+
+            // --- Meta events (markers, axis settings, series names) ---
+            List<PlotDataEvent> metaEvents = store.getMetaEvents();
+            for (int start = 0; start < metaEvents.size(); start += META_BLOCK_EVENTS) {
+                int end = Math.min(start + META_BLOCK_EVENTS, metaEvents.size());
+                int count = 0;
+                for (int i = start; i < end; i++) if (metaTypeOf(metaEvents.get(i)) != 0) count++;
+                out.putByte(TAG_META);
+                out.putInt(count);
+                for (int i = start; i < end; i++) writeMetaEvent(out, metaEvents.get(i));
+            }
+
+            // --- Key-value history, key by key ---
+            KeyValueBlock block = new KeyValueBlock();
+            IOException[] failure = {null};
+            keyValues.forEach((key, ts, value) -> {
+                if (failure[0] != null) return;
+                try {
+                    if (!key.equals(block.key) || block.timestamps.size() == BLOCK_SAMPLES) {
+                        block.writeTo(out);
+                        block.key = key;
+                    }
+                    block.timestamps.add(ts);
+                    block.values.add(value);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+            block.writeTo(out);
+
+            out.putByte(TAG_END);
+            out.flush();
+        }
+    }
+
+    private static void writeSampleBlock(ChannelWriter out, int seriesIndex, long[] timestamps, double[] values, int count) throws IOException {
+        byte[] encoded = GorillaCodec.encode(timestamps, values, count);
+        out.putByte(TAG_SAMPLES);
+        out.putInt(seriesIndex);
+        out.putInt(count);
+        out.putInt(encoded.length);
+        out.putBytes(encoded);
+    }
+
+    /** Samples of one key waiting to be written as a KEY_VALUES block. */
+    private static final class KeyValueBlock {
+        String key;
+        final List<Long> timestamps = new ArrayList<>();
+        final List<String> values = new ArrayList<>();
+
+        void writeTo(ChannelWriter out) throws IOException {
+            if (key == null || timestamps.isEmpty()) return;
+            out.putByte(TAG_KEY_VALUES);
+            out.putString(key);
+            out.putInt(timestamps.size());
+            for (int i = 0; i < timestamps.size(); i++) {
+                out.putLong(timestamps.get(i));
+                out.putString(values.get(i));
+            }
+            timestamps.clear();
+            values.clear();
+        }
+    }
+
+    private static byte metaTypeOf(PlotDataEvent e) {
+        if (e instanceof PlotTextAnnotationEvent) return META_MARKER;
+        if (e instanceof PlotYLimitsEvent) return META_YLIMITS;
+        if (e instanceof PlotYUnitsEvent) return META_YUNITS;
+        if (e instanceof PlotYLimits2Event) return META_YLIMITS2;
+        if (e instanceof PlotYUnits2Event) return META_YUNITS2;
+        if (e instanceof PlotSeriesNameLineEvent) return META_NAME_LINE;
+        if (e instanceof PlotSeriesNamePointEvent) return META_NAME_POINT;
+        if (e instanceof PlotSeriesNameLine2Event) return META_NAME_LINE2;
+        if (e instanceof PlotSeriesNamePoint2Event) return META_NAME_POINT2;
+        return 0;
+    }
+
+    private static void writeMetaEvent(ChannelWriter out, PlotDataEvent e) throws IOException {
+        byte type = metaTypeOf(e);
+        if (type == 0) return;
+        out.putByte(type);
+        out.putLong(e.getTimestamp());
+        if (e instanceof PlotTextAnnotationEvent p) { out.putString(p.getText()); out.putString(p.getPositionKeyword()); }
+        else if (e instanceof PlotYLimitsEvent p) { out.putDouble(p.getMinY()); out.putDouble(p.getMaxY()); }
+        else if (e instanceof PlotYUnitsEvent p) out.putString(p.getUnit());
+        else if (e instanceof PlotYLimits2Event p) { out.putDouble(p.getMinY()); out.putDouble(p.getMaxY()); }
+        else if (e instanceof PlotYUnits2Event p) out.putString(p.getUnit());
+        else if (e instanceof PlotSeriesNameLineEvent p) { out.putString(p.getSeriesName()); out.putInt(p.getStyle()); }
+        else if (e instanceof PlotSeriesNamePointEvent p) { out.putString(p.getSeriesName()); out.putInt(p.getStyle()); }
+        else if (e instanceof PlotSeriesNameLine2Event p) { out.putString(p.getSeriesName()); out.putInt(p.getStyle()); }
+        else if (e instanceof PlotSeriesNamePoint2Event p) { out.putString(p.getSeriesName()); out.putInt(p.getStyle()); }
+    }
+
+    /** Receives the contents of a .plotbin file as it is read. */
+    public interface Sink {
+        /** Called once per header entry, before any samples. */
+        void series(int kind, int style, String name, boolean visible) throws IOException;
+        /** The arrays are reused for the next block; copy what must be kept. */
+        void samples(int kind, int style, long[] timestamps, double[] values, int count) throws IOException;
+        void metaEvent(PlotDataEvent event) throws IOException;
+        void keyValue(long timestamp, String key, String value) throws IOException;
+        /** Called after every block. */
+        default void progress(long bytesRead, long totalBytes) throws IOException {}
+    }
+
+    /**
+     * Reads a .plotbin file into an empty store and key-value history. Series are registered in the
+     * store's registry in file order, with their saved names and visibility.
+     */
+    public static void read(File file, PlotDataStore store, KeyValueHistory keyValues) throws IOException {
+        PlotSeriesRegistry registry = store.getRegistry();
+        read(file, new Sink() {
+            @Override
+            public void series(int kind, int style, String name, boolean visible) {
+                int id = registry.idFor(kind, style);
+                if (name != null) registry.setName(id, name);
+                registry.setVisible(id, visible);
+            }
+            @Override
+            public void samples(int kind, int style, long[] timestamps, double[] values, int count) {
+                store.appendAll(kind, style, timestamps, values, count);
+            }
+            @Override
+            public void metaEvent(PlotDataEvent event) { store.add(event); }
+            @Override
+            public void keyValue(long timestamp, String key, String value) { keyValues.append(timestamp, key, value); }
+        });
+    }
+
+    /** Streams a .plotbin file into a sink, block by block. */
+    public static void read(File file, Sink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ChannelReader in = new ChannelReader(channel);
+            long totalBytes = channel.size();
+
+            byte[] magic = in.getBytes(MAGIC.length);
+            if (!ByteBuffer.wrap(MAGIC).equals(ByteBuffer.wrap(magic))) throw new IOException("Not a plotbin file: " + file);
+            int version = in.getInt();
+            if (version > VERSION) throw new IOException("Unsupported plotbin version " + version + ": " + file);
+
+            int seriesCount = in.getInt();
+            int[] kinds = new int[seriesCount], styles = new int[seriesCount];
+            for (int i = 0; i < seriesCount; i++) {
+                kinds[i] = in.getByte();
+                styles[i] = in.getInt();
+                String name = in.getString();
+                boolean visible = in.getByte() != 0;
+                sink.series(kinds[i], styles[i], name, visible);
+            }
+
+            long[] timestamps = new long[BLOCK_SAMPLES];
+            double[] values = new double[BLOCK_SAMPLES];
+            while (true) {
+                byte tag = in.getByte();
+                if (tag == TAG_END) return;
+                switch (tag) {
+                    case TAG_SAMPLES -> {
+                        int seriesIndex = in.getInt(), count = in.getInt(), length = in.getInt();
+                        if (seriesIndex < 0 || seriesIndex >= seriesCount || count < 0 || count > BLOCK_SAMPLES) {
+                            throw new IOException("Corrupt sample block in " + file);
+                        }
+                        GorillaCodec.decode(in.getBytes(length), count, timestamps, values);
+                        sink.samples(kinds[seriesIndex], styles[seriesIndex], timestamps, values, count);
+                    }
+                    case TAG_META -> {
+                        int count = in.getInt();
+                        for (int i = 0; i < count; i++) sink.metaEvent(readMetaEvent(in));
+                    }
+                    case TAG_KEY_VALUES -> {
+                        String key = in.getString();
+                        int count = in.getInt();
+                        for (int i = 0; i < count; i++) {
+                            long ts = in.getLong();
+                            sink.keyValue(ts, key, in.getString());
+                        }
+                    }
+                    default -> throw new IOException("Unknown block type " + tag + " in " + file);
+                }
+                sink.progress(in.getPosition(), totalBytes);
+            }
+        }
+    }
+
+    private static PlotDataEvent readMetaEvent(ChannelReader in) throws IOException {
+        byte type = in.getByte();
+        long ts = in.getLong();
+        switch (type) {
+            case META_MARKER: { String text = in.getString(); return new PlotTextAnnotationEvent(ts, text, in.getString()); }
+            case META_YLIMITS: { double min = in.getDouble(); return new PlotYLimitsEvent(ts, in.getDouble(), min); }
+            case META_YUNITS: return new PlotYUnitsEvent(ts, in.getString());
+            case META_YLIMITS2: { double min = in.getDouble(); return new PlotYLimits2Event(ts, in.getDouble(), min); }
+            case META_YUNITS2: return new PlotYUnits2Event(ts, in.getString());
+            case META_NAME_LINE: { String name = in.getString(); return new PlotSeriesNameLineEvent(ts, name, in.getInt()); }
+            case META_NAME_POINT: { String name = in.getString(); return new PlotSeriesNamePointEvent(ts, name, in.getInt()); }
+            case META_NAME_LINE2: { String name = in.getString(); return new PlotSeriesNameLine2Event(ts, name, in.getInt()); }
+            case META_NAME_POINT2: { String name = in.getString(); return new PlotSeriesNamePoint2Event(ts, name, in.getInt()); }
+            default: throw new IOException("Unknown meta event type " + type);
+        }
+    }
+
+    /** Buffered writes to a channel through a fixed-size byte buffer. */
+    private static final class ChannelWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        ChannelWriter(FileChannel channel) { this.channel = channel; }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        void putByte(byte b) throws IOException { ensure(1); buffer.put(b); }
+        void putInt(int v) throws IOException { ensure(4); buffer.putInt(v); }
+        void putLong(long v) throws IOException { ensure(8); buffer.putLong(v); }
+        void putDouble(double v) throws IOException { ensure(8); buffer.putDouble(v); }
+
+        void putBytes(byte[] data) throws IOException {
+            int offset = 0;
+            while (offset < data.length) {
+                if (!buffer.hasRemaining()) flush();
+                int length = Math.min(buffer.remaining(), data.length - offset);
+                buffer.put(data, offset, length);
+                offset += length;
+            }
+        }
+
+        void putString(String s) throws IOException {
+            if (s == null) { putInt(-1); return; }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            putBytes(bytes);
+        }
+    }
+
+    /** Buffered reads from a channel through a fixed-size byte buffer. */
+    private static final class ChannelReader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        ChannelReader(FileChannel channel) {
+            this.channel = channel;
+            buffer.flip(); // Start empty
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return;
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) throw new EOFException("Unexpected end of plotbin file");
+            }
+            buffer.flip();
+        }
+
+        /** @return the number of bytes consumed from the file so far. */
+        long getPosition() throws IOException { return channel.position() - buffer.remaining(); }
+
+        byte getByte() throws IOException { ensure(1); return buffer.get(); }
+        int getInt() throws IOException { ensure(4); return buffer.getInt(); }
+        long getLong() throws IOException { ensure(8); return buffer.getLong(); }
+        double getDouble() throws IOException { ensure(8); return buffer.getDouble(); }
+
+        byte[] getBytes(int length) throws IOException {
+            if (length < 0) throw new IOException("Corrupt plotbin file: negative length");
+            byte[] data = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                if (!buffer.hasRemaining()) ensure(1);
+                int n = Math.min(buffer.remaining(), length - offset);
+                buffer.get(data, offset, n);
+                offset += n;
+            }
+            return data;
+        }
+
+        String getString() throws IOException {
+            int length = getInt();
+            return length < 0 ? null : new String(getBytes(length), StandardCharsets.UTF_8);
+        }
+    }
+}
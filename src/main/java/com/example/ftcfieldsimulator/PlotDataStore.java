@@ -0,0 +1,753 @@
+package com.example.ftcfieldsimulator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Unbounded storage for the plot's data.
+ *
+ * Every numeric series (line or point, axis 1 or 2, style; identified by its {@link PlotSeriesRegistry}
+ * id) is kept as a list of fixed-size chunks.
+ * Only the active tail chunk of each series holds raw timestamp/value arrays; once full, a chunk is
+ * sealed and re-encoded with {@link GorillaCodec}, which for regularly sampled, slowly varying
+ * signals takes a few bits per sample instead of sixteen bytes. Per-chunk metadata (time range,
+ * value range, count) always stays on the heap, so queries skip chunks outside their window without
+ * decoding them.
+ *
+ * Only a hot window of the newest encoded chunks is kept in memory: once they exceed the memory
+ * budget the oldest are spilled to a memory-mapped {@link SpillFile}. Chunks a query needs are
+ * decoded on demand into a small LRU cache, whether they come from memory or from disk.
+ *
+ * Non-numeric events (markers, Y limits and units, series names) are few and are kept as-is.
+ *
+ * The memory budget defaults to the "ftcsim.plot.memoryBudgetMb" system property (64 MB if unset)
+ * and can be changed at runtime with {@link #setMemoryBudgetBytes}.
+ *
+ * Concurrency: writes and snapshots are synchronized on this instance. Reading samples goes through
+ * a {@link WindowSnapshot}, which captures the chunk references under the lock and decodes without
+ * it, so several series can be read in parallel and visitors may take their time.
+ */
+public class PlotDataStore {
+
+    public static final int KIND_LINE = 0, KIND_POINT = 1, KIND_LINE2 = 2, KIND_POINT2 = 3;
+
+    public static final long DEFAULT_MEMORY_BUDGET_BYTES = Long.getLong("ftcsim.plot.memoryBudgetMb", 64) * 1024 * 1024;
+    static final int CHUNK_CAPACITY = 4096;
+    private static final int BYTES_PER_SAMPLE = Long.BYTES + Double.BYTES;
+
+    /** Receives one sample of a series. */
+    public interface SampleVisitor {
+        void visit(long timestamp, double value);
+    }
+
+    /** One numeric series. Handles are stable until {@link #clear()}. */
+    public static final class Series {
+        private final int id, kind, style;
+        private final List<Chunk> chunks = new ArrayList<>();
+        private final ChunkStatsIndex stats = new ChunkStatsIndex();
+        private Chunk tail;
+
+        private Series(int id, int kind, int style) { this.id = id; this.kind = kind; this.style = style; }
+
+        /** @return the series' id in the store's {@link PlotSeriesRegistry}. */
+        public int getId() { return id; }
+        public int getKind() { return kind; }
+        public int getStyle() { return style; }
+        public boolean isLine() { return kind == KIND_LINE || kind == KIND_LINE2; }
+        public boolean isSecondaryAxis() { return kind == KIND_LINE2 || kind == KIND_POINT2; }
+    }
+
+    private static final class Chunk {
+        long minTimestamp = Long.MAX_VALUE, maxTimestamp = Long.MIN_VALUE;
+        double minValue = Double.POSITIVE_INFINITY, maxValue = Double.NEGATIVE_INFINITY;
+        int count = 0;
+        // Aggregates of the non-NaN values, for range statistics; the integral is in value-milliseconds.
+        long valueCount = 0;
+        double sum = 0, sumSq = 0, integral = 0;
+        double firstValue = Double.NaN, lastValue = Double.NaN;
+        // Raw samples, only while this is the tail chunk of its series.
+        long[] timestamps;
+        double[] values;
+        // Encoded samples of a sealed chunk; null once it has been spilled.
+        byte[] encoded;
+        long spillLocation = -1;
+        int encodedLength;
+
+        Chunk() {
+            timestamps = new long[CHUNK_CAPACITY];
+            values = new double[CHUNK_CAPACITY];
+        }
+
+        boolean isFull() { return count == CHUNK_CAPACITY; }
+
+        void add(long ts, double value) {
+            if (count == 0 || ts >= timestamps[count - 1]) {
+                if (count > 0) integral += trapezoid(timestamps[count - 1], values[count - 1], ts, value);
+                timestamps[count] = ts;
+                values[count] = value;
+            } else {
+                // Late arrival: keep the chunk sorted. Chunks of a series may then overlap slightly in
+                // time, which queries tolerate since they always consult the per-chunk metadata.
+                int pos = upperBound(timestamps, count, ts);
+                System.arraycopy(timestamps, pos, timestamps, pos + 1, count - pos);
+                System.arraycopy(values, pos, values, pos + 1, count - pos);
+                timestamps[pos] = ts;
+                values[pos] = value;
+                integral = 0;
+                for (int i = 1; i <= count; i++) integral += trapezoid(timestamps[i - 1], values[i - 1], timestamps[i], values[i]);
+            }
+            count++;
+            firstValue = values[0];
+            lastValue = values[count - 1];
+            if (!Double.isNaN(value)) {
+                valueCount++;
+                sum += value;
+                sumSq += value * value;
+            }
+            if (ts < minTimestamp) minTimestamp = ts;
+            if (ts > maxTimestamp) maxTimestamp = ts;
+            if (value < minValue) minValue = value;
+            if (value > maxValue) maxValue = value;
+        }
+    }
+
+    /** @return the area under the segment between two samples, or 0 if either is a NaN gap. */
+    private static double trapezoid(long ts0, double v0, long ts1, double v1) {
+        return Double.isNaN(v0) || Double.isNaN(v1) ? 0 : (ts1 - ts0) * (v0 + v1) / 2.0;
+    }
+
+    /** Decoded samples of a chunk, as served from the tail arrays or the decoded-chunk cache. */
+    private static final class ChunkSamples {
+        final long[] timestamps;
+        final double[] values;
+        ChunkSamples(long[] timestamps, double[] values) { this.timestamps = timestamps; this.values = values; }
+    }
+
+    /** What a snapshot needs to read one chunk without the lock. Encoded arrays are never mutated. */
+    private static final class ChunkRef {
+        final Chunk chunk;
+        final int count;
+        final long minTimestamp, maxTimestamp;
+        ChunkSamples samples;   // Already decoded (cache hit) or copied (tail chunk)
+        final byte[] encoded;   // Resident encoded bytes, if not decoded
+        final long spillLocation;
+        final int encodedLength;
+
+        ChunkRef(Chunk chunk, ChunkSamples samples) {
+            this.chunk = chunk;
+            this.count = chunk.count;
+            this.minTimestamp = chunk.minTimestamp;
+            this.maxTimestamp = chunk.maxTimestamp;
+            this.samples = samples;
+            this.encoded = chunk.encoded;
+            this.spillLocation = chunk.spillLocation;
+            this.encodedLength = chunk.encodedLength;
+        }
+    }
+
+    private final PlotSeriesRegistry registry;
+    private final List<Series> seriesById = new ArrayList<>(); // null for registered series without samples
+    private final List<Series> seriesList = new ArrayList<>();
+    private final List<PlotDataEvent> metaEvents = new ArrayList<>();
+
+    // --- Memory management ---
+    private long memoryBudgetBytes = DEFAULT_MEMORY_BUDGET_BYTES;
+    private long residentBytes = 0;                                        // Raw tails plus encoded resident chunks
+    private final ArrayDeque<Chunk> residentSealedChunks = new ArrayDeque<>(); // Spill candidates, oldest first
+    private final SpillFile spillFile = new SpillFile("ftcsim-plot");
+    private boolean spillFailed = false;
+
+    // Access-ordered, so iteration starts at the least recently used chunk.
+    private final LinkedHashMap<Chunk, ChunkSamples> decodedCache = new LinkedHashMap<>(64, 0.75f, true);
+    private long decodedCacheBytes = 0;
+
+    private long minTimestamp = Long.MAX_VALUE, maxTimestamp = Long.MIN_VALUE;
+    private long sampleCount = 0;
+    private volatile long generation = 0; // Bumped by clear(), invalidates outstanding snapshots
+
+    public PlotDataStore(PlotSeriesRegistry registry) {
+        this.registry = registry;
+    }
+
+    public PlotSeriesRegistry getRegistry() { return registry; }
+
+    /**
+     * Adds an event to the store. Numeric samples go to their series; key-value events are not
+     * handled here and are ignored.
+     */
+    public synchronized void add(PlotDataEvent event) {
+        if (event instanceof PlotLineEvent e) append(KIND_LINE, e.getStyle(), e.getTimestamp(), e.getYValue());
+        else if (event instanceof PlotPointEvent e) append(KIND_POINT, e.getStyle(), e.getTimestamp(), e.getYValue());
+        else if (event instanceof PlotLine2Event e) append(KIND_LINE2, e.getStyle(), e.getTimestamp(), e.getYValue());
+        else if (event instanceof PlotPoint2Event e) append(KIND_POINT2, e.getStyle(), e.getTimestamp(), e.getYValue());
+        else if (!(event instanceof PlotKeyValueEvent)) {
+            metaEvents.add(event);
+            updateTimeRange(event.getTimestamp());
+        }
+    }
+
+    public synchronized void append(int kind, int style, long timestamp, double value) {
+        int id = registry.idFor(kind, style);
+        while (seriesById.size() <= id) seriesById.add(null);
+        Series series = seriesById.get(id);
+        if (series == null) {
+            series = new Series(id, kind, style);
+            seriesById.set(id, series);
+            seriesList.add(series);
+        }
+        if (series.tail == null || series.tail.isFull()) {
+            if (series.tail != null) seal(series.tail);
+            series.tail = new Chunk();
+            series.chunks.add(series.tail);
+            residentBytes += (long) CHUNK_CAPACITY * BYTES_PER_SAMPLE;
+            enforceMemoryBudget();
+        }
+        series.tail.add(timestamp, value);
+        updateStats(series);
+        sampleCount++;
+        updateTimeRange(timestamp);
+    }
+
+    /** Appends count samples of one series under a single lock acquisition, e.g. when loading a file. */
+    public synchronized void appendAll(int kind, int style, long[] timestamps, double[] values, int count) {
+        for (int i = 0; i < count; i++) append(kind, style, timestamps[i], values[i]);
+    }
+
+    private void updateStats(Series series) {
+        int i = series.chunks.size() - 1;
+        Chunk chunk = series.tail;
+        Chunk previous = i > 0 ? series.chunks.get(i - 1) : null;
+        // Chunks overlap after a late arrival; like a scan of the samples, skip the backwards segment.
+        double junction = previous != null && chunk.minTimestamp >= previous.maxTimestamp
+                ? trapezoid(previous.maxTimestamp, previous.lastValue, chunk.minTimestamp, chunk.firstValue) : 0;
+        series.stats.update(i, chunk.minTimestamp, chunk.maxTimestamp, chunk.minValue, chunk.maxValue,
+                chunk.valueCount, chunk.sum, chunk.sumSq, chunk.integral, junction);
+    }
+
+    private void updateTimeRange(long timestamp) {
+        if (timestamp < minTimestamp) minTimestamp = timestamp;
+        if (timestamp > maxTimestamp) maxTimestamp = timestamp;
+    }
+
+    private void seal(Chunk chunk) {
+        chunk.encoded = GorillaCodec.encode(chunk.timestamps, chunk.values, chunk.count);
+        chunk.encodedLength = chunk.encoded.length;
+        chunk.timestamps = null;
+        chunk.values = null;
+        residentBytes += chunk.encodedLength - (long) CHUNK_CAPACITY * BYTES_PER_SAMPLE;
+        residentSealedChunks.addLast(chunk);
+    }
+
+    public synchronized void setMemoryBudgetBytes(long bytes) {
+        this.memoryBudgetBytes = Math.max(bytes, 4L * CHUNK_CAPACITY * BYTES_PER_SAMPLE);
+        enforceMemoryBudget();
+        trimDecodedCache();
+    }
+
+    public synchronized long getMemoryBudgetBytes() { return memoryBudgetBytes; }
+
+    // Three quarters of the budget hold the hot window, the rest holds decoded chunks.
+    private long hotWindowBudget() { return memoryBudgetBytes / 4 * 3; }
+    private long decodedCacheBudget() { return memoryBudgetBytes / 4; }
+
+    private void enforceMemoryBudget() {
+        while (!spillFailed && residentBytes > hotWindowBudget() && !residentSealedChunks.isEmpty()) {
+            spill(residentSealedChunks.pollFirst());
+        }
+    }
+
+    private void spill(Chunk chunk) {
+        try {
+            chunk.spillLocation = spillFile.write(chunk.encoded, chunk.encodedLength);
+            chunk.encoded = null;
+            residentBytes -= chunk.encodedLength;
+        } catch (IOException e) {
+            // Keep everything on the heap rather than lose data.
+            System.err.println("Plot data spill failed, keeping history in memory: " + e.getMessage());
+            spillFailed = true;
+            residentSealedChunks.addFirst(chunk);
+        }
+    }
+
+    private ChunkSamples samplesOf(Chunk chunk) {
+        if (chunk.timestamps != null) return new ChunkSamples(chunk.timestamps, chunk.values);
+        ChunkSamples cached = decodedCache.get(chunk);
+        if (cached != null) return cached;
+        byte[] data = chunk.encoded;
+        if (data == null) {
+            data = new byte[chunk.encodedLength];
+            spillFile.read(chunk.spillLocation, data, chunk.encodedLength);
+        }
+        ChunkSamples samples = new ChunkSamples(new long[chunk.count], new double[chunk.count]);
+        GorillaCodec.decode(data, chunk.count, samples.timestamps, samples.values);
+        decodedCache.put(chunk, samples);
+        decodedCacheBytes += (long) chunk.count * BYTES_PER_SAMPLE;
+        trimDecodedCache();
+        return samples;
+    }
+
+    private void trimDecodedCache() {
+        Iterator<Map.Entry<Chunk, ChunkSamples>> it = decodedCache.entrySet().iterator();
+        // Always keep the most recently used entry, even if a single chunk exceeds the budget.
+        while (decodedCacheBytes > decodedCacheBudget() && decodedCache.size() > 1 && it.hasNext()) {
+            Map.Entry<Chunk, ChunkSamples> eldest = it.next();
+            decodedCacheBytes -= (long) eldest.getKey().count * BYTES_PER_SAMPLE;
+            it.remove();
+        }
+    }
+
+    /** @return the index of the first sample with a timestamp strictly greater than ts. */
+    private static int upperBound(long[] timestamps, int count, long ts) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] <= ts) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /** @return the index of the first sample with a timestamp greater than or equal to ts. */
+    private static int lowerBound(long[] timestamps, int count, long ts) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] < ts) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Visits, in time order, the samples of a series with fromTs <= timestamp <= toTs. With
+     * includeNeighbours, the last sample before the window and the first sample after it are visited
+     * too, which is what a line renderer needs to draw the segments crossing the window edges.
+     */
+    public void forEachSample(Series series, long fromTs, long toTs, boolean includeNeighbours, SampleVisitor visitor) {
+        snapshotWindow(series, fromTs, toTs, includeNeighbours).forEachSample(visitor);
+    }
+
+    /**
+     * Captures the chunks of a series needed for a time window. This is cheap (the tail chunk is
+     * copied, nothing is decoded); the returned snapshot can then be read on any thread.
+     *
+     * The chunks are located with the series' {@link ChunkStatsIndex}: after a late arrival a chunk
+     * past the first one ending after toTs can still hold samples inside the window, so every chunk
+     * from the first ending at or after fromTs to the last starting at or before toTs is taken. The
+     * neighbours are in the chunk reaching furthest before the window and the one starting earliest
+     * after it.
+     */
+    public synchronized WindowSnapshot snapshotWindow(Series series, long fromTs, long toTs, boolean includeNeighbours) {
+        List<ChunkRef> refs = new ArrayList<>();
+        ChunkStatsIndex index = series.stats;
+        int first = index.firstEndingAtOrAfter(fromTs), last = index.lastStartingAtOrBefore(toTs);
+        if (includeNeighbours && first > 0) {
+            refs.add(refOf(series.chunks.get(index.firstEndingAtOrAfter(index.maxTimestampThrough(first - 1)))));
+        }
+        for (int i = first; i <= last; i++) refs.add(refOf(series.chunks.get(i)));
+        if (includeNeighbours && last + 1 < index.size()) {
+            refs.add(refOf(series.chunks.get(index.lastStartingAtOrBefore(index.minTimestampFrom(last + 1)))));
+        }
+        return new WindowSnapshot(fromTs, toTs, includeNeighbours, generation, refs);
+    }
+
+    /**
+     * Widens minMax ({min, max}) by the values of a series with fromTs <= timestamp <= toTs. Chunks
+     * inside the window are answered from their min/max metadata; only the (at most two, barring late
+     * arrivals) chunks straddling the window edges are decoded and scanned.
+     * @return true if the window held any non-NaN sample.
+     */
+    public boolean valueRange(Series series, long fromTs, long toTs, double[] minMax) {
+        List<ChunkRef> edgeRefs = new ArrayList<>();
+        long snapshotGeneration;
+        boolean found = false;
+        synchronized (this) {
+            snapshotGeneration = generation;
+            for (Chunk chunk : series.chunks) {
+                if (chunk.count == 0 || chunk.maxTimestamp < fromTs || chunk.minTimestamp > toTs) continue;
+                if (chunk.minTimestamp >= fromTs && chunk.maxTimestamp <= toTs) {
+                    if (chunk.minValue > chunk.maxValue) continue; // Only NaN gaps
+                    if (chunk.minValue < minMax[0]) minMax[0] = chunk.minValue;
+                    if (chunk.maxValue > minMax[1]) minMax[1] = chunk.maxValue;
+                    found = true;
+                } else {
+                    edgeRefs.add(refOf(chunk));
+                }
+            }
+        }
+        if (edgeRefs.isEmpty()) return found;
+        boolean[] edgeFound = {false};
+        SampleVisitor visitor = (ts, v) -> {
+            if (Double.isNaN(v)) return;
+            if (v < minMax[0]) minMax[0] = v;
+            if (v > minMax[1]) minMax[1] = v;
+            edgeFound[0] = true;
+        };
+        for (ChunkRef ref : edgeRefs) snapshotOf(ref, fromTs, toTs, snapshotGeneration).forEachSample(visitor);
+        return found || edgeFound[0];
+    }
+
+    /**
+     * Computes the statistics of a series over fromTs <= timestamp <= toTs. The run of chunks lying
+     * wholly inside the window is answered from the series' {@link ChunkStatsIndex} in O(log n); only
+     * the chunks straddling the window edges (normally at most two) are decoded and scanned. The
+     * settling time likewise descends the index to the last chunk that leaves the settling band and
+     * scans only that one.
+     */
+    public RangeStatistics rangeStatistics(Series series, long fromTs, long toTs) {
+        RangeStatistics stats = new RangeStatistics(fromTs, toTs);
+        List<ChunkRef> leftEdges = new ArrayList<>(), rightEdges = new ArrayList<>();
+        long snapshotGeneration;
+        int runFrom, runTo;
+        long runCount = 0;
+        double runSum = 0, runSumSq = 0, runIntegral = 0, runMin = 0, runMax = 0, runFirstValue = 0, runLastValue = 0;
+        long runFirstTs = 0, runLastTs = 0;
+        synchronized (this) {
+            snapshotGeneration = generation;
+            ChunkStatsIndex index = series.stats;
+            int first = index.firstEndingAtOrAfter(fromTs), last = index.lastStartingAtOrBefore(toTs);
+            runFrom = Math.max(first, index.firstStartingAtOrAfter(fromTs));
+            runTo = Math.min(last, index.lastEndingAtOrBefore(toTs));
+            if (runFrom > runTo) {
+                // No chunk lies wholly inside the window: all of them are edges.
+                runFrom = last + 1;
+                runTo = last;
+            }
+            for (int i = first; i < runFrom && i <= last; i++) leftEdges.add(refOf(series.chunks.get(i)));
+            for (int i = Math.max(runTo + 1, runFrom); i <= last; i++) rightEdges.add(refOf(series.chunks.get(i)));
+            if (runFrom <= runTo) {
+                Chunk firstChunk = series.chunks.get(runFrom), lastChunk = series.chunks.get(runTo);
+                runCount = index.count(runFrom, runTo);
+                runSum = index.sum(runFrom, runTo);
+                runSumSq = index.sumSq(runFrom, runTo);
+                runIntegral = index.integral(runFrom, runTo);
+                runMin = index.min(runFrom, runTo);
+                runMax = index.max(runFrom, runTo);
+                runFirstTs = firstChunk.minTimestamp;
+                runFirstValue = firstChunk.firstValue;
+                runLastTs = lastChunk.maxTimestamp;
+                runLastValue = lastChunk.lastValue;
+            }
+        }
+        for (ChunkRef ref : leftEdges) snapshotOf(ref, fromTs, toTs, snapshotGeneration).forEachSample(stats::addSample);
+        if (runFrom <= runTo) stats.addRun(runCount, runSum, runSumSq, runIntegral, runMin, runMax, runFirstTs, runFirstValue, runLastTs, runLastValue);
+        for (ChunkRef ref : rightEdges) snapshotOf(ref, fromTs, toTs, snapshotGeneration).forEachSample(stats::addSample);
+        if (stats.getCount() == 0 || Double.isNaN(stats.finalValue())) return stats;
+
+        // Settling: the last sample outside the band, searched from the end of the window.
+        SampleVisitor bandCheck = (ts, v) -> { if (stats.isOutsideBand(v)) stats.noteOutsideBand(ts); };
+        for (ChunkRef ref : rightEdges) snapshotOf(ref, fromTs, toTs, snapshotGeneration).forEachSample(bandCheck);
+        if (stats.hasLeftBand()) return stats;
+        if (runFrom <= runTo) {
+            ChunkRef outside = null;
+            synchronized (this) {
+                if (snapshotGeneration != generation) return stats;
+                int i = series.stats.lastOutside(runFrom, runTo, stats.bandLow(), stats.bandHigh());
+                if (i >= 0) outside = refOf(series.chunks.get(i));
+            }
+            if (outside != null) {
+                snapshotOf(outside, fromTs, toTs, snapshotGeneration).forEachSample(bandCheck);
+                return stats;
+            }
+        }
+        for (ChunkRef ref : leftEdges) snapshotOf(ref, fromTs, toTs, snapshotGeneration).forEachSample(bandCheck);
+        return stats;
+    }
+
+    /** One snapshot per chunk, so each edge chunk is scanned on its own. */
+    private WindowSnapshot snapshotOf(ChunkRef ref, long fromTs, long toTs, long snapshotGeneration) {
+        return new WindowSnapshot(fromTs, toTs, false, snapshotGeneration, List.of(ref));
+    }
+
+    private ChunkRef refOf(Chunk chunk) {
+        if (chunk.timestamps != null) {
+            // Tail chunk: copy, since appends keep writing to it.
+            return new ChunkRef(chunk, new ChunkSamples(Arrays.copyOf(chunk.timestamps, chunk.count), Arrays.copyOf(chunk.values, chunk.count)));
+        }
+        return new ChunkRef(chunk, decodedCache.get(chunk));
+    }
+
+    private synchronized void cacheDecoded(Chunk chunk, ChunkSamples samples, long snapshotGeneration) {
+        if (snapshotGeneration != generation || decodedCache.containsKey(chunk)) return;
+        decodedCache.put(chunk, samples);
+        decodedCacheBytes += (long) chunk.count * BYTES_PER_SAMPLE;
+        trimDecodedCache();
+    }
+
+    /**
+     * The chunks of one series that a time window needs, captured under the store's lock and read
+     * without it. A snapshot taken before a {@link #clear()} reads as empty or truncated.
+     */
+    public final class WindowSnapshot {
+        private final long fromTs, toTs;
+        private final boolean includeNeighbours;
+        private final long snapshotGeneration;
+        private final List<ChunkRef> refs;
+
+        private WindowSnapshot(long fromTs, long toTs, boolean includeNeighbours, long snapshotGeneration, List<ChunkRef> refs) {
+            this.fromTs = fromTs;
+            this.toTs = toTs;
+            this.includeNeighbours = includeNeighbours;
+            this.snapshotGeneration = snapshotGeneration;
+            this.refs = refs;
+        }
+
+        /**
+         * Visits the window's samples in time order; see {@link PlotDataStore#forEachSample}. Chunks
+         * are swept in order of their first sample and merged where late arrivals made them overlap;
+         * a chunk is only decoded once the sweep reaches it.
+         */
+        public void forEachSample(SampleVisitor visitor) {
+            List<ChunkRef> ordered = new ArrayList<>(refs);
+            ordered.sort(Comparator.comparingLong(ref -> ref.minTimestamp));
+            PriorityQueue<ChunkCursor> active = new PriorityQueue<>(Comparator.comparingLong(ChunkCursor::timestamp));
+            long[] after = {Long.MAX_VALUE};
+            double[] afterValue = {Double.NaN};
+            int next = 0;
+
+            // Chunks starting before the window hold the neighbour before it and may reach into it.
+            long beforeTs = Long.MIN_VALUE;
+            double beforeValue = Double.NaN;
+            ChunkRef wholeChunkBefore = null;
+            while (next < ordered.size() && ordered.get(next).minTimestamp < fromTs) {
+                ChunkRef ref = ordered.get(next++);
+                if (ref.maxTimestamp < fromTs) {
+                    if (includeNeighbours && (wholeChunkBefore == null || ref.maxTimestamp > wholeChunkBefore.maxTimestamp)) wholeChunkBefore = ref;
+                    continue;
+                }
+                ChunkSamples samples = resolve(ref);
+                if (samples == null) return;
+                int i = lowerBound(samples.timestamps, ref.count, fromTs);
+                if (i > 0 && samples.timestamps[i - 1] > beforeTs) {
+                    beforeTs = samples.timestamps[i - 1];
+                    beforeValue = samples.values[i - 1];
+                }
+                activate(new ChunkCursor(samples, ref.count, i), active, after, afterValue);
+            }
+            if (includeNeighbours) {
+                if (wholeChunkBefore != null && wholeChunkBefore.maxTimestamp > beforeTs) {
+                    ChunkSamples samples = resolve(wholeChunkBefore);
+                    if (samples == null) return;
+                    visitor.visit(samples.timestamps[wholeChunkBefore.count - 1], samples.values[wholeChunkBefore.count - 1]);
+                } else if (beforeTs != Long.MIN_VALUE) {
+                    visitor.visit(beforeTs, beforeValue);
+                }
+            }
+
+            while (true) {
+                ChunkCursor cursor = active.peek();
+                boolean more = next < ordered.size();
+                long nextStart = more ? ordered.get(next).minTimestamp : Long.MAX_VALUE;
+                if (more && nextStart <= toTs && (cursor == null || nextStart <= cursor.timestamp())) {
+                    ChunkRef ref = ordered.get(next++);
+                    ChunkSamples samples = resolve(ref);
+                    if (samples == null) return;
+                    activate(new ChunkCursor(samples, ref.count, 0), active, after, afterValue);
+                    continue;
+                }
+                if (cursor == null) break;
+                active.poll();
+                // Without overlap this runs to the end of the chunk's part of the window in one go.
+                long bound = Math.min(toTs, Math.min(nextStart, active.isEmpty() ? Long.MAX_VALUE : active.peek().timestamp()));
+                do {
+                    visitor.visit(cursor.timestamp(), cursor.samples.values[cursor.position]);
+                    cursor.position++;
+                } while (cursor.position < cursor.count && cursor.timestamp() <= bound);
+                activate(cursor, active, after, afterValue);
+            }
+
+            if (!includeNeighbours) return;
+            // The remaining chunks start after the window; only the earliest of them can hold the neighbour.
+            if (next < ordered.size() && ordered.get(next).minTimestamp < after[0]) {
+                ChunkRef ref = ordered.get(next);
+                ChunkSamples samples = resolve(ref);
+                if (samples == null) return;
+                visitor.visit(samples.timestamps[0], samples.values[0]);
+            } else if (after[0] != Long.MAX_VALUE) {
+                visitor.visit(after[0], afterValue[0]);
+            }
+        }
+
+        /** Queues a cursor still inside the window; one past it offers its sample as the neighbour after. */
+        private void activate(ChunkCursor cursor, PriorityQueue<ChunkCursor> active, long[] after, double[] afterValue) {
+            if (cursor.position >= cursor.count) return;
+            if (cursor.timestamp() <= toTs) {
+                active.add(cursor);
+            } else if (cursor.timestamp() < after[0]) {
+                after[0] = cursor.timestamp();
+                afterValue[0] = cursor.samples.values[cursor.position];
+            }
+        }
+
+        /** @return the decoded samples of a chunk, or null if the store was cleared since the snapshot. */
+        private ChunkSamples resolve(ChunkRef ref) {
+            if (ref.samples != null) return ref.samples;
+            if (snapshotGeneration != generation) return null;
+            try {
+                byte[] data = ref.encoded;
+                if (data == null) {
+                    data = new byte[ref.encodedLength];
+                    spillFile.read(ref.spillLocation, data, ref.encodedLength);
+                }
+                ChunkSamples samples = new ChunkSamples(new long[ref.count], new double[ref.count]);
+                GorillaCodec.decode(data, ref.count, samples.timestamps, samples.values);
+                ref.samples = samples;
+                cacheDecoded(ref.chunk, samples, snapshotGeneration);
+                return samples;
+            } catch (RuntimeException e) {
+                // The spill file was released by a concurrent clear().
+                return null;
+            }
+        }
+    }
+
+    /** A read position in the decoded samples of one chunk. */
+    private static final class ChunkCursor {
+        final ChunkSamples samples;
+        final int count;
+        int position;
+
+        ChunkCursor(ChunkSamples samples, int count, int position) {
+            this.samples = samples;
+            this.count = count;
+            this.position = position;
+        }
+
+        long timestamp() { return samples.timestamps[position]; }
+    }
+
+    /**
+     * @return the value of a series at the given time: linearly interpolated between the samples
+     * around it if interpolate is set and such samples exist, otherwise the value of the nearest
+     * sample. NaN if the series has no samples.
+     */
+    public double valueAt(Series series, long time, boolean interpolate) {
+        long[] ts = {Long.MIN_VALUE, Long.MIN_VALUE}; // [0] = last at/before time, [1] = first after time
+        double[] vs = {Double.NaN, Double.NaN};
+        boolean[] found = new boolean[2];
+        forEachSample(series, time, time, true, (t, v) -> {
+            if (t <= time) { ts[0] = t; vs[0] = v; found[0] = true; }
+            else if (!found[1]) { ts[1] = t; vs[1] = v; found[1] = true; }
+        });
+        if (found[0] && found[1]) {
+            if (interpolate) return ts[0] == ts[1] ? vs[0] : vs[0] + (double) (time - ts[0]) * (vs[1] - vs[0]) / (double) (ts[1] - ts[0]);
+            return (time - ts[0] <= ts[1] - time) ? vs[0] : vs[1];
+        }
+        if (found[0]) return vs[0];
+        if (found[1]) return vs[1];
+        return Double.NaN;
+    }
+
+    /** @return a snapshot of the numeric series, in order of first appearance. */
+    public synchronized List<Series> getSeries() { return new ArrayList<>(seriesList); }
+
+    public synchronized Series findSeries(int kind, int style) { return getSeriesById(registry.find(kind, style)); }
+
+    /** @return the series with the given registry id, or null if it has no samples. */
+    public synchronized Series getSeriesById(int id) { return id >= 0 && id < seriesById.size() ? seriesById.get(id) : null; }
+
+    /** @return a snapshot of the non-numeric events, in arrival order. */
+    public synchronized List<PlotDataEvent> getMetaEvents() { return new ArrayList<>(metaEvents); }
+
+    public synchronized boolean isEmpty() { return sampleCount == 0 && metaEvents.isEmpty(); }
+    public synchronized long getSampleCount() { return sampleCount; }
+
+    /** @return the earliest timestamp in the store, or Long.MAX_VALUE if empty. */
+    public synchronized long getMinTimestamp() { return minTimestamp; }
+
+    /** @return the latest timestamp in the store, or Long.MIN_VALUE if empty. */
+    public synchronized long getMaxTimestamp() { return maxTimestamp; }
+
+    /** @return the series' latest timestamp, or Long.MIN_VALUE if it has no samples. */
+    public synchronized long getMaxTimestamp(Series series) { return series.tail != null ? series.tail.maxTimestamp : Long.MIN_VALUE; }
+
+    /**
+     * Replays the whole store as plot events in timestamp order (series samples merged with the
+     * non-numeric events). Events are created one at a time, so this works for histories that do
+     * not fit on the heap.
+     */
+    public synchronized void forEachEventInTimeOrder(Consumer<PlotDataEvent> consumer) {
+        PriorityQueue<SeriesCursor> queue = new PriorityQueue<>(Comparator.comparingLong(SeriesCursor::timestamp));
+        for (Series series : seriesList) {
+            SeriesCursor cursor = new SeriesCursor(series);
+            if (cursor.advance()) queue.add(cursor);
+        }
+        List<PlotDataEvent> sortedMeta = new ArrayList<>(metaEvents);
+        sortedMeta.sort(Comparator.comparingLong(PlotDataEvent::getTimestamp));
+        int metaIndex = 0;
+        while (!queue.isEmpty() || metaIndex < sortedMeta.size()) {
+            if (metaIndex < sortedMeta.size() && (queue.isEmpty() || sortedMeta.get(metaIndex).getTimestamp() <= queue.peek().timestamp())) {
+                consumer.accept(sortedMeta.get(metaIndex++));
+                continue;
+            }
+            SeriesCursor cursor = queue.poll();
+            consumer.accept(cursor.toEvent());
+            if (cursor.advance()) queue.add(cursor);
+        }
+    }
+
+    private final class SeriesCursor {
+        final Series series;
+        int chunkIndex = 0, sampleIndex = -1;
+        ChunkSamples samples;
+
+        SeriesCursor(Series series) { this.series = series; }
+
+        boolean advance() {
+            sampleIndex++;
+            while (chunkIndex < series.chunks.size()) {
+                Chunk chunk = series.chunks.get(chunkIndex);
+                if (sampleIndex < chunk.count) {
+                    if (samples == null) samples = samplesOf(chunk);
+                    return true;
+                }
+                chunkIndex++;
+                sampleIndex = 0;
+                samples = null;
+            }
+            return false;
+        }
+
+        long timestamp() { return samples.timestamps[sampleIndex]; }
+
+        PlotDataEvent toEvent() {
+            long ts = samples.timestamps[sampleIndex];
+            double value = samples.values[sampleIndex];
+            switch (series.kind) {
+                case KIND_LINE: return new PlotLineEvent(ts, value, series.style);
+                case KIND_POINT: return new PlotPointEvent(ts, value, series.style);
+                case KIND_LINE2: return new PlotLine2Event(ts, value, series.style);
+                default: return new PlotPoint2Event(ts, value, series.style);
+            }
+        }
+    }
+
+    /** Removes all data, including anything spilled to disk. The registry is left to its owner to clear. */
+    public synchronized void clear() {
+        seriesById.clear();
+        seriesList.clear();
+        metaEvents.clear();
+        residentSealedChunks.clear();
+        residentBytes = 0;
+        decodedCache.clear();
+        decodedCacheBytes = 0;
+        spillFile.close();
+        spillFailed = false;
+        generation++;
+        minTimestamp = Long.MAX_VALUE;
+        maxTimestamp = Long.MIN_VALUE;
+        sampleCount = 0;
+    }
+
+    /** Releases the spill file. Call when the plot is going away. */
+    public synchronized void close() {
+        clear();
+    }
+}
@@ -1,11 +1,15 @@
 // In PlotDisplay.java
 package com.example.ftcfieldsimulator;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
 import javafx.scene.control.Label;
 import javafx.scene.control.ScrollBar;
 import javafx.scene.input.MouseEvent;
@@ -16,26 +20,25 @@ import javafx.scene.shape.StrokeLineCap;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.TextAlignment;
+import javafx.scene.transform.Transform;
 import javafx.geometry.Orientation;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class PlotDisplay extends Pane {
 
@@ -55,14 +58,14 @@ public class PlotDisplay extends Pane {
     private static final Color MARKER_LINE_COLOR = Color.rgb(100, 100, 100);
     private static final Color MARKER_TEXT_COLOR = Color.BLACK;
 
-    private final Map<Integer, Label> styleToReadoutLabel = new HashMap<>();
-    private final Map<Integer, Label> styleToReadoutLabel2 = new HashMap<>();
     private static final String READOUT_LABEL_STYLE = "-fx-padding: 2px 4px; -fx-border-radius: 3px; -fx-background-radius: 3px;";
     private static final Font READOUT_LABEL_FONT = Font.font("Arial", 10);
     private Label cursorXLabel, cursorYLabel, cursorY2Label;
 
-    private Canvas mainGraphCanvas;
-    private GraphicsContext mainGc;
+    // The plot area is three stacked canvases: grid (bottom), data series (middle) and
+    // the overlay with axis labels, legend and cursor (top, receives the mouse events).
+    private Canvas gridCanvas, dataCanvas, mainGraphCanvas;
+    private GraphicsContext gridGc, dataGc, mainGc;
     private Canvas yAxisCanvas, yAxisCanvas2;
     private GraphicsContext yAxisGc, yAxisGc2;
 
@@ -72,28 +75,32 @@ public class PlotDisplay extends Pane {
     private double visibleGraphWidth, visibleGraphHeight;
 
     // --- Data Storage & State ---
-    private final List<PlotDataEvent> plotEvents = new ArrayList<>();
-    private static final int MAX_PLOT_EVENTS = 100000;
+    // Computed series, evaluated on ingest and stored like any other series.
+    private final DerivedChannelEngine derivedChannels = new DerivedChannelEngine();
+    private final List<SampleListener> sampleListeners = new ArrayList<>();
+    // Triggers watching the ingest path; their captures are copied out of the store and outlive it.
+    private final TriggerEngine triggerEngine = new TriggerEngine();
+    private final List<TriggerCapture> overlayCaptures = new ArrayList<>();
+    private long lastTriggerTimestamp = -1;     // Where overlaid captures align their trigger instant
+    private static final Color CAPTURE_OVERLAY_COLOR = Color.GRAY;
+    // Dense ids for every (kind, style) series; per-series state below lives in arrays indexed by id.
+    private final PlotSeriesRegistry seriesRegistry;
+    // Unbounded: old chunks are spilled to disk once the store's memory budget is reached.
+    private final PlotDataStore plotStore;
     private static final long MAX_TIME_GAP_MS = 15000;
 
-    // --- Data Storage for Series Names ---
-    private final Map<Integer, String> seriesNamesLine = new ConcurrentHashMap<>();
-    private final Map<Integer, String> seriesNamesPoint = new ConcurrentHashMap<>();
-    private final Map<Integer, String> seriesNamesLine2 = new ConcurrentHashMap<>();
-    private final Map<Integer, String> seriesNamesPoint2 = new ConcurrentHashMap<>();
-
-    // --- State for Series Visibility ---
-    private final Map<Integer, Boolean> seriesVisibility = new ConcurrentHashMap<>();
-
     // --- Data structure to store legend item bounding boxes for click detection ---
     private static class LegendItem {
-        final int style;
-        final String type; // "line", "point", "line2", "point2"
+        final int seriesId;
         final double x, y, width, height;
-        LegendItem(int style, String type, double x, double y, double width, double height) {
-            this.style = style; this.type = type; this.x = x; this.y = y; this.width = width; this.height = height;
+        LegendItem(int seriesId, double x, double y, double width, double height) {
+            this.seriesId = seriesId; this.x = x; this.y = y; this.width = width; this.height = height;
         }
     }
+    // Indexed by PlotDataStore kind, matching the message types of the plot protocol.
+    private static final String[] KIND_LABELS = {"LINE", "POINT", "LINE2", "POINT2"};
+    // Legend order: axis 1 lines, axis 2 lines, axis 1 points, axis 2 points.
+    private static final int[] LEGEND_KIND_ORDER = {PlotDataStore.KIND_LINE, PlotDataStore.KIND_LINE2, PlotDataStore.KIND_POINT, PlotDataStore.KIND_POINT2};
     private final List<LegendItem> legendItems = new ArrayList<>();
 
     // Y-Axis 1 (Left)
@@ -104,57 +111,164 @@ public class PlotDisplay extends Pane {
     private double currentMinY2 = 0.0, currentMaxY2 = 1.0;
     private String yAxisUnit2 = "Value 2";
 
+    // --- Y Auto-Range ---
+    // While enabled, an axis' limits follow the visible series on it instead of YLIMITS/YLIMITS2.
+    // Following real time, the ranges slide with the window and are fed sample by sample; otherwise
+    // they are queried from the store's per-chunk value ranges on each redraw.
+    private boolean autoRangeY1 = false, autoRangeY2 = false;
+    private AxisAutoRange autoRange1 = new AxisAutoRange(), autoRange2 = new AxisAutoRange();
+    private boolean autoRangeSeeded = false;     // The sliding ranges cover the current window
+    private double autoRangeWindowMs = 0;        // Window span the sliding ranges were seeded for
+    private final double[] autoRangeScratch = new double[2];
+
     private long firstTimestamp = -1, lastTimestamp = -1;
     private double pixelsPerMillisecond = 0.02;
     private static final double MIN_PIXELS_PER_MS = 0.0001, MAX_PIXELS_PER_MS = 1.0;
     private static final double X_AXIS_LABEL_AREA_HEIGHT_ON_MAIN_CANVAS = 30;
     private double currentScrollOffsetMs = 0;
 
-    private final BooleanProperty autoScrollEnabled = new SimpleBooleanProperty(true);
+    private final BooleanProperty autoScrollEnabled;
     private PlotDisplayControlPanel controlPanelProxy;
 
+    // --- Linked Panes ---
+    // A window can stack several panes over the same data. The primary pane owns the store, the
+    // registry and the ingest path; linked panes are views over them (nothing is copied) with their
+    // own series selection and Y axes, following the primary's time axis, scroll and cursor. All
+    // panes of a group render from the primary's frame timer, at most once per pulse each.
+    private final PlotDisplay primary;
+    private final List<PlotDisplay> panes;          // The whole group, primary first; shared by its panes
+    private final Set<Integer> shownSeriesKeys;     // Linked panes only: drawn series, by (style << 8) | kind
+    private boolean[] shownById = new boolean[0];   // shownSeriesKeys resolved by series id
+    private boolean shownByIdValid = false;
+    private long linkedCursorTimeMs = -1;           // Cursor time of another pane in the group, or -1
+    private static final int FRAME_NONE = 0, FRAME_OVERLAY = 1, FRAME_STREAMING = 2, FRAME_MAIN = 3, FRAME_FULL = 4;
+    private int pendingFrame = FRAME_NONE;          // Largest render requested for the next pulse
+    private AnimationTimer frameTimer;              // Primary only
+
     // --- Data Readout State ---
+    // Indexed by series id; a NaN data value means the series has no readout at the cursor.
     private final DecimalFormat readoutValueFormat = new DecimalFormat("#0.0#");
-    private final Map<Integer, String> styleToReadoutValueString = new HashMap<>();
-    private final Map<Integer, Double> styleToReadoutScreenY = new HashMap<>();
-    private final Map<Integer, Double> styleToReadoutDataY = new HashMap<>();
-    private final Map<Integer, Color> styleToReadoutColor = new HashMap<>();
-    private final Map<Integer, String> styleToReadoutValueString2 = new HashMap<>();
-    private final Map<Integer, Double> styleToReadoutScreenY2 = new HashMap<>();
-    private final Map<Integer, Double> styleToReadoutDataY2 = new HashMap<>();
-    private final Map<Integer, Color> styleToReadoutColor2 = new HashMap<>();
+    private double[] readoutDataY = new double[0];
+    private double[] readoutScreenY = new double[0];
+    private String[] readoutValueString = new String[0];
+    private Label[] readoutLabels = new Label[0];
 
-    private record TimestampedStringValue(long ts, String v) implements Comparable<TimestampedStringValue> {
-        @Override
-        public int compareTo(TimestampedStringValue other) { return Long.compare(this.ts, other.ts); }
-    }
-    private final Map<String, List<TimestampedStringValue>> keyValueStore = new ConcurrentHashMap<>();
+    private final KeyValueHistory keyValueStore;
 
     // --- Mouse Cursor State ---
     private boolean isMouseInPlotArea = false;
     private double mousePlotX = -1, mousePlotY = -1;
     private long currentCursorTimeMs = -1;
+    private double cursorPlotX = -1;            // Where the cursor is drawn: the mouse, or a linked pane's cursor time
     private static final Color CURSOR_LINE_COLOR = Color.rgb(255, 140, 0);
 
-    // --- Line and Point Styles ---
-    private static class LineStyle {
-        final Color color; final double width; final double[] dashArray;
-        LineStyle(Color c, double w, double[] d) { this.color = c; this.width = w; this.dashArray = d; }
-    }
-    private static final LineStyle[] LINE_STYLES = {
-            new LineStyle(Color.RED, 2, null), new LineStyle(Color.BLUE, 2, null),
-            new LineStyle(Color.GREEN, 2, null), new LineStyle(Color.ORANGE, 2, null),
-            new LineStyle(Color.CYAN, 2, null), new LineStyle(Color.PURPLE, 2, new double[]{5,3}),
-            new LineStyle(Color.LIMEGREEN, 2, new double[]{8,4}), new LineStyle(Color.HOTPINK, 2, new double[]{2,3}),
-            new LineStyle(Color.TEAL, 2, new double[]{3,4}), new LineStyle(Color.BLACK, 1, null)
-    };
-    private final PlotPoint[] lastLinePointByStyle = new PlotPoint[LINE_STYLES.length];
-    private final PlotPoint[] lastLinePointByStyle2 = new PlotPoint[LINE_STYLES.length];
+    // --- Range Selection ---
+    // Dragging across the plot selects a time range; its per-series statistics go to the control panel.
+    private static final Color SELECTION_FILL_COLOR = Color.rgb(30, 144, 255, 0.15);
+    private static final double MIN_SELECTION_DRAG_PIXELS = 3;
+    private static final String RANGE_STATS_TITLE = "Range Statistics";
+    private final DecimalFormat rangeStatFormat = new DecimalFormat("#0.###");
+    private boolean selectingRange = false;
+    private double selectionStartX;
+    private long selectionFromTs = -1, selectionToTs = -1;
+
+    // --- Line Continuity ---
+    // Last drawn point of each line series (by series id), so streamed samples continue the line.
+    private PlotPoint[] lastLinePoint = new PlotPoint[0];
+
+    // --- Streaming Render State (follow mode) ---
+    // While following real time, the data layer is not repainted from scratch for each sample:
+    // it is shifted left by the pixels scrolled since the last frame and only new events are drawn.
+    private boolean dataLayerValid = false;
+    private double dataLayerScrollValue = 0;    // hScrollBar value the data layer was rendered at
+    private final List<PlotDataEvent> eventsSinceDataLayerRender = new ArrayList<>();
+    private static final int MAX_STREAMED_EVENTS = 20000;
+    private boolean suppressScrollRedraw = false;
+    private WritableImage dataLayerSnapshot;
+    private final SnapshotParameters dataLayerSnapshotParams = new SnapshotParameters();
+
+    // --- Off-FX-Thread Geometry ---
+    // Full data layer redraws are computed on a worker (parallel per series) and only drawn on the FX
+    // thread. One build runs at a time; view changes during a build restart it once it completes.
+    private final PlotGeometryBuilder geometryBuilder = new PlotGeometryBuilder();
+    private final ExecutorService geometryExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "PlotGeometryThread");
+        t.setDaemon(true);
+        return t;
+    });
+    private boolean geometryBuildInFlight = false, geometryBuildPending = false;
+    private double[] polylineScratchX = new double[256], polylineScratchY = new double[256];
+
+    // --- Rendered Tile Cache ---
+    // Outside follow mode, full data layer redraws are assembled from cached tiles (the cache is shared
+    // by the group); only missing tiles go through the geometry worker, drawn on an off-screen canvas.
+    private final PlotTileCache tileCache;
+    private Canvas tileCanvas;
+    private final SnapshotParameters tileSnapshotParams = new SnapshotParameters();
+    private static final double MARKER_TILE_MARGIN_PX = 200; // Marker text is centred on its time
+    // Data changed while a build was in flight; tiles it touches are drawn but not cached.
+    private long tileBuildDirtyFromTs = Long.MAX_VALUE, tileBuildDirtyToTs = Long.MIN_VALUE;
+    private double tileBuildDirtyMarginPx = 0;
+
+    /** The tiles covering the view: those found in the cache, and the span still to be built. */
+    private static final class TileRequest {
+        final PlotTileCache.Config config;
+        final long firstIndex;
+        final Image[] tiles;
+        long firstMissing = Long.MAX_VALUE, lastMissing = Long.MIN_VALUE;
+
+        TileRequest(PlotTileCache.Config config, long firstIndex, int count) {
+            this.config = config;
+            this.firstIndex = firstIndex;
+            this.tiles = new Image[count];
+        }
+
+        boolean isComplete() { return firstMissing > lastMissing; }
+    }
+
+    // --- Background file loading ---
+    private static final long LOAD_OVERVIEW_INTERVAL_MS = 500;
+    private PlotFileLoader activeLoad = null;
+    private long lastLoadOverviewMs = 0;
 
     public PlotDisplay(double requestedVisibleWidth, double requestedVisibleHeight) {
+        this(requestedVisibleWidth, requestedVisibleHeight, null);
+    }
+
+    /**
+     * Creates a pane linked to another pane's group, or a primary pane if linkTo is null. A linked
+     * pane shows the primary's data with its own series selection (initially none) and auto-ranged
+     * Y axes; it should have the same width as the primary so the time axes line up.
+     */
+    public PlotDisplay(double requestedVisibleWidth, double requestedVisibleHeight, PlotDisplay linkTo) {
         this.visibleGraphWidth = requestedVisibleWidth;
         this.visibleGraphHeight = requestedVisibleHeight;
 
+        if (linkTo == null) {
+            primary = this;
+            panes = new ArrayList<>();
+            seriesRegistry = new PlotSeriesRegistry();
+            plotStore = new PlotDataStore(seriesRegistry);
+            keyValueStore = new KeyValueHistory();
+            autoScrollEnabled = new SimpleBooleanProperty(true);
+            tileCache = new PlotTileCache();
+            shownSeriesKeys = null;
+        } else {
+            primary = linkTo.primary;
+            panes = primary.panes;
+            seriesRegistry = primary.seriesRegistry;
+            plotStore = primary.plotStore;
+            keyValueStore = primary.keyValueStore;
+            autoScrollEnabled = primary.autoScrollEnabled;
+            tileCache = primary.tileCache;
+            shownSeriesKeys = new HashSet<>();
+            // The robot's YLIMITS are meant for the primary's combined view.
+            autoRangeY1 = autoRangeY2 = true;
+            yAxisUnit = primary.yAxisUnit;
+            yAxisUnit2 = primary.yAxisUnit2;
+        }
+        panes.add(this);
+
         this.yAxisCanvas = new Canvas(PADDING_LEFT_FOR_Y_AXIS, PADDING_TOP + this.visibleGraphHeight + PADDING_BOTTOM);
         this.yAxisGc = yAxisCanvas.getGraphicsContext2D();
 
@@ -162,9 +276,17 @@ public class PlotDisplay extends Pane {
         this.yAxisGc2 = yAxisCanvas2.getGraphicsContext2D();
         this.yAxisCanvas2.setVisible(true);
 
-        this.mainGraphCanvas = new Canvas(this.visibleGraphWidth, this.visibleGraphHeight + X_AXIS_LABEL_AREA_HEIGHT_ON_MAIN_CANVAS + PADDING_BOTTOM);
+        double mainCanvasHeight = this.visibleGraphHeight + X_AXIS_LABEL_AREA_HEIGHT_ON_MAIN_CANVAS + PADDING_BOTTOM;
+        this.gridCanvas = new Canvas(this.visibleGraphWidth, mainCanvasHeight);
+        this.gridGc = gridCanvas.getGraphicsContext2D();
+        this.dataCanvas = new Canvas(this.visibleGraphWidth, mainCanvasHeight);
+        this.dataGc = dataCanvas.getGraphicsContext2D();
+        this.dataCanvas.setMouseTransparent(true);
+        this.dataLayerSnapshotParams.setFill(Color.TRANSPARENT);
+        this.tileSnapshotParams.setFill(Color.TRANSPARENT);
+        this.mainGraphCanvas = new Canvas(this.visibleGraphWidth, mainCanvasHeight);
         this.mainGc = mainGraphCanvas.getGraphicsContext2D();
-        this.graphContainer = new StackPane(mainGraphCanvas);
+        this.graphContainer = new StackPane(gridCanvas, dataCanvas, mainGraphCanvas);
         this.graphContainer.setPrefSize(this.visibleGraphWidth, this.visibleGraphHeight + X_AXIS_LABEL_AREA_HEIGHT_ON_MAIN_CANVAS + PADDING_BOTTOM);
 
 //        this.hScrollBar = new ScrollBar();
@@ -192,7 +314,11 @@ public class PlotDisplay extends Pane {
         hScrollBar.valueProperty().addListener((obs, oldVal, newVal) -> {
             // *** SCROLLING FIX 1/2: Do NOT translate the canvas. Just record the value and redraw. ***
             currentScrollOffsetMs = (pixelsPerMillisecond > 0) ? newVal.doubleValue() / pixelsPerMillisecond : 0;
-            redrawMainGraph();
+            if (!suppressScrollRedraw) {
+                // Only the primary's scrollbar is shown; the linked panes follow it.
+                syncLinkedTimeAxes();
+                requestGroupFrame(FRAME_MAIN);
+            }
         });
         hScrollBar.pressedProperty().addListener((obs, was, is) -> { if (is) setAutoScrollEnabled(false); });
 
@@ -244,6 +370,18 @@ public class PlotDisplay extends Pane {
         mainGraphCanvas.setOnMouseClicked(this::handleCanvasClick);
 
         setupCursorAndLabels();
+        if (primary == this) {
+            frameTimer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    for (PlotDisplay pane : panes) pane.renderPendingFrame();
+                }
+            };
+            frameTimer.start();
+        } else {
+            hScrollBar.setVisible(false);
+            adoptTimeAxis(primary);
+        }
         redrawFullPlot();
     }
 
@@ -263,8 +401,8 @@ public class PlotDisplay extends Pane {
                         clickY >= item.y - item.height/2 && clickY <= item.y + item.height/2) {
 
                     // Click is on this legend item, toggle its visibility
-                    boolean currentVisibility = seriesVisibility.getOrDefault(item.style, true);
-                    seriesVisibility.put(item.style, !currentVisibility);
+                    setShown(item.seriesId, !isShown(item.seriesId));
+                    autoRangeSeeded = false;
 
                     // Redraw the entire plot to show/hide the series and update the checkbox
                     redrawFullPlot();
@@ -278,6 +416,9 @@ public class PlotDisplay extends Pane {
     private void setupCursorAndLabels() {
         mainGraphCanvas.setOnMouseMoved(this::handleMouseMovedOverPlot);
         mainGraphCanvas.setOnMouseExited(this::handleMouseExitedPlot);
+        mainGraphCanvas.setOnMousePressed(this::handleRangeSelectionPressed);
+        mainGraphCanvas.setOnMouseDragged(this::handleRangeSelectionDragged);
+        mainGraphCanvas.setOnMouseReleased(this::handleRangeSelectionReleased);
 
         String style = "-fx-padding: 2px 4px; -fx-border-radius: 3px; -fx-background-radius: 3px; -fx-background-color: " + toRgbCode(CURSOR_LINE_COLOR) + ";";
         Font font = Font.font("Arial", 10);
@@ -301,6 +442,7 @@ public class PlotDisplay extends Pane {
     private String toRgbCode(Color c) { return String.format("rgb(%d,%d,%d)",(int)(c.getRed()*255),(int)(c.getGreen()*255),(int)(c.getBlue()*255)); }
 
     public void setAutoScrollEnabled(boolean enabled) {
+        if (primary != this) { primary.setAutoScrollEnabled(enabled); return; }
         autoScrollEnabled.set(enabled);
         if (controlPanelProxy != null) controlPanelProxy.setFollowRealTimeSelected(enabled);
         if (enabled && lastTimestamp != -1) scrollToTimestamp(lastTimestamp);
@@ -310,15 +452,95 @@ public class PlotDisplay extends Pane {
         isMouseInPlotArea = true;
         mousePlotX = event.getX();
         mousePlotY = event.getY();
-        redrawMainGraph();
+        redrawOverlayLayer();
+        publishCursor();
     }
 
     private void handleMouseExitedPlot(MouseEvent event) {
         isMouseInPlotArea = false;
-        redrawMainGraph();
+        redrawOverlayLayer();
+        publishCursor();
+    }
+
+    /** Shows this pane's cursor time in the other panes of the group, on their next frame. */
+    private void publishCursor() {
+        long time = isMouseInPlotArea ? currentCursorTimeMs : -1;
+        for (PlotDisplay pane : panes) {
+            if (pane == this || pane.linkedCursorTimeMs == time) continue;
+            pane.linkedCursorTimeMs = time;
+            pane.requestFrame(FRAME_OVERLAY);
+        }
+    }
+
+    private void handleRangeSelectionPressed(MouseEvent event) {
+        if (!event.isPrimaryButtonDown() || event.getY() >= visibleGraphHeight || firstTimestamp == -1) return;
+        selectingRange = true;
+        selectionStartX = event.getX() + hScrollBar.getValue();
+    }
+
+    private void handleRangeSelectionDragged(MouseEvent event) {
+        isMouseInPlotArea = true;
+        mousePlotX = event.getX();
+        mousePlotY = event.getY();
+        if (selectingRange) {
+            double endX = MathUtil.clip(event.getX(), 0, visibleGraphWidth) + hScrollBar.getValue();
+            selectionFromTs = screenXToTimeMs(Math.min(selectionStartX, endX));
+            selectionToTs = screenXToTimeMs(Math.max(selectionStartX, endX));
+        }
+        redrawOverlayLayer();
+        publishCursor();
+    }
+
+    private void handleRangeSelectionReleased(MouseEvent event) {
+        if (!selectingRange) return;
+        selectingRange = false;
+        double endX = MathUtil.clip(event.getX(), 0, visibleGraphWidth) + hScrollBar.getValue();
+        if (Math.abs(endX - selectionStartX) < MIN_SELECTION_DRAG_PIXELS) {
+            // A click without a drag drops the selection.
+            clearRangeSelection();
+        } else {
+            selectionFromTs = screenXToTimeMs(Math.min(selectionStartX, endX));
+            selectionToTs = screenXToTimeMs(Math.max(selectionStartX, endX));
+            publishRangeStatistics();
+        }
+        redrawOverlayLayer();
+    }
+
+    private void clearRangeSelection() {
+        selectionFromTs = -1;
+        selectionToTs = -1;
+        if (primary.controlPanelProxy != null) primary.controlPanelProxy.updateRangeStatistics(RANGE_STATS_TITLE, List.of());
+    }
+
+    /** Computes the statistics of every visible series over the selected range for the control panel. */
+    private void publishRangeStatistics() {
+        PlotDisplayControlPanel panel = primary.controlPanelProxy;
+        if (panel == null || selectionFromTs == -1) return;
+        List<PlotDisplayControlPanel.RangeStatEntry> entries = new ArrayList<>();
+        for (PlotDataStore.Series series : plotStore.getSeries()) {
+            if (!isShown(series.getId())) continue;
+            RangeStatistics stats = plotStore.rangeStatistics(series, selectionFromTs, selectionToTs);
+            if (stats.getCount() == 0) continue;
+            String name = seriesLabel(series);
+            addRangeStatEntry(entries, name, "Min", stats.getMin());
+            addRangeStatEntry(entries, name, "Max", stats.getMax());
+            addRangeStatEntry(entries, name, "Mean", stats.getMean());
+            addRangeStatEntry(entries, name, "Std Dev", stats.getStdDev());
+            addRangeStatEntry(entries, name, "RMS", stats.getRms());
+            entries.add(new PlotDisplayControlPanel.RangeStatEntry(name, "Samples", Long.toString(stats.getCount())));
+            addRangeStatEntry(entries, name, "Integral", stats.getIntegral());
+            addRangeStatEntry(entries, name, "Overshoot %", stats.getOvershootPercent());
+            addRangeStatEntry(entries, name, "Settling (s)", stats.getSettlingTime());
+        }
+        panel.updateRangeStatistics(RANGE_STATS_TITLE + " (" + fT(selectionFromTs) + "s - " + fT(selectionToTs) + "s)", entries);
+    }
+
+    private void addRangeStatEntry(List<PlotDisplayControlPanel.RangeStatEntry> entries, String series, String statistic, double value) {
+        entries.add(new PlotDisplayControlPanel.RangeStatEntry(series, statistic, Double.isNaN(value) ? "N/A" : rangeStatFormat.format(value)));
     }
 
     public void addPlotEvent(PlotDataEvent event) {
+        if (primary != this) { primary.addPlotEvent(event); return; }
         if (event == null) return;
         if (lastTimestamp != -1 && (event.getTimestamp() - lastTimestamp > MAX_TIME_GAP_MS)) {
             Platform.runLater(() -> { clearPlot(); processNewEvent(event); });
@@ -332,68 +554,363 @@ public class PlotDisplay extends Pane {
         if (isFirst) firstTimestamp = event.getTimestamp();
         if (lastTimestamp == -1 || event.getTimestamp() > lastTimestamp) lastTimestamp = event.getTimestamp();
 
-        synchronized (plotEvents) {
-            // MODIFIED: Also add name events to the main list so they can be saved/loaded
-            if (!(event instanceof PlotKeyValueEvent)) {
-                if (plotEvents.size() >= MAX_PLOT_EVENTS) plotEvents.remove(0);
-                plotEvents.add(event);
-            }
+        // Name events are stored too so they can be saved/loaded
+        invalidateTilesFor(event);
+        plotStore.add(event);
+        int kind = kindOf(event);
+        if (kind >= 0) {
+            for (SampleListener listener : sampleListeners) listener.onSample(kind, getStyle(event), event.getTimestamp(), getYValue(event));
+            feedAutoRange(kind, getStyle(event), event.getTimestamp(), getYValue(event));
+            if (!triggerEngine.isEmpty()) triggerEngine.onSample(kind, getStyle(event), event.getTimestamp(), getYValue(event), this::onTriggerFired);
+            if (!derivedChannels.isEmpty()) derivedChannels.process(kind, getStyle(event), event.getTimestamp(), getYValue(event), this::storeDerivedSample);
+        } else if (event instanceof PlotKeyValueEvent kv && !triggerEngine.isEmpty()) {
+            triggerEngine.onKeyValue(kv.getTimestamp(), kv.getKey(), kv.getValue(), this::onTriggerFired);
         }
+        if (triggerEngine.hasDueCaptures(event.getTimestamp())) publishCaptures(triggerEngine.freezeDue(event.getTimestamp(), plotStore, this::seriesLabel));
+        if (!(event instanceof PlotKeyValueEvent)) queueStreamedEvent(event);
 
         if (event instanceof PlotKeyValueEvent kv) {
-            keyValueStore.computeIfAbsent(kv.getKey(), k -> new ArrayList<>()).add(new TimestampedStringValue(kv.getTimestamp(), kv.getValue()));
-            keyValueStore.get(kv.getKey()).sort(null);
+            keyValueStore.append(kv.getTimestamp(), kv.getKey(), kv.getValue());
         } else if (event instanceof PlotYLimitsEvent yle) setYLimits(yle.getMinY(), yle.getMaxY());
-        else if (event instanceof PlotYUnitsEvent yue) { setYUnit(yue.getUnit()); return; }
+        else if (event instanceof PlotYUnitsEvent yue) { for (PlotDisplay pane : panes) pane.setYUnit(yue.getUnit()); return; }
         else if (event instanceof PlotYLimits2Event yle2) setYLimits2(yle2.getMinY(), yle2.getMaxY());
-        else if (event instanceof PlotYUnits2Event yue2) { setYUnit2(yue2.getUnit()); return; }
+        else if (event instanceof PlotYUnits2Event yue2) { for (PlotDisplay pane : panes) pane.setYUnit2(yue2.getUnit()); return; }
 
         // --- Handle Series Name Events ---
         else if (event instanceof PlotSeriesNameLineEvent snle) {
-            seriesNamesLine.put(snle.getStyle(), snle.getSeriesName());
-            seriesVisibility.putIfAbsent(snle.getStyle(), true); // Default to visible
-            redrawFullPlot();
+            nameSeries(PlotDataStore.KIND_LINE, snle.getStyle(), snle.getSeriesName());
             return;
         } else if (event instanceof PlotSeriesNamePointEvent snpe) {
-            seriesNamesPoint.put(snpe.getStyle(), snpe.getSeriesName());
-            seriesVisibility.putIfAbsent(snpe.getStyle(), true); // Default to visible
-            redrawFullPlot();
+            nameSeries(PlotDataStore.KIND_POINT, snpe.getStyle(), snpe.getSeriesName());
             return;
         } else if (event instanceof PlotSeriesNameLine2Event snle2) {
-            seriesNamesLine2.put(snle2.getStyle(), snle2.getSeriesName());
-            seriesVisibility.putIfAbsent(snle2.getStyle() + 1000, true); // Use offset for Y2 axis styles
-            redrawFullPlot();
+            nameSeries(PlotDataStore.KIND_LINE2, snle2.getStyle(), snle2.getSeriesName());
             return;
         } else if (event instanceof PlotSeriesNamePoint2Event snpe2) {
-            seriesNamesPoint2.put(snpe2.getStyle(), snpe2.getSeriesName());
-            seriesVisibility.putIfAbsent(snpe2.getStyle() + 1000, true); // Use offset for Y2 axis styles
-            redrawFullPlot();
+            nameSeries(PlotDataStore.KIND_POINT2, snpe2.getStyle(), snpe2.getSeriesName());
             return;
         }
 
-        updateCanvasWidthAndScrollbar();
-        if (autoScrollEnabled.get() && !(event instanceof PlotKeyValueEvent)) scrollToTimestamp(event.getTimestamp());
+        // Scrolling here is programmatic; render once below instead of from the scrollbar listener.
+        suppressScrollRedraw = true;
+        try {
+            updateCanvasWidthAndScrollbar();
+            if (autoScrollEnabled.get() && !(event instanceof PlotKeyValueEvent)) scrollToTimestamp(event.getTimestamp());
+        } finally {
+            suppressScrollRedraw = false;
+        }
+        syncLinkedTimeAxes();
 
-        if (event instanceof PlotYLimitsEvent || event instanceof PlotYLimits2Event) {
-            redrawFullPlot();
-        } else {
-            redrawMainGraph();
+        // Events arrive one runLater each; rendering waits for the next pulse so a burst costs one frame.
+        if (event instanceof PlotYLimitsEvent || event instanceof PlotYLimits2Event) requestFrame(FRAME_FULL);
+        requestGroupFrame(autoScrollEnabled.get() ? FRAME_STREAMING : FRAME_MAIN);
+    }
+
+    /**
+     * Drops the cached tiles an event is about to change; call before it is stored. A line sample
+     * redraws the segment from the sample before it, which for a late sample is found in the store.
+     */
+    private void invalidateTilesFor(PlotDataEvent event) {
+        long ts = event.getTimestamp();
+        int kind = kindOf(event);
+        if (kind == PlotDataStore.KIND_LINE || kind == PlotDataStore.KIND_LINE2) {
+            PlotDataStore.Series series = plotStore.findSeries(kind, getStyle(event));
+            long newest = series != null ? plotStore.getMaxTimestamp(series) : Long.MIN_VALUE;
+            if (newest == Long.MIN_VALUE) {
+                markTilesDirty(ts, ts, PlotTileCache.EDGE_MARGIN_PX);
+            } else if (newest <= ts) {
+                markTilesDirty(newest, ts, PlotTileCache.EDGE_MARGIN_PX);
+            } else {
+                long[] before = {ts};
+                plotStore.forEachSample(series, ts, ts, true, (t, v) -> { if (t < before[0]) before[0] = t; });
+                markTilesDirty(before[0], newest, PlotTileCache.EDGE_MARGIN_PX);
+            }
+        } else if (kind >= 0) {
+            markTilesDirty(ts, ts, PlotTileCache.EDGE_MARGIN_PX);
+        } else if (event instanceof PlotTextAnnotationEvent) {
+            markTilesDirty(ts, ts, MARKER_TILE_MARGIN_PX);
+        }
+    }
+
+    private void markTilesDirty(long fromTs, long toTs, double marginPx) {
+        tileCache.markDirty(fromTs, toTs, marginPx);
+        for (PlotDisplay pane : panes) {
+            if (!pane.geometryBuildInFlight) continue;
+            pane.tileBuildDirtyFromTs = Math.min(pane.tileBuildDirtyFromTs, fromTs);
+            pane.tileBuildDirtyToTs = Math.max(pane.tileBuildDirtyToTs, toTs);
+            pane.tileBuildDirtyMarginPx = Math.max(pane.tileBuildDirtyMarginPx, marginPx);
+        }
+    }
+
+    /** Queues an event for the next streaming frame of every pane in the group. */
+    private void queueStreamedEvent(PlotDataEvent event) {
+        for (PlotDisplay pane : panes) {
+            pane.eventsSinceDataLayerRender.add(event);
+            // Past this point a fresh geometry build is cheaper than replaying the events.
+            if (pane.eventsSinceDataLayerRender.size() > MAX_STREAMED_EVENTS) pane.redrawDataLayer();
+        }
+    }
+
+    private void requestFrame(int frame) {
+        if (frame > pendingFrame) pendingFrame = frame;
+    }
+
+    private void requestGroupFrame(int frame) {
+        for (PlotDisplay pane : panes) pane.requestFrame(frame);
+    }
+
+    /** Runs the render requested since the last pulse, if any. Called by the primary's frame timer. */
+    private void renderPendingFrame() {
+        int frame = pendingFrame;
+        pendingFrame = FRAME_NONE;
+        switch (frame) {
+            case FRAME_OVERLAY: redrawOverlayLayer(); break;
+            case FRAME_STREAMING: renderStreamingFrame(); break;
+            case FRAME_MAIN: redrawMainGraph(); break;
+            case FRAME_FULL: redrawFullPlot(); break;
+            default: break;
+        }
+    }
+
+    /** Brings the linked panes to the primary's time axis and scroll position, without rendering them. */
+    private void syncLinkedTimeAxes() {
+        for (PlotDisplay pane : panes) {
+            if (pane != this) pane.adoptTimeAxis(this);
+        }
+    }
+
+    private void adoptTimeAxis(PlotDisplay source) {
+        firstTimestamp = source.firstTimestamp;
+        lastTimestamp = source.lastTimestamp;
+        pixelsPerMillisecond = source.pixelsPerMillisecond;
+        suppressScrollRedraw = true;
+        try {
+            updateCanvasWidthAndScrollbar();
+            hScrollBar.setValue(source.hScrollBar.getValue());
+        } finally {
+            suppressScrollRedraw = false;
+        }
+        currentScrollOffsetMs = source.currentScrollOffsetMs;
+    }
+
+    /** Redraws every pane of the group on the next pulse, e.g. after the time axis or the data changed wholesale. */
+    private void redrawAllPanes() {
+        syncLinkedTimeAxes();
+        for (PlotDisplay pane : panes) {
+            pane.autoRangeSeeded = false;
+            pane.requestFrame(FRAME_FULL);
+        }
+    }
+
+    /** Stores a derived sample like an ingested one and queues it for the next streaming frame. */
+    private void storeDerivedSample(DerivedChannel channel, long timestamp, double value) {
+        PlotDataEvent e = channel.getOutputKind() == PlotDataStore.KIND_LINE2
+                ? new PlotLine2Event(timestamp, value, channel.getOutputStyle())
+                : new PlotLineEvent(timestamp, value, channel.getOutputStyle());
+        invalidateTilesFor(e);
+        plotStore.add(e);
+        queueStreamedEvent(e);
+        for (SampleListener listener : sampleListeners) listener.onSample(channel.getOutputKind(), channel.getOutputStyle(), timestamp, value);
+        feedAutoRange(channel.getOutputKind(), channel.getOutputStyle(), timestamp, value);
+        if (!triggerEngine.isEmpty()) triggerEngine.onSample(channel.getOutputKind(), channel.getOutputStyle(), timestamp, value, this::onTriggerFired);
+    }
+
+    /** Marks a trigger firing on the plot; its capture completes once the post-trigger window has arrived. */
+    private void onTriggerFired(PlotTrigger trigger, long timestamp) {
+        lastTriggerTimestamp = timestamp;
+        PlotTextAnnotationEvent marker = new PlotTextAnnotationEvent(timestamp, trigger.getDefinition().name, "top");
+        invalidateTilesFor(marker);
+        plotStore.add(marker);
+        queueStreamedEvent(marker);
+    }
+
+    private void publishCaptures(List<TriggerCapture> completed) {
+        if (completed.isEmpty() || controlPanelProxy == null) return;
+        controlPanelProxy.updateCaptures(triggerEngine.getCaptures());
+    }
+
+    /** Arms a trigger on the live stream. Must be called on the FX thread. */
+    public void addTrigger(PlotTrigger.Definition definition) { triggerEngine.add(definition); }
+
+    public void removeTrigger(PlotTrigger trigger) { triggerEngine.remove(trigger); }
+
+    public List<PlotTrigger> getTriggers() { return triggerEngine.getTriggers(); }
+
+    /** Scrolls to a capture's window, if that part of the session is still in the plot. */
+    public void showCapture(TriggerCapture capture) {
+        if (firstTimestamp == -1 || capture.getToTimestamp() < firstTimestamp || capture.getFromTimestamp() > lastTimestamp) return;
+        setAutoScrollEnabled(false);
+        double value = timeMsToScreenX(capture.getFromTimestamp());
+        hScrollBar.setValue(MathUtil.clip(value, 0, Math.max(0, hScrollBar.getMax() - hScrollBar.getVisibleAmount())));
+    }
+
+    /** Overlays a capture with its trigger instant aligned to the latest trigger firing in the plot. */
+    public void overlayCapture(TriggerCapture capture) {
+        if (!overlayCaptures.contains(capture)) overlayCaptures.add(capture);
+        redrawOverlayLayer();
+    }
+
+    public void clearCaptureOverlays() {
+        overlayCaptures.clear();
+        redrawOverlayLayer();
+    }
+
+    private String seriesLabel(PlotDataStore.Series series) {
+        String name = seriesRegistry.getName(series.getId());
+        return name != null ? name : KIND_LABELS[series.getKind()] + " " + series.getStyle();
+    }
+
+    /** Receives every numeric sample the plot ingests live, robot-sent or derived, on the FX thread. */
+    public interface SampleListener {
+        void onSample(int kind, int style, long timestamp, double value);
+        /** The plot was cleared. */
+        void onClear();
+        /** A plot file was loaded into the store without passing through onSample. */
+        default void onLoaded() {}
+    }
+
+    public void addSampleListener(SampleListener listener) { primary.sampleListeners.add(listener); }
+
+    /** @return the store holding the plot history; read-only use, from the FX thread. */
+    public PlotDataStore getDataStore() { return plotStore; }
+
+    /**
+     * Adds a derived channel. It is computed once over the history already in the plot, then kept up
+     * to date incrementally as samples arrive. Must be called on the FX thread.
+     */
+    public void addDerivedChannel(DerivedChannel.Definition definition) {
+        DerivedChannel channel = derivedChannels.add(definition, seriesRegistry);
+        seriesRegistry.setName(seriesRegistry.idFor(channel.getOutputKind(), channel.getOutputStyle()), definition.name);
+        backfillDerivedChannel(channel, true);
+        redrawAllPanes();
+    }
+
+    /**
+     * Runs a channel over the history in the plot. With storeOutputs its outputs are appended to the
+     * store; otherwise only its state is brought up to date, for live samples to continue from.
+     */
+    private void backfillDerivedChannel(DerivedChannel channel, boolean storeOutputs) {
+        // Outputs are collected first, since the store cannot be appended to while merging.
+        long[][] timestamps = {new long[1024]};
+        double[][] values = {new double[1024]};
+        int[] count = {0};
+        plotStore.forEachEventInTimeOrder(e -> {
+            int kind = kindOf(e);
+            if (kind < 0 || !channel.isInput(kind, getStyle(e))) return;
+            channel.accept(kind, getStyle(e), e.getTimestamp(), getYValue(e), (ts, v) -> {
+                if (!storeOutputs) return;
+                if (count[0] == timestamps[0].length) {
+                    timestamps[0] = Arrays.copyOf(timestamps[0], count[0] * 2);
+                    values[0] = Arrays.copyOf(values[0], count[0] * 2);
+                }
+                timestamps[0][count[0]] = ts;
+                values[0][count[0]] = v;
+                count[0]++;
+            });
+        });
+        plotStore.appendAll(channel.getOutputKind(), channel.getOutputStyle(), timestamps[0], values[0], count[0]);
+    }
+
+    /** @return every series in the plot, labelled by name where named, e.g. as derived channel inputs. */
+    public List<DerivedChannel.Source> getSeriesSources() {
+        List<DerivedChannel.Source> sources = new ArrayList<>();
+        for (int id = 0; id < seriesRegistry.size(); id++) {
+            int kind = seriesRegistry.getKind(id), style = seriesRegistry.getStyleNumber(id);
+            String name = seriesRegistry.getName(id);
+            sources.add(new DerivedChannel.Source(kind, style, name != null ? name : KIND_LABELS[kind] + " " + style));
         }
+        return sources;
+    }
+
+    private void nameSeries(int kind, int style, String name) {
+        seriesRegistry.setName(seriesRegistry.idFor(kind, style), name); // New series default to visible
+        requestGroupFrame(FRAME_FULL); // The legends list named series
+    }
+
+    /**
+     * Shows or hides a series in this pane. In the primary pane this is the series' visibility, which
+     * is saved with the plot; a linked pane keeps its own selection, which survives Clear Plot.
+     */
+    public void setSeriesShown(int kind, int style, boolean shown) {
+        setShown(seriesRegistry.idFor(kind, style), shown);
+        autoRangeSeeded = false;
+        redrawFullPlot();
+    }
+
+    public boolean isSeriesShown(int kind, int style) {
+        int id = seriesRegistry.find(kind, style);
+        return id >= 0 && isShown(id);
+    }
+
+    private boolean isShown(int id) {
+        if (shownSeriesKeys == null) return seriesRegistry.isVisible(id);
+        if (!shownByIdValid || id >= shownById.length) {
+            // Series ids are dense and only grow until a clear, so the lookup is rebuilt rarely.
+            shownById = new boolean[seriesRegistry.size()];
+            for (int i = 0; i < shownById.length; i++) {
+                shownById[i] = shownSeriesKeys.contains(seriesKey(seriesRegistry.getKind(i), seriesRegistry.getStyleNumber(i)));
+            }
+            shownByIdValid = true;
+        }
+        return shownById[id];
+    }
+
+    private void setShown(int id, boolean shown) {
+        if (shownSeriesKeys == null) { seriesRegistry.setVisible(id, shown); return; }
+        int key = seriesKey(seriesRegistry.getKind(id), seriesRegistry.getStyleNumber(id));
+        if (shown) shownSeriesKeys.add(key); else shownSeriesKeys.remove(key);
+        shownByIdValid = false;
+    }
+
+    private static int seriesKey(int kind, int style) { return (style << 8) | kind; }
+
+    /** Grows the per-series arrays to cover every registered series id. */
+    private void ensureSeriesCapacity() {
+        int needed = seriesRegistry.size();
+        if (needed <= lastLinePoint.length) return;
+        int capacity = Math.max(needed, lastLinePoint.length * 2);
+        int oldCapacity = readoutDataY.length;
+        lastLinePoint = Arrays.copyOf(lastLinePoint, capacity);
+        readoutDataY = Arrays.copyOf(readoutDataY, capacity);
+        Arrays.fill(readoutDataY, oldCapacity, capacity, Double.NaN);
+        readoutScreenY = Arrays.copyOf(readoutScreenY, capacity);
+        readoutValueString = Arrays.copyOf(readoutValueString, capacity);
+        readoutLabels = Arrays.copyOf(readoutLabels, capacity);
     }
 
     public void clearPlot() {
-        synchronized (plotEvents) { plotEvents.clear(); }
-        synchronized (keyValueStore) { keyValueStore.clear(); }
-        seriesNamesLine.clear();
-        seriesNamesPoint.clear();
-        seriesNamesLine2.clear();
-        seriesNamesPoint2.clear();
-        seriesVisibility.clear();
+        if (primary != this) { primary.clearPlot(); return; }
+        if (activeLoad != null) { activeLoad.cancel(); activeLoad = null; }
+        // Captures still waiting for their post-trigger window keep what has arrived.
+        publishCaptures(triggerEngine.flushPending(plotStore, this::seriesLabel));
+        triggerEngine.reset();
+        lastTriggerTimestamp = -1;
+        plotStore.clear();
+        tileCache.clear();
+        seriesRegistry.clear();
+        // Derived channels outlive a clear; their output series are registered again right away.
+        derivedChannels.reset();
+        for (SampleListener listener : sampleListeners) listener.onClear();
+        for (DerivedChannel channel : derivedChannels.getChannels()) {
+            seriesRegistry.setName(seriesRegistry.idFor(channel.getOutputKind(), channel.getOutputStyle()), channel.getDefinition().name);
+        }
+        keyValueStore.clear();
+        for (PlotDisplay pane : panes) pane.resetPaneState();
 
         firstTimestamp = -1; lastTimestamp = -1; currentScrollOffsetMs = 0;
         hScrollBar.setValue(0);
         updateCanvasWidthAndScrollbar();
-        redrawFullPlot();
+        redrawAllPanes();
+    }
+
+    /** Forgets what a pane drew of the cleared data; its series selection and Y axis settings stay. */
+    private void resetPaneState() {
+        Arrays.fill(lastLinePoint, null);
+        Arrays.fill(readoutDataY, Double.NaN);
+        autoRangeSeeded = false;
+        shownByIdValid = false; // Series ids are handed out again
+        linkedCursorTimeMs = -1;
+        clearRangeSelection();
     }
 
     private void redrawFullPlot() {
@@ -405,6 +922,75 @@ public class PlotDisplay extends Pane {
     private void redrawYAxis() { drawAxis(yAxisGc, yAxisCanvas, PADDING_LEFT_FOR_Y_AXIS - 1, currentMinY, currentMaxY, yAxisUnit, true); }
     private void redrawYAxis2() { drawAxis(yAxisGc2, yAxisCanvas2, 0, currentMinY2, currentMaxY2, yAxisUnit2, false); }
 
+    /**
+     * Turns auto-ranging of one Y axis (1 or 2) on or off. While on, the axis ignores YLIMITS events;
+     * turning it off keeps the current limits until the robot sends new ones.
+     */
+    public void setAutoRangeEnabled(int axis, boolean enabled) {
+        if (axis == 2) {
+            if (enabled && !autoRangeY2) autoRange2 = new AxisAutoRange();
+            autoRangeY2 = enabled;
+        } else {
+            if (enabled && !autoRangeY1) autoRange1 = new AxisAutoRange();
+            autoRangeY1 = enabled;
+        }
+        autoRangeSeeded = false;
+        redrawFullPlot();
+    }
+
+    /** Adds a live sample to the sliding range of its axis in every pane of the group. */
+    private void feedAutoRange(int kind, int style, long timestamp, double value) {
+        for (PlotDisplay pane : panes) pane.addAutoRangeSample(kind, style, timestamp, value);
+    }
+
+    /** Adds a live sample to the sliding range of its axis, if that is in use. */
+    private void addAutoRangeSample(int kind, int style, long timestamp, double value) {
+        if (!autoRangeSeeded) return;
+        boolean secondary = kind == PlotDataStore.KIND_LINE2 || kind == PlotDataStore.KIND_POINT2;
+        if (secondary ? !autoRangeY2 : !autoRangeY1) return;
+        int id = seriesRegistry.find(kind, style);
+        if (id >= 0 && isShown(id)) (secondary ? autoRange2 : autoRange1).addSample(timestamp, value);
+    }
+
+    /**
+     * Brings the auto-ranged axes up to date with the current view, redrawing the axes that changed.
+     * @return true if any limits changed, so the data already drawn is at a stale scale.
+     */
+    private boolean updateAutoRange() {
+        if ((!autoRangeY1 && !autoRangeY2) || firstTimestamp == -1 || pixelsPerMillisecond <= 0) return false;
+        long viewStartMs = firstTimestamp + (long)currentScrollOffsetMs;
+        double windowMs = Math.ceil(visibleGraphWidth / pixelsPerMillisecond);
+        long viewEndMs = viewStartMs + (long)windowMs;
+        boolean sliding = autoScrollEnabled.get();
+        if (!sliding || !autoRangeSeeded || windowMs != autoRangeWindowMs) {
+            // Seed from the index: what is on screen now stands in for the samples before the window
+            // starts sliding; later samples are fed as they arrive.
+            if (autoRangeY1) seedAutoRange(autoRange1, false, viewStartMs, viewEndMs);
+            if (autoRangeY2) seedAutoRange(autoRange2, true, viewStartMs, viewEndMs);
+            autoRangeSeeded = sliding;
+            autoRangeWindowMs = windowMs;
+        } else {
+            autoRange1.evictBefore(viewStartMs);
+            autoRange2.evictBefore(viewStartMs);
+        }
+        boolean changed1 = autoRangeY1 && autoRange1.update(autoRange1.getWindowMin(), autoRange1.getWindowMax());
+        boolean changed2 = autoRangeY2 && autoRange2.update(autoRange2.getWindowMin(), autoRange2.getWindowMax());
+        if (changed1) { currentMinY = autoRange1.getMin(); currentMaxY = autoRange1.getMax(); redrawYAxis(); }
+        if (changed2) { currentMinY2 = autoRange2.getMin(); currentMaxY2 = autoRange2.getMax(); redrawYAxis2(); }
+        return changed1 || changed2;
+    }
+
+    private void seedAutoRange(AxisAutoRange range, boolean secondary, long fromTs, long toTs) {
+        autoRangeScratch[0] = Double.POSITIVE_INFINITY;
+        autoRangeScratch[1] = Double.NEGATIVE_INFINITY;
+        for (PlotDataStore.Series series : plotStore.getSeries()) {
+            if (series.isSecondaryAxis() != secondary || !isShown(series.getId())) continue;
+            plotStore.valueRange(series, fromTs, toTs, autoRangeScratch);
+        }
+        range.reset();
+        if (autoRangeScratch[0] <= autoRangeScratch[1]) range.seed(autoRangeScratch[0], autoRangeScratch[1], toTs);
+    }
+
     private void drawAxis(GraphicsContext gc, Canvas canvas, double lineX, double minY, double maxY, String unit, boolean isLeft) {
         gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
         gc.setFill(Color.WHITE); gc.fillRect(0,0, canvas.getWidth(), canvas.getHeight());
@@ -433,37 +1019,266 @@ public class PlotDisplay extends Pane {
     }
 
     private void redrawMainGraph() {
-        mainGc.save();
-        try {
-            mainGc.clearRect(0, 0, mainGraphCanvas.getWidth(), mainGraphCanvas.getHeight());
-
-            // *** SCROLLING FIX 2/2: Translate and then Clip the Graphics Context ***
-            mainGc.translate(-hScrollBar.getValue(), 0);
-            mainGc.beginPath(); // Start a new path for the clipping region
-            mainGc.rect(hScrollBar.getValue(), 0, visibleGraphWidth, mainGraphCanvas.getHeight());
-            mainGc.clip();
+        updateAutoRange();
+        redrawGridLayer();
+        redrawDataLayer();
+        redrawOverlayLayer();
+    }
 
-            // --- All drawing from this point on is clipped and translated ---
+    /**
+     * Applies the scroll translation and clips to the visible window. All layer drawing
+     * happens in "content" coordinates, where x = (t - firstTimestamp) * pixelsPerMillisecond.
+     */
+    private void beginScrolledDrawing(GraphicsContext gc, Canvas canvas) {
+        gc.save();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        gc.translate(-hScrollBar.getValue(), 0);
+        gc.beginPath();
+        gc.rect(hScrollBar.getValue(), 0, visibleGraphWidth, canvas.getHeight());
+        gc.clip();
+    }
 
+    private void redrawGridLayer() {
+        beginScrolledDrawing(gridGc, gridCanvas);
+        try {
             // Draw horizontal grid lines
-            mainGc.setStroke(Color.LIGHTGRAY);
-            mainGc.setLineWidth(0.5);
+            gridGc.setStroke(Color.LIGHTGRAY);
+            gridGc.setLineWidth(0.5);
             for (int i = 0; i <= 10; i++) {
                 double y = (visibleGraphHeight / 10) * i;
-                mainGc.strokeLine(hScrollBar.getValue(), y, hScrollBar.getValue() + visibleGraphWidth, y);
+                gridGc.strokeLine(hScrollBar.getValue(), y, hScrollBar.getValue() + visibleGraphWidth, y);
+            }
+            // Vertical grid lines
+            if (firstTimestamp != -1) {
+                drawXAxisGridLines();
+            }
+        } finally {
+            gridGc.restore();
+        }
+    }
+
+    private void redrawDataLayer() {
+        // Until the new geometry arrives the layer cannot be reused by the streaming path.
+        dataLayerValid = false;
+        if (geometryBuildInFlight) {
+            // The in-flight result will be discarded and the next build snapshots everything.
+            geometryBuildPending = true;
+            eventsSinceDataLayerRender.clear();
+            return;
+        }
+        // Following real time, the view is at the live edge, whose tiles are invalidated continuously.
+        if (!autoScrollEnabled.get() && firstTimestamp != -1 && pixelsPerMillisecond > 0) {
+            TileRequest tiles = lookUpTiles(hScrollBar.getValue());
+            if (tiles.isComplete()) drawTiles(tiles, hScrollBar.getValue());
+            else startGeometryBuild(tiles);
+            return;
+        }
+        startGeometryBuild(null);
+    }
+
+    private TileRequest lookUpTiles(double scrollValue) {
+        BitSet shown = new BitSet();
+        for (int id = 0; id < seriesRegistry.size(); id++) {
+            if (isShown(id)) shown.set(id);
+        }
+        PlotTileCache.Config config = new PlotTileCache.Config(firstTimestamp, pixelsPerMillisecond, shown,
+                currentMinY, currentMaxY, currentMinY2, currentMaxY2, dataCanvas.getHeight(), outputScale());
+        long first = (long) Math.floor(scrollValue / PlotTileCache.TILE_WIDTH);
+        long last = (long) Math.floor((scrollValue + visibleGraphWidth) / PlotTileCache.TILE_WIDTH);
+        TileRequest request = new TileRequest(config, first, (int) (last - first + 1));
+        for (long i = first; i <= last; i++) {
+            Image tile = tileCache.get(config, i);
+            request.tiles[(int) (i - first)] = tile;
+            if (tile == null) {
+                request.firstMissing = Math.min(request.firstMissing, i);
+                request.lastMissing = i;
+            }
+        }
+        return request;
+    }
+
+    /**
+     * Captures the view and the needed chunks on the FX thread and hands them to the geometry worker.
+     * With a tile request, the time range built is that of the missing tiles instead of the view.
+     */
+    private void startGeometryBuild(TileRequest tiles) {
+        double scrollValue = hScrollBar.getValue();
+        eventsSinceDataLayerRender.clear();
+        if (firstTimestamp == -1 || pixelsPerMillisecond <= 0) {
+            dataGc.clearRect(0, 0, dataCanvas.getWidth(), dataCanvas.getHeight());
+            Arrays.fill(lastLinePoint, null);
+            markDataLayerRendered(scrollValue);
+            return;
+        }
+        long viewStartMs, viewEndMs;
+        if (tiles != null) {
+            viewStartMs = tiles.config.tileStartTime(tiles.firstMissing);
+            viewEndMs = tiles.config.tileEndTime(tiles.lastMissing);
+            tileBuildDirtyFromTs = Long.MAX_VALUE;
+            tileBuildDirtyToTs = Long.MIN_VALUE;
+            tileBuildDirtyMarginPx = 0;
+        } else {
+            viewStartMs = firstTimestamp + (long)currentScrollOffsetMs;
+            viewEndMs = viewStartMs + (long)Math.ceil(visibleGraphWidth / pixelsPerMillisecond);
+        }
+
+        // Lines also get the samples just outside the view so segments crossing the edges are drawn.
+        List<PlotDataStore.Series> visibleSeries = new ArrayList<>();
+        List<PlotDataStore.WindowSnapshot> windows = new ArrayList<>();
+        for (PlotDataStore.Series series : plotStore.getSeries()) {
+            if (!isShown(series.getId())) continue;
+            visibleSeries.add(series);
+            windows.add(plotStore.snapshotWindow(series, viewStartMs, viewEndMs, series.isLine()));
+        }
+        List<PlotDataEvent> metaEvents = plotStore.getMetaEvents();
+        PlotGeometryBuilder.View view = new PlotGeometryBuilder.View(firstTimestamp, pixelsPerMillisecond, visibleGraphHeight,
+                currentMinY, currentMaxY, currentMinY2, currentMaxY2);
+
+        geometryBuildInFlight = true;
+        geometryExecutor.execute(() -> {
+            List<PlotGeometryBuilder.SeriesGeometry> geometry = null;
+            try {
+                geometry = geometryBuilder.build(view, visibleSeries, windows);
+            } catch (RuntimeException e) {
+                System.err.println("Error computing plot geometry: " + e.getMessage());
+                e.printStackTrace();
             }
+            List<PlotGeometryBuilder.SeriesGeometry> result = geometry;
+            Platform.runLater(() -> applyGeometry(result, metaEvents, scrollValue, tiles));
+        });
+    }
+
+    private void applyGeometry(List<PlotGeometryBuilder.SeriesGeometry> geometry, List<PlotDataEvent> metaEvents, double scrollValue, TileRequest tiles) {
+        geometryBuildInFlight = false;
+        if (geometryBuildPending) {
+            // The view changed while this was being built; it is stale.
+            geometryBuildPending = false;
+            redrawDataLayer();
+            return;
+        }
+        if (geometry == null) return;
+        if (tiles != null) {
+            renderMissingTiles(geometry, metaEvents, tiles);
+            drawTiles(tiles, scrollValue);
+            return;
+        }
+
+        dataGc.save();
+        try {
+            dataGc.clearRect(0, 0, dataCanvas.getWidth(), dataCanvas.getHeight());
+            dataGc.translate(-scrollValue, 0);
+            dataGc.beginPath();
+            dataGc.rect(scrollValue, 0, visibleGraphWidth, dataCanvas.getHeight());
+            dataGc.clip();
+            ensureSeriesCapacity();
+            Arrays.fill(lastLinePoint, null);
+            for (PlotGeometryBuilder.SeriesGeometry g : geometry) drawSeriesGeometry(dataGc, g);
+            for (PlotDataEvent e : metaEvents) { if (e instanceof PlotTextAnnotationEvent p) drawMarkerTextAnnotation(dataGc, p); }
+        } finally {
+            dataGc.restore();
+        }
+        markDataLayerRendered(scrollValue);
 
-            // Draw X-axis decorations (which includes vertical grid lines)
+        // Catch up with events and scrolling that happened while the geometry was being built.
+        if (!eventsSinceDataLayerRender.isEmpty() || hScrollBar.getValue() != scrollValue) renderStreamingFrame();
+    }
+
+    /** Draws the missing tiles of a request side by side off-screen, then cuts them out and caches them. */
+    private void renderMissingTiles(List<PlotGeometryBuilder.SeriesGeometry> geometry, List<PlotDataEvent> metaEvents, TileRequest request) {
+        PlotTileCache.Config config = request.config;
+        double width = (request.lastMissing - request.firstMissing + 1) * PlotTileCache.TILE_WIDTH, height = dataCanvas.getHeight();
+        if (tileCanvas == null || tileCanvas.getWidth() != width || tileCanvas.getHeight() != height) tileCanvas = new Canvas(width, height);
+        GraphicsContext gc = tileCanvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, width, height);
+        gc.save();
+        try {
+            gc.translate(-request.firstMissing * PlotTileCache.TILE_WIDTH, 0);
+            ensureSeriesCapacity();
+            for (PlotGeometryBuilder.SeriesGeometry g : geometry) drawSeriesGeometry(gc, g);
+            for (PlotDataEvent e : metaEvents) { if (e instanceof PlotTextAnnotationEvent p) drawMarkerTextAnnotation(gc, p); }
+        } finally {
+            gc.restore();
+        }
+
+        tileSnapshotParams.setTransform(Transform.scale(config.scale, config.scale));
+        WritableImage strip = tileCanvas.snapshot(tileSnapshotParams, null);
+        int tileWidth = (int) Math.round(PlotTileCache.TILE_WIDTH * config.scale), tileHeight = (int) strip.getHeight();
+        boolean dirtied = tileBuildDirtyFromTs <= tileBuildDirtyToTs;
+        for (long i = request.firstMissing; i <= request.lastMissing; i++) {
+            int x = (int) (i - request.firstMissing) * tileWidth;
+            Image tile = new WritableImage(strip.getPixelReader(), x, 0, Math.min(tileWidth, (int) strip.getWidth() - x), tileHeight);
+            request.tiles[(int) (i - request.firstIndex)] = tile;
+            boolean stale = dirtied && config.touches(i, tileBuildDirtyFromTs, tileBuildDirtyToTs, Math.max(tileBuildDirtyMarginPx, PlotTileCache.EDGE_MARGIN_PX));
+            if (!stale) tileCache.put(config, i, tile);
+        }
+    }
+
+    private void drawTiles(TileRequest request, double scrollValue) {
+        double height = dataCanvas.getHeight();
+        dataGc.save();
+        try {
+            dataGc.clearRect(0, 0, dataCanvas.getWidth(), height);
+            dataGc.translate(-scrollValue, 0);
+            dataGc.beginPath();
+            dataGc.rect(scrollValue, 0, visibleGraphWidth, height);
+            dataGc.clip();
+            for (int k = 0; k < request.tiles.length; k++) {
+                dataGc.drawImage(request.tiles[k], (request.firstIndex + k) * PlotTileCache.TILE_WIDTH, 0, PlotTileCache.TILE_WIDTH, height);
+            }
+        } finally {
+            dataGc.restore();
+        }
+        // Tiles carry no line ends to continue from, so the layer stays invalid for the streaming path:
+        // the next follow-mode frame redraws it.
+        Arrays.fill(lastLinePoint, null);
+        dataLayerScrollValue = scrollValue;
+        eventsSinceDataLayerRender.clear();
+    }
+
+    private void drawSeriesGeometry(GraphicsContext gc, PlotGeometryBuilder.SeriesGeometry g) {
+        int n = g.getPointCount();
+        double[] xs = g.getXs(), ys = g.getYs();
+        PlotSeriesRegistry.SeriesStyle ls = seriesRegistry.getStyle(g.getId());
+        if (!g.isLine()) {
+            gc.setFill(ls.color);
+            for (int i = 0; i < n; i++) gc.fillOval(xs[i]-2, ys[i]-2, 4, 4);
+            return;
+        }
+        gc.setStroke(ls.color);
+        gc.setLineWidth(ls.width);
+        gc.setLineDashes(ls.dashArray!=null?ls.dashArray:new double[0]);
+        for (int run = 0; run < g.getRunCount(); run++) {
+            int start = g.getRunStart(run), end = g.getRunStart(run + 1), count = end - start;
+            if (count < 2) continue;
+            if (start == 0) {
+                gc.strokePolyline(xs, ys, count);
+            } else {
+                // strokePolyline has no offset parameter; later runs only exist after gaps in the data.
+                if (polylineScratchX.length < count) { polylineScratchX = new double[count]; polylineScratchY = new double[count]; }
+                System.arraycopy(xs, start, polylineScratchX, 0, count);
+                System.arraycopy(ys, start, polylineScratchY, 0, count);
+                gc.strokePolyline(polylineScratchX, polylineScratchY, count);
+            }
+        }
+        // Streamed samples continue the line from its last point.
+        lastLinePoint[g.getId()] = n > 0 ? new PlotPoint(xs[n-1], ys[n-1]) : null;
+    }
+
+    private void redrawOverlayLayer() {
+        beginScrolledDrawing(mainGc, mainGraphCanvas);
+        try {
+            // Draw X-axis ticks and labels
             if (firstTimestamp != -1) {
                 drawXAxisDecorations();
             }
 
-            // Draw the main X-axis line last so it's on top of grid lines
+            // Draw the main X-axis line on top of the grid and data
             mainGc.setStroke(Color.BLACK);
             mainGc.setLineWidth(1.0);
-            mainGc.strokeLine(0, visibleGraphHeight - 1, mainGraphCanvas.getWidth(), visibleGraphHeight - 1);
+            mainGc.strokeLine(hScrollBar.getValue(), visibleGraphHeight - 1, hScrollBar.getValue() + visibleGraphWidth, visibleGraphHeight - 1);
 
-            drawData();
+            drawRangeSelection();
+            drawCaptureOverlays();
             drawCursor();
             drawLegend();
         } finally {
@@ -471,6 +1286,74 @@ public class PlotDisplay extends Pane {
         }
     }
 
+    private void markDataLayerRendered(double scrollValue) {
+        dataLayerValid = true;
+        dataLayerScrollValue = scrollValue;
+        eventsSinceDataLayerRender.clear();
+    }
+
+    /**
+     * Follow-mode render path. Shifts the existing data layer left by the pixels scrolled
+     * since the previous frame and draws only the events that arrived since then, so the
+     * geometry worker is not involved for every sample. Falls back
+     * to a full redraw whenever the cached layer cannot be reused (first frame, backwards or
+     * fractional scroll, or a jump larger than the visible width).
+     */
+    private void renderStreamingFrame() {
+        if (updateAutoRange()) {
+            // Rescaled: everything already drawn is at the wrong scale.
+            redrawMainGraph();
+            return;
+        }
+        if (geometryBuildInFlight) {
+            // The data layer catches up with these events when the build completes.
+            redrawGridLayer();
+            redrawOverlayLayer();
+            return;
+        }
+        double scrollValue = hScrollBar.getValue();
+        double dx = scrollValue - dataLayerScrollValue;
+        if (!dataLayerValid || dx < 0 || dx >= visibleGraphWidth || dx != Math.rint(dx)) {
+            redrawMainGraph();
+            return;
+        }
+        if (dx > 0) shiftDataLayer((int) dx);
+
+        dataGc.save();
+        try {
+            dataGc.translate(-scrollValue, 0);
+            dataGc.beginPath();
+            dataGc.rect(scrollValue, 0, visibleGraphWidth, dataCanvas.getHeight());
+            dataGc.clip();
+            for (PlotDataEvent e : eventsSinceDataLayerRender) drawDataEvent(e);
+        } finally {
+            dataGc.restore();
+        }
+        markDataLayerRendered(scrollValue);
+
+        if (dx > 0) redrawGridLayer();
+        redrawOverlayLayer();
+    }
+
+    /** Moves the pixels of the data layer left by dx, leaving a transparent strip on the right. */
+    private void shiftDataLayer(int dx) {
+        double width = dataCanvas.getWidth(), height = dataCanvas.getHeight();
+        // Snapshot at the screen's output scale so the shifted image stays sharp on HiDPI displays.
+        double scale = outputScale();
+        int imageWidth = (int) Math.ceil(width * scale), imageHeight = (int) Math.ceil(height * scale);
+        if (dataLayerSnapshot == null || (int) dataLayerSnapshot.getWidth() != imageWidth || (int) dataLayerSnapshot.getHeight() != imageHeight) {
+            dataLayerSnapshot = new WritableImage(imageWidth, imageHeight);
+        }
+        dataLayerSnapshotParams.setTransform(Transform.scale(scale, scale));
+        dataCanvas.snapshot(dataLayerSnapshotParams, dataLayerSnapshot);
+        dataGc.clearRect(0, 0, width, height);
+        dataGc.drawImage(dataLayerSnapshot, dx * scale, 0, imageWidth - dx * scale, imageHeight, 0, 0, width - dx, height);
+    }
+
+    private double outputScale() {
+        return (getScene() != null && getScene().getWindow() != null) ? getScene().getWindow().getOutputScaleX() : 1.0;
+    }
+
     private void drawLegend() {
         // Clear the list of clickable legend items before redrawing
         legendItems.clear();
@@ -481,95 +1364,99 @@ public class PlotDisplay extends Pane {
         double padding = 5;
         double textOffset = 4;
         double checkboxSize = 13;
-        double checkboxPadding = 3;
 
         mainGc.setFont(Font.font("Arial", 10));
         mainGc.setTextAlign(TextAlignment.LEFT);
 
-        // Draw line series names
-        currentX = drawSeriesNames(mainGc, seriesNamesLine, "line", currentX, legendY, sampleLength, padding, textOffset, checkboxSize, checkboxPadding, true);
-        currentX = drawSeriesNames(mainGc, seriesNamesLine2, "line2", currentX, legendY, sampleLength, padding, textOffset, checkboxSize, checkboxPadding, true);
-        // Draw point series names
-        currentX = drawSeriesNames(mainGc, seriesNamesPoint, "point", currentX, legendY, sampleLength, padding, textOffset, checkboxSize, checkboxPadding, false);
-        drawSeriesNames(mainGc, seriesNamesPoint2, "point2", currentX, legendY, sampleLength, padding, textOffset, checkboxSize, checkboxPadding, false);
-    }
-
-    private double drawSeriesNames(GraphicsContext gc, Map<Integer, String> nameMap, String type, double startX, double y, double sampleLength, double padding, double textOffset, double checkboxSize, double checkboxPadding, boolean isLine) {
-        double currentX = startX;
-        for (Map.Entry<Integer, String> entry : nameMap.entrySet()) {
-            int style = entry.getKey();
-            int visibilityKey = type.contains("2") ? style + 1000 : style;
-            boolean isVisible = seriesVisibility.getOrDefault(visibilityKey, true);
-
-            // The start of the clickable item is now the start of the line sample.
-            double itemStartX = currentX;
-
-            // --- Draw the Line/Point Sample ---
-            if (style >= 1 && style <= LINE_STYLES.length) {
-                LineStyle ls = LINE_STYLES[style - 1];
-
-                // If the series is not visible, draw the sample line/point in gray.
-                if (isVisible) {
-                    gc.setStroke(ls.color);
-                    gc.setFill(ls.color);
-                } else {
-                    gc.setStroke(Color.LIGHTGRAY);
-                    gc.setFill(Color.LIGHTGRAY);
-                }
+        // Only series the robot has named appear in the legend.
+        for (int kind : LEGEND_KIND_ORDER) {
+            List<Integer> ids = new ArrayList<>();
+            for (int id = 0; id < seriesRegistry.size(); id++) {
+                if (seriesRegistry.getKind(id) == kind && seriesRegistry.getName(id) != null) ids.add(id);
+            }
+            ids.sort(Comparator.comparingInt(seriesRegistry::getStyleNumber));
+            for (int id : ids) {
+                currentX = drawLegendItem(mainGc, id, currentX, legendY, sampleLength, padding, textOffset, checkboxSize);
+            }
+        }
+    }
 
-                gc.setLineWidth(ls.width);
+    private double drawLegendItem(GraphicsContext gc, int seriesId, double currentX, double y, double sampleLength, double padding, double textOffset, double checkboxSize) {
+        boolean isVisible = isShown(seriesId);
+        PlotSeriesRegistry.SeriesStyle ls = seriesRegistry.getStyle(seriesId);
 
-                if (isLine) {
-                    gc.setLineDashes(ls.dashArray != null ? ls.dashArray : new double[0]);
-                    gc.strokeLine(currentX, y, currentX + sampleLength, y);
-                } else {
-                    gc.fillOval(currentX + sampleLength / 2 - 2, y - 2, 4, 4);
-                }
+        // The start of the clickable item is now the start of the line sample.
+        double itemStartX = currentX;
 
-                // Reset dashes and line width for text drawing
-                gc.setLineWidth(1.0);
-                gc.setLineDashes(new double[0]);
+        // --- Draw the Line/Point Sample ---
+        // If the series is not visible, draw the sample line/point in gray.
+        if (isVisible) {
+            gc.setStroke(ls.color);
+            gc.setFill(ls.color);
+        } else {
+            gc.setStroke(Color.LIGHTGRAY);
+            gc.setFill(Color.LIGHTGRAY);
+        }
 
-                String name = entry.getValue();
+        gc.setLineWidth(ls.width);
 
-                // Set text color based on visibility
-                gc.setFill(isVisible ? Color.BLACK : Color.GRAY);
+        if (seriesRegistry.isLine(seriesId)) {
+            gc.setLineDashes(ls.dashArray != null ? ls.dashArray : new double[0]);
+            gc.strokeLine(currentX, y, currentX + sampleLength, y);
+        } else {
+            gc.fillOval(currentX + sampleLength / 2 - 2, y - 2, 4, 4);
+        }
 
-                gc.fillText(name, currentX + sampleLength + padding, y + textOffset);
+        // Reset dashes and line width for text drawing
+        gc.setLineWidth(1.0);
+        gc.setLineDashes(new double[0]);
 
-                double textWidth = new javafx.scene.text.Text(name).getLayoutBounds().getWidth();
-                // The total width of the clickable item.
-                double itemTotalWidth = sampleLength + padding + textWidth;
+        String name = seriesRegistry.getName(seriesId);
 
-                // Store the bounding box of the entire legend item for click detection.
-                // The clickable area now starts at the beginning of the line sample.
-                // CORRECTED LINE: Added the 'type' argument back into the constructor call.
-                legendItems.add(new LegendItem(visibilityKey, type, itemStartX, y, itemTotalWidth, checkboxSize + 2));
+        // Set text color based on visibility
+        gc.setFill(isVisible ? Color.BLACK : Color.GRAY);
 
-                // Advance X for the next item
-                currentX += itemTotalWidth + (padding * 2); // Add extra padding between items
-            }
-        }
-        return currentX;
+        gc.fillText(name, currentX + sampleLength + padding, y + textOffset);
+
+        double textWidth = new javafx.scene.text.Text(name).getLayoutBounds().getWidth();
+        // The total width of the clickable item.
+        double itemTotalWidth = sampleLength + padding + textWidth;
+
+        // Store the bounding box of the entire legend item for click detection.
+        // The clickable area now starts at the beginning of the line sample.
+        legendItems.add(new LegendItem(seriesId, itemStartX, y, itemTotalWidth, checkboxSize + 2));
+
+        // Advance X for the next item
+        return currentX + itemTotalWidth + (padding * 2); // Add extra padding between items
     }
 
-    private void drawXAxisDecorations() {
+    private double xAxisStepMs() {
         double step = 500; if(pixelsPerMillisecond*step<40) step=1000; if(pixelsPerMillisecond*step<40) step=2000; if(pixelsPerMillisecond*step<40) step=5000;
+        return step;
+    }
 
+    private void drawXAxisGridLines() {
+        double step = xAxisStepMs();
         long maxTimeVisible = firstTimestamp + (long)((hScrollBar.getValue() + visibleGraphWidth) / pixelsPerMillisecond);
         long minTimeVisible = firstTimestamp + (long)(hScrollBar.getValue() / pixelsPerMillisecond);
 
-        // --- GRID LINE FIX ---
-        // 1. Draw all light gray vertical grid lines first.
-        mainGc.setStroke(Color.LIGHTGRAY);
-        mainGc.setLineWidth(0.5);
+        // Light gray vertical grid lines, drawn on the grid layer beneath the data.
+        gridGc.setStroke(Color.LIGHTGRAY);
+        gridGc.setLineWidth(0.5);
         for (long t = (long)(Math.ceil(minTimeVisible / step) * step); t <= maxTimeVisible; t += step) {
             if (t < firstTimestamp) continue;
             double x = timeMsToScreenX(t);
-            mainGc.strokeLine(x, 0, x, visibleGraphHeight - 1);
+            gridGc.strokeLine(x, 0, x, visibleGraphHeight - 1);
         }
+    }
+
+    private void drawXAxisDecorations() {
+        double step = xAxisStepMs();
+
+        long maxTimeVisible = firstTimestamp + (long)((hScrollBar.getValue() + visibleGraphWidth) / pixelsPerMillisecond);
+        long minTimeVisible = firstTimestamp + (long)(hScrollBar.getValue() / pixelsPerMillisecond);
 
-        // 2. Draw all black tick marks and text labels on top.
+        // Black tick marks and text labels, drawn on the overlay above the data.
         mainGc.setStroke(Color.BLACK);
         mainGc.setFill(Color.BLACK);
         mainGc.setLineWidth(1.0); // Reset for tick marks
@@ -581,7 +1468,6 @@ public class PlotDisplay extends Pane {
             mainGc.setTextAlign(TextAlignment.CENTER);
             mainGc.fillText(String.format(Locale.US, "%.1f", (t - firstTimestamp) / 1000.0), x, visibleGraphHeight + 15);
         }
-        // --- END GRID LINE FIX ---
 
         // Draw the "Seconds" label
 //        mainGc.setFont(Font.font("Arial", FontWeight.NORMAL, 12));
@@ -594,35 +1480,111 @@ public class PlotDisplay extends Pane {
     }
 
 
-    private void drawData() {
-        if (firstTimestamp == -1) return;
-        long viewStartMs = firstTimestamp + (long)currentScrollOffsetMs;
-        synchronized (plotEvents) {
-            for(int i=0; i<LINE_STYLES.length; i++) { lastLinePointByStyle[i]=null; lastLinePointByStyle2[i]=null; }
-            for (PlotDataEvent e : plotEvents) {
-                if(e.getTimestamp() < viewStartMs){
-                    // This logic for pre-populating last point is correct
-                    if(e instanceof PlotLineEvent le) lastLinePointByStyle[le.getStyle()-1]=new PlotPoint(timeMsToScreenX(le.getTimestamp()),yValueToScreenY(le.getYValue()));
-                    else if(e instanceof PlotLine2Event le2) lastLinePointByStyle2[le2.getStyle()-1]=new PlotPoint(timeMsToScreenX(le2.getTimestamp()),yValueToScreenY2(le2.getYValue()));
-                } else {
-                    break;
-                }
+    /** Draws one streamed event on the data layer, continuing its line from the last drawn point. */
+    private void drawDataEvent(PlotDataEvent e) {
+        if (e instanceof PlotTextAnnotationEvent p) { drawMarkerTextAnnotation(dataGc, p); return; }
+        int kind = kindOf(e);
+        if (kind < 0) return;
+        int id = seriesRegistry.find(kind, getStyle(e));
+        if (id < 0 || !isShown(id)) return;
+        ensureSeriesCapacity();
+        double x = timeMsToScreenX(e.getTimestamp());
+        double y = seriesRegistry.isSecondaryAxis(id) ? yValueToScreenY2(getYValue(e)) : yValueToScreenY(getYValue(e));
+        PlotSeriesRegistry.SeriesStyle ls = seriesRegistry.getStyle(id);
+        if (seriesRegistry.isLine(id)) {
+            PlotPoint last = lastLinePoint[id];
+            if (last != null) {
+                dataGc.setStroke(ls.color);
+                dataGc.setLineWidth(ls.width);
+                dataGc.setLineDashes(ls.dashArray!=null?ls.dashArray:new double[0]);
+                dataGc.strokeLine(last.x, last.y, x, y);
             }
+            lastLinePoint[id] = new PlotPoint(x, y);
+        } else {
+            dataGc.setFill(ls.color);
+            dataGc.fillOval(x-2, y-2, 4, 4);
+        }
+    }
+    /** @return the PlotDataStore kind of a numeric sample event, or -1 for any other event. */
+    private static int kindOf(PlotDataEvent event) {
+        if (event instanceof PlotLineEvent) return PlotDataStore.KIND_LINE;
+        if (event instanceof PlotPointEvent) return PlotDataStore.KIND_POINT;
+        if (event instanceof PlotLine2Event) return PlotDataStore.KIND_LINE2;
+        if (event instanceof PlotPoint2Event) return PlotDataStore.KIND_POINT2;
+        return -1;
+    }
+    private int getStyle(PlotDataEvent event) {
+        if (event instanceof PlotLineEvent e) return e.getStyle();
+        if (event instanceof PlotPointEvent e) return e.getStyle();
+        if (event instanceof PlotLine2Event e) return e.getStyle();
+        if (event instanceof PlotPoint2Event e) return e.getStyle();
+        return -1;
+    }
+    private double getYValue(PlotDataEvent event) {
+        if (event instanceof PlotLineEvent e) return e.getYValue();
+        if (event instanceof PlotPointEvent e) return e.getYValue();
+        if (event instanceof PlotLine2Event e) return e.getYValue();
+        if (event instanceof PlotPoint2Event e) return e.getYValue();
+        return Double.NaN;
+    }
 
-            // --- Check visibility before drawing ---
-            for(PlotDataEvent e : plotEvents) {
-                if(e instanceof PlotPointEvent p && seriesVisibility.getOrDefault(p.getStyle(), true)) drawPlotPoint(p);
-                else if(e instanceof PlotLineEvent p && seriesVisibility.getOrDefault(p.getStyle(), true)) drawPlotLine(p);
-                else if(e instanceof PlotPoint2Event p && seriesVisibility.getOrDefault(p.getStyle() + 1000, true)) drawPlotPoint2(p);
-                else if(e instanceof PlotLine2Event p && seriesVisibility.getOrDefault(p.getStyle() + 1000, true)) drawPlotLine2(p);
+    private void drawCaptureOverlays() {
+        if (overlayCaptures.isEmpty() || firstTimestamp == -1) return;
+        double viewLeft = hScrollBar.getValue(), viewRight = viewLeft + visibleGraphWidth;
+        mainGc.save();
+        mainGc.setGlobalAlpha(0.6);
+        mainGc.setLineWidth(1.0);
+        mainGc.setLineDashes(4, 3);
+        for (TriggerCapture capture : overlayCaptures) {
+            long shift = lastTriggerTimestamp != -1 ? lastTriggerTimestamp - capture.getTriggerTimestamp() : 0;
+            for (TriggerCapture.SeriesData data : capture.getSeries()) {
+                int id = seriesRegistry.find(data.kind, data.style);
+                if (id >= 0 && !isShown(id)) continue;
+                Color color = id >= 0 ? seriesRegistry.getStyle(id).color : CAPTURE_OVERLAY_COLOR;
+                boolean secondary = data.kind == PlotDataStore.KIND_LINE2 || data.kind == PlotDataStore.KIND_POINT2;
+                boolean line = data.kind == PlotDataStore.KIND_LINE || data.kind == PlotDataStore.KIND_LINE2;
+                mainGc.setStroke(color);
+                mainGc.setFill(color);
+                double lastX = Double.NaN, lastY = Double.NaN;
+                for (int i = 0; i < data.timestamps.length; i++) {
+                    double x = timeMsToScreenX(data.timestamps[i] + shift);
+                    double y = secondary ? yValueToScreenY2(data.values[i]) : yValueToScreenY(data.values[i]);
+                    if (Double.isNaN(y)) { lastX = Double.NaN; continue; }
+                    boolean inView = x >= viewLeft && x <= viewRight;
+                    if (line) {
+                        if (!Double.isNaN(lastX) && (inView || (lastX >= viewLeft && lastX <= viewRight))) mainGc.strokeLine(lastX, lastY, x, y);
+                    } else if (inView) {
+                        mainGc.strokeOval(x - 2, y - 2, 4, 4);
+                    }
+                    lastX = x;
+                    lastY = y;
+                }
             }
-            for (PlotDataEvent e : plotEvents) { if (e instanceof PlotTextAnnotationEvent p) drawMarkerTextAnnotation(p); }
         }
+        mainGc.restore();
+    }
+
+    private void drawRangeSelection() {
+        if (selectionFromTs == -1 || firstTimestamp == -1) return;
+        double x1 = timeMsToScreenX(selectionFromTs), x2 = timeMsToScreenX(selectionToTs);
+        mainGc.save();
+        mainGc.setFill(SELECTION_FILL_COLOR);
+        mainGc.fillRect(x1, 0, x2 - x1, visibleGraphHeight - 1);
+        mainGc.setStroke(SELECTION_FILL_COLOR.deriveColor(0, 1, 1, 4));
+        mainGc.setLineWidth(1.0);
+        mainGc.strokeLine(x1, 0, x1, visibleGraphHeight - 1);
+        mainGc.strokeLine(x2, 0, x2, visibleGraphHeight - 1);
+        mainGc.restore();
     }
 
     private void drawCursor() {
         if (isMouseInPlotArea && pixelsPerMillisecond > 0 && firstTimestamp != -1) {
+            cursorPlotX = mousePlotX;
             currentCursorTimeMs = firstTimestamp + (long)((mousePlotX + hScrollBar.getValue()) / pixelsPerMillisecond);
+        } else if (linkedCursorTimeMs != -1 && firstTimestamp != -1) {
+            // The mouse is over another pane of the group; show the same instant here.
+            cursorPlotX = timeMsToScreenX(linkedCursorTimeMs) - hScrollBar.getValue();
+            currentCursorTimeMs = linkedCursorTimeMs;
         } else {
             currentCursorTimeMs = -1;
         }
@@ -630,14 +1592,14 @@ public class PlotDisplay extends Pane {
         refreshKeyValueTable();
         updateAndDrawDataReadouts();
 
-        if (!isMouseInPlotArea || currentCursorTimeMs == -1) {
+        if (currentCursorTimeMs == -1) {
             cursorXLabel.setVisible(false);
             cursorYLabel.setVisible(false);
             cursorY2Label.setVisible(false);
             return;
         }
 
-        double cursorDrawX = mousePlotX + hScrollBar.getValue();
+        double cursorDrawX = cursorPlotX + hScrollBar.getValue();
 
         mainGc.save();
         mainGc.setStroke(CURSOR_LINE_COLOR);
@@ -645,12 +1607,12 @@ public class PlotDisplay extends Pane {
         mainGc.setLineDashes(5, 3);
         mainGc.setLineCap(StrokeLineCap.BUTT);
         mainGc.strokeLine(cursorDrawX, 0, cursorDrawX, visibleGraphHeight - 1);
-        if (mousePlotY >= 0 && mousePlotY < visibleGraphHeight) {
+        if (isMouseInPlotArea && mousePlotY >= 0 && mousePlotY < visibleGraphHeight) {
             mainGc.strokeLine(hScrollBar.getValue(), mousePlotY, hScrollBar.getValue() + visibleGraphWidth, mousePlotY);
         }
         mainGc.restore();
 
-        if (mousePlotY >= 0 && mousePlotY < visibleGraphHeight) {
+        if (isMouseInPlotArea && mousePlotY >= 0 && mousePlotY < visibleGraphHeight) {
             cursorXLabel.setText(String.format(Locale.US, "%.2fs", (currentCursorTimeMs - firstTimestamp) / 1000.0));
             cursorYLabel.setText(formatNiceNumber(screenYToYValue(mousePlotY), currentMaxY - currentMinY));
 
@@ -676,127 +1638,168 @@ public class PlotDisplay extends Pane {
         updateReadoutLabelPositions();
     }
 
-    private void drawPlotLine(PlotLineEvent e) { drawPlotLineSegment(e.getStyle(),e.getTimestamp(),e.getYValue(),lastLinePointByStyle,this::yValueToScreenY); }
-    private void drawPlotLine2(PlotLine2Event e) { drawPlotLineSegment(e.getStyle(),e.getTimestamp(),e.getYValue(),lastLinePointByStyle2,this::yValueToScreenY2); }
-    private void drawPlotLineSegment(int s, long t, double y, PlotPoint[] lp, java.util.function.Function<Double, Double> ym) {
-        if(s<1||s>LINE_STYLES.length)return; int si=s-1; LineStyle ls=LINE_STYLES[si]; double x2=timeMsToScreenX(t), y2=ym.apply(y);
-        if(lp[si]!=null){ mainGc.setStroke(ls.color); mainGc.setLineWidth(ls.width); mainGc.setLineDashes(ls.dashArray!=null?ls.dashArray:new double[0]); mainGc.strokeLine(lp[si].x,lp[si].y,x2,y2);}
-        lp[si]=new PlotPoint(x2,y2);
-    }
-    private void drawPlotPoint(PlotPointEvent e){drawStyledPoint(e.getStyle(),e.getTimestamp(),e.getYValue(),this::yValueToScreenY);}
-    private void drawPlotPoint2(PlotPoint2Event e){drawStyledPoint(e.getStyle(),e.getTimestamp(),e.getYValue(),this::yValueToScreenY2);}
-
-    private void drawStyledPoint(int s, long t, double y, java.util.function.Function<Double, Double> ym){
-        double yS=ym.apply(y), xS=timeMsToScreenX(t);
-        mainGc.setFill((s>=1&&s<=LINE_STYLES.length)?LINE_STYLES[s-1].color:Color.BLACK); mainGc.fillOval(xS-2,yS-2,4,4);
-    }
-
-    private void drawMarkerTextAnnotation(PlotTextAnnotationEvent e){
+    private void drawMarkerTextAnnotation(GraphicsContext gc, PlotTextAnnotationEvent e){
         double x = timeMsToScreenX(e.getTimestamp());
-        mainGc.save();
-        mainGc.setStroke(MARKER_LINE_COLOR);
-        mainGc.setLineWidth(1.0);
-        mainGc.setLineDashes(5, 3);
-        mainGc.strokeLine(x,0,x,visibleGraphHeight-1);
-        mainGc.setFill(MARKER_TEXT_COLOR);
-        mainGc.setFont(Font.font("Arial",FontWeight.BOLD,11));
-        mainGc.setTextAlign(TextAlignment.CENTER);
+        gc.save();
+        gc.setStroke(MARKER_LINE_COLOR);
+        gc.setLineWidth(1.0);
+        gc.setLineDashes(5, 3);
+        gc.strokeLine(x,0,x,visibleGraphHeight-1);
+        gc.setFill(MARKER_TEXT_COLOR);
+        gc.setFont(Font.font("Arial",FontWeight.BOLD,11));
+        gc.setTextAlign(TextAlignment.CENTER);
         double y;
         switch(e.getPositionKeyword()){
             case"top":y=12;break;
             case"bot":y=visibleGraphHeight-5;break;
             default:y=visibleGraphHeight/2.0;break;
         }
-        mainGc.fillText(e.getText(),x,y);
-        mainGc.restore();
+        gc.fillText(e.getText(),x,y);
+        gc.restore();
     }
 
 
     private double timeMsToScreenX(long t){return(t-firstTimestamp)*pixelsPerMillisecond;}
+    private long screenXToTimeMs(double x){return firstTimestamp+(long)(x/pixelsPerMillisecond);}
     private double yValueToScreenY(double y){return visibleGraphHeight-(((y-currentMinY)/(currentMaxY-currentMinY))*visibleGraphHeight);}
     private double yValueToScreenY2(double y){return visibleGraphHeight-(((y-currentMinY2)/(currentMaxY2-currentMinY2))*visibleGraphHeight);}
     private double screenYToYValue(double y){return currentMinY+((visibleGraphHeight-y)/visibleGraphHeight)*(currentMaxY-currentMinY);}
     private double screenYToYValue2(double y){return currentMinY2+((visibleGraphHeight-y)/visibleGraphHeight)*(currentMaxY2-currentMinY2);}
 
-    public void setYLimits(double min,double max){if(max>min){this.currentMinY=min;this.currentMaxY=max;redrawFullPlot();}}
+    public void setYLimits(double min,double max){if(max>min&&!autoRangeY1){this.currentMinY=min;this.currentMaxY=max;redrawFullPlot();}}
     public void setYUnit(String u){this.yAxisUnit=u;redrawYAxis();}
-    public void setYLimits2(double min,double max){if(max>min){this.currentMinY2=min;this.currentMaxY2=max;redrawFullPlot();}}
+    public void setYLimits2(double min,double max){if(max>min&&!autoRangeY2){this.currentMinY2=min;this.currentMaxY2=max;redrawFullPlot();}}
     public void setYUnit2(String u){this.yAxisUnit2=u;redrawYAxis2();}
 
     public void savePlotData(File file) {
-        StringBuilder sb = new StringBuilder();
-        List<PlotDataEvent> allData = new ArrayList<>();
-        synchronized(plotEvents){ allData.addAll(plotEvents); }
-        synchronized(keyValueStore){for(Map.Entry<String,List<TimestampedStringValue>>e:keyValueStore.entrySet()){for(TimestampedStringValue v:e.getValue()){allData.add(new PlotKeyValueEvent(v.ts(),e.getKey(),v.v()));}}}
-        allData.sort(Comparator.comparingLong(PlotDataEvent::getTimestamp));
-
-        for(PlotDataEvent e:allData){
-            long ts=e.getTimestamp();
-            if(e instanceof PlotPointEvent p) sb.append(String.format(Locale.US,"POINT %d %d %.6f\n",ts,p.getStyle(),p.getYValue()));
-            else if(e instanceof PlotLineEvent p) sb.append(String.format(Locale.US,"LINE %d %d %.6f\n",ts,p.getStyle(),p.getYValue()));
-            else if(e instanceof PlotPoint2Event p) sb.append(String.format(Locale.US,"POINT2 %d %d %.6f\n",ts,p.getStyle(),p.getYValue()));
-            else if(e instanceof PlotLine2Event p) sb.append(String.format(Locale.US,"LINE2 %d %d %.6f\n",ts,p.getStyle(),p.getYValue()));
-            else if(e instanceof PlotKeyValueEvent p) sb.append(String.format("KV %d \"%s\" \"%s\"\n",ts,p.getKey(),p.getValue()));
-            else if(e instanceof PlotTextAnnotationEvent p) sb.append(String.format("MARKER %d %s \"%s\"\n",ts,p.getPositionKeyword(),p.getText()));
-            else if(e instanceof PlotYLimitsEvent p) sb.append(String.format(Locale.US,"YLIMITS %d %.6f %.6f\n",ts,p.getMinY(),p.getMaxY()));
-            else if(e instanceof PlotYUnitsEvent p) sb.append(String.format("YUNITS %d \"%s\"\n",ts,p.getUnit()));
-            else if(e instanceof PlotYLimits2Event p) sb.append(String.format(Locale.US,"YLIMITS2 %d %.6f %.6f\n",ts,p.getMinY(),p.getMaxY()));
-            else if(e instanceof PlotYUnits2Event p) sb.append(String.format("YUNITS2 %d \"%s\"\n",ts,p.getUnit()));
-            else if(e instanceof PlotSeriesNameLineEvent p) sb.append(String.format("SERIESNAMELINE %d \"%s\" %d\n",ts,p.getSeriesName(), p.getStyle()));
-            else if(e instanceof PlotSeriesNamePointEvent p) sb.append(String.format("SERIESNAMEPOINT %d \"%s\" %d\n",ts,p.getSeriesName(), p.getStyle()));
-            else if(e instanceof PlotSeriesNameLine2Event p) sb.append(String.format("SERIESNAMELINE2 %d \"%s\" %d\n",ts,p.getSeriesName(), p.getStyle()));
-            else if(e instanceof PlotSeriesNamePoint2Event p) sb.append(String.format("SERIESNAMEPOINT2 %d \"%s\" %d\n",ts,p.getSeriesName(), p.getStyle()));
-        }
-        try(BufferedWriter w=new BufferedWriter(new FileWriter(file))){w.write(sb.toString());}catch(IOException ex){ex.printStackTrace();}
+        if (file.getName().toLowerCase(Locale.ROOT).endsWith(PlotBinaryFile.EXTENSION)) {
+            try { PlotBinaryFile.write(file, plotStore, keyValueStore); } catch (IOException ex) { ex.printStackTrace(); }
+            return;
+        }
+        // Key-value events are few; the series can be far larger than the heap, so they are streamed.
+        List<PlotDataEvent> kvData = new ArrayList<>();
+        keyValueStore.forEach((key,ts,value)->kvData.add(new PlotKeyValueEvent(ts,key,value)));
+        kvData.sort(Comparator.comparingLong(PlotDataEvent::getTimestamp));
+
+        try(BufferedWriter w=new BufferedWriter(new FileWriter(file))){
+            int[] kvIndex = {0};
+            StringBuilder sb = new StringBuilder();
+            IOException[] failure = {null};
+            plotStore.forEachEventInTimeOrder(e -> {
+                if (failure[0] != null) return;
+                try {
+                    while (kvIndex[0] < kvData.size() && kvData.get(kvIndex[0]).getTimestamp() <= e.getTimestamp()) {
+                        appendPlotDataLine(sb, kvData.get(kvIndex[0]++));
+                    }
+                    appendPlotDataLine(sb, e);
+                    if (sb.length() > 65536) { w.write(sb.toString()); sb.setLength(0); }
+                } catch (IOException ex) {
+                    failure[0] = ex;
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+            while (kvIndex[0] < kvData.size()) appendPlotDataLine(sb, kvData.get(kvIndex[0]++));
+            w.write(sb.toString());
+        }catch(IOException ex){ex.printStackTrace();}
+    }
+
+    private void appendPlotDataLine(StringBuilder sb, PlotDataEvent e) {
+        long ts=e.getTimestamp();
+        if(e instanceof PlotPointEvent p) sb.append(String.format(Locale.US,"POINT %d %d %.6f\n",ts,p.getStyle(),p.getYValue()));
+        else if(e instanceof PlotLineEvent p) sb.append(String.format(Locale.US,"LINE %d %d %.6f\n",ts,p.getStyle(),p.getYValue()));
+        else if(e instanceof PlotPoint2Event p) sb.append(String.format(Locale.US,"POINT2 %d %d %.6f\n",ts,p.getStyle(),p.getYValue()));
+        else if(e instanceof PlotLine2Event p) sb.append(String.format(Locale.US,"LINE2 %d %d %.6f\n",ts,p.getStyle(),p.getYValue()));
+        else if(e instanceof PlotKeyValueEvent p) sb.append(String.format("KV %d \"%s\" \"%s\"\n",ts,p.getKey(),p.getValue()));
+        else if(e instanceof PlotTextAnnotationEvent p) sb.append(String.format("MARKER %d %s \"%s\"\n",ts,p.getPositionKeyword(),p.getText()));
+        else if(e instanceof PlotYLimitsEvent p) sb.append(String.format(Locale.US,"YLIMITS %d %.6f %.6f\n",ts,p.getMinY(),p.getMaxY()));
+        else if(e instanceof PlotYUnitsEvent p) sb.append(String.format("YUNITS %d \"%s\"\n",ts,p.getUnit()));
+        else if(e instanceof PlotYLimits2Event p) sb.append(String.format(Locale.US,"YLIMITS2 %d %.6f %.6f\n",ts,p.getMinY(),p.getMaxY()));
+        else if(e instanceof PlotYUnits2Event p) sb.append(String.format("YUNITS2 %d \"%s\"\n",ts,p.getUnit()));
+        else if(e instanceof PlotSeriesNameLineEvent p) sb.append(String.format("SERIESNAMELINE %d \"%s\" %d\n",ts,p.getSeriesName(), p.getStyle()));
+        else if(e instanceof PlotSeriesNamePointEvent p) sb.append(String.format("SERIESNAMEPOINT %d \"%s\" %d\n",ts,p.getSeriesName(), p.getStyle()));
+        else if(e instanceof PlotSeriesNameLine2Event p) sb.append(String.format("SERIESNAMELINE2 %d \"%s\" %d\n",ts,p.getSeriesName(), p.getStyle()));
+        else if(e instanceof PlotSeriesNamePoint2Event p) sb.append(String.format("SERIESNAMEPOINT2 %d \"%s\" %d\n",ts,p.getSeriesName(), p.getStyle()));
     }
 
+    /**
+     * Loads a .plotbin or text plot file on a background thread. The plot shows an overview as soon
+     * as the first batch is in and refreshes it while loading; progress and cancellation go through
+     * the control panel.
+     */
     public void loadPlotData(File file) {
         Platform.runLater(() -> {
-            clearPlot();
-            Pattern linePattern=Pattern.compile("^(\\S+)\\s(.*)$"), argPattern=Pattern.compile("\"([^\"]*)\"|\\S+");
-            List<String>allLines=new ArrayList<>(); long minTs=Long.MAX_VALUE;
-            try(BufferedReader r=new BufferedReader(new FileReader(file))){
-                String line; while((line=r.readLine())!=null){allLines.add(line); Matcher m=linePattern.matcher(line.trim()); if(!m.matches())continue; String[]p=m.group(2).split(" ",2); if(p.length>0)try{long ts=Long.parseLong(p[0]);if(ts<minTs)minTs=ts;}catch(NumberFormatException ex){}}
-                if(minTs==Long.MAX_VALUE){resetViewToFitData();return;}
-                for(String sL:allLines){
-                    Matcher lM=linePattern.matcher(sL.trim()); if(!lM.matches())continue;
-                    String type=lM.group(1),argsStr=lM.group(2);
-                    Matcher aM=argPattern.matcher(argsStr); List<String>args=new ArrayList<>(); while(aM.find())args.add(aM.group(1)!=null?aM.group(1):aM.group());
-                    if(args.isEmpty())continue;
-                    try{
-                        long ts=Long.parseLong(args.get(0))-minTs; PlotDataEvent e=null;
-                        switch(type){
-                            case "POINT": if(args.size()>=3) e=new PlotPointEvent(ts,Double.parseDouble(args.get(2)),Integer.parseInt(args.get(1))); break;
-                            case "LINE": if(args.size()>=3) e=new PlotLineEvent(ts,Double.parseDouble(args.get(2)),Integer.parseInt(args.get(1))); break;
-                            case "POINT2": if(args.size()>=3) e=new PlotPoint2Event(ts,Double.parseDouble(args.get(2)),Integer.parseInt(args.get(1))); break;
-                            case "LINE2": if(args.size()>=3) e=new PlotLine2Event(ts,Double.parseDouble(args.get(2)),Integer.parseInt(args.get(1))); break;
-                            case "KV": if(args.size()>=3) e=new PlotKeyValueEvent(ts,args.get(1),args.get(2)); break;
-                            case "MARKER": if(args.size()>=3) e=new PlotTextAnnotationEvent(ts,args.get(2),args.get(1)); break;
-                            case "YLIMITS": if(args.size()>=3) e=new PlotYLimitsEvent(ts,Double.parseDouble(args.get(2)),Double.parseDouble(args.get(1))); break;
-                            case "YUNITS": if(args.size()>=2) e=new PlotYUnitsEvent(ts,args.get(1)); break;
-                            case "YLIMITS2": if(args.size()>=3) e=new PlotYLimits2Event(ts,Double.parseDouble(args.get(2)),Double.parseDouble(args.get(1))); break;
-                            case "YUNITS2": if(args.size()>=2) e=new PlotYUnits2Event(ts,args.get(1)); break;
-                            case "SERIESNAMELINE": if(args.size()>=3) e=new PlotSeriesNameLineEvent(ts, args.get(1), Integer.parseInt(args.get(2))); break;
-                            case "SERIESNAMEPOINT": if(args.size()>=3) e=new PlotSeriesNamePointEvent(ts, args.get(1), Integer.parseInt(args.get(2))); break;
-                            case "SERIESNAMELINE2": if(args.size()>=3) e=new PlotSeriesNameLine2Event(ts, args.get(1), Integer.parseInt(args.get(2))); break;
-                            case "SERIESNAMEPOINT2": if(args.size()>=3) e=new PlotSeriesNamePoint2Event(ts, args.get(1), Integer.parseInt(args.get(2))); break;
-
-                        }
-                        if(e!=null)processNewEvent(e);
-                    }catch(NumberFormatException ex){System.err.println("Skipping malformed line: "+sL);}
-                }
-            }catch(IOException ex){ex.printStackTrace();}
-            setAutoScrollEnabled(false); resetViewToFitData();
+            clearPlot(); // Also cancels a load in progress
+            setAutoScrollEnabled(false);
+            PlotFileLoader loader = new PlotFileLoader(file, this::applyLoadBatch);
+            activeLoad = loader;
+            lastLoadOverviewMs = 0;
+            loader.setOnSucceeded(e -> finishLoad(loader));
+            loader.setOnCancelled(e -> finishLoad(loader));
+            loader.setOnFailed(e -> { loader.getException().printStackTrace(); finishLoad(loader); });
+            if (controlPanelProxy != null) controlPanelProxy.trackLoadTask(loader);
+            Thread thread = new Thread(loader, "PlotLoadThread");
+            thread.setDaemon(true);
+            thread.start();
         });
     }
 
+    private void applyLoadBatch(PlotFileLoader.Batch batch) {
+        for (PlotFileLoader.SeriesInfo info : batch.series) {
+            int id = seriesRegistry.idFor(info.kind, info.style);
+            if (info.name != null) seriesRegistry.setName(id, info.name);
+            seriesRegistry.setVisible(id, info.visible);
+        }
+        for (PlotFileLoader.SampleBlock block : batch.samples) {
+            plotStore.appendAll(block.kind, block.style, block.timestamps, block.values, block.count);
+        }
+        for (PlotDataEvent e : batch.events) {
+            if (e instanceof PlotKeyValueEvent kv) { keyValueStore.append(kv.getTimestamp(), kv.getKey(), kv.getValue()); continue; }
+            plotStore.add(e);
+            if (e instanceof PlotSeriesNameLineEvent p) seriesRegistry.setName(seriesRegistry.idFor(PlotDataStore.KIND_LINE, p.getStyle()), p.getSeriesName());
+            else if (e instanceof PlotSeriesNamePointEvent p) seriesRegistry.setName(seriesRegistry.idFor(PlotDataStore.KIND_POINT, p.getStyle()), p.getSeriesName());
+            else if (e instanceof PlotSeriesNameLine2Event p) seriesRegistry.setName(seriesRegistry.idFor(PlotDataStore.KIND_LINE2, p.getStyle()), p.getSeriesName());
+            else if (e instanceof PlotSeriesNamePoint2Event p) seriesRegistry.setName(seriesRegistry.idFor(PlotDataStore.KIND_POINT2, p.getStyle()), p.getSeriesName());
+        }
+        applyAxisSettings(batch.events);
+        tileCache.clear(); // The batch may land anywhere in time
+        autoRangeSeeded = false;
+        // Overview right after the first batch, then refreshed at a bounded rate while loading.
+        long now = System.currentTimeMillis();
+        if (now - lastLoadOverviewMs >= LOAD_OVERVIEW_INTERVAL_MS) {
+            lastLoadOverviewMs = now;
+            resetViewToFitData();
+        }
+    }
+
+    private void finishLoad(PlotFileLoader loader) {
+        if (activeLoad != loader) return; // Superseded by a newer load or a clear
+        activeLoad = null;
+        // Loaded samples bypass the derived channels, so they are computed over the file now, in the
+        // order they were defined, which puts a chained channel after its input. A file saved with
+        // a channel already holds its output; that channel's state is only brought up to date.
+        for (DerivedChannel channel : derivedChannels.getChannels()) {
+            boolean saved = plotStore.findSeries(channel.getOutputKind(), channel.getOutputStyle()) != null;
+            backfillDerivedChannel(channel, !saved);
+        }
+        for (SampleListener listener : sampleListeners) listener.onLoaded();
+        tileCache.clear();
+        resetViewToFitData();
+    }
+
+    /** Applies the axis limit and unit events in order, without redrawing. */
+    private void applyAxisSettings(List<PlotDataEvent> metaEvents) {
+        for (PlotDataEvent e : metaEvents) {
+            if (e instanceof PlotYLimitsEvent p && p.getMaxY() > p.getMinY()) { currentMinY = p.getMinY(); currentMaxY = p.getMaxY(); }
+            else if (e instanceof PlotYUnitsEvent p) yAxisUnit = p.getUnit();
+            else if (e instanceof PlotYLimits2Event p && p.getMaxY() > p.getMinY()) { currentMinY2 = p.getMinY(); currentMaxY2 = p.getMaxY(); }
+            else if (e instanceof PlotYUnits2Event p) yAxisUnit2 = p.getUnit();
+        }
+    }
+
     private void updateAndDrawDataReadouts() {
-        if (isMouseInPlotArea && currentCursorTimeMs != -1) {
+        if (currentCursorTimeMs != -1) {
             clearReadoutLabels();
-            synchronized (plotEvents) {
-                populateReadoutMaps(plotEvents, currentCursorTimeMs, styleToReadoutValueString, styleToReadoutDataY, styleToReadoutColor, PlotLineEvent.class, PlotPointEvent.class);
-                populateReadoutMaps(plotEvents, currentCursorTimeMs, styleToReadoutValueString2, styleToReadoutDataY2, styleToReadoutColor2, PlotLine2Event.class, PlotPoint2Event.class);
-            }
+            populateReadoutMaps(currentCursorTimeMs);
             staggerReadoutLabels();
         } else {
             clearReadoutLabels();
@@ -805,129 +1808,96 @@ public class PlotDisplay extends Pane {
     }
 
     private void clearReadoutLabels() {
-        styleToReadoutValueString.clear(); styleToReadoutDataY.clear(); styleToReadoutColor.clear();
-        styleToReadoutValueString2.clear(); styleToReadoutDataY2.clear(); styleToReadoutColor2.clear();
-    }
-    private void populateReadoutMaps(List<PlotDataEvent> events, long time, Map<Integer,String> valMap, Map<Integer,Double> dataYMap, Map<Integer,Color> colorMap, Class<?> lineClass, Class<?> pointClass) {
-        Set<Integer> styles = new TreeSet<>();
-        for(PlotDataEvent e : events) {
-            if(lineClass.isInstance(e)) {
-                if (e instanceof PlotLineEvent ple) styles.add(ple.getStyle());
-                else if (e instanceof PlotLine2Event ple2) styles.add(ple2.getStyle());
-            } else if(pointClass.isInstance(e)) {
-                if (e instanceof PlotPointEvent ppe) styles.add(ppe.getStyle());
-                else if (e instanceof PlotPoint2Event ppe2) styles.add(ppe2.getStyle());
-            }
-        }
-        for(int styleId : styles) {
-            double interpolatedY = Double.NaN;
-            PlotDataEvent lastEventOfStyle = null;
-            for(PlotDataEvent e : events) {
-                if((lineClass.isInstance(e) && getStyle(e) == styleId)) {
-                    if(lastEventOfStyle != null){
-                        long t1=lastEventOfStyle.getTimestamp(), t2=e.getTimestamp();
-                        if((t1<=time && time<=t2) || (t2<=time && time<=t1)){
-                            double y1=getYValue(lastEventOfStyle), y2=getYValue(e);
-                            interpolatedY = (t1==t2)?y1:y1+(double)(time-t1)*(y2-y1)/(double)(t2-t1);
-                            if(styleId>=1&&styleId<=LINE_STYLES.length)colorMap.put(styleId,LINE_STYLES[styleId-1].color);
-                            break;
-                        }
-                    }
-                    lastEventOfStyle = e;
-                }
-            }
-            if(Double.isNaN(interpolatedY)){
-                long minDiff=Long.MAX_VALUE;
-                for(PlotDataEvent e:events){
-                    if(getStyle(e)==styleId){
-                        long diff=Math.abs(e.getTimestamp()-time);
-                        if(diff<minDiff){
-                            minDiff=diff;
-                            interpolatedY=getYValue(e);
-                            if(styleId>=1&&styleId<=LINE_STYLES.length) colorMap.put(styleId,LINE_STYLES[styleId-1].color);
-                        }
-                    }
-                }
-            }
-            if(!Double.isNaN(interpolatedY)){ valMap.put(styleId,readoutValueFormat.format(interpolatedY)); dataYMap.put(styleId,interpolatedY); }
-        }
+        Arrays.fill(readoutDataY, Double.NaN);
     }
-    private int getStyle(PlotDataEvent event) {
-        if (event instanceof PlotLineEvent e) return e.getStyle();
-        if (event instanceof PlotPointEvent e) return e.getStyle();
-        if (event instanceof PlotLine2Event e) return e.getStyle();
-        if (event instanceof PlotPoint2Event e) return e.getStyle();
-        return -1;
-    }
-    private double getYValue(PlotDataEvent event) {
-        if (event instanceof PlotLineEvent e) return e.getYValue();
-        if (event instanceof PlotPointEvent e) return e.getYValue();
-        if (event instanceof PlotLine2Event e) return e.getYValue();
-        if (event instanceof PlotPoint2Event e) return e.getYValue();
-        return Double.NaN;
+    private void populateReadoutMaps(long time) {
+        ensureSeriesCapacity();
+        for (PlotDataStore.Series series : plotStore.getSeries()) {
+            if (!isShown(series.getId())) continue;
+            double y = plotStore.valueAt(series, time, series.isLine());
+            if (Double.isNaN(y)) continue;
+            readoutDataY[series.getId()] = y;
+            readoutValueString[series.getId()] = readoutValueFormat.format(y);
+        }
     }
 
     private void staggerReadoutLabels() {
-        Map<Integer,Double> combinedDataY = new HashMap<>();
-        combinedDataY.putAll(styleToReadoutDataY);
-        for(Map.Entry<Integer,Double> entry : styleToReadoutDataY2.entrySet()){ combinedDataY.put(entry.getKey() + 1000, entry.getValue()); } // Offset Y2 styles to avoid key collision
-        List<Map.Entry<Integer, Double>> sorted = new ArrayList<>(combinedDataY.entrySet());
-        sorted.sort(Map.Entry.comparingByValue());
+        // Sort the series with a readout by value (insertion sort; there are only a few dozen).
+        int n = 0;
+        int[] order = new int[readoutDataY.length];
+        for (int id = 0; id < readoutDataY.length; id++) {
+            if (Double.isNaN(readoutDataY[id])) continue;
+            int j = n++;
+            while (j > 0 && readoutDataY[order[j - 1]] > readoutDataY[id]) { order[j] = order[j - 1]; j--; }
+            order[j] = id;
+        }
         TreeSet<Double> slots = new TreeSet<>();
-        for (Map.Entry<Integer, Double> entry : sorted) {
-            int styleId = entry.getKey();
-            double screenY = (styleId < 1000) ? yValueToScreenY(entry.getValue()) : yValueToScreenY2(entry.getValue());
+        for (int i = 0; i < n; i++) {
+            int id = order[i];
+            double screenY = seriesRegistry.isSecondaryAxis(id) ? yValueToScreenY2(readoutDataY[id]) : yValueToScreenY(readoutDataY[id]);
             while(isSlotOccupied(screenY, slots)) screenY += READOUT_TEXT_Y_SPACING / 2.0;
             screenY = MathUtil.clip(screenY, 5, visibleGraphHeight - 10);
-            if (styleId < 1000) styleToReadoutScreenY.put(styleId, screenY); else styleToReadoutScreenY2.put(styleId - 1000, screenY);
+            readoutScreenY[id] = screenY;
             slots.add(screenY - READOUT_TEXT_Y_SPACING/2.0); slots.add(screenY + READOUT_TEXT_Y_SPACING/2.0);
         }
     }
     private void updateReadoutLabelNodes() {
         Platform.runLater(()->{
-            updateLabelSet(styleToReadoutLabel, styleToReadoutValueString, styleToReadoutColor);
-            updateLabelSet(styleToReadoutLabel2, styleToReadoutValueString2, styleToReadoutColor2);
+            for (int id = 0; id < readoutDataY.length; id++) {
+                Label l = readoutLabels[id];
+                if (Double.isNaN(readoutDataY[id])) { if (l != null) l.setVisible(false); continue; }
+                if (l == null) {
+                    l = new Label(); l.setFont(READOUT_LABEL_FONT); l.setStyle(READOUT_LABEL_STYLE); l.setMouseTransparent(true); l.setTextFill(Color.WHITE);
+                    this.getChildren().add(l);
+                    readoutLabels[id] = l;
+                }
+                Color c = seriesRegistry.getStyle(id).color;
+                l.setText(readoutValueString[id]);
+                String r=(int)(c.getRed()*255)+"",g=(int)(c.getGreen()*255)+"",b=(int)(c.getBlue()*255)+"";
+                l.setStyle(READOUT_LABEL_STYLE+String.format("-fx-background-color:rgb(%s,%s,%s);",r,g,b));
+            }
         });
     }
-    private void updateLabelSet(Map<Integer, Label> labels, Map<Integer, String> values, Map<Integer, Color> colors){
-        for(Map.Entry<Integer, Label> e:labels.entrySet()){if(!values.containsKey(e.getKey()))e.getValue().setVisible(false);}
-        for(Map.Entry<Integer,String>e:values.entrySet()){
-            int id=e.getKey(); String val=e.getValue(); Color c=colors.getOrDefault(id,Color.BLACK);
-            Label l=labels.computeIfAbsent(id,i->{Label nL=new Label(); nL.setFont(READOUT_LABEL_FONT); nL.setStyle(READOUT_LABEL_STYLE); nL.setMouseTransparent(true);this.getChildren().add(nL);return nL;});
-            l.setText(val); l.setTextFill(Color.WHITE); String r=(int)(c.getRed()*255)+"",g=(int)(c.getGreen()*255)+"",b=(int)(c.getBlue()*255)+"";
-            l.setStyle(READOUT_LABEL_STYLE+String.format("-fx-background-color:rgb(%s,%s,%s);",r,g,b));
-        }
-    }
 
     private boolean isSlotOccupied(double y, TreeSet<Double> slots) { Double f=slots.floor(y),c=slots.ceiling(y); if(f!=null&&y-f<READOUT_TEXT_Y_SPACING)return true; return c!=null&&c-y<READOUT_TEXT_Y_SPACING; }
     private void updateReadoutLabelPositions() {
-        if (!isMouseInPlotArea || mousePlotX < 0) { for(Label l:styleToReadoutLabel.values())l.setVisible(false); for(Label l:styleToReadoutLabel2.values())l.setVisible(false); return; }
-        double cX=this.graphContainer.getLayoutX()+mousePlotX;
-        positionLabelSet(styleToReadoutLabel, styleToReadoutScreenY, cX);
-        positionLabelSet(styleToReadoutLabel2, styleToReadoutScreenY2, cX);
-    }
-    private void positionLabelSet(Map<Integer, Label> labels, Map<Integer, Double> screenYMap, double cursorX) {
-        for (Map.Entry<Integer, Label> e : labels.entrySet()) {
-            if (screenYMap.containsKey(e.getKey())) {
-                Label l = e.getValue();
-                l.setLayoutX(cursorX + READOUT_TEXT_X_OFFSET);
-                l.setLayoutY(PADDING_TOP + screenYMap.get(e.getKey()));
+        boolean show = currentCursorTimeMs != -1 && cursorPlotX >= 0 && cursorPlotX <= visibleGraphWidth;
+        double cX=this.graphContainer.getLayoutX()+cursorPlotX;
+        for (int id = 0; id < readoutLabels.length; id++) {
+            Label l = readoutLabels[id];
+            if (l == null) continue;
+            if (show && !Double.isNaN(readoutDataY[id])) {
+                l.setLayoutX(cX + READOUT_TEXT_X_OFFSET);
+                l.setLayoutY(PADDING_TOP + readoutScreenY[id]);
                 l.setVisible(true);
             } else {
-                e.getValue().setVisible(false);
+                l.setVisible(false);
             }
         }
     }
 
     private record PlotPoint(double x, double y) {}
     private String formatNiceNumber(double v, double r) {if(r>=200||Math.abs(v)>=100)return String.format(Locale.US,"%.0f",v); if(r>=20||Math.abs(v)>=10)return String.format(Locale.US,"%.1f",v); if(r>=1||Math.abs(v)>=1)return String.format(Locale.US,"%.2f",v); return String.format(Locale.US,"%.3f",v); }
-    private void updateCanvasWidthAndScrollbar(){if(firstTimestamp==-1||lastTimestamp==-1||firstTimestamp>lastTimestamp){mainGraphCanvas.setWidth(visibleGraphWidth);hScrollBar.setMin(0);hScrollBar.setMax(0);hScrollBar.setValue(0);hScrollBar.setVisibleAmount(visibleGraphWidth);hScrollBar.setDisable(true);currentScrollOffsetMs=0;return;}long d=lastTimestamp-firstTimestamp;double tS=d*pixelsPerMillisecond,cW=tS+PADDING_RIGHT_GRAPH,rW=Math.max(cW,visibleGraphWidth);mainGraphCanvas.setWidth(rW);hScrollBar.setMin(0);hScrollBar.setMax(cW);hScrollBar.setVisibleAmount(visibleGraphWidth);boolean dis=cW<=visibleGraphWidth;hScrollBar.setDisable(dis);if(dis){hScrollBar.setValue(0);currentScrollOffsetMs=0;}else{double mSV=hScrollBar.getMax()-hScrollBar.getVisibleAmount();if(mSV<0)mSV=0;if(hScrollBar.getValue()>mSV)hScrollBar.setValue(mSV);currentScrollOffsetMs=pixelsPerMillisecond>0?hScrollBar.getValue()/pixelsPerMillisecond:0;}}
-    private void scrollToTimestamp(long ts){if(firstTimestamp==-1||pixelsPerMillisecond<=0||hScrollBar.isDisabled())return;double tSOV=visibleGraphWidth/pixelsPerMillisecond,dTALE=(ts-firstTimestamp)-(tSOV*0.95);if(dTALE<0)dTALE=0;double nSPV=dTALE*pixelsPerMillisecond,mPSV=hScrollBar.getMax()-hScrollBar.getVisibleAmount();if(mPSV<0)mPSV=0;nSPV=MathUtil.clip(nSPV,0,mPSV);if(Math.abs(hScrollBar.getValue()-nSPV)>0.5)hScrollBar.setValue(nSPV);}
-    private void refreshKeyValueTable(){if(controlPanelProxy==null)return;List<PlotDisplayControlPanel.KeyTableEntry>entries=new ArrayList<>();if(currentCursorTimeMs!=-1){synchronized(keyValueStore){for(Map.Entry<String,List<TimestampedStringValue>>e:keyValueStore.entrySet()){List<TimestampedStringValue>vs=e.getValue();TimestampedStringValue rV=null;for(int i=vs.size()-1;i>=0;i--){if(vs.get(i).ts()<=currentCursorTimeMs){rV=vs.get(i);break;}}if(rV!=null)entries.add(new PlotDisplayControlPanel.KeyTableEntry(fT(rV.ts()),e.getKey(),rV.v()));}}}else{synchronized(keyValueStore){for(Map.Entry<String,List<TimestampedStringValue>>e:keyValueStore.entrySet()){List<TimestampedStringValue>vs=e.getValue();if(!vs.isEmpty()){TimestampedStringValue lV=vs.get(vs.size()-1);entries.add(new PlotDisplayControlPanel.KeyTableEntry(fT(lV.ts()),e.getKey(),lV.v()));}}}}entries.sort(Comparator.comparing(PlotDisplayControlPanel.KeyTableEntry::getKey));Platform.runLater(()->controlPanelProxy.updateKeyValueTable(entries));}
+    private void updateCanvasWidthAndScrollbar(){if(firstTimestamp==-1||lastTimestamp==-1||firstTimestamp>lastTimestamp){hScrollBar.setMin(0);hScrollBar.setMax(0);hScrollBar.setValue(0);hScrollBar.setVisibleAmount(visibleGraphWidth);hScrollBar.setDisable(true);currentScrollOffsetMs=0;return;}long d=lastTimestamp-firstTimestamp;double tS=d*pixelsPerMillisecond,cW=tS+PADDING_RIGHT_GRAPH;hScrollBar.setMin(0);hScrollBar.setMax(cW);hScrollBar.setVisibleAmount(visibleGraphWidth);boolean dis=cW<=visibleGraphWidth;hScrollBar.setDisable(dis);if(dis){hScrollBar.setValue(0);currentScrollOffsetMs=0;}else{double mSV=hScrollBar.getMax()-hScrollBar.getVisibleAmount();if(mSV<0)mSV=0;if(hScrollBar.getValue()>mSV)hScrollBar.setValue(mSV);currentScrollOffsetMs=pixelsPerMillisecond>0?hScrollBar.getValue()/pixelsPerMillisecond:0;}}
+    private void scrollToTimestamp(long ts){if(firstTimestamp==-1||pixelsPerMillisecond<=0||hScrollBar.isDisabled())return;double tSOV=visibleGraphWidth/pixelsPerMillisecond,dTALE=(ts-firstTimestamp)-(tSOV*0.95);if(dTALE<0)dTALE=0;double nSPV=dTALE*pixelsPerMillisecond,mPSV=hScrollBar.getMax()-hScrollBar.getVisibleAmount();if(mPSV<0)mPSV=0;nSPV=Math.floor(MathUtil.clip(nSPV,0,mPSV));if(Math.abs(hScrollBar.getValue()-nSPV)>0.5)hScrollBar.setValue(nSPV);}
+    private void refreshKeyValueTable(){if(controlPanelProxy==null)return;List<PlotDisplayControlPanel.KeyTableEntry>entries=new ArrayList<>();KeyValueHistory.EntryVisitor toEntry=(key,ts,value)->entries.add(new PlotDisplayControlPanel.KeyTableEntry(fT(ts),key,value));if(currentCursorTimeMs!=-1)keyValueStore.forEachValueAt(currentCursorTimeMs,toEntry);else keyValueStore.forEachLatest(toEntry);entries.sort(Comparator.comparing(PlotDisplayControlPanel.KeyTableEntry::getKey));Platform.runLater(()->controlPanelProxy.updateKeyValueTable(entries));}
     private String fT(long t){if(firstTimestamp==-1)return"N/A";return String.format(Locale.US,"%.2f",(t-firstTimestamp)/1000.0);}
 //    private void drawMarkerTextAnnotation(PlotTextAnnotationEvent e){double x=timeMsToScreenX(e.getTimestamp());if(x>=0&&x<=mainGraphCanvas.getWidth()){mainGc.save();mainGc.setStroke(MARKER_LINE_COLOR);mainGc.setLineWidth(1.0);mainGc.setLineDashes(5,3);mainGc.strokeLine(x,0,x,visibleGraphHeight-1);mainGc.setFill(MARKER_TEXT_COLOR);mainGc.setFont(Font.font("Arial",FontWeight.BOLD,11));mainGc.setTextAlign(TextAlignment.CENTER);double y;switch(e.getPositionKeyword()){case"top":y=PADDING_TOP+12;break;case"bot":y=visibleGraphHeight-5;break;default:y=visibleGraphHeight/2.0;break;}mainGc.fillText(e.getText(),x,y);mainGc.restore();}}
     public BooleanProperty autoScrollEnabledProperty() { return autoScrollEnabled; }
+    public void setMemoryBudgetBytes(long bytes) { plotStore.setMemoryBudgetBytes(bytes); }
+    /**
+     * Releases the on-disk plot history. The display should not be used afterwards. Disposing a linked
+     * pane only detaches it from its group; the primary must be disposed last.
+     */
+    public void dispose() {
+        geometryExecutor.shutdownNow();
+        if (primary != this) { panes.remove(this); return; }
+        frameTimer.stop();
+        if (activeLoad != null) activeLoad.cancel();
+        tileCache.clear();
+        plotStore.close();
+    }
     public void setControlPanelProxy(PlotDisplayControlPanel p) {this.controlPanelProxy=p; if (p != null) p.setFollowRealTimeSelected(autoScrollEnabled.get());}
-    public void stretchTimeAxis(double f){double old=pixelsPerMillisecond;pixelsPerMillisecond*=f;pixelsPerMillisecond=MathUtil.clip(pixelsPerMillisecond,MIN_PIXELS_PER_MS,MAX_PIXELS_PER_MS);setAutoScrollEnabled(false);if(Math.abs(old-pixelsPerMillisecond)>1e-9&&firstTimestamp!=-1){double vcT=currentScrollOffsetMs+(visibleGraphWidth/(2*old));updateCanvasWidthAndScrollbar();double nSV=(vcT*pixelsPerMillisecond)-(visibleGraphWidth/2.0);nSV=MathUtil.clip(nSV,0,hScrollBar.getMax()-hScrollBar.getVisibleAmount());if(hScrollBar.getMax()<=visibleGraphWidth)nSV=0;hScrollBar.setValue(nSV);currentScrollOffsetMs=hScrollBar.getValue()/pixelsPerMillisecond;}else{updateCanvasWidthAndScrollbar();}redrawFullPlot();}
-    public void resetViewToFitData(){if(plotEvents.isEmpty()){firstTimestamp=-1;lastTimestamp=-1;updateCanvasWidthAndScrollbar();redrawFullPlot();return;}long minTs=Long.MAX_VALUE,maxTs=Long.MIN_VALUE;synchronized(plotEvents){for(PlotDataEvent e:plotEvents){if(e.getTimestamp()<minTs)minTs=e.getTimestamp();if(e.getTimestamp()>maxTs)maxTs=e.getTimestamp();}}synchronized(keyValueStore){for(Map.Entry<String,List<TimestampedStringValue>>e:keyValueStore.entrySet()){for(TimestampedStringValue v:e.getValue()){if(v.ts()<minTs)minTs=v.ts();if(v.ts()>maxTs)maxTs=v.ts();}}}if(minTs==Long.MAX_VALUE){firstTimestamp=-1;lastTimestamp=-1;}else{firstTimestamp=minTs;lastTimestamp=maxTs;}long d=lastTimestamp-firstTimestamp;if(d>0&&visibleGraphWidth>0)pixelsPerMillisecond=(visibleGraphWidth*0.98)/d;else pixelsPerMillisecond=0.02;pixelsPerMillisecond=MathUtil.clip(pixelsPerMillisecond,MIN_PIXELS_PER_MS,MAX_PIXELS_PER_MS);updateCanvasWidthAndScrollbar();hScrollBar.setValue(0);redrawFullPlot();}
+    public void stretchTimeAxis(double f){if(primary!=this){primary.stretchTimeAxis(f);return;}double old=pixelsPerMillisecond;pixelsPerMillisecond*=f;pixelsPerMillisecond=MathUtil.clip(pixelsPerMillisecond,MIN_PIXELS_PER_MS,MAX_PIXELS_PER_MS);setAutoScrollEnabled(false);if(Math.abs(old-pixelsPerMillisecond)>1e-9&&firstTimestamp!=-1){double vcT=currentScrollOffsetMs+(visibleGraphWidth/(2*old));updateCanvasWidthAndScrollbar();double nSV=(vcT*pixelsPerMillisecond)-(visibleGraphWidth/2.0);nSV=MathUtil.clip(nSV,0,hScrollBar.getMax()-hScrollBar.getVisibleAmount());if(hScrollBar.getMax()<=visibleGraphWidth)nSV=0;hScrollBar.setValue(nSV);currentScrollOffsetMs=hScrollBar.getValue()/pixelsPerMillisecond;}else{updateCanvasWidthAndScrollbar();}redrawAllPanes();}
+    public void resetViewToFitData(){if(primary!=this){primary.resetViewToFitData();return;}if(plotStore.isEmpty()&&keyValueStore.isEmpty()){firstTimestamp=-1;lastTimestamp=-1;updateCanvasWidthAndScrollbar();redrawAllPanes();return;}long minTs=plotStore.getMinTimestamp(),maxTs=plotStore.getMaxTimestamp();if(!keyValueStore.isEmpty()){minTs=Math.min(minTs,keyValueStore.getMinTimestamp());maxTs=Math.max(maxTs,keyValueStore.getMaxTimestamp());}if(minTs==Long.MAX_VALUE){firstTimestamp=-1;lastTimestamp=-1;}else{firstTimestamp=minTs;lastTimestamp=maxTs;}long d=lastTimestamp-firstTimestamp;if(d>0&&visibleGraphWidth>0)pixelsPerMillisecond=(visibleGraphWidth*0.98)/d;else pixelsPerMillisecond=0.02;pixelsPerMillisecond=MathUtil.clip(pixelsPerMillisecond,MIN_PIXELS_PER_MS,MAX_PIXELS_PER_MS);updateCanvasWidthAndScrollbar();hScrollBar.setValue(0);redrawAllPanes();}
 }
@@ -2,8 +2,12 @@
 package com.example.ftcfieldsimulator;
 
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import javafx.beans.property.BooleanProperty;
+import javafx.concurrent.Task;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.collections.FXCollections;
@@ -14,13 +18,19 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.TitledPane;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 
@@ -31,9 +41,39 @@ public class PlotDisplayControlPanel extends VBox {
     private Button btnSave;        // Save Button
     private Button btnLoad;        // Load Button
     private CheckBox chkFollowRealTime;
+    private CheckBox chkAutoRangeY1, chkAutoRangeY2;
+    private Button btnAddPane;
+    private VBox loadProgressBox;     // Shown while a plot file is loading
+    private ProgressBar loadProgressBar;
+    private Label lblLoadStatus;
+    private Button btnCancelLoad;
+    private Task<?> trackedLoad;
+    // --- Derived channel editor ---
+    private ComboBox<DerivedChannel.Operation> cmbDerivedOperation;
+    private ComboBox<DerivedChannel.Source> cmbDerivedSourceA, cmbDerivedSourceB;
+    private TextField txtDerivedParameter, txtDerivedOffset, txtDerivedName;
+    private CheckBox chkDerivedAxis2;
+    private Button btnAddDerived;
+    private Label lblDerivedError;
+    private Supplier<List<DerivedChannel.Source>> derivedSourceSupplier;
+    private Consumer<DerivedChannel.Definition> derivedChannelHandler;
+    // --- Triggers and captures ---
+    private ComboBox<PlotTrigger.Condition> cmbTriggerCondition;
+    private ComboBox<DerivedChannel.Source> cmbTriggerSource;
+    private TextField txtTriggerLevel, txtTriggerWindow, txtTriggerKey, txtTriggerValue, txtTriggerPre, txtTriggerPost, txtTriggerName;
+    private Label lblTriggerError;
+    private ListView<PlotTrigger> lstTriggers;
+    private ComboBox<TriggerCapture> cmbCaptures;
+    private Consumer<PlotTrigger.Definition> triggerAddHandler;
+    private Consumer<PlotTrigger> triggerRemoveHandler;
+    private Consumer<TriggerCapture> showCaptureHandler, overlayCaptureHandler;
+    private Runnable clearOverlaysHandler;
     private Label lblKeyValueTitle;
     private TableView<KeyTableEntry> keyValueTable;
     private ObservableList<KeyTableEntry> keyValueTableData = FXCollections.observableArrayList();
+    private Label lblRangeStatsTitle;
+    private TableView<RangeStatEntry> rangeStatsTable;
+    private ObservableList<RangeStatEntry> rangeStatsTableData = FXCollections.observableArrayList();
 
     // Needs to be public for PropertyValueFactory, or use public getters for StringProperties
     public static class KeyTableEntry {
@@ -60,6 +100,23 @@ public class PlotDisplayControlPanel extends VBox {
         public void setValue(String value) { this.value.set(value); }
     }
 
+    /** One statistic of one series over the selected time range. */
+    public static class RangeStatEntry {
+        private final String series;
+        private final String statistic;
+        private final String value;
+
+        public RangeStatEntry(String series, String statistic, String value) {
+            this.series = series;
+            this.statistic = statistic;
+            this.value = value;
+        }
+
+        public String getSeries() { return series; }
+        public String getStatistic() { return statistic; }
+        public String getValue() { return value; }
+    }
+
     // In PlotDisplayControlPanel.java
 
     public PlotDisplayControlPanel() {
@@ -89,6 +146,18 @@ public class PlotDisplayControlPanel extends VBox {
         btnLoad.setMaxWidth(Double.MAX_VALUE);
         // --- End of Save/Load setup ---
 
+        // --- Load progress, hidden until a load starts ---
+        loadProgressBar = new ProgressBar(0);
+        loadProgressBar.setMaxWidth(Double.MAX_VALUE);
+        btnCancelLoad = new Button("Cancel");
+        HBox loadProgressRow = new HBox(5, loadProgressBar, btnCancelLoad);
+        loadProgressRow.setAlignment(Pos.CENTER);
+        HBox.setHgrow(loadProgressBar, Priority.ALWAYS);
+        lblLoadStatus = new Label();
+        lblLoadStatus.setFont(Font.font("Arial", 11));
+        loadProgressBox = new VBox(3, loadProgressRow, lblLoadStatus);
+        setLoadProgressVisible(false);
+
         btnStretchTime = new Button("Stretch Time (+)");
         btnShrinkTime = new Button("Shrink Time (-)");
 
@@ -103,6 +172,17 @@ public class PlotDisplayControlPanel extends VBox {
         chkFollowRealTime.setSelected(true);
         chkFollowRealTime.setMaxWidth(Double.MAX_VALUE);
 
+        chkAutoRangeY1 = new CheckBox("Auto Y1");
+        chkAutoRangeY2 = new CheckBox("Auto Y2");
+        HBox autoRangeBox = new HBox(10, chkAutoRangeY1, chkAutoRangeY2);
+        autoRangeBox.setAlignment(Pos.CENTER_LEFT);
+
+        btnAddPane = new Button("Add Linked Pane");
+        btnAddPane.setMaxWidth(Double.MAX_VALUE);
+
+        VBox derivedBox = createDerivedChannelEditor();
+        TitledPane triggerSection = createTriggerEditor();
+
         lblKeyValueTitle = new Label("Key-Value Data");
         lblKeyValueTitle.setFont(Font.font("Arial", FontWeight.BOLD, 13));
         lblKeyValueTitle.setPadding(new Insets(15, 0, 5, 0));
@@ -132,8 +212,240 @@ public class PlotDisplayControlPanel extends VBox {
         VBox.setVgrow(keyValueTable, Priority.ALWAYS);
         keyValueTable.setPrefHeight(200);
 
+        // --- Range statistics, filled when a time range is selected on the plot ---
+        lblRangeStatsTitle = new Label("Range Statistics");
+        lblRangeStatsTitle.setFont(Font.font("Arial", FontWeight.BOLD, 13));
+        lblRangeStatsTitle.setPadding(new Insets(5, 0, 5, 0));
+
+        rangeStatsTable = new TableView<>();
+        TableColumn<RangeStatEntry, String> seriesCol = new TableColumn<>("Series");
+        seriesCol.setCellValueFactory(new PropertyValueFactory<>("series"));
+        seriesCol.setPrefWidth(90);
+
+        TableColumn<RangeStatEntry, String> statCol = new TableColumn<>("Statistic");
+        statCol.setCellValueFactory(new PropertyValueFactory<>("statistic"));
+        statCol.setPrefWidth(75);
+
+        TableColumn<RangeStatEntry, String> statValueCol = new TableColumn<>("Value");
+        statValueCol.setCellValueFactory(new PropertyValueFactory<>("value"));
+        statValueCol.prefWidthProperty().bind(
+                rangeStatsTable.widthProperty()
+                        .subtract(seriesCol.widthProperty())
+                        .subtract(statCol.widthProperty())
+                        .subtract(2)
+        );
+
+        rangeStatsTable.getColumns().addAll(seriesCol, statCol, statValueCol);
+        rangeStatsTable.setItems(rangeStatsTableData);
+        rangeStatsTable.setPlaceholder(new Label("Drag across the plot to select a range"));
+        VBox.setVgrow(rangeStatsTable, Priority.ALWAYS);
+        rangeStatsTable.setPrefHeight(150);
+
         // --- Correctly add all initialized components ---
-        getChildren().addAll(title, btnClearPlot, fileButtonsBox, timeButtonsBox, chkFollowRealTime, lblKeyValueTitle, keyValueTable);
+        getChildren().addAll(title, btnClearPlot, fileButtonsBox, loadProgressBox, timeButtonsBox, chkFollowRealTime, autoRangeBox, btnAddPane, derivedBox, triggerSection, lblKeyValueTitle, keyValueTable, lblRangeStatsTitle, rangeStatsTable);
+    }
+
+    private VBox createDerivedChannelEditor() {
+        Label lblDerivedTitle = new Label("Derived Channels");
+        lblDerivedTitle.setFont(Font.font("Arial", FontWeight.BOLD, 13));
+        lblDerivedTitle.setPadding(new Insets(10, 0, 0, 0));
+
+        cmbDerivedOperation = new ComboBox<>(FXCollections.observableArrayList(DerivedChannel.Operation.values()));
+        cmbDerivedOperation.getSelectionModel().select(DerivedChannel.Operation.DERIVATIVE);
+        cmbDerivedOperation.setMaxWidth(Double.MAX_VALUE);
+
+        cmbDerivedSourceA = new ComboBox<>();
+        cmbDerivedSourceA.setPromptText("Series A");
+        cmbDerivedSourceB = new ComboBox<>();
+        cmbDerivedSourceB.setPromptText("Series B");
+        for (ComboBox<DerivedChannel.Source> cmb : List.of(cmbDerivedSourceA, cmbDerivedSourceB)) {
+            cmb.setMaxWidth(Double.MAX_VALUE);
+            HBox.setHgrow(cmb, Priority.ALWAYS);
+            fetchSourcesOnShowing(cmb);
+        }
+        HBox sourcesBox = new HBox(5, cmbDerivedSourceA, cmbDerivedSourceB);
+
+        txtDerivedParameter = new TextField();
+        txtDerivedOffset = new TextField();
+        txtDerivedOffset.setPromptText("Offset");
+        HBox parametersBox = new HBox(5, txtDerivedParameter, txtDerivedOffset);
+        HBox.setHgrow(txtDerivedParameter, Priority.ALWAYS);
+        HBox.setHgrow(txtDerivedOffset, Priority.ALWAYS);
+
+        txtDerivedName = new TextField();
+        txtDerivedName.setPromptText("Name (optional)");
+        chkDerivedAxis2 = new CheckBox("Axis 2");
+        HBox nameBox = new HBox(5, txtDerivedName, chkDerivedAxis2);
+        nameBox.setAlignment(Pos.CENTER_LEFT);
+        HBox.setHgrow(txtDerivedName, Priority.ALWAYS);
+
+        btnAddDerived = new Button("Add Channel");
+        btnAddDerived.setMaxWidth(Double.MAX_VALUE);
+        btnAddDerived.setOnAction(e -> addDerivedChannel());
+        lblDerivedError = new Label();
+        lblDerivedError.setTextFill(Color.FIREBRICK);
+        lblDerivedError.setWrapText(true);
+
+        cmbDerivedOperation.valueProperty().addListener((obs, old, op) -> updateDerivedFields(op));
+        updateDerivedFields(cmbDerivedOperation.getValue());
+
+        return new VBox(5, lblDerivedTitle, cmbDerivedOperation, sourcesBox, parametersBox, nameBox, btnAddDerived, lblDerivedError);
+    }
+
+    private void fetchSourcesOnShowing(ComboBox<DerivedChannel.Source> cmb) {
+        PlotUiUtil.bindSeriesSources(cmb, () -> derivedSourceSupplier != null ? derivedSourceSupplier.get() : List.of());
+    }
+
+    private TitledPane createTriggerEditor() {
+        cmbTriggerCondition = new ComboBox<>(FXCollections.observableArrayList(PlotTrigger.Condition.values()));
+        cmbTriggerCondition.getSelectionModel().select(PlotTrigger.Condition.RISING);
+        cmbTriggerCondition.setMaxWidth(Double.MAX_VALUE);
+
+        cmbTriggerSource = new ComboBox<>();
+        cmbTriggerSource.setPromptText("Series");
+        cmbTriggerSource.setMaxWidth(Double.MAX_VALUE);
+        fetchSourcesOnShowing(cmbTriggerSource);
+
+        txtTriggerLevel = new TextField();
+        txtTriggerWindow = new TextField();
+        txtTriggerWindow.setPromptText("Within ms");
+        HBox levelBox = new HBox(5, txtTriggerLevel, txtTriggerWindow);
+        HBox.setHgrow(txtTriggerLevel, Priority.ALWAYS);
+        HBox.setHgrow(txtTriggerWindow, Priority.ALWAYS);
+
+        txtTriggerKey = new TextField();
+        txtTriggerKey.setPromptText("Key");
+        txtTriggerValue = new TextField();
+        txtTriggerValue.setPromptText("Value");
+        HBox keyValueBox = new HBox(5, txtTriggerKey, txtTriggerValue);
+        HBox.setHgrow(txtTriggerKey, Priority.ALWAYS);
+        HBox.setHgrow(txtTriggerValue, Priority.ALWAYS);
+
+        txtTriggerPre = new TextField("500");
+        txtTriggerPre.setPromptText("Pre ms");
+        txtTriggerPost = new TextField("1000");
+        txtTriggerPost.setPromptText("Post ms");
+        HBox windowBox = new HBox(5, new Label("Pre/post ms"), txtTriggerPre, txtTriggerPost);
+        windowBox.setAlignment(Pos.CENTER_LEFT);
+        HBox.setHgrow(txtTriggerPre, Priority.ALWAYS);
+        HBox.setHgrow(txtTriggerPost, Priority.ALWAYS);
+
+        txtTriggerName = new TextField();
+        txtTriggerName.setPromptText("Name (optional)");
+
+        Button btnAddTrigger = new Button("Arm Trigger");
+        btnAddTrigger.setMaxWidth(Double.MAX_VALUE);
+        btnAddTrigger.setOnAction(e -> addTrigger());
+        lblTriggerError = new Label();
+        lblTriggerError.setTextFill(Color.FIREBRICK);
+        lblTriggerError.setWrapText(true);
+
+        lstTriggers = new ListView<>();
+        lstTriggers.setPrefHeight(70);
+        lstTriggers.setPlaceholder(new Label("No triggers armed"));
+        Button btnRemoveTrigger = new Button("Remove");
+        btnRemoveTrigger.setMaxWidth(Double.MAX_VALUE);
+        btnRemoveTrigger.setOnAction(e -> {
+            PlotTrigger selected = lstTriggers.getSelectionModel().getSelectedItem();
+            if (selected != null && triggerRemoveHandler != null) triggerRemoveHandler.accept(selected);
+        });
+
+        Label lblCaptures = new Label("Captures");
+        lblCaptures.setFont(Font.font("Arial", FontWeight.BOLD, 12));
+        cmbCaptures = new ComboBox<>();
+        cmbCaptures.setPromptText("No captures yet");
+        cmbCaptures.setMaxWidth(Double.MAX_VALUE);
+        Button btnShowCapture = new Button("Show");
+        Button btnOverlayCapture = new Button("Overlay");
+        Button btnClearOverlays = new Button("Clear Overlays");
+        btnShowCapture.setOnAction(e -> { if (cmbCaptures.getValue() != null && showCaptureHandler != null) showCaptureHandler.accept(cmbCaptures.getValue()); });
+        btnOverlayCapture.setOnAction(e -> { if (cmbCaptures.getValue() != null && overlayCaptureHandler != null) overlayCaptureHandler.accept(cmbCaptures.getValue()); });
+        btnClearOverlays.setOnAction(e -> { if (clearOverlaysHandler != null) clearOverlaysHandler.run(); });
+        HBox captureButtonsBox = new HBox(5, btnShowCapture, btnOverlayCapture, btnClearOverlays);
+        for (Button b : List.of(btnShowCapture, btnOverlayCapture, btnClearOverlays)) {
+            b.setMaxWidth(Double.MAX_VALUE);
+            HBox.setHgrow(b, Priority.ALWAYS);
+        }
+
+        cmbTriggerCondition.valueProperty().addListener((obs, old, condition) -> updateTriggerFields(condition));
+        updateTriggerFields(cmbTriggerCondition.getValue());
+
+        VBox content = new VBox(5, cmbTriggerCondition, cmbTriggerSource, levelBox, keyValueBox, windowBox, txtTriggerName,
+                btnAddTrigger, lblTriggerError, lstTriggers, btnRemoveTrigger, lblCaptures, cmbCaptures, captureButtonsBox);
+        TitledPane section = new TitledPane("Triggers", content);
+        section.setExpanded(false);
+        return section;
+    }
+
+    private void updateTriggerFields(PlotTrigger.Condition condition) {
+        cmbTriggerSource.setDisable(!condition.usesSeries());
+        txtTriggerLevel.setDisable(!condition.usesSeries());
+        txtTriggerWindow.setDisable(condition != PlotTrigger.Condition.DELTA);
+        txtTriggerKey.setDisable(condition.usesSeries());
+        txtTriggerValue.setDisable(condition.usesSeries());
+        txtTriggerLevel.setPromptText(condition == PlotTrigger.Condition.DELTA ? "Change" : "Level");
+    }
+
+    private void addTrigger() {
+        if (triggerAddHandler == null) return;
+        PlotTrigger.Condition condition = cmbTriggerCondition.getValue();
+        DerivedChannel.Source source = condition.usesSeries() ? cmbTriggerSource.getValue() : null;
+        if (condition.usesSeries() && source == null) { lblTriggerError.setText("Select the series to watch."); return; }
+        String key = txtTriggerKey.getText().trim(), value = txtTriggerValue.getText().trim();
+        if (!condition.usesSeries() && key.isEmpty()) { lblTriggerError.setText("Enter the key to watch."); return; }
+        double level = 0;
+        long window = 0, pre, post;
+        try {
+            if (condition.usesSeries()) level = Double.parseDouble(txtTriggerLevel.getText().trim());
+            if (condition == PlotTrigger.Condition.DELTA) window = Long.parseLong(txtTriggerWindow.getText().trim());
+            pre = Long.parseLong(txtTriggerPre.getText().trim());
+            post = Long.parseLong(txtTriggerPost.getText().trim());
+        } catch (NumberFormatException ex) {
+            lblTriggerError.setText("Enter numbers for the level, window and pre/post times.");
+            return;
+        }
+        if (condition == PlotTrigger.Condition.DELTA && (level <= 0 || window <= 0)) { lblTriggerError.setText("Change and window must be positive."); return; }
+        if (pre < 0 || post < 0) { lblTriggerError.setText("Pre/post times cannot be negative."); return; }
+        String name;
+        if (!txtTriggerName.getText().isBlank()) name = txtTriggerName.getText().trim();
+        else if (condition == PlotTrigger.Condition.KEY_VALUE) name = key + " == " + value;
+        else if (condition == PlotTrigger.Condition.DELTA) name = source + " changes " + level + " in " + window + "ms";
+        else name = source + (condition == PlotTrigger.Condition.RISING ? " rises to " : " falls to ") + level;
+        lblTriggerError.setText("");
+        triggerAddHandler.accept(new PlotTrigger.Definition(condition, source, level, window, key, value, pre, post, name));
+    }
+
+    private void updateDerivedFields(DerivedChannel.Operation op) {
+        cmbDerivedSourceB.setDisable(!op.isBinary());
+        txtDerivedParameter.setDisable(!op.usesWindow() && op != DerivedChannel.Operation.SCALE);
+        txtDerivedOffset.setDisable(op != DerivedChannel.Operation.SCALE);
+        txtDerivedParameter.setPromptText(op == DerivedChannel.Operation.SCALE ? "Scale" : "Window N");
+    }
+
+    private void addDerivedChannel() {
+        if (derivedChannelHandler == null) return;
+        DerivedChannel.Operation op = cmbDerivedOperation.getValue();
+        DerivedChannel.Source a = cmbDerivedSourceA.getValue(), b = op.isBinary() ? cmbDerivedSourceB.getValue() : null;
+        if (a == null || (op.isBinary() && b == null)) { lblDerivedError.setText("Select the input series."); return; }
+        int window = 0;
+        double scale = 1, offset = 0;
+        try {
+            if (op.usesWindow()) window = Integer.parseInt(txtDerivedParameter.getText().trim());
+            if (op == DerivedChannel.Operation.SCALE) {
+                scale = Double.parseDouble(txtDerivedParameter.getText().trim());
+                if (!txtDerivedOffset.getText().isBlank()) offset = Double.parseDouble(txtDerivedOffset.getText().trim());
+            }
+        } catch (NumberFormatException ex) {
+            lblDerivedError.setText("Enter a number for " + txtDerivedParameter.getPromptText() + ".");
+            return;
+        }
+        if (op.usesWindow() && window < 1) { lblDerivedError.setText("Window N must be at least 1."); return; }
+        String name = txtDerivedName.getText().isBlank()
+                ? op + "(" + a + (b != null ? ", " + b : "") + (op.usesWindow() ? ", " + window : "") + ")"
+                : txtDerivedName.getText().trim();
+        lblDerivedError.setText("");
+        derivedChannelHandler.accept(new DerivedChannel.Definition(op, a, b, window, scale, offset, name, chkDerivedAxis2.isSelected()));
+        txtDerivedName.clear();
     }
 
 // --- You will also need these methods for the wiring to work ---
@@ -327,10 +639,71 @@ public class PlotDisplayControlPanel extends VBox {
 //        getChildren().addAll(title, btnClearPlot, btnStretchTime, btnShrinkTime, chkFollowRealTime, lblKeyValueTitle, keyValueTable);
 //    }
 
+    /**
+     * Shows the progress and status message of a file load, with a button to cancel it, until the
+     * task finishes. Call on the FX thread before the task starts.
+     */
+    public void trackLoadTask(Task<?> task) {
+        trackedLoad = task;
+        loadProgressBar.progressProperty().bind(task.progressProperty());
+        lblLoadStatus.textProperty().bind(task.messageProperty());
+        btnCancelLoad.setOnAction(e -> task.cancel());
+        setLoadProgressVisible(true);
+        task.runningProperty().addListener((obs, wasRunning, running) -> {
+            if (running || trackedLoad != task) return; // A newer load took over the panel
+            trackedLoad = null;
+            loadProgressBar.progressProperty().unbind();
+            lblLoadStatus.textProperty().unbind();
+            btnCancelLoad.setOnAction(null);
+            setLoadProgressVisible(false);
+        });
+    }
+
+    private void setLoadProgressVisible(boolean visible) {
+        loadProgressBox.setVisible(visible);
+        loadProgressBox.setManaged(visible);
+    }
+
+    /** Supplies the series offered as inputs of a derived channel. */
+    public void setDerivedChannelSourceSupplier(Supplier<List<DerivedChannel.Source>> supplier) {
+        this.derivedSourceSupplier = supplier;
+    }
+
+    /** Receives the definition of each derived channel the user adds. */
+    public void setOnAddDerivedChannel(Consumer<DerivedChannel.Definition> handler) {
+        this.derivedChannelHandler = handler;
+    }
+
+    /** Receives the definition of each trigger the user arms. */
+    public void setOnAddTrigger(Consumer<PlotTrigger.Definition> handler) { this.triggerAddHandler = handler; }
+
+    /** Receives the trigger the user removes. */
+    public void setOnRemoveTrigger(Consumer<PlotTrigger> handler) { this.triggerRemoveHandler = handler; }
+
+    public void setOnShowCapture(Consumer<TriggerCapture> handler) { this.showCaptureHandler = handler; }
+    public void setOnOverlayCapture(Consumer<TriggerCapture> handler) { this.overlayCaptureHandler = handler; }
+    public void setOnClearOverlays(Runnable handler) { this.clearOverlaysHandler = handler; }
+
+    public void updateTriggers(List<PlotTrigger> triggers) {
+        lstTriggers.getItems().setAll(triggers);
+    }
+
+    /** Lists the captures, newest selected. */
+    public void updateCaptures(List<TriggerCapture> captures) {
+        cmbCaptures.getItems().setAll(captures);
+        if (!captures.isEmpty()) cmbCaptures.setValue(captures.get(captures.size() - 1));
+    }
+
     public void updateKeyValueTable(List<KeyTableEntry> entries) {
         keyValueTableData.setAll(entries); // Efficiently updates the table
     }
 
+    /** Shows the statistics of a selected time range (title e.g. "Range Statistics (1.20s - 3.45s)"); an empty list clears them. */
+    public void updateRangeStatistics(String title, List<RangeStatEntry> entries) {
+        lblRangeStatsTitle.setText(title);
+        rangeStatsTableData.setAll(entries);
+    }
+
     public void setOnClearPlotAction(EventHandler<ActionEvent> handler) {
         btnClearPlot.setOnAction(handler);
     }
@@ -347,6 +720,16 @@ public class PlotDisplayControlPanel extends VBox {
         chkFollowRealTime.setOnAction(handler);
     }
 
+    /** Receives the axis (1 or 2) and new state whenever an auto-range checkbox is toggled. */
+    public void setOnAutoRangeAction(BiConsumer<Integer, Boolean> handler) {
+        chkAutoRangeY1.setOnAction(e -> handler.accept(1, chkAutoRangeY1.isSelected()));
+        chkAutoRangeY2.setOnAction(e -> handler.accept(2, chkAutoRangeY2.isSelected()));
+    }
+
+    public void setOnAddPaneAction(EventHandler<ActionEvent> handler) {
+        btnAddPane.setOnAction(handler);
+    }
+
     public boolean isFollowRealTimeSelected() {
         return chkFollowRealTime.isSelected();
     }
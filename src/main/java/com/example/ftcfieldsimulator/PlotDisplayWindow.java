@@ -3,21 +3,39 @@ package com.example.ftcfieldsimulator;
 import com.example.ftcfieldsimulator.PlotDisplayControlPanel;
 
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.Label;
+import javafx.scene.control.MenuButton;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.TitledPane;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.stage.Modality;
 import javafx.stage.Window;
 import javafx.stage.FileChooser; // Add this import
 import java.io.File; // Add this import
+import java.util.ArrayList;
+import java.util.List;
 
 public class PlotDisplayWindow {
 
     private Stage plotStage;
     private PlotDisplay plotDisplay;
     private PlotDisplayControlPanel plotControlPanel;
+    private SpectrumPane spectrumPane;
+    private XyPane xyPane;
+
+    // Extra panes stacked under the main plot, sharing its data and time axis
+    private static final double LINKED_PANE_PLOT_HEIGHT = 200;
+    private VBox plotPanes;
+    private final List<PlotDisplay> linkedPanes = new ArrayList<>();
+    private int linkedPaneCounter = 0;
 
     public PlotDisplayWindow(Window owner) {
         plotStage = new Stage();
@@ -55,12 +73,25 @@ public class PlotDisplayWindow {
             }
         });
 
+        plotControlPanel.setOnAutoRangeAction((axis, enabled) -> {
+            if (plotDisplay != null) {
+                plotDisplay.setAutoRangeEnabled(axis, enabled);
+            }
+        });
+
+        plotControlPanel.setOnAddPaneAction(e -> {
+            if (plotDisplay != null) {
+                addLinkedPane();
+            }
+        });
+
         plotControlPanel.setOnSaveAction(e -> {
             if (plotDisplay == null) return;
 
             FileChooser fileChooser = new FileChooser();
             fileChooser.setTitle("Save Plot Data");
             fileChooser.getExtensionFilters().addAll(
+                    new FileChooser.ExtensionFilter("Binary Plot Files", "*" + PlotBinaryFile.EXTENSION),
                     new FileChooser.ExtensionFilter("Plot Data Files", "*.pdat"),
                     new FileChooser.ExtensionFilter("Text Files", "*.txt"),
                     new FileChooser.ExtensionFilter("All Files", "*.*")
@@ -77,6 +108,7 @@ public class PlotDisplayWindow {
             FileChooser fileChooser = new FileChooser();
             fileChooser.setTitle("Load Plot Data");
             fileChooser.getExtensionFilters().addAll(
+                    new FileChooser.ExtensionFilter("Binary Plot Files", "*" + PlotBinaryFile.EXTENSION),
                     new FileChooser.ExtensionFilter("Plot Data Files", "*.pdat"),
                     new FileChooser.ExtensionFilter("Text Files", "*.txt"),
                     new FileChooser.ExtensionFilter("All Files", "*.*")
@@ -87,13 +119,69 @@ public class PlotDisplayWindow {
             }
         });
 
+        plotControlPanel.setDerivedChannelSourceSupplier(() -> plotDisplay != null ? plotDisplay.getSeriesSources() : List.of());
+        plotControlPanel.setOnAddDerivedChannel(definition -> {
+            if (plotDisplay != null) {
+                plotDisplay.addDerivedChannel(definition);
+            }
+        });
+
+        plotControlPanel.setOnAddTrigger(definition -> {
+            if (plotDisplay != null) {
+                plotDisplay.addTrigger(definition);
+                plotControlPanel.updateTriggers(plotDisplay.getTriggers());
+            }
+        });
+        plotControlPanel.setOnRemoveTrigger(trigger -> {
+            if (plotDisplay != null) {
+                plotDisplay.removeTrigger(trigger);
+                plotControlPanel.updateTriggers(plotDisplay.getTriggers());
+            }
+        });
+        plotControlPanel.setOnShowCapture(capture -> {
+            if (plotDisplay != null) {
+                plotDisplay.showCapture(capture);
+            }
+        });
+        plotControlPanel.setOnOverlayCapture(capture -> {
+            if (plotDisplay != null) {
+                plotDisplay.overlayCapture(capture);
+            }
+        });
+        plotControlPanel.setOnClearOverlays(() -> {
+            if (plotDisplay != null) {
+                plotDisplay.clearCaptureOverlays();
+            }
+        });
+
         if (plotDisplay != null) {
             plotDisplay.setControlPanelProxy(plotControlPanel);
         }
 
-        rootLayout.setCenter(plotDisplay);
+        plotPanes = new VBox(plotDisplay);
+        rootLayout.setCenter(plotPanes);
         rootLayout.setLeft(plotControlPanel);
 
+        // Spectrum below the plot, collapsed (and idle) until opened
+        spectrumPane = new SpectrumPane(plotDisplay, plotDisplay.getPrefWidth() + plotControlPanel.getPrefWidth() - 20, 220);
+        TitledPane spectrumSection = new TitledPane("Spectrum", spectrumPane);
+        spectrumSection.setExpanded(false);
+        spectrumSection.expandedProperty().addListener((obs, wasExpanded, expanded) -> {
+            spectrumPane.setActive(expanded);
+            plotStage.sizeToScene();
+        });
+
+        // XY plot of two series, likewise collapsed (and idle) until opened
+        xyPane = new XyPane(plotDisplay, plotDisplay.getPrefWidth() + plotControlPanel.getPrefWidth() - 20, 320);
+        TitledPane xySection = new TitledPane("XY Plot", xyPane);
+        xySection.setExpanded(false);
+        xySection.expandedProperty().addListener((obs, wasExpanded, expanded) -> {
+            xyPane.setActive(expanded);
+            plotStage.sizeToScene();
+        });
+        VBox bottomSections = new VBox(spectrumSection, xySection);
+        rootLayout.setBottom(bottomSections);
+
         // Scene size needs to accommodate the control panel width
         // Use the preferred sizes of the components for a more accurate scene dimension.
         // PlotDisplay's preferred size now includes its internal padding, Y-axis area, and scrollbar.
@@ -108,7 +196,7 @@ public class PlotDisplayWindow {
         // The scene width is the sum of the plot display's actual width and the control panel's width
         double sceneWidth = actualPlotDisplayWidth + controlPanelWidth;
         // The scene height is the maximum of the two components' heights
-        double sceneHeight = Math.max(actualPlotDisplayHeight, controlPanelHeight);
+        double sceneHeight = Math.max(actualPlotDisplayHeight, controlPanelHeight) + bottomSections.prefHeight(-1);
 
 
         Scene scene = new Scene(rootLayout, sceneWidth, sceneHeight);
@@ -119,6 +207,47 @@ public class PlotDisplayWindow {
         });
     }
 
+    /** Stacks a pane under the plot that views the same data with its own series and Y axes. */
+    private void addLinkedPane() {
+        PlotDisplay pane = new PlotDisplay(PlotDisplay.DEFAULT_PLOT_AREA_WIDTH_PIXELS, LINKED_PANE_PLOT_HEIGHT, plotDisplay);
+        linkedPanes.add(pane);
+
+        // The series list is read when the menu opens, so it includes series that appeared since.
+        MenuButton seriesMenu = new MenuButton("Series");
+        seriesMenu.getItems().add(new MenuItem("No series yet"));
+        seriesMenu.setOnShowing(e -> {
+            seriesMenu.getItems().clear();
+            for (DerivedChannel.Source source : plotDisplay.getSeriesSources()) {
+                CheckMenuItem item = new CheckMenuItem(source.toString());
+                item.setSelected(pane.isSeriesShown(source.kind, source.style));
+                item.setOnAction(ev -> pane.setSeriesShown(source.kind, source.style, item.isSelected()));
+                seriesMenu.getItems().add(item);
+            }
+            if (seriesMenu.getItems().isEmpty()) seriesMenu.getItems().add(new MenuItem("No series yet"));
+        });
+
+        CheckBox chkAutoY1 = new CheckBox("Auto Y1"), chkAutoY2 = new CheckBox("Auto Y2");
+        chkAutoY1.setSelected(true);
+        chkAutoY2.setSelected(true);
+        chkAutoY1.setOnAction(e -> pane.setAutoRangeEnabled(1, chkAutoY1.isSelected()));
+        chkAutoY2.setOnAction(e -> pane.setAutoRangeEnabled(2, chkAutoY2.isSelected()));
+
+        Button btnRemove = new Button("Remove Pane");
+        HBox header = new HBox(10, new Label("Pane " + (++linkedPaneCounter + 1)), seriesMenu, chkAutoY1, chkAutoY2, btnRemove);
+        header.setAlignment(Pos.CENTER_LEFT);
+        header.setPadding(new Insets(5, 10, 0, 10));
+        VBox section = new VBox(header, pane);
+
+        btnRemove.setOnAction(e -> {
+            plotPanes.getChildren().remove(section);
+            linkedPanes.remove(pane);
+            pane.dispose();
+            plotStage.sizeToScene();
+        });
+        plotPanes.getChildren().add(section);
+        plotStage.sizeToScene();
+    }
+
     public void show() {
         if (!plotStage.isShowing()) {
             plotStage.show();
@@ -135,6 +264,23 @@ public class PlotDisplayWindow {
         return plotStage.isShowing();
     }
 
+    /** Releases resources held by the plot (e.g. its on-disk history). Call on application exit. */
+    public void dispose() {
+        if (spectrumPane != null) {
+            spectrumPane.dispose();
+        }
+        if (xyPane != null) {
+            xyPane.dispose();
+        }
+        for (PlotDisplay pane : linkedPanes) {
+            pane.dispose();
+        }
+        linkedPanes.clear();
+        if (plotDisplay != null) {
+            plotDisplay.dispose();
+        }
+    }
+
     // Method to pass data to the plot display (will be used in later tasks)
     public PlotDisplay getPlotDisplay() {
         return plotDisplay;
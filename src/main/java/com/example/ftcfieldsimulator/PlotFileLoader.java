@@ -0,0 +1,243 @@
+package com.example.ftcfieldsimulator;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Loads a plot file (.plotbin or the text .pdat format) on a background thread.
+ *
+ * The file is parsed into {@link Batch}es of ready-made store updates, which are handed to the FX
+ * thread one at a time through Platform.runLater. At most {@link #MAX_QUEUED_BATCHES} batches are
+ * queued at once, so a fast parser cannot flood the FX thread or the heap. Progress (fraction of the
+ * file read) and a status message are published through the Task properties; cancelling the task
+ * stops parsing at the next line or block, and batches already applied stay in the plot.
+ */
+public class PlotFileLoader extends Task<Void> {
+
+    private static final int MAX_QUEUED_BATCHES = 4;
+    private static final int BATCH_SAMPLES = 65536;
+    private static final int BATCH_EVENTS = 4096;
+
+    /** Samples of one series, in file order. */
+    public static final class SampleBlock {
+        public final int kind, style;
+        public final long[] timestamps;
+        public final double[] values;
+        public final int count;
+
+        SampleBlock(int kind, int style, long[] timestamps, double[] values, int count) {
+            this.kind = kind; this.style = style; this.timestamps = timestamps; this.values = values; this.count = count;
+        }
+    }
+
+    /** Series declared in a .plotbin header, with the visibility it was saved with. */
+    public static final class SeriesInfo {
+        public final int kind, style;
+        public final String name;
+        public final boolean visible;
+
+        SeriesInfo(int kind, int style, String name, boolean visible) {
+            this.kind = kind; this.style = style; this.name = name; this.visible = visible;
+        }
+    }
+
+    /** A group of store updates, applied on the FX thread in one go. */
+    public static final class Batch {
+        public final List<SeriesInfo> series = new ArrayList<>();
+        public final List<SampleBlock> samples = new ArrayList<>();
+        /** Everything that is not a numeric sample: meta, series name and key-value events. */
+        public final List<PlotDataEvent> events = new ArrayList<>();
+        private int sampleCount = 0;
+
+        boolean isEmpty() { return series.isEmpty() && samples.isEmpty() && events.isEmpty(); }
+        boolean isFull() { return sampleCount >= BATCH_SAMPLES || events.size() >= BATCH_EVENTS; }
+    }
+
+    private final File file;
+    private final Consumer<Batch> applyOnFxThread;
+    private final Semaphore queuedBatches = new Semaphore(MAX_QUEUED_BATCHES);
+    private Batch batch = new Batch();
+    private long samplesLoaded = 0;
+
+    /**
+     * @param applyOnFxThread called on the FX thread for every batch, in file order. It is not called
+     *                        for batches still queued when the task is cancelled.
+     */
+    public PlotFileLoader(File file, Consumer<Batch> applyOnFxThread) {
+        this.file = file;
+        this.applyOnFxThread = applyOnFxThread;
+    }
+
+    public File getFile() { return file; }
+
+    @Override
+    protected Void call() throws Exception {
+        updateMessage("Loading " + file.getName());
+        if (PlotBinaryFile.isPlotBinFile(file)) loadBinary(); else loadText();
+        publish();
+        updateProgress(1, 1);
+        updateMessage(String.format("Loaded %,d samples", samplesLoaded));
+        return null;
+    }
+
+    /** Hands the current batch to the FX thread, blocking while too many batches are queued. */
+    private void publish() throws InterruptedException {
+        if (batch.isEmpty()) return;
+        Batch ready = batch;
+        batch = new Batch();
+        queuedBatches.acquire();
+        Platform.runLater(() -> {
+            try {
+                if (!isCancelled()) applyOnFxThread.accept(ready);
+            } finally {
+                queuedBatches.release();
+            }
+        });
+    }
+
+    private void checkCancelled() throws InterruptedIOException {
+        if (isCancelled() || Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Plot load cancelled");
+    }
+
+    private void reportProgress(long bytesRead, long totalBytes) {
+        updateProgress(bytesRead, Math.max(totalBytes, 1));
+        updateMessage(String.format("Loading %s: %,d samples", file.getName(), samplesLoaded));
+    }
+
+    private void loadBinary() throws IOException, InterruptedException {
+        try {
+            PlotBinaryFile.read(file, new PlotBinaryFile.Sink() {
+                @Override
+                public void series(int kind, int style, String name, boolean visible) {
+                    batch.series.add(new SeriesInfo(kind, style, name, visible));
+                }
+                @Override
+                public void samples(int kind, int style, long[] timestamps, double[] values, int count) {
+                    batch.samples.add(new SampleBlock(kind, style, Arrays.copyOf(timestamps, count), Arrays.copyOf(values, count), count));
+                    batch.sampleCount += count;
+                    samplesLoaded += count;
+                }
+                @Override
+                public void metaEvent(PlotDataEvent event) { batch.events.add(event); }
+                @Override
+                public void keyValue(long timestamp, String key, String value) { batch.events.add(new PlotKeyValueEvent(timestamp, key, value)); }
+                @Override
+                public void progress(long bytesRead, long totalBytes) throws IOException {
+                    checkCancelled();
+                    if (batch.isFull()) {
+                        try {
+                            publish();
+                        } catch (InterruptedException e) {
+                            throw new InterruptedIOException("Plot load cancelled");
+                        }
+                    }
+                    reportProgress(bytesRead, totalBytes);
+                }
+            });
+        } catch (InterruptedIOException e) {
+            if (!isCancelled()) throw e;
+        }
+    }
+
+    /**
+     * Parses the text format in a single pass. Timestamps are made relative to the first line of the
+     * file, which is also the earliest one in files written by the plot.
+     */
+    private void loadText() throws IOException, InterruptedException {
+        Pattern linePattern=Pattern.compile("^(\\S+)\\s(.*)$"), argPattern=Pattern.compile("\"([^\"]*)\"|\\S+");
+        long totalBytes = file.length(), bytesRead = 0, origin = Long.MIN_VALUE;
+        // Samples of the current batch, per series; keyed by (kind, style).
+        Map<Long, SeriesBuffer> buffers = new HashMap<>();
+        try (BufferedReader r = new BufferedReader(new FileReader(file))) {
+            String sL;
+            while ((sL = r.readLine()) != null) {
+                bytesRead += sL.length() + 1;
+                Matcher lM=linePattern.matcher(sL.trim()); if(!lM.matches())continue;
+                String type=lM.group(1),argsStr=lM.group(2);
+                Matcher aM=argPattern.matcher(argsStr); List<String>args=new ArrayList<>(); while(aM.find())args.add(aM.group(1)!=null?aM.group(1):aM.group());
+                if(args.isEmpty())continue;
+                try{
+                    long rawTs=Long.parseLong(args.get(0));
+                    if (origin == Long.MIN_VALUE) origin = rawTs;
+                    long ts=rawTs-origin; PlotDataEvent e=null; int kind=-1;
+                    switch(type){
+                        case "POINT": kind=PlotDataStore.KIND_POINT; break;
+                        case "LINE": kind=PlotDataStore.KIND_LINE; break;
+                        case "POINT2": kind=PlotDataStore.KIND_POINT2; break;
+                        case "LINE2": kind=PlotDataStore.KIND_LINE2; break;
+                        case "KV": if(args.size()>=3) e=new PlotKeyValueEvent(ts,args.get(1),args.get(2)); break;
+                        case "MARKER": if(args.size()>=3) e=new PlotTextAnnotationEvent(ts,args.get(2),args.get(1)); break;
+                        case "YLIMITS": if(args.size()>=3) e=new PlotYLimitsEvent(ts,Double.parseDouble(args.get(2)),Double.parseDouble(args.get(1))); break;
+                        case "YUNITS": if(args.size()>=2) e=new PlotYUnitsEvent(ts,args.get(1)); break;
+                        case "YLIMITS2": if(args.size()>=3) e=new PlotYLimits2Event(ts,Double.parseDouble(args.get(2)),Double.parseDouble(args.get(1))); break;
+                        case "YUNITS2": if(args.size()>=2) e=new PlotYUnits2Event(ts,args.get(1)); break;
+                        case "SERIESNAMELINE": if(args.size()>=3) e=new PlotSeriesNameLineEvent(ts, args.get(1), Integer.parseInt(args.get(2))); break;
+                        case "SERIESNAMEPOINT": if(args.size()>=3) e=new PlotSeriesNamePointEvent(ts, args.get(1), Integer.parseInt(args.get(2))); break;
+                        case "SERIESNAMELINE2": if(args.size()>=3) e=new PlotSeriesNameLine2Event(ts, args.get(1), Integer.parseInt(args.get(2))); break;
+                        case "SERIESNAMEPOINT2": if(args.size()>=3) e=new PlotSeriesNamePoint2Event(ts, args.get(1), Integer.parseInt(args.get(2))); break;
+                    }
+                    if (kind >= 0 && args.size() >= 3) {
+                        int style = Integer.parseInt(args.get(1));
+                        buffers.computeIfAbsent(((long) style << 8) | kind, k -> new SeriesBuffer()).add(ts, Double.parseDouble(args.get(2)));
+                        batch.sampleCount++;
+                        samplesLoaded++;
+                    } else if (e != null) {
+                        batch.events.add(e);
+                    }
+                }catch(NumberFormatException ex){System.err.println("Skipping malformed line: "+sL);}
+
+                if (batch.isFull()) {
+                    checkCancelled();
+                    flushSeriesBuffers(buffers);
+                    publish();
+                    reportProgress(bytesRead, totalBytes);
+                }
+            }
+        } catch (InterruptedIOException e) {
+            if (!isCancelled()) throw e;
+            return;
+        }
+        flushSeriesBuffers(buffers);
+    }
+
+    private void flushSeriesBuffers(Map<Long, SeriesBuffer> buffers) {
+        for (Map.Entry<Long, SeriesBuffer> entry : buffers.entrySet()) {
+            SeriesBuffer buffer = entry.getValue();
+            if (buffer.count == 0) continue;
+            int kind = (int) (entry.getKey() & 0xFF), style = (int) (entry.getKey() >> 8);
+            batch.samples.add(new SampleBlock(kind, style, Arrays.copyOf(buffer.timestamps, buffer.count), Arrays.copyOf(buffer.values, buffer.count), buffer.count));
+            buffer.count = 0;
+        }
+    }
+
+    private static final class SeriesBuffer {
+        long[] timestamps = new long[256];
+        double[] values = new double[256];
+        int count = 0;
+
+        void add(long ts, double value) {
+            if (count == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            timestamps[count] = ts;
+            values[count] = value;
+            count++;
+        }
+    }
+}
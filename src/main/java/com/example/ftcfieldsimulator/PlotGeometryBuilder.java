@@ -0,0 +1,220 @@
+package com.example.ftcfieldsimulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Turns plot series into screen-space geometry away from the JavaFX thread.
+ *
+ * Each series is handled by its own fork-join task. Samples are read from a
+ * {@link PlotDataStore.WindowSnapshot}, mapped to content coordinates (x = (t - firstTimestamp) *
+ * pixelsPerMs, y = pixels from the top of the plot area) and decimated per pixel column: lines keep
+ * the first, min, max and last sample of each column, points keep one sample per pixel row of the
+ * column. A series therefore costs O(visible width) to draw however many samples the view holds.
+ *
+ * Output goes into per-series primitive buffers that are reused from one build to the next, so the
+ * caller must finish drawing a build before starting the next one.
+ */
+public class PlotGeometryBuilder {
+
+    /** The view a build is for, captured on the FX thread. */
+    public static final class View {
+        final long firstTimestamp;
+        final double pixelsPerMs, height;
+        final double minY, maxY, minY2, maxY2;
+
+        public View(long firstTimestamp, double pixelsPerMs, double height, double minY, double maxY, double minY2, double maxY2) {
+            this.firstTimestamp = firstTimestamp;
+            this.pixelsPerMs = pixelsPerMs;
+            this.height = height;
+            this.minY = minY;
+            this.maxY = maxY;
+            this.minY2 = minY2;
+            this.maxY2 = maxY2;
+        }
+    }
+
+    /**
+     * Geometry of one series. Points 0..getPointCount() of the coordinate arrays are split into runs
+     * (polylines separated by NaN gaps in the data); run i covers [getRunStart(i), getRunStart(i+1)).
+     */
+    public static final class SeriesGeometry {
+        private final int id, kind, style;
+        private final boolean line;
+        private double[] xs = new double[256], ys = new double[256];
+        private int pointCount;
+        private int[] runStarts = new int[4];
+        private int runCount;
+
+        private SeriesGeometry(PlotDataStore.Series series) {
+            this.id = series.getId();
+            this.kind = series.getKind();
+            this.style = series.getStyle();
+            this.line = series.isLine();
+        }
+
+        public int getId() { return id; }
+        public int getKind() { return kind; }
+        public int getStyle() { return style; }
+        public boolean isLine() { return line; }
+        public double[] getXs() { return xs; }
+        public double[] getYs() { return ys; }
+        public int getPointCount() { return pointCount; }
+        public int getRunCount() { return runCount; }
+        public int getRunStart(int run) { return run < runCount ? runStarts[run] : pointCount; }
+
+        private void reset() {
+            pointCount = 0;
+            runCount = 0;
+        }
+
+        private void startRun() {
+            if (runCount > 0 && runStarts[runCount - 1] == pointCount) return; // Previous run is still empty
+            if (runCount == runStarts.length) runStarts = Arrays.copyOf(runStarts, runCount * 2);
+            runStarts[runCount++] = pointCount;
+        }
+
+        private void add(double x, double y) {
+            if (runCount == 0) startRun();
+            if (pointCount == xs.length) {
+                xs = Arrays.copyOf(xs, pointCount * 2);
+                ys = Arrays.copyOf(ys, pointCount * 2);
+            }
+            xs[pointCount] = x;
+            ys[pointCount] = y;
+            pointCount++;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private Map<PlotDataStore.Series, SeriesGeometry> buffers = new IdentityHashMap<>();
+
+    public PlotGeometryBuilder() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public PlotGeometryBuilder(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Builds the geometry of the given series, one window snapshot per series, in parallel.
+     * Blocks until done; call from a worker thread.
+     */
+    public List<SeriesGeometry> build(View view, List<PlotDataStore.Series> series, List<PlotDataStore.WindowSnapshot> windows) {
+        Map<PlotDataStore.Series, SeriesGeometry> reused = new IdentityHashMap<>();
+        List<SeriesTask> tasks = new ArrayList<>(series.size());
+        List<SeriesGeometry> result = new ArrayList<>(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            PlotDataStore.Series s = series.get(i);
+            SeriesGeometry geometry = buffers.get(s);
+            if (geometry == null) geometry = new SeriesGeometry(s);
+            reused.put(s, geometry);
+            result.add(geometry);
+            tasks.add(new SeriesTask(view, s, windows.get(i), geometry));
+        }
+        buffers = reused; // Drops buffers of series that are gone or hidden
+        // Submitted so that invokeAll forks the tasks onto this pool, not the common one.
+        pool.submit(() -> ForkJoinTask.invokeAll(tasks)).join();
+        return result;
+    }
+
+    private static final class SeriesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int POINT_RADIUS = 2;
+
+        private final View view;
+        private final PlotDataStore.WindowSnapshot window;
+        private final SeriesGeometry out;
+        private final double minY, yRange;
+
+        // Current pixel column of the decimation
+        private long column = Long.MIN_VALUE;
+        private final long[] pointRowsSeen;
+        private double firstX, firstY, lastX, lastY, minX, minYValue, maxX, maxYValue;
+
+        SeriesTask(View view, PlotDataStore.Series series, PlotDataStore.WindowSnapshot window, SeriesGeometry out) {
+            this.view = view;
+            this.window = window;
+            this.out = out;
+            this.minY = series.isSecondaryAxis() ? view.minY2 : view.minY;
+            this.yRange = series.isSecondaryAxis() ? view.maxY2 - view.minY2 : view.maxY - view.minY;
+            this.pointRowsSeen = series.isLine() ? null : new long[((int) Math.ceil(view.height) + 2 * POINT_RADIUS + 63) / 64];
+        }
+
+        @Override
+        protected void compute() {
+            out.reset();
+            if (out.line) {
+                window.forEachSample(this::addLineSample);
+                flushColumn();
+            } else {
+                window.forEachSample(this::addPointSample);
+            }
+        }
+
+        private double toX(long ts) { return (ts - view.firstTimestamp) * view.pixelsPerMs; }
+        private double toY(double value) { return view.height - ((value - minY) / yRange) * view.height; }
+
+        private void addLineSample(long ts, double value) {
+            if (Double.isNaN(value)) {
+                // A gap in the data: end the current polyline.
+                flushColumn();
+                out.startRun();
+                return;
+            }
+            double x = toX(ts), y = toY(value);
+            long c = (long) Math.floor(x);
+            if (c != column) {
+                flushColumn();
+                column = c;
+                firstX = lastX = minX = maxX = x;
+                firstY = lastY = minYValue = maxYValue = y;
+                return;
+            }
+            lastX = x;
+            lastY = y;
+            if (y < minYValue) { minYValue = y; minX = x; }
+            if (y > maxYValue) { maxYValue = y; maxX = x; }
+        }
+
+        /** Emits the current column as first, min and max in time order, then last. */
+        private void flushColumn() {
+            if (column == Long.MIN_VALUE) return;
+            out.add(firstX, firstY);
+            boolean minFirst = minX <= maxX;
+            emitExtreme(minFirst ? minX : maxX, minFirst ? minYValue : maxYValue);
+            emitExtreme(minFirst ? maxX : minX, minFirst ? maxYValue : minYValue);
+            if (lastX != firstX || lastY != firstY) emitExtreme(lastX, lastY);
+            column = Long.MIN_VALUE;
+        }
+
+        private void emitExtreme(double x, double y) {
+            int last = out.pointCount - 1;
+            if (out.xs[last] != x || out.ys[last] != y) out.add(x, y);
+        }
+
+        private void addPointSample(long ts, double value) {
+            if (Double.isNaN(value)) return;
+            double x = toX(ts), y = toY(value);
+            // Rows of the current column that already have a point; the dot radius is 2 pixels.
+            int row = (int) Math.floor(y) + POINT_RADIUS;
+            if (row < 0 || row >= pointRowsSeen.length * 64) return; // Entirely above or below the plot
+            long c = (long) Math.floor(x);
+            if (c != column) {
+                column = c;
+                Arrays.fill(pointRowsSeen, 0L);
+            }
+            long mask = 1L << (row & 63);
+            if ((pointRowsSeen[row >>> 6] & mask) != 0) return;
+            pointRowsSeen[row >>> 6] |= mask;
+            out.add(x, y);
+        }
+    }
+}
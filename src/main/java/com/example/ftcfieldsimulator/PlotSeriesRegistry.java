@@ -0,0 +1,117 @@
+package com.example.ftcfieldsimulator;
+
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns dense integer ids to plot series and holds their presentation state.
+ *
+ * A series is identified by its kind (line or point, axis 1 or 2, see the PlotDataStore.KIND_*
+ * constants) and the style number the robot sends with each sample. Ids start at 0 and are handed
+ * out in order of first appearance, so per-series state anywhere in the plot can live in plain
+ * arrays indexed by id.
+ *
+ * Style numbers 1 to 10 use the built-in palette; any other number gets a generated style (hues
+ * spaced by the golden ratio, cycling dash patterns), so there is no cap on the number of series.
+ *
+ * Concurrency: every method is synchronized on this instance. The store assigns ids while holding
+ * its own lock; the registry never calls back into the store.
+ */
+public class PlotSeriesRegistry {
+
+    /** How a series is drawn. */
+    public static final class SeriesStyle {
+        public final Color color;
+        public final double width;
+        public final double[] dashArray; // null for a solid line
+
+        SeriesStyle(Color color, double width, double[] dashArray) {
+            this.color = color; this.width = width; this.dashArray = dashArray;
+        }
+    }
+
+    private static final SeriesStyle[] BUILT_IN_STYLES = {
+            new SeriesStyle(Color.RED, 2, null), new SeriesStyle(Color.BLUE, 2, null),
+            new SeriesStyle(Color.GREEN, 2, null), new SeriesStyle(Color.ORANGE, 2, null),
+            new SeriesStyle(Color.CYAN, 2, null), new SeriesStyle(Color.PURPLE, 2, new double[]{5,3}),
+            new SeriesStyle(Color.LIMEGREEN, 2, new double[]{8,4}), new SeriesStyle(Color.HOTPINK, 2, new double[]{2,3}),
+            new SeriesStyle(Color.TEAL, 2, new double[]{3,4}), new SeriesStyle(Color.BLACK, 1, null)
+    };
+    private static final double[][] GENERATED_DASHES = { null, {6,3}, {2,3}, {10,3,2,3} };
+    private static final double GOLDEN_RATIO_CONJUGATE = 0.618033988749895;
+    private static final Map<Integer, SeriesStyle> generatedStyles = new HashMap<>();
+
+    private final Map<Long, Integer> idsByKey = new HashMap<>();
+    private int count = 0;
+    private int[] kinds = new int[16];
+    private int[] styleNumbers = new int[16];
+    private SeriesStyle[] styles = new SeriesStyle[16];
+    private String[] names = new String[16];
+    private boolean[] hidden = new boolean[16];
+
+    private static long key(int kind, int styleNumber) { return ((long) styleNumber << 8) | kind; }
+
+    /** @return the id of the series, registering it if it is new. */
+    public synchronized int idFor(int kind, int styleNumber) {
+        Integer id = idsByKey.get(key(kind, styleNumber));
+        if (id != null) return id;
+        if (count == kinds.length) {
+            int capacity = count * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            styleNumbers = Arrays.copyOf(styleNumbers, capacity);
+            styles = Arrays.copyOf(styles, capacity);
+            names = Arrays.copyOf(names, capacity);
+            hidden = Arrays.copyOf(hidden, capacity);
+        }
+        kinds[count] = kind;
+        styleNumbers[count] = styleNumber;
+        styles[count] = styleFor(styleNumber);
+        idsByKey.put(key(kind, styleNumber), count);
+        return count++;
+    }
+
+    /** @return the id of the series, or -1 if it has not been seen. */
+    public synchronized int find(int kind, int styleNumber) {
+        Integer id = idsByKey.get(key(kind, styleNumber));
+        return id != null ? id : -1;
+    }
+
+    /** @return the number of registered series; valid ids are 0 to size() - 1. */
+    public synchronized int size() { return count; }
+
+    public synchronized int getKind(int id) { return kinds[id]; }
+    public synchronized int getStyleNumber(int id) { return styleNumbers[id]; }
+    public synchronized SeriesStyle getStyle(int id) { return styles[id]; }
+    public synchronized boolean isLine(int id) { return kinds[id] == PlotDataStore.KIND_LINE || kinds[id] == PlotDataStore.KIND_LINE2; }
+    public synchronized boolean isSecondaryAxis(int id) { return kinds[id] == PlotDataStore.KIND_LINE2 || kinds[id] == PlotDataStore.KIND_POINT2; }
+
+    /** @return the display name, or null if the robot has not named this series. */
+    public synchronized String getName(int id) { return names[id]; }
+    public synchronized void setName(int id, String name) { names[id] = name; }
+
+    public synchronized boolean isVisible(int id) { return !hidden[id]; }
+    public synchronized void setVisible(int id, boolean visible) { hidden[id] = !visible; }
+
+    public synchronized void clear() {
+        idsByKey.clear();
+        Arrays.fill(styles, 0, count, null);
+        Arrays.fill(names, 0, count, null);
+        Arrays.fill(hidden, 0, count, false);
+        count = 0;
+    }
+
+    /** @return the style for a style number: the built-in palette for 1 to 10, generated otherwise. */
+    public static SeriesStyle styleFor(int styleNumber) {
+        if (styleNumber >= 1 && styleNumber <= BUILT_IN_STYLES.length) return BUILT_IN_STYLES[styleNumber - 1];
+        synchronized (generatedStyles) {
+            return generatedStyles.computeIfAbsent(styleNumber, n -> {
+                double hue = ((n * GOLDEN_RATIO_CONJUGATE) % 1.0 + 1.0) % 1.0 * 360.0;
+                double[] dashes = GENERATED_DASHES[Math.floorMod(n, GENERATED_DASHES.length)];
+                return new SeriesStyle(Color.hsb(hue, 0.85, 0.75), 2, dashes);
+            });
+        }
+    }
+}
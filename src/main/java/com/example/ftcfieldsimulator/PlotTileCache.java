@@ -0,0 +1,156 @@
+package com.example.ftcfieldsimulator;
+
+import javafx.scene.image.Image;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * LRU cache of rendered data-layer tiles, so that panning back over history the plot has already
+ * drawn, or toggling a series back on, is a few image blits instead of a geometry build.
+ *
+ * A tile is a {@link #TILE_WIDTH} pixel wide strip of the data layer in content coordinates
+ * (x = (t - firstTimestamp) * pixelsPerMs). It is keyed by its index plus everything else its pixels
+ * depend on, the {@link Config}: time origin, zoom, the series drawn, the Y limits and the output
+ * size. A change of any of those misses, and the tiles of the old setting age out. Data appended into
+ * a tile's time range invalidates it; ranges are collected in O(1) as samples arrive and applied
+ * before the next lookup, so a burst of samples costs one pass over the tiles.
+ *
+ * Memory is bounded by a byte budget, least recently used tiles going first.
+ *
+ * Not thread safe; used on the FX thread.
+ */
+public class PlotTileCache {
+
+    public static final double TILE_WIDTH = 256;
+    public static final long DEFAULT_BUDGET_BYTES = Long.getLong("ftcsim.plot.tileCacheMb", 64) * 1024 * 1024;
+    /** How far past its time range a sample's pixels may reach (point radius, line width). */
+    public static final double EDGE_MARGIN_PX = 4;
+
+    /** Everything other than its position that a tile's pixels depend on. */
+    public static final class Config {
+        final long firstTimestamp;
+        final double pixelsPerMs;
+        final BitSet series;
+        final double minY, maxY, minY2, maxY2;
+        final double height, scale;
+
+        /** The series set is the ids drawn; it is copied. */
+        public Config(long firstTimestamp, double pixelsPerMs, BitSet series, double minY, double maxY,
+                      double minY2, double maxY2, double height, double scale) {
+            this.firstTimestamp = firstTimestamp;
+            this.pixelsPerMs = pixelsPerMs;
+            this.series = (BitSet) series.clone();
+            this.minY = minY; this.maxY = maxY; this.minY2 = minY2; this.maxY2 = maxY2;
+            this.height = height;
+            this.scale = scale;
+        }
+
+        /** @return the first time whose samples can show in the tile, for reading its data. */
+        public long tileStartTime(long index) {
+            return firstTimestamp + (long) Math.floor((index * TILE_WIDTH - EDGE_MARGIN_PX) / pixelsPerMs);
+        }
+
+        /** @return the last time whose samples can show in the tile. */
+        public long tileEndTime(long index) {
+            return firstTimestamp + (long) Math.ceil(((index + 1) * TILE_WIDTH + EDGE_MARGIN_PX) / pixelsPerMs);
+        }
+
+        /** @return true if drawing in the time range, widened by marginPx on both sides, touches the tile. */
+        public boolean touches(long index, long fromTs, long toTs, double marginPx) {
+            double fromX = (fromTs - firstTimestamp) * pixelsPerMs - marginPx;
+            double toX = (toTs - firstTimestamp) * pixelsPerMs + marginPx;
+            return fromX <= (index + 1) * TILE_WIDTH && toX >= index * TILE_WIDTH;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Config c)) return false;
+            return firstTimestamp == c.firstTimestamp && pixelsPerMs == c.pixelsPerMs && series.equals(c.series)
+                    && minY == c.minY && maxY == c.maxY && minY2 == c.minY2 && maxY2 == c.maxY2
+                    && height == c.height && scale == c.scale;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(firstTimestamp, pixelsPerMs, series, minY, maxY, minY2, maxY2, height, scale);
+        }
+    }
+
+    private record Key(Config config, long index) {}
+
+    private final LinkedHashMap<Key, Image> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private long budgetBytes = DEFAULT_BUDGET_BYTES;
+    private long usedBytes = 0;
+
+    // Invalidation not yet applied to the tiles: the union of the ranges marked since the last lookup.
+    private long dirtyFromTs = Long.MAX_VALUE, dirtyToTs = Long.MIN_VALUE;
+    private double dirtyMarginPx = 0;
+
+    /** @return the tile, or null if it is not cached. */
+    public Image get(Config config, long index) {
+        applyInvalidation();
+        return tiles.get(new Key(config, index));
+    }
+
+    public void put(Config config, long index, Image image) {
+        applyInvalidation();
+        Image old = tiles.put(new Key(config, index), image);
+        if (old != null) usedBytes -= bytesOf(old);
+        usedBytes += bytesOf(image);
+        trimToBudget();
+    }
+
+    /**
+     * Marks a time range as changed; the tiles it touches, widened by marginPx (e.g. for marker text),
+     * are dropped before the next lookup.
+     */
+    public void markDirty(long fromTs, long toTs, double marginPx) {
+        if (tiles.isEmpty()) return;
+        dirtyFromTs = Math.min(dirtyFromTs, fromTs);
+        dirtyToTs = Math.max(dirtyToTs, toTs);
+        dirtyMarginPx = Math.max(dirtyMarginPx, marginPx);
+    }
+
+    public void clear() {
+        tiles.clear();
+        usedBytes = 0;
+        dirtyFromTs = Long.MAX_VALUE;
+        dirtyToTs = Long.MIN_VALUE;
+    }
+
+    public void setBudgetBytes(long bytes) {
+        budgetBytes = bytes;
+        trimToBudget();
+    }
+
+    private void applyInvalidation() {
+        if (dirtyFromTs > dirtyToTs) return;
+        for (Iterator<Map.Entry<Key, Image>> it = tiles.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Key, Image> entry = it.next();
+            Key key = entry.getKey();
+            if (key.config.touches(key.index, dirtyFromTs, dirtyToTs, Math.max(dirtyMarginPx, EDGE_MARGIN_PX))) {
+                usedBytes -= bytesOf(entry.getValue());
+                it.remove();
+            }
+        }
+        dirtyFromTs = Long.MAX_VALUE;
+        dirtyToTs = Long.MIN_VALUE;
+        dirtyMarginPx = 0;
+    }
+
+    private void trimToBudget() {
+        for (Iterator<Image> it = tiles.values().iterator(); usedBytes > budgetBytes && it.hasNext(); ) {
+            usedBytes -= bytesOf(it.next());
+            it.remove();
+        }
+    }
+
+    private static long bytesOf(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.ftcfieldsimulator;
+
+/**
+ * An oscilloscope-style trigger on the plot stream.
+ *
+ * Evaluation costs O(1) per sample: the threshold conditions compare each sample with the previous
+ * one, the delta condition tracks the extrema of its time window with the monotonic deques of an
+ * {@link AxisAutoRange} (O(1) amortized), and the key-value condition remembers whether its key
+ * held the value before.
+ *
+ * A trigger fires on the edge into its condition, then stays disarmed until its post-trigger window
+ * has passed, so one event yields one capture. NaN samples are gaps and restart the threshold and
+ * delta conditions.
+ */
+public class PlotTrigger {
+
+    public enum Condition {
+        RISING("Rising through"),
+        FALLING("Falling through"),
+        DELTA("Change within"),
+        KEY_VALUE("Key-value equals");
+
+        private final String label;
+
+        Condition(String label) { this.label = label; }
+
+        /** @return true if the condition watches a numeric series rather than a key. */
+        public boolean usesSeries() { return this != KEY_VALUE; }
+
+        @Override public String toString() { return label; }
+    }
+
+    /** What the user asked for. */
+    public static final class Definition {
+        public final Condition condition;
+        public final DerivedChannel.Source source; // null for KEY_VALUE
+        public final double threshold;             // RISING/FALLING level, DELTA minimum change
+        public final long deltaWindowMs;           // DELTA only
+        public final String key, value;            // KEY_VALUE only
+        public final long preMs, postMs;
+        public final String name;
+
+        public Definition(Condition condition, DerivedChannel.Source source, double threshold, long deltaWindowMs,
+                          String key, String value, long preMs, long postMs, String name) {
+            this.condition = condition; this.source = source; this.threshold = threshold; this.deltaWindowMs = deltaWindowMs;
+            this.key = key; this.value = value; this.preMs = preMs; this.postMs = postMs; this.name = name;
+        }
+    }
+
+    private final Definition definition;
+
+    // --- Incremental state ---
+    private double lastValue = Double.NaN;
+    private AxisAutoRange deltaWindow;       // DELTA: extrema of the last deltaWindowMs
+    private boolean conditionHeld = false;   // DELTA and KEY_VALUE: fire on the edge only
+    private long disarmedUntil = Long.MIN_VALUE;
+    private int fireCount = 0;
+
+    public PlotTrigger(Definition definition) {
+        if (definition.condition.usesSeries() && definition.source == null) throw new IllegalArgumentException(definition.condition + " needs a series");
+        if (!definition.condition.usesSeries() && (definition.key == null || definition.value == null)) throw new IllegalArgumentException("Key-value trigger needs a key and a value");
+        if (definition.condition == Condition.DELTA && (definition.deltaWindowMs <= 0 || definition.threshold <= 0)) throw new IllegalArgumentException("Delta trigger needs a positive change and window");
+        if (definition.preMs < 0 || definition.postMs < 0) throw new IllegalArgumentException("Capture windows cannot be negative");
+        this.definition = definition;
+        if (definition.condition == Condition.DELTA) deltaWindow = new AxisAutoRange();
+    }
+
+    public Definition getDefinition() { return definition; }
+
+    /** @return how many times the trigger has fired, for naming captures. */
+    public int getFireCount() { return fireCount; }
+
+    /** @return true if the sample fires the trigger. */
+    public boolean onSample(long timestamp, double value) {
+        boolean met;
+        switch (definition.condition) {
+            case RISING:
+                met = !Double.isNaN(lastValue) && lastValue < definition.threshold && value >= definition.threshold;
+                lastValue = value;
+                break;
+            case FALLING:
+                met = !Double.isNaN(lastValue) && lastValue > definition.threshold && value <= definition.threshold;
+                lastValue = value;
+                break;
+            case DELTA:
+                if (Double.isNaN(value)) { deltaWindow.reset(); conditionHeld = false; return false; }
+                deltaWindow.addSample(timestamp, value);
+                deltaWindow.evictBefore(timestamp - definition.deltaWindowMs);
+                boolean held = deltaWindow.getWindowMax() - deltaWindow.getWindowMin() >= definition.threshold;
+                met = held && !conditionHeld;
+                conditionHeld = held;
+                break;
+            default:
+                return false;
+        }
+        return met && fire(timestamp);
+    }
+
+    /** @return true if a new value of the trigger's key fires it. */
+    public boolean onKeyValue(long timestamp, String value) {
+        boolean held = definition.value.equals(value);
+        boolean met = held && !conditionHeld;
+        conditionHeld = held;
+        return met && fire(timestamp);
+    }
+
+    private boolean fire(long timestamp) {
+        if (timestamp < disarmedUntil) return false;
+        disarmedUntil = timestamp + definition.postMs + 1;
+        fireCount++;
+        return true;
+    }
+
+    /** Clears the incremental state, e.g. when the plot is cleared; the definition is kept. */
+    public void reset() {
+        lastValue = Double.NaN;
+        if (deltaWindow != null) deltaWindow.reset();
+        conditionHeld = false;
+        disarmedUntil = Long.MIN_VALUE;
+    }
+
+    @Override public String toString() { return definition.name; }
+}
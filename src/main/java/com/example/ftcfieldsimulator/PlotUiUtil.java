@@ -0,0 +1,28 @@
+package com.example.ftcfieldsimulator;
+
+import javafx.scene.control.ComboBox;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/** Helpers shared by the plot window's controls and panes. */
+public final class PlotUiUtil {
+
+    private PlotUiUtil() {}
+
+    /**
+     * Fills a series chooser from the supplier each time its list opens, since the series change as
+     * data arrives, and keeps the selected series selected across the refresh.
+     */
+    public static void bindSeriesSources(ComboBox<DerivedChannel.Source> cmb, Supplier<List<DerivedChannel.Source>> sources) {
+        cmb.setOnShowing(e -> {
+            DerivedChannel.Source current = cmb.getValue();
+            cmb.getItems().setAll(sources.get());
+            if (current != null) {
+                for (DerivedChannel.Source source : cmb.getItems()) {
+                    if (source.matches(current.kind, current.style)) cmb.setValue(source);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.ftcfieldsimulator;
+
+import com.example.ftcfieldsimulator.RecordingManager.RecordedEvent;
+import com.example.ftcfieldsimulator.UdpPositionListener.PositionData;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of a recording for the timeline: the timestamp of every event, and the event indices of the
+ * PositionData events, both in primitive arrays appended as events are recorded or loaded.
+ *
+ * Snapping to a pose, finding the previous or next pose and converting a time to an event index are
+ * binary searches instead of scans with instanceof checks. A recording file with a stored
+ * {@link RecordingIndex} is not indexed again; lookups are passed to that index.
+ *
+ * Not thread safe; the recording manager guards it with its state lock.
+ */
+public class PositionEventIndex {
+
+    private long[] timestamps = new long[1024];
+    private int eventCount = 0;
+    private int[] positions = new int[256];
+    private int positionCount = 0;
+
+    // For a file that carries its own index, lookups go to it and the arrays above stay empty
+    private RecordingView view;
+    private RecordingIndex fileIndex;
+
+    public void append(RecordedEvent event) {
+        append(event.timestamp, event.messageData instanceof PositionData);
+    }
+
+    private void append(long timestamp, boolean isPosition) {
+        if (eventCount == timestamps.length) timestamps = Arrays.copyOf(timestamps, eventCount * 2);
+        if (isPosition) {
+            if (positionCount == positions.length) positions = Arrays.copyOf(positions, positionCount * 2);
+            positions[positionCount++] = eventCount;
+        }
+        timestamps[eventCount++] = timestamp;
+    }
+
+    /**
+     * Indexes a whole session. A file-backed view uses the index stored in the file if there is one,
+     * and is otherwise indexed from its records without decoding them.
+     */
+    public void rebuild(List<RecordedEvent> session) {
+        clear();
+        if (session instanceof RecordingView v && v.getIndex() != null) {
+            view = v;
+            fileIndex = v.getIndex();
+            return;
+        }
+        int n = session.size();
+        timestamps = new long[Math.max(n, 1024)];
+        if (session instanceof RecordingView v) {
+            for (int i = 0; i < n; i++) append(v.getTimestamp(i), v.isPosition(i));
+        } else {
+            for (int i = 0; i < n; i++) append(session.get(i).timestamp, session.get(i).messageData instanceof PositionData);
+        }
+    }
+
+    public void clear() {
+        eventCount = 0;
+        positionCount = 0;
+        view = null;
+        fileIndex = null;
+    }
+
+    public int getPositionCount() {
+        return fileIndex != null ? fileIndex.getPositionCount() : positionCount;
+    }
+
+    /** @return the event index of the i-th pose. */
+    public int getPosition(int i) {
+        return fileIndex != null ? fileIndex.getPosition(view, i) : positions[i];
+    }
+
+    /** @return the number of poses at event indices up to and including index. */
+    public int countPositionsThrough(int index) {
+        if (fileIndex != null) return fileIndex.countPositionsThrough(view, index);
+        int lo = 0, hi = positionCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (positions[mid] <= index) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /** @return the event index of the last pose before index, or -1. */
+    public int previousPosition(int index) {
+        int i = countPositionsThrough(index - 1);
+        return i == 0 ? -1 : getPosition(i - 1);
+    }
+
+    /** @return the event index of the first pose after index, or -1. */
+    public int nextPosition(int index) {
+        int i = countPositionsThrough(index);
+        return i == getPositionCount() ? -1 : getPosition(i);
+    }
+
+    /** @return the event index of the pose nearest to index, the earlier one on a tie, or -1 if there are none. */
+    public int nearestPosition(int index) {
+        int i = countPositionsThrough(index);
+        int before = i == 0 ? -1 : getPosition(i - 1);
+        int after = i == getPositionCount() ? -1 : getPosition(i);
+        if (before < 0) return after;
+        if (after < 0) return before;
+        return index - before <= after - index ? before : after;
+    }
+
+    /** @return the index of the last event at or before the timestamp, or 0 if there is none. */
+    public int eventIndexAtTime(long timestamp) {
+        if (fileIndex != null) return fileIndex.eventIndexAtTime(view, timestamp);
+        int lo = 0, hi = eventCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] <= timestamp) lo = mid + 1; else hi = mid;
+        }
+        return Math.max(lo - 1, 0);
+    }
+}
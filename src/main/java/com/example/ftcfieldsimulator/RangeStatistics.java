@@ -0,0 +1,114 @@
+package com.example.ftcfieldsimulator;
+
+/**
+ * Statistics of one series over a time window, as computed by {@link PlotDataStore#rangeStatistics}.
+ *
+ * The samples are accumulated in time order, either one by one (the chunks at the window edges) or
+ * as a whole run of chunks at once (from the store's {@link ChunkStatsIndex}). NaN samples are gaps:
+ * they are not counted and the integral does not bridge them.
+ *
+ * The step response figures treat the window as a step from its first to its last value: overshoot
+ * is how far the signal went past the final value, as a percentage of the step, and the settling
+ * time is how long after the window's first sample the signal last left a band of
+ * {@link #SETTLING_BAND} times the step around the final value. Both are NaN for a flat window or
+ * one that ends in a gap.
+ */
+public final class RangeStatistics {
+
+    public static final double SETTLING_BAND = 0.02;
+
+    private final long fromTs, toTs;
+    private long count = 0;
+    private double sum = 0, sumSq = 0, integralMs = 0;
+    private double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+    private long firstTs = Long.MIN_VALUE, lastTs = Long.MIN_VALUE;
+    private double firstValue = Double.NaN, lastValue = Double.NaN;
+    private long lastOutsideBandTs = Long.MIN_VALUE;
+
+    RangeStatistics(long fromTs, long toTs) {
+        this.fromTs = fromTs;
+        this.toTs = toTs;
+    }
+
+    void addSample(long ts, double value) {
+        if (!Double.isNaN(value)) {
+            if (count == 0) { firstTs = ts; firstValue = value; }
+            count++;
+            sum += value;
+            sumSq += value * value;
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+        // The trapezoid from the previous sample; undefined across a gap or out-of-order sample.
+        if (!Double.isNaN(lastValue) && !Double.isNaN(value) && ts >= lastTs) integralMs += (ts - lastTs) * (lastValue + value) / 2.0;
+        lastTs = ts;
+        lastValue = value;
+    }
+
+    /** Adds a run of samples summarised by its aggregates and its first and last sample. */
+    void addRun(long runCount, double runSum, double runSumSq, double runIntegralMs, double runMin, double runMax,
+                long runFirstTs, double runFirstValue, long runLastTs, double runLastValue) {
+        addSample(runFirstTs, runFirstValue);
+        // The first sample was counted by addSample; the run's aggregates include it too.
+        if (!Double.isNaN(runFirstValue)) {
+            count--;
+            sum -= runFirstValue;
+            sumSq -= runFirstValue * runFirstValue;
+        }
+        count += runCount;
+        sum += runSum;
+        sumSq += runSumSq;
+        integralMs += runIntegralMs;
+        if (runMin < min) min = runMin;
+        if (runMax > max) max = runMax;
+        lastTs = runLastTs;
+        lastValue = runLastValue;
+    }
+
+    /** Records a sample for the settling time; see {@link #isOutsideBand}. */
+    void noteOutsideBand(long ts) {
+        if (ts > lastOutsideBandTs) lastOutsideBandTs = ts;
+    }
+
+    boolean hasLeftBand() { return lastOutsideBandTs != Long.MIN_VALUE; }
+
+    /** @return the value of the window's last sample (NaN if the window ends in a gap). */
+    double finalValue() { return lastValue; }
+
+    double bandLow() { return finalValue() - Math.abs(step()) * SETTLING_BAND; }
+    double bandHigh() { return finalValue() + Math.abs(step()) * SETTLING_BAND; }
+    boolean isOutsideBand(double value) { return value < bandLow() || value > bandHigh(); }
+    private double step() { return finalValue() - firstValue; }
+
+    public long getFromTimestamp() { return fromTs; }
+    public long getToTimestamp() { return toTs; }
+    public long getCount() { return count; }
+    public double getMin() { return count > 0 ? min : Double.NaN; }
+    public double getMax() { return count > 0 ? max : Double.NaN; }
+    public double getMean() { return count > 0 ? sum / count : Double.NaN; }
+    public double getRms() { return count > 0 ? Math.sqrt(sumSq / count) : Double.NaN; }
+
+    /** @return the population standard deviation. */
+    public double getStdDev() {
+        if (count == 0) return Double.NaN;
+        double mean = sum / count;
+        return Math.sqrt(Math.max(0, sumSq / count - mean * mean));
+    }
+
+    /** @return the trapezoidal integral over time, in value-seconds. */
+    public double getIntegral() { return integralMs / 1000.0; }
+
+    public double getOvershootPercent() {
+        double step = step();
+        if (count == 0 || Double.isNaN(step) || step == 0) return Double.NaN;
+        double beyond = step > 0 ? max - finalValue() : finalValue() - min;
+        return Math.max(0, beyond) / Math.abs(step) * 100.0;
+    }
+
+    /** @return the settling time in seconds after the window's first sample. */
+    public double getSettlingTime() {
+        double step = step();
+        if (count == 0 || Double.isNaN(step) || step == 0) return Double.NaN;
+        return !hasLeftBand() ? 0 : (lastOutsideBandTs - firstTs) / 1000.0;
+    }
+}
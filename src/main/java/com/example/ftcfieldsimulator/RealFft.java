@@ -0,0 +1,84 @@
+package com.example.ftcfieldsimulator;
+
+/**
+ * Radix-2 FFT of real input, for a fixed power-of-two size.
+ *
+ * The n real samples are packed into n/2 complex values (even samples as real parts, odd samples as
+ * imaginary parts), transformed with an iterative in-place complex FFT of size n/2, then split into
+ * the spectrum of the real signal. Twiddle factors and the bit-reversal permutation are computed
+ * once in the constructor and all work buffers are reused, so a transform allocates nothing.
+ *
+ * Not thread safe: an instance owns its buffers.
+ */
+public class RealFft {
+
+    private final int n, half;
+    private final double[] cos, sin;   // cos/sin(2*pi*k/n), k = 0..n/2
+    private final int[] bitReverse;    // Permutation for the size n/2 complex FFT
+    private final double[] re, im;     // Work buffers, size n/2
+
+    public RealFft(int n) {
+        if (n < 4 || Integer.bitCount(n) != 1) throw new IllegalArgumentException("FFT size must be a power of two >= 4: " + n);
+        this.n = n;
+        this.half = n / 2;
+        cos = new double[half + 1];
+        sin = new double[half + 1];
+        for (int k = 0; k <= half; k++) {
+            cos[k] = Math.cos(2 * Math.PI * k / n);
+            sin[k] = Math.sin(2 * Math.PI * k / n);
+        }
+        bitReverse = new int[half];
+        int bits = Integer.numberOfTrailingZeros(half);
+        for (int i = 0; i < half; i++) bitReverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        re = new double[half];
+        im = new double[half];
+    }
+
+    public int size() { return n; }
+
+    /**
+     * Transforms input[0..n) and writes the magnitude |X[k]| of bins k = 0..n/2 into
+     * magnitudes[0..n/2]. The input is not modified.
+     */
+    public void magnitudes(double[] input, double[] magnitudes) {
+        for (int i = 0; i < half; i++) {
+            int j = bitReverse[i];
+            re[j] = input[2 * i];
+            im[j] = input[2 * i + 1];
+        }
+        transformBitReversed();
+
+        // Split the half-size transform Z into the spectrum X of the real input:
+        // X[k] = (Z[k] + conj(Z[m-k])) / 2 - i * e^(-2 pi i k / n) * (Z[k] - conj(Z[m-k])) / 2
+        for (int k = 0; k <= half; k++) {
+            int a = k % half, b = (half - k) % half;
+            double zr = re[a], zi = im[a], cr = re[b], ci = -im[b];
+            double evenRe = (zr + cr) / 2, evenIm = (zi + ci) / 2;
+            double oddRe = (zi - ci) / 2, oddIm = -(zr - cr) / 2;
+            double wr = cos[k], wi = -sin[k];
+            double xr = evenRe + wr * oddRe - wi * oddIm;
+            double xi = evenIm + wr * oddIm + wi * oddRe;
+            magnitudes[k] = Math.sqrt(xr * xr + xi * xi);
+        }
+    }
+
+    /** Iterative radix-2 complex FFT of size n/2 over re/im, which hold the input in bit-reversed order. */
+    private void transformBitReversed() {
+        for (int size = 2; size <= half; size <<= 1) {
+            int halfSize = size >> 1;
+            int twiddleStep = 2 * (half / size); // e^(-2 pi i j / size) is entry 2*j*(m/size) of the size-n table
+            for (int start = 0; start < half; start += size) {
+                for (int j = 0; j < halfSize; j++) {
+                    double wr = cos[j * twiddleStep], wi = -sin[j * twiddleStep];
+                    int p = start + j, q = p + halfSize;
+                    double tr = wr * re[q] - wi * im[q];
+                    double ti = wr * im[q] + wi * re[q];
+                    re[q] = re[p] - tr;
+                    im[q] = im[p] - ti;
+                    re[p] += tr;
+                    im[p] += ti;
+                }
+            }
+        }
+    }
+}
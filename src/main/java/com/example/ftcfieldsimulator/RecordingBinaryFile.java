@@ -0,0 +1,310 @@
+package com.example.ftcfieldsimulator;
+
+import com.example.ftcfieldsimulator.RecordingManager.RecordedEvent;
+import com.example.ftcfieldsimulator.UdpPositionListener.CircleData;
+import com.example.ftcfieldsimulator.UdpPositionListener.KeyValueData;
+import com.example.ftcfieldsimulator.UdpPositionListener.LineData;
+import com.example.ftcfieldsimulator.UdpPositionListener.PositionData;
+import com.example.ftcfieldsimulator.UdpPositionListener.TextData;
+import com.example.ftcfieldsimulator.UdpPositionListener.UdpMessageData;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.IntConsumer;
+
+/**
+ * Reads and writes recordings in the binary ".recb" format, which is opened by memory-mapping it and
+ * decoding events only when they are asked for.
+ *
+ * Layout (all numbers big-endian):
+ * <pre>
+ *   header (64 bytes): magic "FTCRECBF", int version, int recordSize, long eventCount,
+ *                      long recordsOffset, long heapOffset, long dictionaryOffset, int dictionaryCount,
+ *                      int reserved, long indexOffset (0 if there is no index)
+ *   records:    eventCount fixed-size records of {@link #RECORD_SIZE} bytes:
+ *               long timestamp, byte type, 3 unused, int a, int b, int unused, 4 doubles
+ *                 POS:  d0..d2 = x, y, heading
+ *                 CIR:  d0, d1 = radius, heading
+ *                 LINE: a = name (dictionary id), b = style, d0..d3 = x1, y1, x2, y2
+ *                 TEXT: d0 holds the text's heap offset as a long
+ *                 KV:   a = key (dictionary id), d0 holds the value's heap offset as a long
+ *   heap:       free-form strings (text, key-value values), each an int byte length and UTF-8 bytes
+ *   dictionary: dictionaryCount strings (line names and keys), in id order
+ *   index:      the {@link RecordingIndex}
+ * </pre>
+ * Event i is at recordsOffset + i * RECORD_SIZE, so any event is found without reading the ones
+ * before it. Opening maps the file and reads only the header and the dictionary; the pages of the
+ * records are brought in by the OS as they are viewed.
+ */
+public final class RecordingBinaryFile {
+
+    public static final String EXTENSION = ".recb";
+    public static final int RECORD_SIZE = 56;
+
+    private static final byte[] MAGIC = "FTCRECBF".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int BUFFER_SIZE = 1 << 20;
+    /** Longest string a heap entry may hold; more than a UDP datagram. */
+    private static final int MAX_STRING_BYTES = 1 << 16;
+
+    private static final byte TYPE_POS = 1, TYPE_CIR = 2, TYPE_LINE = 3, TYPE_TEXT = 4, TYPE_KV = 5;
+
+    private RecordingBinaryFile() {}
+
+    /** @return true if the file starts with the .recb magic, whatever its extension. */
+    public static boolean isBinaryRecording(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) { }
+            return !magic.hasRemaining() && ByteBuffer.wrap(MAGIC).equals(magic.flip());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static void write(File file, List<RecordedEvent> events) throws IOException {
+        write(file, events, count -> {});
+    }
+
+    /**
+     * @param progress called with the number of events written so far, every
+     *                 {@link RecordingTextFormat#PROGRESS_INTERVAL} events and once at the end.
+     */
+    public static void write(File file, List<RecordedEvent> events, IntConsumer progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            ChannelWriter out = new ChannelWriter(channel);
+
+            // --- Records; heap offsets are assigned here and the strings written in a second pass ---
+            RecordingIndex.Builder index = new RecordingIndex.Builder();
+            Map<String, Integer> dictionaryIds = new HashMap<>();
+            List<String> dictionary = new ArrayList<>();
+            long eventCount = 0, heapLength = 0;
+            int written = 0;
+            for (RecordedEvent event : events) {
+                if (++written % RecordingTextFormat.PROGRESS_INTERVAL == 0) progress.accept(written);
+                UdpMessageData data = event.messageData;
+                byte type = typeOf(data);
+                if (type == 0) continue;
+                int a = 0, b = 0;
+                double d0 = 0, d1 = 0, d2 = 0, d3 = 0;
+                long heapRef = -1;
+                if (data instanceof PositionData p) { d0 = p.x; d1 = p.y; d2 = p.heading; }
+                else if (data instanceof CircleData c) { d0 = c.radiusInches; d1 = c.heading; }
+                else if (data instanceof LineData l) {
+                    a = dictionaryIds.computeIfAbsent(l.name, name -> { dictionary.add(name); return dictionary.size() - 1; });
+                    b = l.styleCode;
+                    d0 = l.x1; d1 = l.y1; d2 = l.x2; d3 = l.y2;
+                } else if (data instanceof TextData t) {
+                    heapRef = heapLength;
+                    heapLength += 4 + utf8Length(t.text);
+                } else if (data instanceof KeyValueData kv) {
+                    a = dictionaryIds.computeIfAbsent(kv.key, key -> { dictionary.add(key); return dictionary.size() - 1; });
+                    heapRef = heapLength;
+                    heapLength += 4 + utf8Length(kv.value);
+                }
+                out.putLong(event.timestamp);
+                out.putByte(type);
+                out.putByte((byte) 0); out.putByte((byte) 0); out.putByte((byte) 0);
+                out.putInt(a);
+                out.putInt(b);
+                out.putInt(0);
+                if (heapRef >= 0) out.putLong(heapRef); else out.putDouble(d0);
+                out.putDouble(d1);
+                out.putDouble(d2);
+                out.putDouble(d3);
+                index.add(event.timestamp, data);
+                eventCount++;
+            }
+
+            // --- Heap, in record order ---
+            long heapOffset = HEADER_SIZE + eventCount * RECORD_SIZE;
+            for (RecordedEvent event : events) {
+                if (event.messageData instanceof TextData t) out.putString(t.text);
+                else if (event.messageData instanceof KeyValueData kv) out.putString(kv.value);
+            }
+
+            // --- Dictionary ---
+            long dictionaryOffset = heapOffset + heapLength;
+            for (String s : dictionary) out.putString(s);
+
+            // --- Index ---
+            out.flush();
+            long indexOffset = channel.position();
+            out.putBytes(index.toByteArray());
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.put(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putLong(eventCount)
+                    .putLong(HEADER_SIZE).putLong(heapOffset).putLong(dictionaryOffset).putInt(dictionary.size())
+                    .putInt(0).putLong(indexOffset);
+            header.clear();
+            while (header.hasRemaining()) channel.write(header, header.position());
+        }
+        progress.accept(events.size());
+    }
+
+    private static byte typeOf(UdpMessageData data) {
+        if (data instanceof PositionData) return TYPE_POS;
+        if (data instanceof CircleData) return TYPE_CIR;
+        if (data instanceof LineData) return TYPE_LINE;
+        if (data instanceof TextData) return TYPE_TEXT;
+        if (data instanceof KeyValueData) return TYPE_KV;
+        return 0;
+    }
+
+    private static int utf8Length(String s) {
+        return s == null ? 0 : s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Maps a .recb file. Only the header, the dictionary and the index's bucket table are read; the
+     * file can be deleted or replaced only once the returned recording is no longer used.
+     */
+    public static MappedRecording open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedFile mapped = new MappedFile(channel);
+            byte[] magic = new byte[MAGIC.length];
+            mapped.getBytes(0, magic, magic.length);
+            if (!ByteBuffer.wrap(MAGIC).equals(ByteBuffer.wrap(magic))) throw new IOException("Not a binary recording: " + file);
+            int version = mapped.getInt(8);
+            if (version > VERSION) throw new IOException("Unsupported recording version " + version + ": " + file);
+            if (mapped.getInt(12) != RECORD_SIZE) throw new IOException("Unexpected record size in " + file);
+            long eventCount = mapped.getLong(16), recordsOffset = mapped.getLong(24);
+            long heapOffset = mapped.getLong(32), dictionaryOffset = mapped.getLong(40);
+            int dictionaryCount = mapped.getInt(48);
+            if (eventCount < 0 || eventCount > Integer.MAX_VALUE || recordsOffset + eventCount * RECORD_SIZE > heapOffset
+                    || dictionaryOffset > mapped.size || dictionaryCount < 0) {
+                throw new IOException("Corrupt binary recording header: " + file);
+            }
+            String[] dictionary = new String[dictionaryCount];
+            long position = dictionaryOffset;
+            for (int i = 0; i < dictionaryCount; i++) {
+                dictionary[i] = mapped.getString(position, MAX_STRING_BYTES);
+                position += 4 + mapped.getInt(position);
+            }
+            long indexOffset = mapped.getLong(56);
+            RecordingIndex index = indexOffset > 0 ? RecordingIndex.read(mapped, indexOffset, (int) eventCount) : null;
+            return new MappedRecording(mapped, (int) eventCount, recordsOffset, heapOffset, dictionary, index);
+        }
+    }
+
+    /**
+     * A .recb file as a read-only list of events. Each get decodes its event afresh from the mapping,
+     * so nothing is kept on the heap beyond the dictionary; timestamps and types can be read without
+     * decoding, for indexing.
+     */
+    public static final class MappedRecording extends AbstractList<RecordedEvent> implements RandomAccess, RecordingView {
+        private final MappedFile mapped;
+        private final int size;
+        private final long recordsOffset, heapOffset;
+        private final String[] dictionary;
+        private final RecordingIndex index;
+
+        private MappedRecording(MappedFile mapped, int size, long recordsOffset, long heapOffset, String[] dictionary, RecordingIndex index) {
+            this.mapped = mapped;
+            this.size = size;
+            this.recordsOffset = recordsOffset;
+            this.heapOffset = heapOffset;
+            this.dictionary = dictionary;
+            this.index = index;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long getTimestamp(int index) {
+            return mapped.getLong(recordOffset(index));
+        }
+
+        @Override
+        public boolean isPosition(int index) {
+            return mapped.getByte(recordOffset(index) + 8) == TYPE_POS;
+        }
+
+        @Override
+        public RecordingIndex getIndex() {
+            return index;
+        }
+
+        @Override
+        public RecordedEvent get(int index) {
+            long r = recordOffset(index);
+            long timestamp = mapped.getLong(r);
+            byte type = mapped.getByte(r + 8);
+            int a = mapped.getInt(r + 12), b = mapped.getInt(r + 16);
+            long d = r + 24;
+            UdpMessageData data = switch (type) {
+                case TYPE_POS -> new PositionData(mapped.getDouble(d), mapped.getDouble(d + 8), mapped.getDouble(d + 16));
+                case TYPE_CIR -> new CircleData(mapped.getDouble(d), mapped.getDouble(d + 8));
+                case TYPE_LINE -> new LineData(dictionary[a], mapped.getDouble(d), mapped.getDouble(d + 8),
+                        mapped.getDouble(d + 16), mapped.getDouble(d + 24), b);
+                case TYPE_TEXT -> new TextData(mapped.getString(heapOffset + mapped.getLong(d), MAX_STRING_BYTES));
+                case TYPE_KV -> new KeyValueData(dictionary[a], mapped.getString(heapOffset + mapped.getLong(d), MAX_STRING_BYTES));
+                default -> throw new IllegalStateException("Corrupt record " + index + " (type " + type + ")");
+            };
+            return new RecordedEvent(timestamp, data);
+        }
+
+        private long recordOffset(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+            return recordsOffset + (long) index * RECORD_SIZE;
+        }
+    }
+
+    /** Buffered writes to a channel through a fixed-size byte buffer. */
+    private static final class ChannelWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        ChannelWriter(FileChannel channel) { this.channel = channel; }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        void putByte(byte b) throws IOException { ensure(1); buffer.put(b); }
+        void putInt(int v) throws IOException { ensure(4); buffer.putInt(v); }
+        void putLong(long v) throws IOException { ensure(8); buffer.putLong(v); }
+        void putDouble(double v) throws IOException { ensure(8); buffer.putDouble(v); }
+
+        /** An int byte length and the UTF-8 bytes; null is written as empty. */
+        void putString(String s) throws IOException {
+            byte[] bytes = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_STRING_BYTES) throw new IOException("String too long for a binary recording: " + bytes.length + " bytes");
+            putInt(bytes.length);
+            putBytes(bytes);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) flush();
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+    }
+}
@@ -0,0 +1,657 @@
+package com.example.ftcfieldsimulator;
+
+import com.example.ftcfieldsimulator.RecordingManager.RecordedEvent;
+import com.example.ftcfieldsimulator.UdpPositionListener.CircleData;
+import com.example.ftcfieldsimulator.UdpPositionListener.KeyValueData;
+import com.example.ftcfieldsimulator.UdpPositionListener.LineData;
+import com.example.ftcfieldsimulator.UdpPositionListener.PositionData;
+import com.example.ftcfieldsimulator.UdpPositionListener.TextData;
+import com.example.ftcfieldsimulator.UdpPositionListener.UdpMessageData;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.IntConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes recordings in the compressed ".recz" format, for archiving long sessions.
+ *
+ * Events are stored in blocks of {@link #BLOCK_EVENTS}. Within a block each column is encoded on its
+ * own, with variable-length integers (zigzag, 7 bits a byte):
+ * <pre>
+ *   timestamps: delta from the previous event (the first from the block's first timestamp)
+ *   types:      one byte per event
+ *   payloads:   POS:  x, y, heading in {@link #SCALE}ths, each a delta from the previous pose's
+ *               CIR:  radius, heading in SCALEths, deltas from the previous circle's
+ *               LINE: name (dictionary id), style, x1, y1, x2, y2 in SCALEths
+ *               TEXT: text (varint byte length and UTF-8 bytes)
+ *               KV:   key (dictionary id), value
+ * </pre>
+ * Deltas restart at zero in every block and the dictionary is global, so any block decodes on its
+ * own. A block may be deflated, if that makes it smaller.
+ *
+ * Layout (fixed-size numbers big-endian):
+ * <pre>
+ *   header (64 bytes): magic "FTCRECZB", int version, int blockEvents, long eventCount,
+ *                      long directoryOffset, int blockCount, int dictionaryCount, long dictionaryOffset,
+ *                      long indexOffset (0 if there is no index), reserved
+ *   blocks
+ *   directory:  per block: long firstTimestamp, int eventCount, long offset, int storedLength,
+ *               int rawLength, byte codec
+ *   dictionary: dictionaryCount strings (line names and keys), each an int byte length and UTF-8 bytes
+ *   index:      the {@link RecordingIndex}
+ * </pre>
+ * Positions are rounded to thousandths, the precision the text format has always saved; timestamps,
+ * names and strings are exact. Opening maps the file and reads the directory, the dictionary and the
+ * index's bucket table; blocks are decoded as events in them are asked for, and the last few are kept.
+ */
+public final class RecordingCompressedFile {
+
+    public static final String EXTENSION = ".recz";
+    public static final int BLOCK_EVENTS = 4096;
+    /** Whether blocks are deflated; the "ftcsim.recording.deflate" system property, true if unset. */
+    public static final boolean DEFAULT_DEFLATE = Boolean.parseBoolean(System.getProperty("ftcsim.recording.deflate", "true"));
+    public static final double SCALE = 1000;
+
+    private static final byte[] MAGIC = "FTCRECZB".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int DIRECTORY_ENTRY_SIZE = 29;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int CACHED_BLOCKS = 8;
+    /** Largest block this reader will inflate; far more than BLOCK_EVENTS events of UDP-sized strings. */
+    private static final int MAX_BLOCK_BYTES = 1 << 28;
+    private static final int MAX_STRING_BYTES = 1 << 16;
+
+    private static final byte TYPE_POS = 1, TYPE_CIR = 2, TYPE_LINE = 3, TYPE_TEXT = 4, TYPE_KV = 5;
+    private static final byte CODEC_RAW = 0, CODEC_DEFLATE = 1;
+
+    private RecordingCompressedFile() {}
+
+    /** @return true if the file starts with the .recz magic, whatever its extension. */
+    public static boolean isCompressedRecording(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) { }
+            return !magic.hasRemaining() && ByteBuffer.wrap(MAGIC).equals(magic.flip());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static void write(File file, List<RecordedEvent> events) throws IOException {
+        write(file, events, DEFAULT_DEFLATE, count -> {});
+    }
+
+    /**
+     * @param progress called with the number of events written so far, every {@link #BLOCK_EVENTS}
+     *                 events and once at the end.
+     */
+    public static void write(File file, List<RecordedEvent> events, boolean deflate, IntConsumer progress) throws IOException {
+        try (Writer writer = new Writer(file.toPath(), deflate)) {
+            int n = events.size();
+            for (int i = 0; i < n; i++) {
+                writer.add(events.get(i));
+                if ((i + 1) % BLOCK_EVENTS == 0) progress.accept(i + 1);
+            }
+            writer.finish();
+        }
+        progress.accept(events.size());
+    }
+
+    /**
+     * Writes a .recz file one event at a time, e.g. while a session is being recorded. Only the block
+     * being filled is held in memory, besides the block directory, the dictionary and the index's
+     * bucket table, which take a few bytes per thousand events; the index's keyframes can be kept in
+     * a file of their own until the end. The file is only valid once {@link #finish}ed.
+     *
+     * Not thread safe.
+     */
+    public static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final ChannelWriter out;
+        private final Deflater deflater;
+        private final BlockEncoder encoder = new BlockEncoder();
+        private final RecordingIndex.Builder index;
+        private final ByteSink directory = new ByteSink(1024);
+        private byte[] compressed = new byte[0];
+        private long offset = HEADER_SIZE, eventCount = 0;
+        private int blockCount = 0;
+
+        public Writer(Path path, boolean deflate) throws IOException {
+            this(path, deflate, null);
+        }
+
+        /** @param keyframeFile where the index's keyframes are kept until the end, or null for memory. */
+        public Writer(Path path, boolean deflate, Path keyframeFile) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                index = keyframeFile != null ? new RecordingIndex.Builder(keyframeFile) : new RecordingIndex.Builder();
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            channel.position(HEADER_SIZE);
+            out = new ChannelWriter(channel);
+            deflater = deflate ? new Deflater() : null;
+        }
+
+        /** Appends an event; those of unknown message types are skipped. */
+        public void add(RecordedEvent event) throws IOException {
+            if (encoder.count == 0) encoder.reset(event.timestamp);
+            UdpMessageData readBack = encoder.add(event);
+            if (readBack == null) return;
+            index.add(event.timestamp, readBack);
+            if (encoder.count == BLOCK_EVENTS) writeBlock();
+        }
+
+        private void writeBlock() throws IOException {
+            byte[] raw = encoder.finish();
+            int rawLength = encoder.length();
+            byte[] stored = raw;
+            int storedLength = rawLength;
+            byte codec = CODEC_RAW;
+            if (deflater != null) {
+                deflater.reset();
+                deflater.setInput(raw, 0, rawLength);
+                deflater.finish();
+                if (compressed.length < rawLength) compressed = new byte[rawLength];
+                int length = deflater.deflate(compressed);
+                if (deflater.finished() && length < rawLength) {
+                    stored = compressed;
+                    storedLength = length;
+                    codec = CODEC_DEFLATE;
+                }
+            }
+            out.putBytes(stored, storedLength);
+            directory.putLong(encoder.firstTimestamp);
+            directory.putInt(encoder.count);
+            directory.putLong(offset);
+            directory.putInt(storedLength);
+            directory.putInt(rawLength);
+            directory.put(codec);
+            offset += storedLength;
+            eventCount += encoder.count;
+            blockCount++;
+            encoder.reset(0); // The next event starts a block
+        }
+
+        /** Writes the last block, the directory, the dictionary, the index and the header. */
+        public void finish() throws IOException {
+            if (encoder.count > 0) writeBlock();
+
+            // --- Directory and dictionary ---
+            long directoryOffset = offset;
+            out.putBytes(directory.data, directory.length);
+            long dictionaryOffset = directoryOffset + directory.length;
+            for (String s : encoder.dictionary) out.putString(s);
+
+            // --- Index ---
+            out.flush();
+            long indexOffset = channel.position();
+            index.writeTo(channel);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.put(MAGIC).putInt(VERSION).putInt(BLOCK_EVENTS).putLong(eventCount)
+                    .putLong(directoryOffset).putInt(blockCount).putInt(encoder.dictionary.size()).putLong(dictionaryOffset)
+                    .putLong(indexOffset);
+            header.clear();
+            while (header.hasRemaining()) channel.write(header, header.position());
+        }
+
+        /** Forces what has been written to the disk. */
+        public void force() throws IOException {
+            channel.force(false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (deflater != null) deflater.end();
+            try {
+                index.close();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Maps a .recz file. Only the header, the block directory, the dictionary and the index's bucket
+     * table are read; the file can be deleted or replaced only once the returned recording is no
+     * longer used.
+     */
+    public static CompressedRecording open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedFile mapped = new MappedFile(channel);
+            if (mapped.size < HEADER_SIZE) throw new IOException("Not a compressed recording: " + file);
+            byte[] magic = new byte[MAGIC.length];
+            mapped.getBytes(0, magic, magic.length);
+            if (!ByteBuffer.wrap(MAGIC).equals(ByteBuffer.wrap(magic))) throw new IOException("Not a compressed recording: " + file);
+            int version = mapped.getInt(8);
+            if (version > VERSION) throw new IOException("Unsupported recording version " + version + ": " + file);
+            long eventCount = mapped.getLong(16), directoryOffset = mapped.getLong(24);
+            int blockCount = mapped.getInt(32), dictionaryCount = mapped.getInt(36);
+            long dictionaryOffset = mapped.getLong(40);
+            if (eventCount < 0 || eventCount > Integer.MAX_VALUE || blockCount < 0 || dictionaryCount < 0
+                    || directoryOffset + (long) blockCount * DIRECTORY_ENTRY_SIZE > dictionaryOffset || dictionaryOffset > mapped.size) {
+                throw new IOException("Corrupt compressed recording header: " + file);
+            }
+
+            Blocks blocks = new Blocks(blockCount);
+            long position = directoryOffset;
+            int firstEvent = 0;
+            for (int b = 0; b < blockCount; b++) {
+                blocks.firstEvent[b] = firstEvent;
+                blocks.firstTimestamp[b] = mapped.getLong(position);
+                blocks.eventCount[b] = mapped.getInt(position + 8);
+                blocks.offset[b] = mapped.getLong(position + 12);
+                blocks.storedLength[b] = mapped.getInt(position + 20);
+                blocks.rawLength[b] = mapped.getInt(position + 24);
+                blocks.codec[b] = mapped.getByte(position + 28);
+                if (blocks.eventCount[b] <= 0 || blocks.offset[b] < HEADER_SIZE || blocks.storedLength[b] < 0
+                        || blocks.offset[b] + blocks.storedLength[b] > directoryOffset
+                        || blocks.rawLength[b] < 0 || blocks.rawLength[b] > MAX_BLOCK_BYTES) {
+                    throw new IOException("Corrupt block directory in " + file);
+                }
+                firstEvent += blocks.eventCount[b];
+                position += DIRECTORY_ENTRY_SIZE;
+            }
+            if (firstEvent != eventCount) throw new IOException("Corrupt block directory in " + file);
+
+            String[] dictionary = new String[dictionaryCount];
+            position = dictionaryOffset;
+            for (int i = 0; i < dictionaryCount; i++) {
+                dictionary[i] = mapped.getString(position, MAX_STRING_BYTES);
+                position += 4 + mapped.getInt(position);
+            }
+            long indexOffset = mapped.getLong(48);
+            RecordingIndex index = indexOffset > 0 ? RecordingIndex.read(mapped, indexOffset, (int) eventCount) : null;
+            return new CompressedRecording(mapped, (int) eventCount, blocks, dictionary, index);
+        }
+    }
+
+    /** The block directory, as parallel arrays. */
+    private static final class Blocks {
+        final int[] firstEvent, eventCount, storedLength, rawLength;
+        final long[] firstTimestamp, offset;
+        final byte[] codec;
+
+        Blocks(int count) {
+            firstEvent = new int[count];
+            eventCount = new int[count];
+            storedLength = new int[count];
+            rawLength = new int[count];
+            firstTimestamp = new long[count];
+            offset = new long[count];
+            codec = new byte[count];
+        }
+
+        /** @return the block holding the event. */
+        int blockOf(int index) {
+            int lo = 0, hi = firstEvent.length;
+            while (lo < hi) { // First block past the index
+                int mid = (lo + hi) >>> 1;
+                if (firstEvent[mid] <= index) lo = mid + 1; else hi = mid;
+            }
+            return lo - 1;
+        }
+    }
+
+    /**
+     * A .recz file as a read-only list of events. A get decodes the block holding its event, unless
+     * that is one of the last {@link #CACHED_BLOCKS} decoded; timestamps and types are decoded
+     * without the payloads, for indexing. Safe for use from several threads.
+     */
+    public static final class CompressedRecording extends AbstractList<RecordedEvent> implements RandomAccess, RecordingView {
+        private final MappedFile mapped;
+        private final int size;
+        private final Blocks blocks;
+        private final String[] dictionary;
+        private final RecordingIndex index;
+        private final Inflater inflater = new Inflater();
+        private final LinkedHashMap<Integer, DecodedBlock> cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, DecodedBlock> eldest) {
+                return size() > CACHED_BLOCKS;
+            }
+        };
+
+        private CompressedRecording(MappedFile mapped, int size, Blocks blocks, String[] dictionary, RecordingIndex index) {
+            this.mapped = mapped;
+            this.size = size;
+            this.blocks = blocks;
+            this.dictionary = dictionary;
+            this.index = index;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public synchronized long getTimestamp(int index) {
+            DecodedBlock block = blockFor(index);
+            return block.timestamps[index - block.firstEvent];
+        }
+
+        @Override
+        public synchronized boolean isPosition(int index) {
+            DecodedBlock block = blockFor(index);
+            return block.types[index - block.firstEvent] == TYPE_POS;
+        }
+
+        @Override
+        public RecordingIndex getIndex() {
+            return index;
+        }
+
+        @Override
+        public synchronized RecordedEvent get(int index) {
+            DecodedBlock block = blockFor(index);
+            if (block.events == null) block.decodePayloads(dictionary);
+            return block.events[index - block.firstEvent];
+        }
+
+        private DecodedBlock blockFor(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+            int b = blocks.blockOf(index);
+            DecodedBlock block = cache.get(b);
+            if (block == null) {
+                block = new DecodedBlock(blocks.firstEvent[b], blocks.firstTimestamp[b], blocks.eventCount[b], readBlock(b));
+                cache.put(b, block);
+            }
+            return block;
+        }
+
+        private byte[] readBlock(int b) {
+            byte[] stored = new byte[blocks.storedLength[b]];
+            mapped.getBytes(blocks.offset[b], stored, stored.length);
+            if (blocks.codec[b] == CODEC_RAW) return stored;
+            if (blocks.codec[b] != CODEC_DEFLATE) throw new IllegalStateException("Corrupt block " + b + " (codec " + blocks.codec[b] + ")");
+            byte[] raw = new byte[blocks.rawLength[b]];
+            inflater.reset();
+            inflater.setInput(stored);
+            try {
+                int length = inflater.inflate(raw);
+                if (length != raw.length || !inflater.finished()) throw new IllegalStateException("Corrupt block " + b + " (length)");
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt block " + b + ": " + e.getMessage(), e);
+            }
+            return raw;
+        }
+    }
+
+    /** One block, its timestamps and types decoded at once and its payloads when first needed. */
+    private static final class DecodedBlock {
+        final int firstEvent;
+        final long[] timestamps;
+        final byte[] types;
+        private final ByteSource payloads;
+        RecordedEvent[] events;
+
+        DecodedBlock(int firstEvent, long firstTimestamp, int count, byte[] raw) {
+            this.firstEvent = firstEvent;
+            ByteSource in = new ByteSource(raw);
+            timestamps = new long[count];
+            long timestamp = firstTimestamp;
+            for (int i = 0; i < count; i++) {
+                timestamp += in.getVarLong();
+                timestamps[i] = timestamp;
+            }
+            types = in.getBytes(count);
+            payloads = in;
+        }
+
+        void decodePayloads(String[] dictionary) {
+            ByteSource in = payloads;
+            RecordedEvent[] decoded = new RecordedEvent[timestamps.length];
+            long px = 0, py = 0, ph = 0, cr = 0, ch = 0;
+            for (int i = 0; i < decoded.length; i++) {
+                UdpMessageData data;
+                switch (types[i]) {
+                    case TYPE_POS -> {
+                        px += in.getVarLong(); py += in.getVarLong(); ph += in.getVarLong();
+                        data = new PositionData(px / SCALE, py / SCALE, ph / SCALE);
+                    }
+                    case TYPE_CIR -> {
+                        cr += in.getVarLong(); ch += in.getVarLong();
+                        data = new CircleData(cr / SCALE, ch / SCALE);
+                    }
+                    case TYPE_LINE -> {
+                        String name = word(dictionary, in.getVarLong());
+                        int style = (int) in.getVarLong();
+                        data = new LineData(name, in.getVarLong() / SCALE, in.getVarLong() / SCALE,
+                                in.getVarLong() / SCALE, in.getVarLong() / SCALE, style);
+                    }
+                    case TYPE_TEXT -> data = new TextData(in.getString());
+                    case TYPE_KV -> {
+                        String key = word(dictionary, in.getVarLong());
+                        data = new KeyValueData(key, in.getString());
+                    }
+                    default -> throw new IllegalStateException("Corrupt event " + (firstEvent + i) + " (type " + types[i] + ")");
+                }
+                decoded[i] = new RecordedEvent(timestamps[i], data);
+            }
+            events = decoded;
+        }
+
+        private static String word(String[] dictionary, long id) {
+            if (id < 0 || id >= dictionary.length) throw new IllegalStateException("Corrupt dictionary id " + id);
+            return dictionary[(int) id];
+        }
+    }
+
+    /** Encodes one block at a time into its three columns. */
+    private static final class BlockEncoder {
+        final Map<String, Integer> dictionaryIds = new HashMap<>();
+        final List<String> dictionary = new ArrayList<>();
+        private final ByteSink timestamps = new ByteSink(BLOCK_EVENTS * 2);
+        private final ByteSink types = new ByteSink(BLOCK_EVENTS);
+        private final ByteSink payloads = new ByteSink(BLOCK_EVENTS * 8);
+        long firstTimestamp;
+        int count;
+        private long previousTimestamp, px, py, ph, cr, ch;
+
+        void reset(long firstTimestamp) {
+            timestamps.length = 0;
+            types.length = 0;
+            payloads.length = 0;
+            count = 0;
+            this.firstTimestamp = previousTimestamp = firstTimestamp;
+            px = py = ph = cr = ch = 0;
+        }
+
+        /** @return the event's data as it will read back, positions rounded, or null if it is skipped. */
+        UdpMessageData add(RecordedEvent event) {
+            UdpMessageData data = event.messageData;
+            if (data instanceof PositionData p) {
+                long x = quantize(p.x), y = quantize(p.y), h = quantize(p.heading);
+                payloads.putVarLong(x - px); payloads.putVarLong(y - py); payloads.putVarLong(h - ph);
+                px = x; py = y; ph = h;
+                types.put(TYPE_POS);
+                data = new PositionData(x / SCALE, y / SCALE, h / SCALE);
+            } else if (data instanceof CircleData c) {
+                long r = quantize(c.radiusInches), h = quantize(c.heading);
+                payloads.putVarLong(r - cr); payloads.putVarLong(h - ch);
+                cr = r; ch = h;
+                types.put(TYPE_CIR);
+                data = new CircleData(r / SCALE, h / SCALE);
+            } else if (data instanceof LineData l) {
+                long x1 = quantize(l.x1), y1 = quantize(l.y1), x2 = quantize(l.x2), y2 = quantize(l.y2);
+                payloads.putVarLong(wordId(l.name));
+                payloads.putVarLong(l.styleCode);
+                payloads.putVarLong(x1); payloads.putVarLong(y1);
+                payloads.putVarLong(x2); payloads.putVarLong(y2);
+                types.put(TYPE_LINE);
+                data = new LineData(l.name, x1 / SCALE, y1 / SCALE, x2 / SCALE, y2 / SCALE, l.styleCode);
+            } else if (data instanceof TextData t) {
+                payloads.putString(t.text);
+                types.put(TYPE_TEXT);
+            } else if (data instanceof KeyValueData kv) {
+                payloads.putVarLong(wordId(kv.key));
+                payloads.putString(kv.value);
+                types.put(TYPE_KV);
+            } else {
+                return null;
+            }
+            timestamps.putVarLong(event.timestamp - previousTimestamp);
+            previousTimestamp = event.timestamp;
+            count++;
+            return data;
+        }
+
+        private int wordId(String word) {
+            String w = word == null ? "" : word;
+            return dictionaryIds.computeIfAbsent(w, key -> { dictionary.add(key); return dictionary.size() - 1; });
+        }
+
+        private static long quantize(double v) {
+            return Math.round(v * SCALE);
+        }
+
+        /** @return the block's bytes, valid up to {@link #length()} until the next reset. */
+        byte[] finish() {
+            timestamps.putBytes(types.data, types.length);
+            timestamps.putBytes(payloads.data, payloads.length);
+            return timestamps.data;
+        }
+
+        int length() {
+            return timestamps.length;
+        }
+    }
+
+    /** A growable byte array with the block encodings' number formats. */
+    private static final class ByteSink {
+        byte[] data;
+        int length;
+
+        ByteSink(int capacity) { data = new byte[capacity]; }
+
+        private void ensure(int bytes) {
+            if (length + bytes > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, length + bytes));
+        }
+
+        void put(byte b) { ensure(1); data[length++] = b; }
+
+        void putInt(int v) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) data[length++] = (byte) (v >>> shift);
+        }
+
+        void putLong(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) data[length++] = (byte) (v >>> shift);
+        }
+
+        /** Zigzag-encoded, 7 bits a byte, low bits first; small magnitudes of either sign take one byte. */
+        void putVarLong(long v) {
+            ensure(10);
+            long z = (v << 1) ^ (v >> 63);
+            while ((z & ~0x7FL) != 0) {
+                data[length++] = (byte) ((z & 0x7F) | 0x80);
+                z >>>= 7;
+            }
+            data[length++] = (byte) z;
+        }
+
+        void putBytes(byte[] bytes, int count) {
+            ensure(count);
+            System.arraycopy(bytes, 0, data, length, count);
+            length += count;
+        }
+
+        /** A varint byte length and the UTF-8 bytes; null is written as empty. */
+        void putString(String s) {
+            byte[] bytes = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+            putVarLong(bytes.length);
+            putBytes(bytes, bytes.length);
+        }
+    }
+
+    /** Reads what a {@link ByteSink} wrote. */
+    private static final class ByteSource {
+        private final byte[] data;
+        private int position;
+
+        ByteSource(byte[] data) { this.data = data; }
+
+        long getVarLong() {
+            long z = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (position >= data.length || shift > 63) throw new IllegalStateException("Corrupt block (number)");
+                b = data[position++];
+                z |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return (z >>> 1) ^ -(z & 1);
+        }
+
+        byte[] getBytes(int count) {
+            if (count < 0 || position + count > data.length) throw new IllegalStateException("Corrupt block (length)");
+            byte[] bytes = Arrays.copyOfRange(data, position, position + count);
+            position += count;
+            return bytes;
+        }
+
+        String getString() {
+            long length = getVarLong();
+            if (length < 0 || length > data.length - position) throw new IllegalStateException("Corrupt block (string)");
+            String s = new String(data, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return s;
+        }
+    }
+
+    /** Buffered writes to a channel through a fixed-size byte buffer. */
+    private static final class ChannelWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        ChannelWriter(FileChannel channel) { this.channel = channel; }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        void putBytes(byte[] data, int count) throws IOException {
+            int offset = 0;
+            while (offset < count) {
+                if (!buffer.hasRemaining()) flush();
+                int length = Math.min(buffer.remaining(), count - offset);
+                buffer.put(data, offset, length);
+                offset += length;
+            }
+        }
+
+        /** An int byte length and the UTF-8 bytes. */
+        void putString(String s) throws IOException {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_STRING_BYTES) throw new IOException("Name too long for a compressed recording: " + bytes.length + " bytes");
+            if (buffer.remaining() < 4) flush();
+            buffer.putInt(bytes.length);
+            putBytes(bytes, bytes.length);
+        }
+    }
+}
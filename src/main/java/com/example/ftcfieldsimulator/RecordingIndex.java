@@ -0,0 +1,375 @@
+package com.example.ftcfieldsimulator;
+
+import com.example.ftcfieldsimulator.UdpPositionListener.CircleData;
+import com.example.ftcfieldsimulator.UdpPositionListener.LineData;
+import com.example.ftcfieldsimulator.UdpPositionListener.PositionData;
+import com.example.ftcfieldsimulator.UdpPositionListener.UdpMessageData;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The seek index stored at the end of a binary (".recb") or compressed (".recz") recording, so that
+ * a file can be seeked, snapped and played from anywhere without being read from the start.
+ *
+ * Events are grouped in buckets of {@link RecordingKeyframes#KEYFRAME_INTERVAL}. Layout, from the
+ * index offset given in the file's header (all numbers big-endian):
+ * <pre>
+ *   int bucketSize, int bucketCount, int eventCount, int positionCount
+ *   buckets:   bucketCount entries of long firstTimestamp, int positionsBefore, long keyframeOffset
+ *   keyframes: the {@link FieldState} before each bucket but the first, at keyframeOffset from the index
+ * </pre>
+ * A time is found by a binary search of the buckets' first timestamps and then of one bucket's
+ * timestamps; the n-th pose by a binary search of the pose counts and a scan of one bucket's types.
+ * The exact state after an event is the keyframe of its bucket plus fewer than bucketSize events.
+ * Where an event is in the file is the format's own business (fixed-size records, block directory).
+ *
+ * Files without an index (text recordings, recovered journals) are indexed in memory on loading
+ * instead, by {@link PositionEventIndex} and {@link RecordingKeyframes}; saving them as .recb or
+ * .recz writes one.
+ *
+ * Not thread safe; the recording manager guards it with its state lock.
+ */
+public final class RecordingIndex {
+
+    private static final int HEADER_SIZE = 16;
+    private static final int BUCKET_ENTRY_SIZE = 20;
+    private static final int MAX_STRING_BYTES = 1 << 16;
+
+    private final MappedFile mapped;
+    private final long offset;
+    private final int bucketSize, eventCount, positionCount;
+    private final long[] firstTimestamps;
+    private final int[] positionsBefore;
+    private final long[] keyframeOffsets;
+
+    // The event indices of the poses in the last bucket scanned, for runs of nearby lookups
+    private int cachedBucket = -1;
+    private int[] cachedPoses;
+
+    private RecordingIndex(MappedFile mapped, long offset, int bucketSize, int eventCount, int positionCount, int bucketCount) {
+        this.mapped = mapped;
+        this.offset = offset;
+        this.bucketSize = bucketSize;
+        this.eventCount = eventCount;
+        this.positionCount = positionCount;
+        firstTimestamps = new long[bucketCount];
+        positionsBefore = new int[bucketCount];
+        keyframeOffsets = new long[bucketCount];
+    }
+
+    /** Reads the bucket table of the index at offset in a mapped recording of eventCount events. */
+    static RecordingIndex read(MappedFile mapped, long offset, int eventCount) throws IOException {
+        if (offset < 0 || offset + HEADER_SIZE > mapped.size) throw new IOException("Corrupt recording index offset " + offset);
+        int bucketSize = mapped.getInt(offset), bucketCount = mapped.getInt(offset + 4);
+        int indexedEvents = mapped.getInt(offset + 8), positionCount = mapped.getInt(offset + 12);
+        if (bucketSize <= 0 || indexedEvents != eventCount || positionCount < 0 || positionCount > eventCount
+                || bucketCount != ((long) eventCount + bucketSize - 1) / bucketSize
+                || offset + HEADER_SIZE + (long) bucketCount * BUCKET_ENTRY_SIZE > mapped.size) {
+            throw new IOException("Corrupt recording index");
+        }
+        RecordingIndex index = new RecordingIndex(mapped, offset, bucketSize, eventCount, positionCount, bucketCount);
+        long position = offset + HEADER_SIZE;
+        for (int b = 0; b < bucketCount; b++) {
+            index.firstTimestamps[b] = mapped.getLong(position);
+            index.positionsBefore[b] = mapped.getInt(position + 8);
+            index.keyframeOffsets[b] = mapped.getLong(position + 12);
+            position += BUCKET_ENTRY_SIZE;
+        }
+        return index;
+    }
+
+    int getPositionCount() {
+        return positionCount;
+    }
+
+    /** @return the index of the last event at or before the timestamp, or 0 if there is none. */
+    int eventIndexAtTime(RecordingView view, long timestamp) {
+        int b = lastAtOrBefore(firstTimestamps, timestamp);
+        if (b < 0) return 0;
+        int lo = b * bucketSize, hi = bucketEnd(b);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (view.getTimestamp(mid) <= timestamp) lo = mid + 1; else hi = mid;
+        }
+        return Math.max(lo - 1, 0);
+    }
+
+    /** @return the number of poses at event indices up to and including index. */
+    int countPositionsThrough(RecordingView view, int index) {
+        if (index < 0) return 0;
+        if (index >= eventCount) return positionCount;
+        int b = index / bucketSize;
+        int[] poses = posesIn(view, b);
+        int lo = 0, hi = poses.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (poses[mid] <= index) lo = mid + 1; else hi = mid;
+        }
+        return positionsBefore[b] + lo;
+    }
+
+    /** @return the event index of the i-th pose. */
+    int getPosition(RecordingView view, int i) {
+        if (i < 0 || i >= positionCount) throw new IndexOutOfBoundsException("Pose " + i + ", count " + positionCount);
+        int b = lastAtOrBefore(positionsBefore, i);
+        return posesIn(view, b)[i - positionsBefore[b]];
+    }
+
+    /**
+     * @return a new state at the nearest keyframe at or before index: the state after event
+     * index itself, or before up to bucketSize - 1 more events.
+     */
+    FieldState keyframeFor(int index) {
+        int b = Math.min((index + 1) / bucketSize, firstTimestamps.length - 1);
+        if (b <= 0) return new FieldState();
+        return readState(offset + keyframeOffsets[b], b * bucketSize - 1);
+    }
+
+    private int bucketEnd(int b) {
+        return (int) Math.min((long) (b + 1) * bucketSize, eventCount);
+    }
+
+    private int[] posesIn(RecordingView view, int b) {
+        if (b != cachedBucket) {
+            int start = b * bucketSize, end = bucketEnd(b);
+            int count = (b + 1 < positionsBefore.length ? positionsBefore[b + 1] : positionCount) - positionsBefore[b];
+            int[] poses = new int[count];
+            int n = 0;
+            for (int i = start; i < end && n < count; i++) {
+                if (view.isPosition(i)) poses[n++] = i;
+            }
+            if (n != count) throw new IllegalStateException("Recording index does not match bucket " + b);
+            cachedPoses = poses;
+            cachedBucket = b;
+        }
+        return cachedPoses;
+    }
+
+    private static int lastAtOrBefore(long[] sorted, long value) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= value) lo = mid + 1; else hi = mid;
+        }
+        return lo - 1;
+    }
+
+    private static int lastAtOrBefore(int[] sorted, int value) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= value) lo = mid + 1; else hi = mid;
+        }
+        return lo - 1;
+    }
+
+    // --- Keyframes: eventIndex and the fields of FieldState, strings as an int byte length (-1 for null) and UTF-8 ---
+
+    private FieldState readState(long position, int eventIndex) {
+        Reader in = new Reader(position);
+        FieldState state = new FieldState();
+        if (in.getInt() != eventIndex) throw new IllegalStateException("Corrupt recording keyframe at " + position);
+        state.eventIndex = eventIndex;
+        state.hasPose = in.getByte() != 0;
+        state.x = in.getDouble(); state.y = in.getDouble(); state.heading = in.getDouble();
+        state.trailLength = in.getInt();
+        int lines = in.getInt();
+        for (int i = 0; i < lines; i++) {
+            String name = in.getString();
+            double x1 = in.getDouble(), y1 = in.getDouble(), x2 = in.getDouble(), y2 = in.getDouble();
+            state.namedLines.put(name, new LineData(name, x1, y1, x2, y2, in.getInt()));
+        }
+        int keyValues = in.getInt();
+        for (int i = 0; i < keyValues; i++) {
+            String key = in.getString();
+            state.keyValues.put(key, in.getString());
+        }
+        state.text = in.getString();
+        if (in.getByte() != 0) {
+            double radius = in.getDouble(), heading = in.getDouble();
+            state.circle = new CircleData(radius, heading);
+        }
+        state.circleX = in.getDouble(); state.circleY = in.getDouble();
+        return state;
+    }
+
+    private final class Reader {
+        private long position;
+
+        Reader(long position) { this.position = position; }
+
+        private long advance(int bytes) {
+            if (position + bytes > mapped.size) throw new IllegalStateException("Corrupt recording keyframe at " + position);
+            long p = position;
+            position += bytes;
+            return p;
+        }
+
+        byte getByte() { return mapped.getByte(advance(1)); }
+        int getInt() { return mapped.getInt(advance(4)); }
+        double getDouble() { return mapped.getDouble(advance(8)); }
+
+        String getString() {
+            int length = getInt();
+            if (length == -1) return null;
+            if (length < 0 || length > MAX_STRING_BYTES) throw new IllegalStateException("Corrupt recording keyframe at " + position);
+            byte[] bytes = new byte[length];
+            mapped.getBytes(advance(length), bytes, length);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Builds an index while a recording is written: every event written is {@link #add}ed in order,
+     * and the index is then written after the rest of the file.
+     */
+    static final class Builder implements Closeable {
+        private final int bucketSize = RecordingKeyframes.KEYFRAME_INTERVAL;
+        private final FieldState state = new FieldState();
+        private long[] firstTimestamps = new long[64];
+        private int[] positionsBefore = new int[64];
+        private long[] keyframeOffsets = new long[64];
+        private int bucketCount = 0, positionCount = 0;
+        private final Path keyframeFile; // Null if the keyframes are kept in keyframeBytes
+        private final ByteArrayOutputStream keyframeBytes;
+        private final DataOutputStream keyframes;
+
+        Builder() {
+            keyframeFile = null;
+            keyframeBytes = new ByteArrayOutputStream();
+            keyframes = new DataOutputStream(keyframeBytes);
+        }
+
+        /**
+         * Keeps the keyframes in a file until the index is written, for a recording of any length
+         * written as it comes in. The file is deleted on {@link #close}.
+         */
+        Builder(Path keyframeFile) throws IOException {
+            this.keyframeFile = keyframeFile;
+            keyframeBytes = null;
+            keyframes = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(keyframeFile), 1 << 16));
+        }
+
+        /** @param data the event as it will read back from the file. */
+        void add(long timestamp, UdpMessageData data) throws IOException {
+            int index = state.eventIndex + 1;
+            if (index % bucketSize == 0) {
+                if (bucketCount == firstTimestamps.length) {
+                    firstTimestamps = Arrays.copyOf(firstTimestamps, bucketCount * 2);
+                    positionsBefore = Arrays.copyOf(positionsBefore, bucketCount * 2);
+                    keyframeOffsets = Arrays.copyOf(keyframeOffsets, bucketCount * 2);
+                }
+                firstTimestamps[bucketCount] = timestamp;
+                positionsBefore[bucketCount] = positionCount;
+                keyframeOffsets[bucketCount] = -1;
+                if (index > 0) {
+                    keyframeOffsets[bucketCount] = keyframes.size();
+                    writeState(state);
+                }
+                bucketCount++;
+            }
+            if (data instanceof PositionData) positionCount++;
+            state.apply(data);
+        }
+
+        private void writeState(FieldState s) throws IOException {
+            keyframes.writeInt(s.eventIndex);
+            keyframes.writeByte(s.hasPose ? 1 : 0);
+            keyframes.writeDouble(s.x); keyframes.writeDouble(s.y); keyframes.writeDouble(s.heading);
+            keyframes.writeInt(s.trailLength);
+            keyframes.writeInt(s.namedLines.size());
+            for (LineData l : s.namedLines.values()) {
+                writeString(l.name);
+                keyframes.writeDouble(l.x1); keyframes.writeDouble(l.y1);
+                keyframes.writeDouble(l.x2); keyframes.writeDouble(l.y2);
+                keyframes.writeInt(l.styleCode);
+            }
+            keyframes.writeInt(s.keyValues.size());
+            for (Map.Entry<String, String> kv : s.keyValues.entrySet()) {
+                writeString(kv.getKey());
+                writeString(kv.getValue());
+            }
+            writeString(s.text);
+            keyframes.writeByte(s.circle != null ? 1 : 0);
+            if (s.circle != null) {
+                keyframes.writeDouble(s.circle.radiusInches);
+                keyframes.writeDouble(s.circle.heading);
+            }
+            keyframes.writeDouble(s.circleX); keyframes.writeDouble(s.circleY);
+        }
+
+        private void writeString(String s) throws IOException {
+            if (s == null) { keyframes.writeInt(-1); return; }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_STRING_BYTES) throw new IOException("String too long for a recording index: " + bytes.length + " bytes");
+            keyframes.writeInt(bytes.length);
+            keyframes.write(bytes);
+        }
+
+        /** @return the whole index, to be written at the offset the file's header gives. */
+        byte[] toByteArray() throws IOException {
+            if (keyframeBytes == null) throw new IllegalStateException("Keyframes are in " + keyframeFile);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(tableSize() + keyframes.size());
+            writeTable(bytes);
+            keyframes.flush();
+            keyframeBytes.writeTo(bytes);
+            return bytes.toByteArray();
+        }
+
+        /** Writes the whole index at the channel's position, which the file's header must give. */
+        void writeTo(FileChannel channel) throws IOException {
+            ByteArrayOutputStream table = new ByteArrayOutputStream(tableSize());
+            writeTable(table);
+            ByteBuffer buffer = ByteBuffer.wrap(table.toByteArray());
+            while (buffer.hasRemaining()) channel.write(buffer);
+            keyframes.flush();
+            if (keyframeFile == null) {
+                buffer = ByteBuffer.wrap(keyframeBytes.toByteArray());
+                while (buffer.hasRemaining()) channel.write(buffer);
+                return;
+            }
+            try (FileChannel in = FileChannel.open(keyframeFile, StandardOpenOption.READ)) {
+                long position = 0, size = in.size();
+                while (position < size) position += in.transferTo(position, size - position, channel);
+            }
+        }
+
+        /** Releases the keyframes, deleting their file if they were kept in one. */
+        @Override
+        public void close() throws IOException {
+            keyframes.close();
+            if (keyframeFile != null) Files.deleteIfExists(keyframeFile);
+        }
+
+        private int tableSize() {
+            return HEADER_SIZE + bucketCount * BUCKET_ENTRY_SIZE;
+        }
+
+        private void writeTable(ByteArrayOutputStream bytes) throws IOException {
+            long tableSize = tableSize();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(bucketSize);
+            out.writeInt(bucketCount);
+            out.writeInt(state.eventIndex + 1);
+            out.writeInt(positionCount);
+            for (int b = 0; b < bucketCount; b++) {
+                out.writeLong(firstTimestamps[b]);
+                out.writeInt(positionsBefore[b]);
+                out.writeLong(keyframeOffsets[b] < 0 ? -1 : tableSize + keyframeOffsets[b]);
+            }
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.ftcfieldsimulator;
+
+import com.example.ftcfieldsimulator.RecordingManager.RecordedEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-disk journal of a recording in progress, so that a crash, a kill or a dead laptop battery
+ * loses at most the last {@link #FSYNC_INTERVAL_MS} of a match instead of all of it. The journal is
+ * also where the recording is kept: no event is held in memory once it has been written.
+ *
+ * A dedicated thread writes every event twice: to a ".rec" text file (see {@link RecordingTextFormat}),
+ * which is what a crash leaves behind, and to a ".recz" session file (see
+ * {@link RecordingCompressedFile}), which is finished when the journal is closed and then opened as
+ * the recorded session. Events reach the thread through a bounded queue; it takes everything queued
+ * at once, encodes it into one buffer and writes it with a single call (group commit), and forces
+ * the files to the disk at most every FSYNC_INTERVAL_MS. Memory use is the queue, the buffer and the
+ * session file's block being filled, whatever the length of the recording. If the disk falls
+ * QUEUE_CAPACITY events behind, {@link #append} waits for it.
+ *
+ * The journal is deleted when its session is saved or discarded. One left behind by a crash may end
+ * in a torn line; {@link #recoverAll} cuts that off and renames it to a ".rec" on the next start.
+ */
+public class RecordingJournal implements Closeable {
+
+    public static final Path DEFAULT_DIRECTORY = Path.of(System.getProperty("ftcsim.journalDir",
+            Path.of(System.getProperty("user.home"), ".ftcfieldsimulator", "journal").toString()));
+    public static final String EXTENSION = ".journal";
+    /** The session file, and the index keyframes it keeps aside until it is finished. */
+    public static final String SESSION_EXTENSION = ".session" + RecordingCompressedFile.EXTENSION;
+    private static final String KEYFRAMES_EXTENSION = ".keyframes";
+    public static final long FSYNC_INTERVAL_MS = 1000;
+
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final RecordedEvent END = new RecordedEvent(0, null); // Tells the writer to finish
+
+    private final Path path, sessionPath;
+    private final FileChannel channel;
+    private final RecordingCompressedFile.Writer session;
+    private final ArrayBlockingQueue<RecordedEvent> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writerThread;
+    private volatile IOException failure;
+    private volatile boolean closed = false;
+    private boolean sessionOpened = false;
+
+    /** Creates a new journal and session file in the directory and starts their writer thread. */
+    public RecordingJournal(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        String name = "recording-" + System.currentTimeMillis();
+        path = directory.resolve(name + EXTENSION);
+        sessionPath = directory.resolve(name + SESSION_EXTENSION);
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+        try {
+            session = new RecordingCompressedFile.Writer(sessionPath, RecordingCompressedFile.DEFAULT_DEFLATE,
+                    directory.resolve(name + KEYFRAMES_EXTENSION));
+        } catch (IOException e) {
+            channel.close();
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        writerThread = new Thread(this::runWriter, "RecordingJournalWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Queues an event for the journal. While the writer is QUEUE_CAPACITY events behind this waits
+     * for it, so call it without holding locks that other threads need. Events appended after
+     * {@link #close} or a failure are dropped.
+     */
+    public void append(RecordedEvent event) {
+        try {
+            while (!closed && failure == null) {
+                if (queue.offer(event, FSYNC_INTERVAL_MS, TimeUnit.MILLISECONDS)) return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** @return the error that stopped the writer, or null. */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Writes out everything queued, finishes the session file, forces both files to the disk and
+     * closes them; both are kept.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            while (writerThread.isAlive() && !queue.offer(END, FSYNC_INTERVAL_MS, TimeUnit.MILLISECONDS)) { }
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                session.close();
+            } finally {
+                channel.close();
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Closes the journal and opens its session file, which from then on belongs to the caller: it
+     * is not deleted with the journal.
+     */
+    public RecordingCompressedFile.CompressedRecording openSession() throws IOException {
+        close();
+        RecordingCompressedFile.CompressedRecording recording = RecordingCompressedFile.open(sessionPath.toFile());
+        sessionOpened = true;
+        return recording;
+    }
+
+    public Path getSessionPath() {
+        return sessionPath;
+    }
+
+    /**
+     * Closes the journal and deletes its file, once the session is saved or discarded, and the
+     * session file unless it has been opened.
+     */
+    public void delete() {
+        try {
+            close();
+        } catch (IOException e) {
+            System.err.println("Error closing recording journal: " + e.getMessage());
+        }
+        deleteQuietly(path);
+        if (!sessionOpened) deleteQuietly(sessionPath);
+    }
+
+    /**
+     * Closes a journal whose writer has failed, keeping its file to be recovered on the next start
+     * with whatever was written before the failure; the unfinished session file is deleted.
+     */
+    public void abandon() {
+        try {
+            close();
+        } catch (IOException e) {
+            // The failure already reported by the writer
+        }
+        deleteQuietly(sessionPath);
+    }
+
+    /** Deletes a file, reporting rather than throwing if that fails, e.g. while it is still mapped. */
+    public static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Could not delete " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void runWriter() {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        RecordingTextFormat.LineEncoder encoder = new RecordingTextFormat.LineEncoder();
+        List<RecordedEvent> group = new ArrayList<>();
+        long lastForceMs = System.currentTimeMillis();
+        boolean dirty = false;
+        try {
+            while (true) {
+                RecordedEvent first = queue.poll(FSYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                boolean end = false;
+                if (first != null) {
+                    group.add(first);
+                    queue.drainTo(group);
+                    for (RecordedEvent event : group) {
+                        if (event == END) { end = true; break; }
+                        if (!encoder.encode(event)) continue;
+                        if (buffer.remaining() < encoder.length()) flush(buffer);
+                        if (encoder.length() > buffer.capacity()) write(ByteBuffer.wrap(encoder.bytes(), 0, encoder.length()));
+                        else buffer.put(encoder.bytes(), 0, encoder.length());
+                        session.add(event);
+                    }
+                    group.clear();
+                    flush(buffer);
+                    dirty = true;
+                }
+                if (end) session.finish();
+                long now = System.currentTimeMillis();
+                if (end || (dirty && now - lastForceMs >= FSYNC_INTERVAL_MS)) {
+                    channel.force(false);
+                    session.force();
+                    lastForceMs = now;
+                    dirty = false;
+                }
+                if (end) return;
+            }
+        } catch (IOException e) {
+            failure = e;
+            System.err.println("Recording journal stopped: " + e.getMessage());
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        write(buffer);
+        buffer.clear();
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) channel.write(data);
+    }
+
+    /**
+     * Turns journals left behind by a crash into ".rec" files next to them: a torn last line is cut
+     * off and the file renamed. Session files left behind are deleted. Must run before any new
+     * journal is started in the directory.
+     * @return the recovered recordings.
+     */
+    public static List<Path> recoverAll(Path directory) {
+        List<Path> recovered = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return recovered;
+        // Session files are only valid once finished, and the journal next to them has everything
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory,
+                "*{" + SESSION_EXTENSION + "," + KEYFRAMES_EXTENSION + "}")) {
+            for (Path leftover : leftovers) deleteQuietly(leftover);
+        } catch (IOException e) {
+            System.err.println("Could not list recording session files in " + directory + ": " + e.getMessage());
+        }
+        try (DirectoryStream<Path> journals = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path journal : journals) {
+                try {
+                    Path rec = recover(journal);
+                    if (rec != null) recovered.add(rec);
+                } catch (IOException e) {
+                    System.err.println("Could not recover recording journal " + journal + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not list recording journals in " + directory + ": " + e.getMessage());
+        }
+        return recovered;
+    }
+
+    /** @return the recovered ".rec", or null if the journal held no whole event and was deleted. */
+    private static Path recover(Path journal) throws IOException {
+        long validLength = 0;
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Find the end of the last complete line, reading backwards a block at a time.
+            long end = channel.size();
+            ByteBuffer block = ByteBuffer.allocate(64 * 1024);
+            while (end > 0 && validLength == 0) {
+                long start = Math.max(0, end - block.capacity());
+                block.clear().limit((int) (end - start));
+                while (block.hasRemaining() && channel.read(block, start + block.position()) >= 0) { }
+                for (int i = block.position() - 1; i >= 0; i--) {
+                    if (block.get(i) == '\n') { validLength = start + i + 1; break; }
+                }
+                end = start;
+            }
+            channel.truncate(validLength);
+            channel.force(true);
+        }
+        if (validLength == 0) {
+            Files.delete(journal);
+            return null;
+        }
+        String name = journal.getFileName().toString();
+        Path rec = journal.resolveSibling(name.substring(0, name.length() - EXTENSION.length()) + "-recovered" + RecordingTextFormat.EXTENSION);
+        return Files.move(journal, rec);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.ftcfieldsimulator;
+
+import com.example.ftcfieldsimulator.RecordingManager.RecordedEvent;
+import com.example.ftcfieldsimulator.UdpPositionListener.PositionData;
+import com.example.ftcfieldsimulator.UdpPositionListener.UdpMessageData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Periodic {@link FieldState} snapshots of a recording, for exact seeking.
+ *
+ * Events are appended as they are recorded to a running state, which is copied every
+ * {@link #KEYFRAME_INTERVAL} events. The state after any event is then the nearest keyframe at or
+ * before it plus fewer than KEYFRAME_INTERVAL applied events: no drawing, and no dependence on what
+ * the field showed before the seek. For a loaded session the running state only advances as far as
+ * seeks reach, so opening a recording does not decode it, and a recording file that stores its
+ * keyframes in a {@link RecordingIndex} is seeked with those instead.
+ *
+ * Not thread safe; the recording manager guards it with its state lock.
+ */
+public class RecordingKeyframes {
+
+    public static final int KEYFRAME_INTERVAL = 2048;
+
+    private final ArrayList<FieldState> keyframes = new ArrayList<>();
+    private FieldState head = new FieldState();
+
+    public void append(UdpMessageData data) {
+        head.apply(data);
+        if ((head.eventIndex + 1) % KEYFRAME_INTERVAL == 0) keyframes.add(head.copy());
+    }
+
+    public void clear() {
+        keyframes.clear();
+        head = new FieldState();
+    }
+
+    /**
+     * @return a new state after the event at index, with its trail filled in from the session.
+     */
+    public FieldState stateAt(int index, List<RecordedEvent> session, PositionEventIndex positionIndex) {
+        FieldState state;
+        if (session instanceof RecordingView view && view.getIndex() != null) {
+            state = view.getIndex().keyframeFor(index); // Stored in the file
+        } else {
+            while (head.eventIndex < index) append(session.get(head.eventIndex + 1).messageData);
+            int lo = 0, hi = keyframes.size();
+            while (lo < hi) { // First keyframe past the index
+                int mid = (lo + hi) >>> 1;
+                if (keyframes.get(mid).eventIndex <= index) lo = mid + 1; else hi = mid;
+            }
+            state = lo == 0 ? new FieldState() : keyframes.get(lo - 1).copy();
+        }
+        while (state.eventIndex < index) state.apply(session.get(state.eventIndex + 1).messageData);
+        fillTrail(state, session, positionIndex);
+        return state;
+    }
+
+    /** The trail is the poses before the current one, newest last. */
+    private static void fillTrail(FieldState state, List<RecordedEvent> session, PositionEventIndex positionIndex) {
+        int n = state.trailLength;
+        state.trailX = new double[n];
+        state.trailY = new double[n];
+        int first = positionIndex.countPositionsThrough(state.eventIndex) - 1 - n;
+        for (int i = 0; i < n; i++) {
+            PositionData p = (PositionData) session.get(positionIndex.getPosition(first + i)).messageData;
+            state.trailX[i] = p.x;
+            state.trailY[i] = p.y;
+        }
+    }
+}
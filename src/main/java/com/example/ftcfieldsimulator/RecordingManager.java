@@ -3,7 +3,13 @@ package com.example.ftcfieldsimulator;
 import com.example.ftcfieldsimulator.UdpPositionListener;
 import com.example.ftcfieldsimulator.UdpPositionListener.UdpMessageData; // Corrected import
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import javafx.application.Platform;
@@ -20,20 +26,59 @@ public class RecordingManager {
         }
     }
 
+    /**
+     * An immutable view of the session as it was when taken, which can be read from any thread, e.g.
+     * to save it in the background while recording, playback or live view carry on.
+     */
+    public static final class SessionSnapshot {
+        public final List<RecordedEvent> events;
+        private final int sessionId;
+
+        private SessionSnapshot(List<RecordedEvent> events, int sessionId) {
+            this.events = events;
+            this.sessionId = sessionId;
+        }
+    }
+
     public enum PlaybackState { IDLE, RECORDING, PLAYING, PAUSED }
     private long firstEventTimestamp = -1;    // Absolute timestamp of the first event in recordedSession
     private long recordingStartTimeMs = -1; // Absolute timestamp when current recording began (for live duration)
     private volatile PlaybackState currentState = PlaybackState.IDLE;
     private volatile int playbackIndex = 0;
-    private ArrayList<RecordedEvent> recordedSession = new ArrayList<>();
+    private List<RecordedEvent> recordedSession = new ArrayList<>(); // Read-only while not recording
+    private int sessionId = 0; // Changes whenever recordedSession is replaced
 
     // --- Live Buffer for Instant Replay ---
-    private final ArrayList<RecordedEvent> liveBuffer = new ArrayList<>();
     private static final long LIVE_BUFFER_DURATION_MS = 10 * 60 * 1000; // 10 minutes
+    private final LiveEventBuffer liveBuffer = new LiveEventBuffer(LIVE_BUFFER_DURATION_MS);
+
+    // --- Keyframes for exact seeking ---
+    private final RecordingKeyframes keyframes = new RecordingKeyframes();
+    private final PositionEventIndex positionIndex = new PositionEventIndex(); // Pose positions and event timestamps
+    private Consumer<FieldState> onStateRestoreCallback; // Replaces the field's state after a seek or step
+
+    // --- Playback scheduling ---
+    public static final double MIN_PLAYBACK_SPEED = 0.1, MAX_PLAYBACK_SPEED = 32;
+    /** Playback speed that dispatches events as fast as the UI takes them, for analysis. */
+    public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+    private static final long FRAME_NANOS = 1_000_000_000L / 60;
+    private static final int MAX_EVENTS_PER_FRAME = 16384; // Batch size when playing as fast as possible
+    private volatile double playbackSpeed = 1.0;
+    // Playback clock: recording time clockStartEventTs at System.nanoTime() clockStartNanos, advancing at playbackSpeed.
+    private long clockStartNanos, clockStartEventTs;
+    private long pausedEventTs; // Clock reading when paused, resumed from
+    private final AtomicBoolean batchInFlight = new AtomicBoolean(false); // A batch is queued on the FX thread
+
+    // --- Crash-safe journal of the recording in progress (or of the unsaved session it became) ---
+    private final Path journalDirectory = RecordingJournal.DEFAULT_DIRECTORY;
+    private RecordingJournal journal;
+    private Path sessionFile; // The journal's session file that recordedSession maps, deleted with the session
+    private final Object appendLock = new Object(); // Keeps journal appends in event order, outside stateLock
 
     //    private long recordingStartTime = 0;
     private Thread playbackThread;
     private final Consumer<UdpMessageData> eventConsumer;
+    private Consumer<List<UdpMessageData>> eventBatchConsumer; // Applies a frame's events with one redraw
     private final Runnable onPlaybackFinished;
     private Consumer<Integer> onProgressUpdateCallback; // For slider updates
     private final Object pauseLock = new Object();
@@ -45,36 +90,127 @@ public class RecordingManager {
     }
 
     /**
-     * Adds an event to the live buffer and prunes old events to maintain the buffer's time duration.
+     * Adds an event to the live buffer, which drops whole chunks of expired events as it goes
+     * (O(1) amortized), keeping it within its time window and memory budget.
      * This should be called for every incoming UDP message during live view.
      * @param messageData The data from the UDP message.
      */
     public void addLiveEvent(UdpMessageData messageData) {
         synchronized (stateLock) {
-            long now = System.currentTimeMillis();
-            liveBuffer.add(new RecordedEvent(now, messageData));
-
-            // Prune the buffer to keep it within the 10-minute window
-            long cutoffTimestamp = now - LIVE_BUFFER_DURATION_MS;
-            liveBuffer.removeIf(event -> event.timestamp < cutoffTimestamp);
+            liveBuffer.add(new RecordedEvent(System.currentTimeMillis(), messageData));
         }
     }
 
     /**
      * Loads the current content of the live buffer into the main recordedSession for playback.
-     * This is the core of the "Instant Replay" feature.
+     * This is the core of the "Instant Replay" feature. The session is a snapshot sharing the
+     * buffer's chunks, so no events are copied.
      */
     public void loadFromLiveBuffer() {
         synchronized (stateLock) {
-            // Pass a copy of the live buffer to the existing loadRecording method
-            loadRecording(new ArrayList<>(liveBuffer));
+            loadSession(liveBuffer.snapshot());
+        }
+    }
+
+    /**
+     * Deletes the journal of the current session, if it has one. Call once the session is saved;
+     * starting, loading or clearing a session discards the old one's journal itself.
+     */
+    public void discardJournal() {
+        synchronized (stateLock) {
+            if (journal != null) {
+                journal.delete();
+                journal = null;
+            }
+        }
+    }
+
+    /**
+     * Discards the journal and the session file of the session being replaced. A save of the session
+     * still reading the file keeps it readable on POSIX; where a mapped file cannot be deleted, it is
+     * left for {@link RecordingJournal#recoverAll} to delete on the next start.
+     */
+    private void discardSession() {
+        discardJournal();
+        if (sessionFile != null) {
+            RecordingJournal.deleteQuietly(sessionFile);
+            sessionFile = null;
         }
     }
 
+    /**
+     * Recovers recordings whose journal was left behind by a crash (see RecordingJournal.recoverAll).
+     * Call once at startup, before any recording starts.
+     */
+    public List<Path> recoverJournals() {
+        return RecordingJournal.recoverAll(journalDirectory);
+    }
+
     public void setOnProgressUpdate(Consumer<Integer> callback) {
         this.onProgressUpdateCallback = callback;
     }
 
+    /**
+     * Sets the handler for the events played back in one frame, which should apply them all and
+     * redraw once. Without one, the events go to the event consumer one by one.
+     */
+    public void setOnEventBatch(Consumer<List<UdpMessageData>> callback) {
+        this.eventBatchConsumer = callback;
+    }
+
+    /**
+     * Sets the playback speed, clamped to MIN_PLAYBACK_SPEED..MAX_PLAYBACK_SPEED unless it is
+     * AS_FAST_AS_POSSIBLE. Takes effect immediately when playing, from the current playback time.
+     */
+    public void setPlaybackSpeed(double speed) {
+        synchronized (stateLock) {
+            double clamped = speed == AS_FAST_AS_POSSIBLE ? speed : Math.max(MIN_PLAYBACK_SPEED, Math.min(speed, MAX_PLAYBACK_SPEED));
+            if (currentState == PlaybackState.PLAYING) {
+                long now = readClock();
+                playbackSpeed = clamped;
+                startClock(now);
+            } else {
+                playbackSpeed = clamped;
+            }
+        }
+    }
+
+    public double getPlaybackSpeed() {
+        return playbackSpeed;
+    }
+
+    /**
+     * Sets the handler that makes the field show a given state (called on the FX thread). Seeking and
+     * stepping hand it the exact state at the new position instead of replaying events over whatever
+     * the field was showing.
+     */
+    public void setOnStateRestore(Consumer<FieldState> callback) {
+        this.onStateRestoreCallback = callback;
+    }
+
+    /**
+     * Takes a snapshot of the session for saving. A session is replaced rather than changed once
+     * recorded, so nothing is copied. A session being recorded is only on disk, in its journal, so
+     * it cannot be saved until the recording stops.
+     * @throws IllegalStateException while recording.
+     */
+    public SessionSnapshot getSessionSnapshot() {
+        synchronized (stateLock) {
+            if (currentState == PlaybackState.RECORDING) throw new IllegalStateException("Stop recording before saving it");
+            return new SessionSnapshot(Collections.unmodifiableList(recordedSession), sessionId);
+        }
+    }
+
+    /**
+     * Deletes the journal of the session a snapshot was taken of, once it has been saved, unless
+     * that session has since been replaced (its journal is then already gone).
+     */
+    public void discardJournal(SessionSnapshot saved) {
+        synchronized (stateLock) {
+            if (saved.sessionId == sessionId) discardJournal();
+        }
+    }
+
     public ArrayList<RecordedEvent> getRecordedSession() {
         synchronized (stateLock) {
             return new ArrayList<>(recordedSession);
@@ -82,9 +218,28 @@ public class RecordingManager {
     }
 
     public void loadRecording(ArrayList<RecordedEvent> newSession) {
+        synchronized (stateLock) {
+            loadSession(newSession != null ? new ArrayList<>(newSession) : new ArrayList<>());
+        }
+    }
+
+    /**
+     * Loads a read-only session without copying it, e.g. a memory-mapped recording file. Opening
+     * stays cheap: the session is only indexed, and events are decoded as playback reaches them.
+     */
+    public void loadRecordingView(List<RecordedEvent> session) {
+        loadSession(session);
+    }
+
+    /** Makes the given list, which is not copied or modified, the session to play back. */
+    private void loadSession(List<RecordedEvent> newSession) {
         synchronized (stateLock) {
             stopPlaybackInternal();
-            recordedSession = newSession != null ? new ArrayList<>(newSession) : new ArrayList<>();
+            discardSession();
+            recordedSession = newSession;
+            sessionId++;
+            keyframes.clear(); // Built lazily, as far as seeks reach
+            positionIndex.rebuild(recordedSession);
             // When loading, we also clear the live buffer to avoid confusion
             liveBuffer.clear();
             playbackIndex = 0;
@@ -151,8 +306,18 @@ public class RecordingManager {
 //                return;
             }
             liveBuffer.clear();
+            discardSession();
+            try {
+                journal = new RecordingJournal(journalDirectory);
+                System.out.println("Journaling recording to: " + journal.getPath());
+            } catch (IOException e) {
+                System.err.println("Could not start recording journal, recording in memory only: " + e.getMessage());
+            }
             currentState = PlaybackState.RECORDING;
-            recordedSession.clear();
+            recordedSession = new ArrayList<>(); // Only used without a journal
+            sessionId++;
+            keyframes.clear();
+            positionIndex.clear();
             playbackIndex = 0;
 //            recordingStartTime = System.currentTimeMillis();
             recordingStartTimeMs = System.currentTimeMillis(); // Capture start time for duration
@@ -170,7 +335,11 @@ public class RecordingManager {
     public void clearAll() {
         synchronized (stateLock) {
             stopPlaybackInternal(); // Ensure any running playback is stopped
-            recordedSession.clear();
+            discardSession();
+            recordedSession = new ArrayList<>();
+            sessionId++;
+            keyframes.clear();
+            positionIndex.clear();
             liveBuffer.clear();
             playbackIndex = 0;
             firstEventTimestamp = -1;
@@ -180,22 +349,45 @@ public class RecordingManager {
         }
     }
 
+    /**
+     * Records an event. With a journal the event goes to it and is not kept in memory; the journal
+     * may make this wait if the disk falls behind, so that is done without holding stateLock, which
+     * the FX thread needs.
+     */
     public void addEvent(UdpMessageData messageData) {
-        synchronized (stateLock) {
-            if (currentState != PlaybackState.RECORDING) return;
+        synchronized (appendLock) {
+            RecordedEvent event;
+            RecordingJournal target;
+            synchronized (stateLock) {
+                if (currentState != PlaybackState.RECORDING) return;
 
-            long absoluteTimestamp = System.currentTimeMillis(); // Use ABSOLUTE timestamp
+                long absoluteTimestamp = System.currentTimeMillis(); // Use ABSOLUTE timestamp
 
-//            long timestamp = System.currentTimeMillis() - recordingStartTime;
-            if (recordedSession.isEmpty()) {
-                firstEventTimestamp = absoluteTimestamp; // This is the first actual event's ABSOLUTE timestamp
-                System.out.println("First event timestamp set to: " + firstEventTimestamp);
+//                long timestamp = System.currentTimeMillis() - recordingStartTime;
+                if (firstEventTimestamp == -1) {
+                    firstEventTimestamp = absoluteTimestamp; // This is the first actual event's ABSOLUTE timestamp
+                    System.out.println("First event timestamp set to: " + firstEventTimestamp);
 
-//                long currentTimestamp = System.currentTimeMillis(); // Or your specific time source
-//                firstEventTimestamp = currentTimestamp; // Capture timestamp of the first event
+//                    long currentTimestamp = System.currentTimeMillis(); // Or your specific time source
+//                    firstEventTimestamp = currentTimestamp; // Capture timestamp of the first event
+                }
+                // Store the ABSOLUTE timestamp in RecordedEvent
+                event = new RecordedEvent(absoluteTimestamp, messageData);
+                if (journal != null && journal.getFailure() != null) {
+                    System.err.println("Recording journal failed; what it holds is recovered on the next start from "
+                            + journal.getPath() + ". Recording the rest in memory.");
+                    journal.abandon();
+                    journal = null;
+                }
+                if (journal == null) {
+                    recordedSession.add(event);
+                    keyframes.append(messageData);
+                    positionIndex.append(event);
+                    return;
+                }
+                target = journal;
             }
-            // Store the ABSOLUTE timestamp in RecordedEvent
-            recordedSession.add(new RecordedEvent(absoluteTimestamp, messageData));
+            target.append(event);
 //            recordedSession.add(new RecordedEvent(timestamp, messageData));
         }
     }
@@ -205,14 +397,24 @@ public class RecordingManager {
             if (currentState != PlaybackState.RECORDING) return;
             currentState = PlaybackState.IDLE;
             recordingStartTimeMs = -1; // Reset
-            System.out.println("Recording stopped. Total events: " + recordedSession.size());
-            if (!recordedSession.isEmpty() && firstEventTimestamp == -1) {
-                // Fallback: If somehow no events were added but recording was started and stopped.
-                // Or if firstEventTimestamp wasn't set, which shouldn't happen with the logic in addEvent.
-                System.err.println("Warning: Recording stopped with events, but firstEventTimestamp was not set.");
-            } else if (recordedSession.isEmpty()) {
-                firstEventTimestamp = -1; // No events, no first timestamp
+            if (journal != null) {
+                // The journal is kept until the session is saved or discarded; the session is read
+                // back from its session file, which playback decodes as it goes.
+                try {
+                    recordedSession = journal.openSession();
+                    sessionFile = journal.getSessionPath();
+                    sessionId++;
+                    keyframes.clear();
+                    positionIndex.rebuild(recordedSession);
+                } catch (IOException e) {
+                    System.err.println("Recording journal incomplete; what it holds is recovered on the next start from "
+                            + journal.getPath() + ": " + e.getMessage());
+                    journal.abandon();
+                    journal = null;
+                }
             }
+            System.out.println("Recording stopped. Total events: " + recordedSession.size());
+            firstEventTimestamp = recordedSession.isEmpty() ? -1 : recordedSession.get(0).timestamp;
         }
     }
 
@@ -264,6 +466,7 @@ public class RecordingManager {
             }
 
             if (currentState == PlaybackState.PAUSED) {
+                startClock(pausedEventTs);
                 currentState = PlaybackState.PLAYING;
                 synchronized (pauseLock) {
                     pauseLock.notifyAll();
@@ -313,6 +516,7 @@ public class RecordingManager {
     public void pause() {
         synchronized (stateLock) {
             if (currentState != PlaybackState.PLAYING) return;
+            pausedEventTs = Math.max(readClock(), recordedSession.get(playbackIndex).timestamp);
             currentState = PlaybackState.PAUSED;
             System.out.println("Playback paused at index: " + playbackIndex);
         }
@@ -349,33 +553,10 @@ public class RecordingManager {
             }
             currentState = PlaybackState.IDLE; // Ensure state is IDLE
 
-            // Now, similar to stepBackward/stepForward, replay events to get the visual state correct
-            // up to snappedTargetPositionDataIndex.
-
-            // Find the PositionData event that occurred *before* our snappedTargetPositionDataIndex.
-            int dispatchStartIndex = 0; // Default to start of recording
-            for (int i = snappedTargetPositionDataIndex - 1; i >= 0; i--) {
-                if (recordedSession.get(i).messageData instanceof UdpPositionListener.PositionData) {
-                    dispatchStartIndex = i; // This is the anchor PositionData
-                    break;
-                }
-            }
-
-            // The FtcFieldSimulatorApp might need to be told to clear the screen FIRST
-            // if this seek operation is substantial (e.g., jumping far).
-            // For now, RecordingManager will just dispatch the events.
-
-            // Dispatch events from the anchor (or start) up to the target index
-            for (int i = dispatchStartIndex; i <= snappedTargetPositionDataIndex; i++) {
-                playbackIndex = i; // Update playbackIndex for each dispatched event
-                dispatchCurrentEvent(); // This will call eventConsumer and onProgressUpdateCallback
-            }
-            // playbackIndex is now at snappedTargetPositionDataIndex
+            // Restore the exact state at the snapped index from the nearest keyframe.
+            showStateAt(snappedTargetPositionDataIndex);
 
             System.out.println("Seeked. Current index: " + playbackIndex + " (Snapped from raw: " + targetRawIndex + ")");
-
-            // After dispatching, the slider in the UI should also reflect the snapped index.
-            // The onProgressUpdateCallback called by dispatchCurrentEvent() should handle this.
         }
     }
 
@@ -423,10 +604,9 @@ public class RecordingManager {
 
     /**
      * Steps forward.
-     * Finds the next RecordedEvent that contains PositionData.
-     * All events from the current playbackIndex up to and including the event BEFORE
-     * the found PositionData are dispatched. Then, the PositionData event itself is dispatched.
-     * If no further PositionData is found, it steps to the end of the recording, dispatching all events.
+     * Finds the next RecordedEvent that contains PositionData and restores the field state as of
+     * that event, which includes every event before it.
+     * If no further PositionData is found, it steps to the end of the recording.
      */
     public void stepForward() {
         synchronized (stateLock) {
@@ -446,29 +626,15 @@ public class RecordingManager {
             // Ensure state is IDLE for stepping logic. stopPlaybackInternal should handle this.
             currentState = PlaybackState.IDLE;
 
-            int startIndex = playbackIndex; // The event we are currently at
-            int targetIndex = -1;
-
             // Find the index of the next PositionData event
-            for (int i = startIndex + 1; i < recordedSession.size(); i++) {
-                if (recordedSession.get(i).messageData instanceof UdpPositionListener.PositionData) {
-                    targetIndex = i;
-                    break;
-                }
-            }
+            int targetIndex = positionIndex.nextPosition(playbackIndex);
 
             if (targetIndex == -1) {
                 // No more PositionData events found, so step to the very last event of the recording
                 targetIndex = recordedSession.size() - 1;
             }
 
-            // Dispatch all events from the one AFTER the current playbackIndex
-            // up to and including the targetIndex.
-            // The FtcFieldSimulatorApp's eventConsumer will handle drawing them.
-            for (int i = startIndex + 1; i <= targetIndex; i++) {
-                playbackIndex = i; // Update playbackIndex for each dispatched event
-                dispatchCurrentEvent(); // This will call eventConsumer and onProgressUpdateCallback
-            }
+            showStateAt(targetIndex);
 
             // playbackIndex is now at targetIndex
             System.out.println("Stepped forward. Current index: " + playbackIndex);
@@ -477,17 +643,8 @@ public class RecordingManager {
 
     /**
      * Steps backward.
-     * Finds the previous RecordedEvent that contains PositionData.
-     * The state is set to that PositionData event by dispatching it. All drawing events
-     * that occurred *before* this target PositionData (since the PositionData before *that*)
-     * would ideally be re-applied. This is trickier for true "undo" of drawing.
-     *
-     * SIMPLIFIED APPROACH for now: Step to the previous PositionData and dispatch it.
-     * To correctly redraw the state *before* it, the FieldDisplay would need to be
-     * cleared and all events from the start of the recording up to the new playbackIndex replayed.
-     *
-     * For now, let's make it step to the previous PositionData, and dispatch intervening non-PositionData events
-     * to ensure the *drawing commands leading up to that PositionData point* are applied.
+     * Finds the previous RecordedEvent that contains PositionData (or the first event if there is
+     * none) and restores the field state as of that event.
      */
     public void stepBackward() {
         synchronized (stateLock) {
@@ -507,15 +664,9 @@ public class RecordingManager {
             currentState = PlaybackState.IDLE;
 
             int currentIndex = playbackIndex;
-            int targetPositionDataIndex = -1;
 
             // Find the index of the PREVIOUS PositionData event
-            for (int i = currentIndex - 1; i >= 0; i--) {
-                if (recordedSession.get(i).messageData instanceof UdpPositionListener.PositionData) {
-                    targetPositionDataIndex = i;
-                    break;
-                }
-            }
+            int targetPositionDataIndex = positionIndex.previousPosition(currentIndex);
 
             if (targetPositionDataIndex == -1 && currentIndex > 0) {
                 // No prior PositionData, but not at the very start.
@@ -528,100 +679,27 @@ public class RecordingManager {
                 return;
             }
 
-
-            // To accurately reflect the visual state at targetPositionDataIndex,
-            // we need to ensure all drawing commands *up to that point* are processed.
-            // The simplest way to do this with the current dispatchCurrentEvent is to
-            // set playbackIndex and dispatch.
-            // However, this doesn't "undo" drawings that happened after targetPositionDataIndex.
-            //
-            // A more robust solution for "stepping back" and seeing the correct visual state
-            // often involves the FieldDisplay clearing and redrawing based on all events up to playbackIndex.
-
-            // For now, let's iterate from the start of the recording up to the targetPositionDataIndex,
-            // dispatching all events. This ensures the FieldDisplay gets all drawing commands
-            // that should have occurred before or at targetPositionDataIndex.
-            // This can be slow for very long recordings if not optimized.
-
-            // Alternative: Find the PositionData event *before* our targetPositionDataIndex (if any),
-            // then dispatch all events between that and our targetPositionDataIndex.
-
-            // Let's try this:
-            // 1. Set playbackIndex to the targetPositionDataIndex.
-            // 2. Clear the screen (responsibility of FieldDisplay, triggered by app).
-            // 3. Replay events from start up to targetPositionDataIndex (could be done in app).
-
-            // Simpler for RecordingManager: just set the index and dispatch.
-            // The app might need more logic if full visual history is required.
-
-            // Let's refine for stepping backward:
-            // We want to land on targetPositionDataIndex.
-            // All drawing commands that occurred *after* the PositionData *before* targetPositionDataIndex
-            // and *before or at* targetPositionDataIndex should be part of the state.
-
-            // Find the PositionData event that occurred *before* our targetPositionDataIndex.
-            int previousPositionDataAnchor = -1;
-            for (int i = targetPositionDataIndex - 1; i >= 0; i--) {
-                if (recordedSession.get(i).messageData instanceof UdpPositionListener.PositionData) {
-                    previousPositionDataAnchor = i;
-                    break;
-                }
-            }
-
-            // The events to "replay" to get the correct visual state for targetPositionDataIndex are
-            // those from (previousPositionDataAnchor + 1) up to targetPositionDataIndex.
-            // The FtcFieldSimulatorApp would need to tell FieldDisplay to clear first.
-
-            // For now, to make `stepBackward` consistent with `stepForward` in dispatching a sequence:
-            // Dispatch events from the *start* of the segment leading to `targetPositionDataIndex`.
-            // The "segment" starts after the `PositionData` just before our `targetPositionDataIndex`.
-
-            // Let FtcFieldSimulatorApp handle the screen clearing and potential full replay if needed for backward steps.
-            // Here, we'll dispatch events from the *previous `playbackIndex` down to the new one,
-            // or more simply, just set to the target and dispatch it, and assume FieldDisplay might need a refresh.
-
-            // New approach for stepBackward to show intermediate drawings:
-            // Find the target PositionData. Then, to show the state *at* that PositionData,
-            // we need all drawing commands that happened *since the PositionData before it*.
-
-            if (targetPositionDataIndex != -1) {
-                // To display the state correctly at targetPositionDataIndex,
-                // we'll dispatch events starting from the PositionData event *before* it (if any),
-                // or from the beginning of the recording, up to targetPositionDataIndex.
-
-                int dispatchStartIndex = 0; // Default to start of recording
-                // Find the PositionData immediately preceding targetPositionDataIndex
-                for(int i = targetPositionDataIndex - 1; i >= 0; i--) {
-                    if (recordedSession.get(i).messageData instanceof UdpPositionListener.PositionData) {
-                        dispatchStartIndex = i; // This is the anchor PositionData
-                        break;
-                    }
-                }
-
-                // Clear visual state (App tells FieldDisplay to do this)
-                // For now, we assume the app will handle this.
-                // Platform.runLater(() -> eventConsumer.accept(new ClearScreenPseudoEvent())); // Example
-
-                // Dispatch events from the anchor (or start) up to the target index
-                // Note: The first event dispatched here will be a PositionData (or start of list)
-                // The subsequent events will be drawing commands, ending with the targetPositionDataIndex.
-                for (int i = dispatchStartIndex; i <= targetPositionDataIndex; i++) {
-                    playbackIndex = i;
-                    dispatchCurrentEvent(); // This will update UI and call onProgressUpdate
-                }
-                System.out.println("Stepped backward. Current index: " + playbackIndex);
-
-            } else {
-                // This case should be handled by the initial check (playbackIndex <= 0)
-                // but as a fallback, if we end up here, just dispatch the current index.
-                if (playbackIndex >=0 && playbackIndex < recordedSession.size()){
-                    dispatchCurrentEvent();
-                }
-                System.out.println("Step backward: No suitable previous PositionData found or already at start.");
-            }
+            // Restore the exact state at the target from the nearest keyframe, which also undoes
+            // lines, key-values and text that belong to later events.
+            showStateAt(targetPositionDataIndex);
+            System.out.println("Stepped backward. Current index: " + playbackIndex);
         }
     }
 
+    /**
+     * Moves to the event at index and has the field show the exact state after it. The state comes
+     * from the nearest keyframe plus the events since, computed here; the FX thread only applies it.
+     * Assumes stateLock is held by the caller.
+     */
+    private void showStateAt(int index) {
+        final FieldState state = keyframes.stateAt(index, recordedSession, positionIndex);
+        playbackIndex = index;
+        Platform.runLater(() -> {
+            if (onStateRestoreCallback != null) onStateRestoreCallback.accept(state);
+            if (onProgressUpdateCallback != null) onProgressUpdateCallback.accept(index);
+        });
+    }
+
     // The dispatchCurrentEvent method already calls onProgressUpdateCallback,
     // which in FtcFieldSimulatorApp calls updateTimeLapsedDisplay().
     // It also calls eventConsumer.accept() which should trigger drawing in FieldDisplay.
@@ -639,17 +717,53 @@ public class RecordingManager {
         }
     }
 
-    // +++ MODIFIED to use dispatchCurrentEvent +++
+    /**
+     * Dispatches the events from..to (inclusive) in one FX update, then reports progress at to.
+     * Assumes stateLock is held by the caller.
+     */
+    private void dispatchBatch(int from, int to) {
+        final ArrayList<UdpMessageData> batch = new ArrayList<>(to - from + 1);
+        for (int i = from; i <= to; i++) batch.add(recordedSession.get(i).messageData);
+        final Consumer<List<UdpMessageData>> batchConsumer = eventBatchConsumer;
+        batchInFlight.set(true);
+        Platform.runLater(() -> {
+            if (batchConsumer != null) batchConsumer.accept(batch); else batch.forEach(eventConsumer);
+            if (onProgressUpdateCallback != null) onProgressUpdateCallback.accept(to);
+            batchInFlight.set(false);
+        });
+    }
+
+    /** Starts the playback clock at a recording timestamp. Assumes stateLock is held. */
+    private void startClock(long eventTs) {
+        clockStartNanos = System.nanoTime();
+        clockStartEventTs = eventTs;
+    }
+
+    /** @return the recording timestamp the playback clock has reached. Assumes stateLock is held. */
+    private long readClock() {
+        if (playbackSpeed == AS_FAST_AS_POSSIBLE) return recordedSession.get(playbackIndex).timestamp;
+        return clockStartEventTs + (long) ((System.nanoTime() - clockStartNanos) * playbackSpeed / 1_000_000);
+    }
+
+    /**
+     * Plays back on a frame tick. Each frame, every event whose time the playback clock has reached
+     * goes to the FX thread as one batch, so event times never accumulate sleep error and a burst of
+     * same-timestamp events costs one update. While the previous batch is still queued, the events
+     * wait for the next frame (which keeps the FX queue from backing up; the clock does not wait).
+     * As fast as possible, each frame takes the next MAX_EVENTS_PER_FRAME events instead.
+     */
     private void runPlaybackLoop() {
         // Initial event display before loop starts
         // This needs to be done under stateLock to ensure playbackIndex is read consistently
         synchronized(stateLock) {
             if (playbackIndex < recordedSession.size()) {
                 dispatchCurrentEvent(); // Use helper
+                startClock(recordedSession.get(playbackIndex).timestamp);
             }
         }
 
         try {
+            long nextFrameNanos = System.nanoTime();
             while (true) { // Loop condition is now managed by internal state checks and breaks
                 synchronized (pauseLock) {
                     while (currentState == PlaybackState.PAUSED) {
@@ -657,8 +771,8 @@ public class RecordingManager {
                     }
                 }
 
-                // Check state before proceeding (must be done under stateLock for visibility)
                 synchronized (stateLock) {
+                    if (currentState == PlaybackState.PAUSED) continue; // Paused since the check above
                     if (currentState != PlaybackState.PLAYING) {
                         System.out.println("Playback loop exiting due to state change from PLAYING. Current state: " + currentState);
                         break;
@@ -668,20 +782,24 @@ public class RecordingManager {
                         System.out.println("Reached end of recording in playback loop (displaying last event).");
                         break; // Exit loop, finally block will handle cleanup
                     }
-                }
-                // Calculate delay to the NEXT event (playbackIndex + 1)
-                long delayMillis = recordedSession.get(playbackIndex + 1).timestamp - recordedSession.get(playbackIndex).timestamp;
-                if (delayMillis < 0) delayMillis = 0; // Guard against negative/zero delays from bad data
 
-                Thread.sleep(delayMillis == 0 ? 1 : delayMillis); // Ensure at least 1ms sleep if timestamps are identical to yield CPU
-
-                synchronized(stateLock) {
-                    if (currentState != PlaybackState.PLAYING) {
-                        System.out.println("Playback loop: State changed during sleep. Exiting before increment. State: " + currentState);
-                        break;
+                    if (!batchInFlight.get()) {
+                        int last = playbackSpeed == AS_FAST_AS_POSSIBLE
+                                ? Math.min(playbackIndex + MAX_EVENTS_PER_FRAME, recordedSession.size() - 1)
+                                : positionIndex.eventIndexAtTime(readClock());
+                        if (last > playbackIndex) {
+                            dispatchBatch(playbackIndex + 1, last);
+                            playbackIndex = last;
+                        }
                     }
-                    playbackIndex++; // Move to the next event
-                    dispatchCurrentEvent(); // Dispatch the new current event
+                }
+
+                nextFrameNanos += FRAME_NANOS;
+                long sleepNanos = nextFrameNanos - System.nanoTime();
+                if (sleepNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } else {
+                    nextFrameNanos = System.nanoTime(); // Fell behind (e.g. after a pause); don't try to catch up
                 }
             }
         } catch (InterruptedException e) {
@@ -759,25 +877,23 @@ public class RecordingManager {
 
 
     /**
-     * Finds the index of the nearest PositionData event to a given target index.
-     * It can search backward first, then forward, or just pick the absolute closest.
-     * For snapping behavior, usually, you'd find the one the targetIndex is closest to,
-     * or the one just before/after depending on drag direction (more complex).
-     *
-     * Let's simplify: find the PositionData event <= targetIndex. If none, find the one >= targetIndex.
-     * Or, for a "snap to current segment's PositionData" feel:
-     *
-     * Given targetIndex, find PositionData_A (index <= targetIndex) and PositionData_B (index > targetIndex).
-     * Decide whether to snap to A or B. Often, snap to A if targetIndex is closer to A, else B.
-     * Or, more simply, always snap to the PositionData that *starts* the segment targetIndex falls into.
-     *
-     * Revised simple approach: Given targetIndex,
-     * 1. Find the LAST PositionData event at or BEFORE targetIndex.
-     * 2. If none, find the FIRST PositionData event at or AFTER targetIndex.
-     * 3. If still none, return targetIndex (or -1, or 0).
+     * Gets the index of the last event at or before a time into the recording.
+     * @param timeLapsedMs Time from the first event, in milliseconds.
+     * @return The event index, or -1 if there is no recording.
+     */
+    public int getEventIndexAtTimeLapsed(long timeLapsedMs) {
+        synchronized (stateLock) {
+            if (recordedSession.isEmpty() || firstEventTimestamp < 0) return -1;
+            return positionIndex.eventIndexAtTime(firstEventTimestamp + timeLapsedMs);
+        }
+    }
+
+    /**
+     * Finds the index of the PositionData event nearest to a given target index (the earlier one
+     * on a tie), by binary search in the position index.
      *
      * @param targetIndex The approximate index the user is trying to reach.
-     * @return The index of the "snapped" PositionData event, or the original targetIndex if no suitable snap point.
+     * @return The index of the "snapped" PositionData event, or 0 if the recording has no poses.
      */
     private int findClosestPositionEventIndex(int targetIndex) {
         if (recordedSession.isEmpty()) {
@@ -787,47 +903,8 @@ public class RecordingManager {
         // Ensure targetIndex is within bounds
         targetIndex = Math.max(0, Math.min(targetIndex, recordedSession.size() - 1));
 
-        // Case 1: The targetIndex itself is a PositionData event
-        if (recordedSession.get(targetIndex).messageData instanceof UdpPositionListener.PositionData) {
-            return targetIndex;
-        }
-
-        int prevPosIndex = -1;
-        for (int i = targetIndex; i >= 0; i--) {
-            if (recordedSession.get(i).messageData instanceof UdpPositionListener.PositionData) {
-                prevPosIndex = i;
-                break;
-            }
-        }
-
-        int nextPosIndex = -1;
-        for (int i = targetIndex; i < recordedSession.size(); i++) {
-            if (recordedSession.get(i).messageData instanceof UdpPositionListener.PositionData) {
-                nextPosIndex = i;
-                break;
-            }
-        }
-
-        if (prevPosIndex != -1 && nextPosIndex != -1) {
-            // Both found, choose the closer one to the original targetIndex
-            if (Math.abs(targetIndex - prevPosIndex) <= Math.abs(targetIndex - nextPosIndex)) {
-                return prevPosIndex;
-            } else {
-                return nextPosIndex;
-            }
-        } else if (prevPosIndex != -1) {
-            return prevPosIndex; // Only previous found
-        } else if (nextPosIndex != -1) {
-            return nextPosIndex; // Only next found
-        }
-
-        // No PositionData events found at all (should be rare if session has positions)
-        // or if the list only contains non-PositionData events around targetIndex.
-        // Fallback: return the first or last event, or the original target.
-        // For snapping, ideally we *always* find one if they exist.
-        // If truly no PositionData in whole recording, slider shouldn't really "snap".
-        if (!recordedSession.isEmpty()) return 0; // Fallback to start
-        return targetIndex; // Fallback to original if truly nothing makes sense
+        int nearest = positionIndex.nearestPosition(targetIndex);
+        return nearest >= 0 ? nearest : 0; // Fallback to start if there are no PositionData events at all
     }
 }
 
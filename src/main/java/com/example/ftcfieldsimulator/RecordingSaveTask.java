@@ -0,0 +1,77 @@
+package com.example.ftcfieldsimulator;
+
+import javafx.concurrent.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Saves a recording on a background thread, in the format its file name's extension picks
+ * (".recb", ".recz", otherwise the text ".rec").
+ *
+ * The task writes a {@link RecordingManager.SessionSnapshot}, so the FX thread, the UDP listener and
+ * playback carry on while it runs and nothing they do changes what is saved. Progress (fraction of
+ * the events written) and a status message are published through the Task properties.
+ *
+ * The recording is written to a temporary file in the same directory and moved over the target
+ * only once complete. The target may be the file the session was opened from, which is mapped
+ * while the snapshot is read, and a failed or cancelled save must not leave it cut short.
+ */
+public class RecordingSaveTask extends Task<Void> {
+
+    private final File file;
+    private final RecordingManager.SessionSnapshot snapshot;
+
+    public RecordingSaveTask(File file, RecordingManager.SessionSnapshot snapshot) {
+        this.file = file;
+        this.snapshot = snapshot;
+    }
+
+    public File getFile() { return file; }
+
+    public RecordingManager.SessionSnapshot getSnapshot() { return snapshot; }
+
+    @Override
+    protected Void call() throws Exception {
+        List<RecordingManager.RecordedEvent> events = snapshot.events;
+        int total = events.size();
+        updateMessage("Saving " + file.getName());
+        String name = file.getName();
+        Path target = file.getAbsoluteFile().toPath();
+        Path temp = Files.createTempFile(target.getParent(), name + ".", ".tmp");
+        try {
+            File out = temp.toFile();
+            if (name.endsWith(RecordingBinaryFile.EXTENSION)) {
+                RecordingBinaryFile.write(out, events, written -> reportProgress(written, total));
+            } else if (name.endsWith(RecordingCompressedFile.EXTENSION)) {
+                RecordingCompressedFile.write(out, events, RecordingCompressedFile.DEFAULT_DEFLATE, written -> reportProgress(written, total));
+            } else {
+                RecordingTextFormat.write(out, events, written -> reportProgress(written, total));
+            }
+            replace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        updateProgress(1, 1);
+        updateMessage(String.format("Saved %,d events to %s", total, name));
+        return null;
+    }
+
+    private static void replace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void reportProgress(int written, int total) {
+        updateProgress(written, Math.max(total, 1));
+        updateMessage(String.format("Saving %s: %,d of %,d events", file.getName(), written, total));
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.ftcfieldsimulator;
+
+import com.example.ftcfieldsimulator.RecordingManager.RecordedEvent;
+import com.example.ftcfieldsimulator.UdpPositionListener.CircleData;
+import com.example.ftcfieldsimulator.UdpPositionListener.KeyValueData;
+import com.example.ftcfieldsimulator.UdpPositionListener.LineData;
+import com.example.ftcfieldsimulator.UdpPositionListener.PositionData;
+import com.example.ftcfieldsimulator.UdpPositionListener.TextData;
+import com.example.ftcfieldsimulator.UdpPositionListener.UdpMessageData;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntConsumer;
+
+/**
+ * The text ".rec" recording format: one event per line, "timestamp|payload", where the payload is
+ * one of
+ * <pre>
+ *   pos:x,y,heading   cir:radius,heading   line:name,x1,y1,x2,y2,style   txt:text   kv:key,value
+ * </pre>
+ * Timestamps are absolute milliseconds. Lines that do not parse are skipped on reading, so a file
+ * cut off mid-line (e.g. a recovered journal) still reads up to its last whole event.
+ *
+ * Writing goes through a {@link LineEncoder}, which formats numbers straight into bytes, so saving
+ * a long session does not create a String (or a Formatter) per number.
+ */
+public final class RecordingTextFormat {
+
+    public static final String EXTENSION = ".rec";
+    /** How often, in events, {@link #write} reports its progress. */
+    public static final int PROGRESS_INTERVAL = 65536;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private RecordingTextFormat() {}
+
+    /** @return the event on a line, or null if the line is not a valid event. */
+    public static RecordedEvent parseLine(String line) {
+        String[] lineParts = line.split("\\|", 2);
+        if (lineParts.length != 2) return null;
+        try {
+            long timestamp = Long.parseLong(lineParts[0]); String payload = lineParts[1];
+            UdpMessageData parsedData = null;
+            if (payload.startsWith("pos:")) { String c = payload.substring(4); String[] p = c.split(","); if (p.length == 3) parsedData = new PositionData(Double.parseDouble(p[0]), Double.parseDouble(p[1]), Double.parseDouble(p[2])); }
+            else if (payload.startsWith("cir:")) { String c = payload.substring(4); String[] p = c.split(","); if (p.length == 2) parsedData = new CircleData(Double.parseDouble(p[0]), Double.parseDouble(p[1])); }
+            else if (payload.startsWith("line:")) { String c = payload.substring(5); String[] p = c.split(",", 6); if (p.length == 6) parsedData = new LineData(p[0], Double.parseDouble(p[1]), Double.parseDouble(p[2]), Double.parseDouble(p[3]), Double.parseDouble(p[4]), Integer.parseInt(p[5]));}
+            else if (payload.startsWith("txt:")) { parsedData = new TextData(payload.substring(4));}
+            else if (payload.startsWith("kv:")) {
+                String c = payload.substring(3);
+                String[] p = c.split(",", 2);
+                if (p.length == 2) parsedData = new KeyValueData(p[0], p[1]);
+            }
+            return parsedData != null ? new RecordedEvent(timestamp, parsedData) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes events to a .rec file through one large buffer.
+     * @param progress called with the number of events written so far, every PROGRESS_INTERVAL events.
+     */
+    public static void write(File file, List<RecordedEvent> events, IntConsumer progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            LineEncoder encoder = new LineEncoder();
+            int n = events.size();
+            for (int i = 0; i < n; i++) {
+                if (encoder.encode(events.get(i))) {
+                    if (buffer.remaining() < encoder.length()) flush(channel, buffer);
+                    if (encoder.length() > buffer.capacity()) write(channel, ByteBuffer.wrap(encoder.bytes(), 0, encoder.length()));
+                    else buffer.put(encoder.bytes(), 0, encoder.length());
+                }
+                if ((i + 1) % PROGRESS_INTERVAL == 0) progress.accept(i + 1);
+            }
+            flush(channel, buffer);
+            progress.accept(n);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        write(channel, buffer);
+        buffer.clear();
+    }
+
+    private static void write(FileChannel channel, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) channel.write(data);
+    }
+
+    /**
+     * Encodes events as .rec lines, each with its '\n', into a reused byte array. Numbers are
+     * written digit by digit, with the same result as String.format(Locale.US, "%.3f"), and ASCII
+     * strings char by char; anything else is encoded as UTF-8.
+     * Not thread safe.
+     */
+    public static final class LineEncoder {
+        /** Beyond this magnitude the rounding below is not exact enough to trust. */
+        private static final double MAX_FAST_MAGNITUDE = 1e9;
+        /** How close to a half-thousandth a value must be to be formatted as Formatter does it. */
+        private static final double TIE_TOLERANCE = 1e-3;
+
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        public byte[] bytes() { return bytes; }
+        public int length() { return length; }
+
+        /** @return false, leaving nothing encoded, for an unknown message type. */
+        public boolean encode(RecordedEvent event) {
+            length = 0;
+            UdpMessageData data = event.messageData;
+            putLong(event.timestamp);
+            put('|');
+            if (data instanceof PositionData d) {
+                putAscii("pos:"); putFixed3(d.x); put(','); putFixed3(d.y); put(','); putFixed3(d.heading);
+            } else if (data instanceof CircleData d) {
+                putAscii("cir:"); putFixed3(d.radiusInches); put(','); putFixed3(d.heading);
+            } else if (data instanceof LineData d) {
+                putAscii("line:"); putString(d.name); put(',');
+                putFixed3(d.x1); put(','); putFixed3(d.y1); put(','); putFixed3(d.x2); put(','); putFixed3(d.y2); put(',');
+                putLong(d.styleCode);
+            } else if (data instanceof TextData d) {
+                putAscii("txt:"); putString(d.text);
+            } else if (data instanceof KeyValueData kv) {
+                putAscii("kv:"); putString(kv.key); put(','); putString(kv.value);
+            } else {
+                length = 0;
+                return false;
+            }
+            put('\n');
+            return true;
+        }
+
+        private void ensure(int count) {
+            if (length + count > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+        }
+
+        private void put(char c) {
+            ensure(1);
+            bytes[length++] = (byte) c;
+        }
+
+        private void putAscii(String s) {
+            ensure(s.length());
+            for (int i = 0; i < s.length(); i++) bytes[length++] = (byte) s.charAt(i);
+        }
+
+        /** As String.valueOf: "null" for null, as "%s" prints it. */
+        private void putString(String s) {
+            if (s == null) { putAscii("null"); return; }
+            int n = s.length();
+            ensure(n);
+            for (int i = 0; i < n; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) { // Rare: encode the rest properly
+                    byte[] utf8 = s.substring(i).getBytes(StandardCharsets.UTF_8);
+                    ensure(utf8.length);
+                    System.arraycopy(utf8, 0, bytes, length, utf8.length);
+                    length += utf8.length;
+                    return;
+                }
+                bytes[length++] = (byte) c;
+            }
+        }
+
+        private void putLong(long v) {
+            if (v == Long.MIN_VALUE) { putAscii(Long.toString(v)); return; }
+            ensure(20);
+            if (v < 0) { bytes[length++] = '-'; v = -v; }
+            int start = length;
+            do {
+                bytes[length++] = (byte) ('0' + v % 10);
+                v /= 10;
+            } while (v != 0);
+            for (int i = start, j = length - 1; i < j; i++, j--) { byte t = bytes[i]; bytes[i] = bytes[j]; bytes[j] = t; }
+        }
+
+        /**
+         * As "%.3f" with Locale.US. Formatter rounds the shortest decimal form of a value half up,
+         * which only differs from rounding the value itself near a tie; those values, like NaN,
+         * infinities and huge values, go through String.format.
+         */
+        private void putFixed3(double v) {
+            double magnitude = Math.abs(v);
+            double scaled = magnitude * 1000;
+            if (!(magnitude < MAX_FAST_MAGNITUDE) || Math.abs(scaled - Math.floor(scaled) - 0.5) < TIE_TOLERANCE) {
+                putAscii(String.format(Locale.US, "%.3f", v));
+                return;
+            }
+            if (Double.doubleToRawLongBits(v) < 0) put('-'); // Negative, including -0.0, as "%.3f" prints it
+            long thousandths = Math.round(scaled);
+            putLong(thousandths / 1000);
+            ensure(4);
+            long fraction = thousandths % 1000;
+            bytes[length++] = '.';
+            bytes[length++] = (byte) ('0' + fraction / 100);
+            bytes[length++] = (byte) ('0' + fraction / 10 % 10);
+            bytes[length++] = (byte) ('0' + fraction % 10);
+        }
+    }
+
+    public static ArrayList<RecordedEvent> read(File file) throws IOException {
+        ArrayList<RecordedEvent> events = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                RecordedEvent event = parseLine(line);
+                if (event != null) events.add(event);
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.ftcfieldsimulator;
+
+import com.example.ftcfieldsimulator.RecordingManager.RecordedEvent;
+
+import java.util.List;
+
+/**
+ * A read-only recording backed by a file, which decodes events as they are asked for. Timestamps and
+ * event types can be read without decoding the events, so a view can be indexed cheaply on opening.
+ */
+public interface RecordingView extends List<RecordedEvent> {
+
+    long getTimestamp(int index);
+
+    boolean isPosition(int index);
+
+    /** @return the seek index stored in the file, or null if it has none and must be built on loading. */
+    RecordingIndex getIndex();
+}
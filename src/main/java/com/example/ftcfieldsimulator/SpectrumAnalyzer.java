@@ -0,0 +1,108 @@
+package com.example.ftcfieldsimulator;
+
+/**
+ * Sliding-window amplitude spectrum of one irregularly sampled series.
+ *
+ * Incoming samples are linearly interpolated onto a uniform grid (robot loop timing jitters, the FFT
+ * needs even spacing) and kept in a ring buffer holding the last window of grid points. Adding a
+ * sample costs O(grid points it covers); the spectrum is only computed when asked for, on a
+ * Hann-windowed copy of the ring. All buffers are allocated by {@link #configure}, none per update.
+ *
+ * Not thread safe; the spectrum pane uses it on the FX thread.
+ */
+public class SpectrumAnalyzer {
+
+    private RealFft fft;
+    private double sampleIntervalMs = 10;
+    private double[] ring = new double[0], hann = new double[0], frame = new double[0], magnitudes = new double[0];
+    private double hannSum = 1;
+    private int ringPos = 0, filled = 0;
+    private boolean dirty = false;
+
+    // Resampling state
+    private long lastTimestamp = Long.MIN_VALUE;
+    private double lastValue = Double.NaN;
+    private double nextGridTs;
+
+    /** Sets the window size (a power of two) and grid spacing, and forgets all samples. */
+    public void configure(int windowSize, double sampleIntervalMs) {
+        if (fft == null || fft.size() != windowSize) {
+            fft = new RealFft(windowSize);
+            ring = new double[windowSize];
+            frame = new double[windowSize];
+            magnitudes = new double[windowSize / 2 + 1];
+            hann = new double[windowSize];
+            hannSum = 0;
+            for (int i = 0; i < windowSize; i++) {
+                hann[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (windowSize - 1));
+                hannSum += hann[i];
+            }
+        }
+        this.sampleIntervalMs = sampleIntervalMs;
+        reset();
+    }
+
+    public void reset() {
+        ringPos = 0;
+        filled = 0;
+        lastTimestamp = Long.MIN_VALUE;
+        lastValue = Double.NaN;
+        dirty = true;
+    }
+
+    public int getWindowSize() { return ring.length; }
+    public double getSampleIntervalMs() { return sampleIntervalMs; }
+    public double getSampleRateHz() { return 1000.0 / sampleIntervalMs; }
+    /** @return the frequency step between spectrum bins. */
+    public double getBinWidthHz() { return getSampleRateHz() / ring.length; }
+    /** @return the fraction of the window filled with samples so far. */
+    public double getFillFraction() { return ring.length == 0 ? 0 : (double) filled / ring.length; }
+    /** @return true if samples arrived since the last {@link #compute()}. */
+    public boolean isDirty() { return dirty; }
+
+    /** Adds one sample; samples must arrive in time order. NaN samples (gaps) are skipped. */
+    public void addSample(long timestamp, double value) {
+        if (ring.length == 0 || Double.isNaN(value) || timestamp < lastTimestamp) return;
+        if (lastTimestamp == Long.MIN_VALUE || (timestamp - lastTimestamp) > sampleIntervalMs * ring.length) {
+            // First sample, or a gap longer than the window: restart the grid here.
+            filled = 0;
+            ringPos = 0;
+            nextGridTs = timestamp;
+        }
+        while (nextGridTs <= timestamp) {
+            double v;
+            if (lastTimestamp == Long.MIN_VALUE || timestamp == lastTimestamp || nextGridTs <= lastTimestamp) v = value;
+            else v = lastValue + (value - lastValue) * (nextGridTs - lastTimestamp) / (timestamp - lastTimestamp);
+            ring[ringPos] = v;
+            ringPos = (ringPos + 1) % ring.length;
+            if (filled < ring.length) filled++;
+            nextGridTs += sampleIntervalMs;
+        }
+        lastTimestamp = timestamp;
+        lastValue = value;
+        dirty = true;
+    }
+
+    /**
+     * Computes the amplitude spectrum of the current window (zero-padded at the start if it is not
+     * full yet), with the mean removed.
+     * @return the amplitudes of bins 0..windowSize/2, in signal units; owned by the analyzer.
+     */
+    public double[] compute() {
+        dirty = false;
+        int n = ring.length;
+        if (n == 0) return magnitudes;
+        double mean = 0;
+        for (int i = 0; i < filled; i++) mean += ring[(ringPos - filled + i + n) % n];
+        mean = filled > 0 ? mean / filled : 0;
+        int padding = n - filled;
+        for (int i = 0; i < n; i++) {
+            frame[i] = i < padding ? 0 : (ring[(ringPos - n + i + n) % n] - mean) * hann[i];
+        }
+        fft.magnitudes(frame, magnitudes);
+        // Single-sided amplitude, corrected for the Hann window's coherent gain.
+        double scale = 2.0 / hannSum;
+        for (int k = 0; k < magnitudes.length; k++) magnitudes[k] *= scale;
+        return magnitudes;
+    }
+}
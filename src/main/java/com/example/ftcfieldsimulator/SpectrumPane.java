@@ -0,0 +1,192 @@
+package com.example.ftcfieldsimulator;
+
+import javafx.animation.AnimationTimer;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Live amplitude spectrum of one plot series, for spotting oscillation when tuning flywheels and PID
+ * loops.
+ *
+ * Samples of the chosen series are pushed into a {@link SpectrumAnalyzer} as the plot ingests them;
+ * the spectrum itself is recomputed at most once per frame, and only while the pane is active and
+ * new samples have arrived. Amplitudes are drawn in dB on a linear frequency axis up to Nyquist.
+ */
+public class SpectrumPane extends VBox implements PlotDisplay.SampleListener {
+
+    private static final Integer[] WINDOW_SIZES = {256, 512, 1024, 2048, 4096, 8192};
+    private static final double DEFAULT_SAMPLE_INTERVAL_MS = 10;
+    private static final double DB_RANGE = 80;
+    private static final double PAD_LEFT = 45, PAD_RIGHT = 15, PAD_TOP = 10, PAD_BOTTOM = 25;
+    private static final Font AXIS_FONT = Font.font("Arial", 10);
+
+    private final PlotDisplay plotDisplay;
+    private final SpectrumAnalyzer analyzer = new SpectrumAnalyzer();
+    private final ComboBox<DerivedChannel.Source> cmbSeries = new ComboBox<>();
+    private final ComboBox<Integer> cmbWindowSize = new ComboBox<>(FXCollections.observableArrayList(WINDOW_SIZES));
+    private final Label lblInfo = new Label("Select a series");
+    private final Canvas canvas;
+    private final AnimationTimer frameTimer;
+    private DerivedChannel.Source selected;
+    private boolean active = false;
+    private double[] polylineX = new double[0], polylineY = new double[0];
+
+    public SpectrumPane(PlotDisplay plotDisplay, double width, double height) {
+        super(5);
+        this.plotDisplay = plotDisplay;
+        setPadding(new Insets(5, 10, 5, 10));
+
+        cmbSeries.setPromptText("Series");
+        cmbSeries.setPrefWidth(200);
+        PlotUiUtil.bindSeriesSources(cmbSeries, plotDisplay::getSeriesSources);
+        cmbSeries.valueProperty().addListener((obs, old, source) -> selectSeries(source));
+        cmbWindowSize.getSelectionModel().select(Integer.valueOf(1024));
+        cmbWindowSize.valueProperty().addListener((obs, old, size) -> selectSeries(selected));
+
+        HBox controls = new HBox(8, new Label("Series:"), cmbSeries, new Label("Window:"), cmbWindowSize, lblInfo);
+        controls.setAlignment(Pos.CENTER_LEFT);
+
+        canvas = new Canvas(width, height);
+        getChildren().addAll(controls, canvas);
+
+        frameTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (active && selected != null && analyzer.isDirty()) drawSpectrum(analyzer.compute());
+            }
+        };
+        frameTimer.start();
+        plotDisplay.addSampleListener(this);
+        drawSpectrum(null);
+    }
+
+    /** Only an active pane computes spectra; the window deactivates it while it is collapsed. */
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public void dispose() {
+        frameTimer.stop();
+    }
+
+    @Override
+    public void onSample(int kind, int style, long timestamp, double value) {
+        if (selected != null && selected.kind == kind && selected.style == style) analyzer.addSample(timestamp, value);
+    }
+
+    @Override
+    public void onClear() {
+        analyzer.reset();
+    }
+
+    @Override
+    public void onLoaded() {
+        selectSeries(selected); // Fills the window from the loaded history
+    }
+
+    /** Re-estimates the grid spacing of the series and refills the window from the plot history. */
+    private void selectSeries(DerivedChannel.Source source) {
+        selected = source;
+        if (source == null) { drawSpectrum(null); return; }
+        PlotDataStore store = plotDisplay.getDataStore();
+        PlotDataStore.Series series = store.findSeries(source.kind, source.style);
+        double interval = series != null ? estimateSampleIntervalMs(store, series) : DEFAULT_SAMPLE_INTERVAL_MS;
+        analyzer.configure(cmbWindowSize.getValue(), interval);
+        if (series != null) {
+            long from = store.getMaxTimestamp() - (long) Math.ceil(interval * analyzer.getWindowSize() * 1.05);
+            store.forEachSample(series, from, Long.MAX_VALUE, true, analyzer::addSample);
+        }
+    }
+
+    /** @return the median spacing of the last few hundred samples of the series. */
+    private static double estimateSampleIntervalMs(PlotDataStore store, PlotDataStore.Series series) {
+        long[] last = new long[513];
+        int[] count = {0};
+        store.forEachSample(series, store.getMaxTimestamp() - 5000, Long.MAX_VALUE, false, (ts, v) -> last[count[0]++ % last.length] = ts);
+        int n = Math.min(count[0], last.length);
+        if (n < 2) return DEFAULT_SAMPLE_INTERVAL_MS;
+        long[] ordered = new long[n];
+        for (int i = 0; i < n; i++) ordered[i] = last[(count[0] - n + i) % last.length];
+        long[] deltas = new long[n - 1];
+        for (int i = 1; i < n; i++) deltas[i - 1] = ordered[i] - ordered[i - 1];
+        Arrays.sort(deltas);
+        return Math.max(deltas[deltas.length / 2], 0.5);
+    }
+
+    private void drawSpectrum(double[] magnitudes) {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double w = canvas.getWidth(), h = canvas.getHeight();
+        double plotW = w - PAD_LEFT - PAD_RIGHT, plotH = h - PAD_TOP - PAD_BOTTOM;
+        gc.setFill(Color.WHITE);
+        gc.fillRect(0, 0, w, h);
+        gc.setStroke(Color.GRAY);
+        gc.setLineWidth(1);
+        gc.setLineDashes(null);
+        gc.strokeRect(PAD_LEFT, PAD_TOP, plotW, plotH);
+        if (magnitudes == null || selected == null) {
+            lblInfo.setText(selected == null ? "Select a series" : "");
+            return;
+        }
+
+        // The strongest bin above DC sets the top of the scale.
+        int bins = magnitudes.length;
+        int peak = 1;
+        for (int k = 1; k < bins; k++) {
+            if (magnitudes[k] > magnitudes[peak]) peak = k;
+        }
+        double topDb = Math.ceil(toDb(magnitudes[peak]) / 10) * 10, bottomDb = topDb - DB_RANGE;
+        double nyquist = analyzer.getSampleRateHz() / 2;
+
+        // --- Grid and labels ---
+        gc.setFont(AXIS_FONT);
+        gc.setFill(Color.BLACK);
+        gc.setStroke(Color.LIGHTGRAY);
+        gc.setTextAlign(TextAlignment.RIGHT);
+        for (double db = bottomDb; db <= topDb; db += 20) {
+            double y = PAD_TOP + (topDb - db) / DB_RANGE * plotH;
+            gc.strokeLine(PAD_LEFT, y, PAD_LEFT + plotW, y);
+            gc.fillText(String.format(Locale.US, "%.0f dB", db), PAD_LEFT - 4, y + 3);
+        }
+        gc.setTextAlign(TextAlignment.CENTER);
+        double step = MathUtil.niceStep(nyquist / 8);
+        for (double f = 0; f <= nyquist + 1e-9; f += step) {
+            double x = PAD_LEFT + f / nyquist * plotW;
+            gc.strokeLine(x, PAD_TOP, x, PAD_TOP + plotH);
+            gc.fillText(String.format(Locale.US, step < 1 ? "%.1f" : "%.0f", f), x, PAD_TOP + plotH + 14);
+        }
+        gc.setTextAlign(TextAlignment.LEFT);
+
+        // --- Spectrum ---
+        if (polylineX.length < bins) { polylineX = new double[bins]; polylineY = new double[bins]; }
+        for (int k = 0; k < bins; k++) {
+            polylineX[k] = PAD_LEFT + (double) k / (bins - 1) * plotW;
+            double db = Math.max(toDb(magnitudes[k]), bottomDb);
+            polylineY[k] = PAD_TOP + (topDb - db) / DB_RANGE * plotH;
+        }
+        gc.setStroke(Color.BLUE);
+        gc.strokePolyline(polylineX, polylineY, bins);
+
+        double peakHz = peak * analyzer.getBinWidthHz();
+        gc.setStroke(Color.RED);
+        gc.strokeLine(polylineX[peak], PAD_TOP, polylineX[peak], PAD_TOP + plotH);
+        lblInfo.setText(String.format(Locale.US, "fs %.1f Hz, bin %.2f Hz, peak %.2f Hz (%.3g)%s", analyzer.getSampleRateHz(),
+                analyzer.getBinWidthHz(), peakHz, magnitudes[peak], analyzer.getFillFraction() < 1 ? String.format(Locale.US, ", filling %.0f%%", analyzer.getFillFraction() * 100) : ""));
+    }
+
+    private static double toDb(double amplitude) {
+        return 20 * Math.log10(Math.max(amplitude, 1e-12));
+    }
+}
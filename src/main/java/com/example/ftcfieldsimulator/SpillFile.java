@@ -0,0 +1,102 @@
+package com.example.ftcfieldsimulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only temporary file used to page cold data out of the heap.
+ *
+ * The file is mapped in fixed-size segments, so writes and reads are plain memory copies and the
+ * operating system decides what actually stays resident. A block never straddles two segments;
+ * its location is returned packed into a long (segment index in the high 32 bits, offset in the
+ * low 32 bits).
+ *
+ * The file is created lazily on the first write, marked delete-on-exit, and removed by
+ * {@link #close()}. Concurrency: every public method is synchronized on this instance.
+ */
+public class SpillFile implements Closeable {
+
+    public static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final String prefix;
+    private Path path;
+    private FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private int writeOffset = 0; // Next free byte in the last segment
+
+    public SpillFile(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * Appends a block of bytes.
+     * @return the packed location of the block, to be passed to {@link #read}.
+     */
+    public synchronized long write(byte[] data, int length) throws IOException {
+        if (length > SEGMENT_SIZE) throw new IllegalArgumentException("Block larger than a spill segment: " + length);
+        if (channel == null) open();
+        if (segments.isEmpty() || writeOffset + length > SEGMENT_SIZE) {
+            long position = (long) segments.size() * SEGMENT_SIZE;
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, SEGMENT_SIZE));
+            writeOffset = 0;
+        }
+        int segmentIndex = segments.size() - 1;
+        segments.get(segmentIndex).put(writeOffset, data, 0, length);
+        long location = ((long) segmentIndex << 32) | writeOffset;
+        writeOffset += length;
+        return location;
+    }
+
+    /** Copies a block previously written at the given location into dest[0..length). */
+    public synchronized void read(long location, byte[] dest, int length) {
+        int segmentIndex = (int) (location >>> 32);
+        int offset = (int) location;
+        segments.get(segmentIndex).get(offset, dest, 0, length);
+    }
+
+    /** @return the number of bytes the spilled blocks occupy on disk. */
+    public synchronized long getSpilledBytes() {
+        return segments.isEmpty() ? 0 : (long) (segments.size() - 1) * SEGMENT_SIZE + writeOffset;
+    }
+
+    private void open() throws IOException {
+        path = Files.createTempFile(prefix, ".spill");
+        path.toFile().deleteOnExit();
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Drops all spilled blocks and deletes the file. The instance can be written to again afterwards,
+     * in which case a new file is created.
+     */
+    @Override
+    public synchronized void close() {
+        // Mapped buffers are released by the GC; on platforms that refuse to delete a mapped file
+        // the delete-on-exit registration takes care of it.
+        segments.clear();
+        writeOffset = 0;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing plot spill file: " + e.getMessage());
+            }
+            channel = null;
+        }
+        if (path != null) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                System.err.println("Could not delete plot spill file now, will retry on exit: " + path);
+            }
+            path = null;
+        }
+    }
+}
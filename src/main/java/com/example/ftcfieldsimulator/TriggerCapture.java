@@ -0,0 +1,45 @@
+package com.example.ftcfieldsimulator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The samples of every series around one firing of a {@link PlotTrigger}, copied out of the plot
+ * store so they outlive the live history (including Clear Plot).
+ */
+public class TriggerCapture {
+
+    /** The captured samples of one series. */
+    public static final class SeriesData {
+        public final int kind, style;
+        public final String label;
+        public final long[] timestamps;
+        public final double[] values;
+
+        SeriesData(int kind, int style, String label, long[] timestamps, double[] values) {
+            this.kind = kind; this.style = style; this.label = label; this.timestamps = timestamps; this.values = values;
+        }
+    }
+
+    private final String name;
+    private final long triggerTimestamp, fromTimestamp, toTimestamp;
+    private final List<SeriesData> series = new ArrayList<>();
+
+    public TriggerCapture(String name, long triggerTimestamp, long fromTimestamp, long toTimestamp) {
+        this.name = name;
+        this.triggerTimestamp = triggerTimestamp;
+        this.fromTimestamp = fromTimestamp;
+        this.toTimestamp = toTimestamp;
+    }
+
+    void addSeries(SeriesData data) { series.add(data); }
+
+    public String getName() { return name; }
+    public long getTriggerTimestamp() { return triggerTimestamp; }
+    public long getFromTimestamp() { return fromTimestamp; }
+    public long getToTimestamp() { return toTimestamp; }
+    public List<SeriesData> getSeries() { return Collections.unmodifiableList(series); }
+
+    @Override public String toString() { return name; }
+}
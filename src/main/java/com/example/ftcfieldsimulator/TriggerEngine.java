@@ -0,0 +1,156 @@
+package com.example.ftcfieldsimulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Evaluates the {@link PlotTrigger}s of a plot as samples and key-value events are ingested, and
+ * turns each firing into a {@link TriggerCapture}.
+ *
+ * Triggers are indexed by series and by key, so an ingested sample only reaches the triggers that
+ * watch it and costs nothing when none does. A firing is pending until a sample at or past the end
+ * of its post-trigger window arrives; only then is the window copied out of the store. The check
+ * against the earliest pending deadline is a single comparison per sample.
+ *
+ * At most {@link #MAX_CAPTURES} captures are kept; older ones are dropped first.
+ *
+ * Not thread safe; PlotDisplay uses it on the FX thread only.
+ */
+public class TriggerEngine {
+
+    public static final int MAX_CAPTURES = 50;
+
+    /** Receives every firing, before its capture is complete. */
+    public interface FireListener {
+        void fired(PlotTrigger trigger, long timestamp);
+    }
+
+    private static final class PendingCapture {
+        final String name;
+        final long triggerTimestamp, fromTimestamp, toTimestamp;
+        PendingCapture(String name, long triggerTimestamp, long fromTimestamp, long toTimestamp) {
+            this.name = name; this.triggerTimestamp = triggerTimestamp; this.fromTimestamp = fromTimestamp; this.toTimestamp = toTimestamp;
+        }
+    }
+
+    private final List<PlotTrigger> triggers = new ArrayList<>();
+    private final Map<Long, List<PlotTrigger>> triggersBySeries = new HashMap<>();
+    private final Map<String, List<PlotTrigger>> triggersByKey = new HashMap<>();
+    private final List<PendingCapture> pending = new ArrayList<>();
+    private long nextDeadline = Long.MAX_VALUE;
+    private final List<TriggerCapture> captures = new ArrayList<>();
+
+    private static long key(int kind, int style) { return ((long) style << 8) | kind; }
+
+    public PlotTrigger add(PlotTrigger.Definition definition) {
+        PlotTrigger trigger = new PlotTrigger(definition);
+        triggers.add(trigger);
+        if (definition.condition.usesSeries()) {
+            triggersBySeries.computeIfAbsent(key(definition.source.kind, definition.source.style), k -> new ArrayList<>()).add(trigger);
+        } else {
+            triggersByKey.computeIfAbsent(definition.key, k -> new ArrayList<>()).add(trigger);
+        }
+        return trigger;
+    }
+
+    public void remove(PlotTrigger trigger) {
+        triggers.remove(trigger);
+        for (List<PlotTrigger> list : triggersBySeries.values()) list.remove(trigger);
+        for (List<PlotTrigger> list : triggersByKey.values()) list.remove(trigger);
+    }
+
+    public List<PlotTrigger> getTriggers() { return new ArrayList<>(triggers); }
+    public boolean isEmpty() { return triggers.isEmpty() && pending.isEmpty(); }
+
+    public void onSample(int kind, int style, long timestamp, double value, FireListener listener) {
+        List<PlotTrigger> targets = triggersBySeries.get(key(kind, style));
+        if (targets == null) return;
+        for (PlotTrigger trigger : targets) {
+            if (trigger.onSample(timestamp, value)) fire(trigger, timestamp, listener);
+        }
+    }
+
+    public void onKeyValue(long timestamp, String key, String value, FireListener listener) {
+        List<PlotTrigger> targets = triggersByKey.get(key);
+        if (targets == null) return;
+        for (PlotTrigger trigger : targets) {
+            if (trigger.onKeyValue(timestamp, value)) fire(trigger, timestamp, listener);
+        }
+    }
+
+    private void fire(PlotTrigger trigger, long timestamp, FireListener listener) {
+        PlotTrigger.Definition d = trigger.getDefinition();
+        PendingCapture capture = new PendingCapture(d.name + " #" + trigger.getFireCount(), timestamp, timestamp - d.preMs, timestamp + d.postMs);
+        pending.add(capture);
+        nextDeadline = Math.min(nextDeadline, capture.toTimestamp);
+        listener.fired(trigger, timestamp);
+    }
+
+    /** @return true if a sample at this time completes a pending capture. */
+    public boolean hasDueCaptures(long timestamp) { return timestamp >= nextDeadline; }
+
+    /**
+     * Copies out of the store the captures whose post-trigger window ended by the given time.
+     * @return the completed captures, oldest first.
+     */
+    public List<TriggerCapture> freezeDue(long timestamp, PlotDataStore store, Function<PlotDataStore.Series, String> labeler) {
+        List<TriggerCapture> frozen = new ArrayList<>();
+        nextDeadline = Long.MAX_VALUE;
+        for (Iterator<PendingCapture> it = pending.iterator(); it.hasNext(); ) {
+            PendingCapture p = it.next();
+            if (p.toTimestamp <= timestamp) {
+                frozen.add(freeze(p, store, labeler));
+                it.remove();
+            } else {
+                nextDeadline = Math.min(nextDeadline, p.toTimestamp);
+            }
+        }
+        return frozen;
+    }
+
+    /** Freezes every pending capture with whatever part of its window is in the store, e.g. before the store is cleared. */
+    public List<TriggerCapture> flushPending(PlotDataStore store, Function<PlotDataStore.Series, String> labeler) {
+        return freezeDue(Long.MAX_VALUE, store, labeler);
+    }
+
+    private TriggerCapture freeze(PendingCapture p, PlotDataStore store, Function<PlotDataStore.Series, String> labeler) {
+        TriggerCapture capture = new TriggerCapture(p.name, p.triggerTimestamp, p.fromTimestamp, p.toTimestamp);
+        for (PlotDataStore.Series series : store.getSeries()) {
+            long[][] ts = {new long[256]};
+            double[][] vs = {new double[256]};
+            int[] n = {0};
+            store.forEachSample(series, p.fromTimestamp, p.toTimestamp, false, (t, v) -> {
+                if (n[0] == ts[0].length) {
+                    ts[0] = Arrays.copyOf(ts[0], n[0] * 2);
+                    vs[0] = Arrays.copyOf(vs[0], n[0] * 2);
+                }
+                ts[0][n[0]] = t;
+                vs[0][n[0]] = v;
+                n[0]++;
+            });
+            if (n[0] == 0) continue;
+            capture.addSeries(new TriggerCapture.SeriesData(series.getKind(), series.getStyle(), labeler.apply(series),
+                    Arrays.copyOf(ts[0], n[0]), Arrays.copyOf(vs[0], n[0])));
+        }
+        captures.add(capture);
+        if (captures.size() > MAX_CAPTURES) captures.remove(0);
+        return capture;
+    }
+
+    /** @return the kept captures, oldest first. */
+    public List<TriggerCapture> getCaptures() { return new ArrayList<>(captures); }
+
+    public void clearCaptures() { captures.clear(); }
+
+    /** Resets the state of every trigger and drops pending captures; definitions and completed captures are kept. */
+    public void reset() {
+        for (PlotTrigger trigger : triggers) trigger.reset();
+        pending.clear();
+        nextDeadline = Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.ftcfieldsimulator;
+
+import java.util.Arrays;
+
+/**
+ * Pairs two plot series by timestamp for an XY (phase) plot, e.g. commanded vs actual velocity.
+ *
+ * The series with fewer samples is the sparse side; every sample of the dense side is paired with
+ * the sparse series linearly interpolated at its timestamp. The history is joined in one linear
+ * merge pass (the sparse side is read into arrays, the dense side streamed against a cursor into
+ * them). After that the join is kept up to date from live samples: dense samples past the newest
+ * sparse sample wait in a queue until the sparse series catches up, so each sample costs O(1)
+ * amortized. Pairs are never interpolated across a sparse gap longer than
+ * {@link #MAX_INTERPOLATION_GAP_MS}, nor with a NaN on either side.
+ *
+ * Not thread safe; the XY pane uses it on the FX thread.
+ */
+public class XyJoin {
+
+    public static final long MAX_INTERPOLATION_GAP_MS = 1000;
+    private static final int MAX_PENDING = 1 << 16;
+
+    private int xKind = -1, xStyle, yKind = -1, yStyle;
+    private boolean xIsSparse;
+
+    // --- Joined pairs ---
+    private double[] xs = new double[1024], ys = new double[1024];
+    private int count = 0;
+    private double minX, maxX, minY, maxY;
+
+    // --- Incremental state ---
+    private long sparsePrevTs = Long.MIN_VALUE, sparseLastTs = Long.MIN_VALUE;
+    private double sparsePrevValue = Double.NaN, sparseLastValue = Double.NaN;
+    private long[] pendingTs = new long[256];
+    private double[] pendingValues = new double[256];
+    private int pendingStart = 0, pendingCount = 0; // Ring buffer of dense samples awaiting the sparse side
+
+    /** Chooses the two series and joins their history from the store; either may not exist yet. */
+    public void configure(int xKind, int xStyle, int yKind, int yStyle, PlotDataStore store) {
+        this.xKind = xKind; this.xStyle = xStyle; this.yKind = yKind; this.yStyle = yStyle;
+        reset();
+        PlotDataStore.Series x = store.findSeries(xKind, xStyle), y = store.findSeries(yKind, yStyle);
+        if (x == null || y == null) {
+            xIsSparse = x == null;
+            return;
+        }
+        long[] counts = new long[2];
+        store.forEachSample(x, Long.MIN_VALUE, Long.MAX_VALUE, false, (ts, v) -> counts[0]++);
+        store.forEachSample(y, Long.MIN_VALUE, Long.MAX_VALUE, false, (ts, v) -> counts[1]++);
+        xIsSparse = counts[0] <= counts[1];
+        if (isSameSeries()) {
+            store.forEachSample(x, Long.MIN_VALUE, Long.MAX_VALUE, false, (ts, v) -> { if (!Double.isNaN(v)) emit(v, v); });
+            return;
+        }
+
+        // Merge join: the sparse side into arrays, then one pass over the dense side.
+        PlotDataStore.Series sparse = xIsSparse ? x : y, dense = xIsSparse ? y : x;
+        int n = (int) Math.min(xIsSparse ? counts[0] : counts[1], Integer.MAX_VALUE - 8);
+        long[] sparseTs = new long[n];
+        double[] sparseValues = new double[n];
+        int[] filled = {0};
+        store.forEachSample(sparse, Long.MIN_VALUE, Long.MAX_VALUE, false, (ts, v) -> {
+            if (filled[0] < n) { sparseTs[filled[0]] = ts; sparseValues[filled[0]] = v; filled[0]++; }
+        });
+        int[] cursor = {0};
+        store.forEachSample(dense, Long.MIN_VALUE, Long.MAX_VALUE, false, (ts, v) -> {
+            while (cursor[0] + 1 < filled[0] && sparseTs[cursor[0] + 1] <= ts) cursor[0]++;
+            int j = cursor[0];
+            if (filled[0] == 0 || ts < sparseTs[j]) return;
+            if (j + 1 < filled[0]) joinDense(ts, v, sparseTs[j], sparseValues[j], sparseTs[j + 1], sparseValues[j + 1]);
+            else if (ts == sparseTs[j]) joinDense(ts, v, sparseTs[j], sparseValues[j], sparseTs[j], sparseValues[j]);
+            else addPending(ts, v);
+        });
+        if (filled[0] > 0) {
+            sparseLastTs = sparseTs[filled[0] - 1];
+            sparseLastValue = sparseValues[filled[0] - 1];
+            if (filled[0] > 1) { sparsePrevTs = sparseTs[filled[0] - 2]; sparsePrevValue = sparseValues[filled[0] - 2]; }
+        }
+    }
+
+    /** Forgets the pairs and the incremental state; the chosen series are kept. */
+    public void reset() {
+        count = 0;
+        minX = minY = Double.POSITIVE_INFINITY;
+        maxX = maxY = Double.NEGATIVE_INFINITY;
+        sparsePrevTs = sparseLastTs = Long.MIN_VALUE;
+        sparsePrevValue = sparseLastValue = Double.NaN;
+        pendingStart = pendingCount = 0;
+    }
+
+    public boolean isConfigured() { return xKind >= 0 && yKind >= 0; }
+
+    /** Feeds one live sample of any series; those of other series are ignored. */
+    public void onSample(int kind, int style, long timestamp, double value) {
+        if (!isConfigured()) return;
+        boolean isX = kind == xKind && style == xStyle, isY = kind == yKind && style == yStyle;
+        if (!isX && !isY) return;
+        if (isSameSeries()) {
+            if (!Double.isNaN(value)) emit(value, value);
+            return;
+        }
+        boolean isSparse = xIsSparse ? isX : isY;
+        if (!isSparse) {
+            if (timestamp > sparseLastTs) addPending(timestamp, value);
+            else if (timestamp >= sparsePrevTs && sparsePrevTs != Long.MIN_VALUE) joinDense(timestamp, value, sparsePrevTs, sparsePrevValue, sparseLastTs, sparseLastValue);
+            else if (timestamp == sparseLastTs) joinDense(timestamp, value, sparseLastTs, sparseLastValue, sparseLastTs, sparseLastValue);
+            return;
+        }
+        if (timestamp < sparseLastTs) return; // Late sparse sample: the pairs around it are already out
+        sparsePrevTs = sparseLastTs;
+        sparsePrevValue = sparseLastValue;
+        sparseLastTs = timestamp;
+        sparseLastValue = value;
+        // Drain the dense samples the sparse side now covers; older ones than the previous sparse
+        // sample can only be from before the sparse series started.
+        while (pendingCount > 0) {
+            int i = pendingStart;
+            long ts = pendingTs[i];
+            if (ts > sparseLastTs) break;
+            if (sparsePrevTs != Long.MIN_VALUE && ts >= sparsePrevTs) joinDense(ts, pendingValues[i], sparsePrevTs, sparsePrevValue, sparseLastTs, sparseLastValue);
+            else if (ts == sparseLastTs) joinDense(ts, pendingValues[i], sparseLastTs, sparseLastValue, sparseLastTs, sparseLastValue);
+            pendingStart = (pendingStart + 1) & (pendingTs.length - 1);
+            pendingCount--;
+        }
+    }
+
+    private boolean isSameSeries() { return xKind == yKind && xStyle == yStyle; }
+
+    private void joinDense(long ts, double denseValue, long ts0, double v0, long ts1, double v1) {
+        if (Double.isNaN(denseValue) || Double.isNaN(v0) || Double.isNaN(v1) || ts1 - ts0 > MAX_INTERPOLATION_GAP_MS) return;
+        double sparseValue = ts1 == ts0 ? v1 : v0 + (v1 - v0) * (ts - ts0) / (double) (ts1 - ts0);
+        if (xIsSparse) emit(sparseValue, denseValue); else emit(denseValue, sparseValue);
+    }
+
+    private void addPending(long ts, double value) {
+        if (pendingCount == MAX_PENDING) {
+            // The sparse series has stopped; keep the newest dense samples.
+            pendingStart = (pendingStart + 1) & (pendingTs.length - 1);
+            pendingCount--;
+        }
+        if (pendingCount == pendingTs.length) {
+            long[] t = new long[pendingTs.length * 2];
+            double[] v = new double[pendingTs.length * 2];
+            for (int i = 0; i < pendingCount; i++) {
+                t[i] = pendingTs[(pendingStart + i) & (pendingTs.length - 1)];
+                v[i] = pendingValues[(pendingStart + i) & (pendingTs.length - 1)];
+            }
+            pendingTs = t;
+            pendingValues = v;
+            pendingStart = 0;
+        }
+        int i = (pendingStart + pendingCount) & (pendingTs.length - 1);
+        pendingTs[i] = ts;
+        pendingValues[i] = value;
+        pendingCount++;
+    }
+
+    private void emit(double x, double y) {
+        if (count == xs.length) {
+            xs = Arrays.copyOf(xs, count * 2);
+            ys = Arrays.copyOf(ys, count * 2);
+        }
+        xs[count] = x;
+        ys[count] = y;
+        count++;
+        if (x < minX) minX = x;
+        if (x > maxX) maxX = x;
+        if (y < minY) minY = y;
+        if (y > maxY) maxY = y;
+    }
+
+    /** @return the number of pairs; pairs are only ever appended, so earlier indices stay valid. */
+    public int getCount() { return count; }
+    public double getX(int i) { return xs[i]; }
+    public double getY(int i) { return ys[i]; }
+    public double getMinX() { return minX; }
+    public double getMaxX() { return maxX; }
+    public double getMinY() { return minY; }
+    public double getMaxY() { return maxY; }
+}
@@ -0,0 +1,228 @@
+package com.example.ftcfieldsimulator;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * XY (phase) plot of two plot series joined by timestamp, e.g. current vs RPM for motor
+ * characterization.
+ *
+ * Pairs come from an {@link XyJoin} fed by the plot's sample listener. Drawing is incremental: the
+ * data canvas only receives the pairs added since the previous frame, and is redrawn from scratch
+ * only when the axis limits change, which they do rarely since they are damped like the plot's
+ * auto-ranged Y axes ({@link AxisAutoRange}). While there are fewer pairs than plot pixels they are
+ * drawn as a connected trace; beyond that they are decimated into a per-pixel hit count shown as a
+ * density image (log-scaled), so the cost per frame stays proportional to the new pairs plus the
+ * image size.
+ */
+public class XyPane extends VBox implements PlotDisplay.SampleListener {
+
+    private static final double PAD_LEFT = 55, PAD_RIGHT = 15, PAD_TOP = 10, PAD_BOTTOM = 25;
+    private static final Font AXIS_FONT = Font.font("Arial", 10);
+    private static final Color TRACE_COLOR = Color.BLUE;
+    private static final int DENSITY_RGB = 0x0000C0;
+
+    private final PlotDisplay plotDisplay;
+    private final XyJoin join = new XyJoin();
+    private final ComboBox<DerivedChannel.Source> cmbX = new ComboBox<>(), cmbY = new ComboBox<>();
+    private final Label lblInfo = new Label("Select two series");
+    private final Canvas axisCanvas, dataCanvas;
+    private final AnimationTimer frameTimer;
+    private final double plotW, plotH;
+    private boolean active = false;
+
+    // --- Rendering state ---
+    private AxisAutoRange xRange = new AxisAutoRange(), yRange = new AxisAutoRange();
+    private int drawnCount = 0;              // Pairs already on the data canvas (or in the density counts)
+    private boolean densityMode = false;
+    private int[] densityCounts, densityPixels;
+    private int densityMax = 0;
+    private WritableImage densityImage;
+    private boolean needsFullRedraw = true;
+
+    public XyPane(PlotDisplay plotDisplay, double width, double height) {
+        super(5);
+        this.plotDisplay = plotDisplay;
+        setPadding(new Insets(5, 10, 5, 10));
+
+        for (ComboBox<DerivedChannel.Source> cmb : List.of(cmbX, cmbY)) {
+            cmb.setPrefWidth(200);
+            PlotUiUtil.bindSeriesSources(cmb, plotDisplay::getSeriesSources);
+            cmb.valueProperty().addListener((obs, old, source) -> selectSeries());
+        }
+        cmbX.setPromptText("X series");
+        cmbY.setPromptText("Y series");
+
+        HBox controls = new HBox(8, new Label("X:"), cmbX, new Label("Y:"), cmbY, lblInfo);
+        controls.setAlignment(Pos.CENTER_LEFT);
+
+        plotW = width - PAD_LEFT - PAD_RIGHT;
+        plotH = height - PAD_TOP - PAD_BOTTOM;
+        axisCanvas = new Canvas(width, height);
+        dataCanvas = new Canvas(width, height);
+        dataCanvas.setMouseTransparent(true);
+        getChildren().addAll(controls, new StackPane(axisCanvas, dataCanvas));
+
+        frameTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (active && (needsFullRedraw || join.getCount() > drawnCount)) render();
+            }
+        };
+        frameTimer.start();
+        plotDisplay.addSampleListener(this);
+        render();
+    }
+
+    /** Only an active pane draws; the window deactivates it while it is collapsed. */
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public void dispose() {
+        frameTimer.stop();
+    }
+
+    @Override
+    public void onSample(int kind, int style, long timestamp, double value) {
+        join.onSample(kind, style, timestamp, value);
+    }
+
+    @Override
+    public void onClear() {
+        join.reset();
+        resetView();
+    }
+
+    @Override
+    public void onLoaded() {
+        selectSeries(); // Joins the loaded history
+    }
+
+    private void selectSeries() {
+        DerivedChannel.Source x = cmbX.getValue(), y = cmbY.getValue();
+        if (x == null || y == null) return;
+        join.configure(x.kind, x.style, y.kind, y.style, plotDisplay.getDataStore());
+        resetView();
+    }
+
+    private void resetView() {
+        xRange = new AxisAutoRange();
+        yRange = new AxisAutoRange();
+        needsFullRedraw = true;
+    }
+
+    private void render() {
+        int n = join.getCount();
+        boolean rescaled = n > 0 && (xRange.update(join.getMinX(), join.getMaxX()) | yRange.update(join.getMinY(), join.getMaxY()));
+        boolean dense = n > plotW * plotH;
+        if (rescaled || needsFullRedraw || dense != densityMode) {
+            densityMode = dense;
+            drawAxes(n > 0);
+            dataCanvas.getGraphicsContext2D().clearRect(0, 0, dataCanvas.getWidth(), dataCanvas.getHeight());
+            drawnCount = 0;
+            densityMax = 0;
+            if (densityCounts != null) Arrays.fill(densityCounts, 0);
+            needsFullRedraw = false;
+        }
+        if (n > drawnCount) {
+            if (densityMode) drawDensity(drawnCount, n); else drawTrace(drawnCount, n);
+            drawnCount = n;
+        }
+        lblInfo.setText(join.isConfigured() ? String.format(Locale.US, "%,d pairs%s", n, densityMode ? " (density)" : "") : "Select two series");
+    }
+
+    /** Continues the trace with pairs from..to-1, joined to the pair before them. */
+    private void drawTrace(int from, int to) {
+        GraphicsContext gc = dataCanvas.getGraphicsContext2D();
+        gc.setStroke(TRACE_COLOR);
+        gc.setLineWidth(1);
+        gc.beginPath();
+        int start = Math.max(from - 1, 0);
+        gc.moveTo(toScreenX(join.getX(start)), toScreenY(join.getY(start)));
+        for (int i = start + 1; i < to; i++) gc.lineTo(toScreenX(join.getX(i)), toScreenY(join.getY(i)));
+        gc.stroke();
+    }
+
+    /** Adds pairs from..to-1 to the per-pixel counts and repaints the density image. */
+    private void drawDensity(int from, int to) {
+        int w = (int) plotW, h = (int) plotH;
+        if (densityCounts == null || densityCounts.length != w * h) {
+            densityCounts = new int[w * h];
+            densityPixels = new int[w * h];
+            densityImage = new WritableImage(w, h);
+            densityMax = 0;
+        }
+        for (int i = from; i < to; i++) {
+            int px = (int) (toScreenX(join.getX(i)) - PAD_LEFT), py = (int) (toScreenY(join.getY(i)) - PAD_TOP);
+            if (px < 0 || px >= w || py < 0 || py >= h) continue;
+            int c = ++densityCounts[py * w + px];
+            if (c > densityMax) densityMax = c;
+        }
+        double logMax = Math.log1p(densityMax);
+        for (int i = 0; i < densityCounts.length; i++) {
+            int c = densityCounts[i];
+            // Opacity grows with the log of the count, so single stray pairs stay visible.
+            int alpha = c == 0 ? 0 : (int) (40 + 215 * Math.log1p(c) / logMax);
+            densityPixels[i] = (alpha << 24) | DENSITY_RGB;
+        }
+        densityImage.getPixelWriter().setPixels(0, 0, w, h, PixelFormat.getIntArgbInstance(), densityPixels, 0, w);
+        GraphicsContext gc = dataCanvas.getGraphicsContext2D();
+        gc.clearRect(PAD_LEFT, PAD_TOP, w, h);
+        gc.drawImage(densityImage, PAD_LEFT, PAD_TOP);
+    }
+
+    private void drawAxes(boolean hasData) {
+        GraphicsContext gc = axisCanvas.getGraphicsContext2D();
+        double w = axisCanvas.getWidth(), h = axisCanvas.getHeight();
+        gc.setFill(Color.WHITE);
+        gc.fillRect(0, 0, w, h);
+        gc.setStroke(Color.GRAY);
+        gc.setLineWidth(1);
+        gc.strokeRect(PAD_LEFT, PAD_TOP, plotW, plotH);
+        if (!hasData) return;
+
+        gc.setFont(AXIS_FONT);
+        gc.setFill(Color.BLACK);
+        gc.setStroke(Color.LIGHTGRAY);
+        gc.setTextAlign(TextAlignment.CENTER);
+        double xStep = MathUtil.niceStep((xRange.getMax() - xRange.getMin()) / 8);
+        for (double x = Math.ceil(xRange.getMin() / xStep) * xStep; x <= xRange.getMax(); x += xStep) {
+            double sx = toScreenX(x);
+            gc.strokeLine(sx, PAD_TOP, sx, PAD_TOP + plotH);
+            gc.fillText(formatTick(x, xStep), sx, PAD_TOP + plotH + 14);
+        }
+        gc.setTextAlign(TextAlignment.RIGHT);
+        double yStep = MathUtil.niceStep((yRange.getMax() - yRange.getMin()) / 5);
+        for (double y = Math.ceil(yRange.getMin() / yStep) * yStep; y <= yRange.getMax(); y += yStep) {
+            double sy = toScreenY(y);
+            gc.strokeLine(PAD_LEFT, sy, PAD_LEFT + plotW, sy);
+            gc.fillText(formatTick(y, yStep), PAD_LEFT - 4, sy + 3);
+        }
+        gc.setTextAlign(TextAlignment.LEFT);
+    }
+
+    private double toScreenX(double x) { return PAD_LEFT + (x - xRange.getMin()) / (xRange.getMax() - xRange.getMin()) * plotW; }
+    private double toScreenY(double y) { return PAD_TOP + plotH - (y - yRange.getMin()) / (yRange.getMax() - yRange.getMin()) * plotH; }
+
+    private static String formatTick(double v, double step) {
+        return String.format(Locale.US, step >= 1 ? "%.0f" : step >= 0.1 ? "%.1f" : "%.2f", Math.abs(v) < step * 1e-6 ? 0 : v);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.ftcfieldsimulator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Range statistics answered from the chunk index must agree with a scan of the samples they
+ * summarise: each chunk's samples in time order, chunk after chunk, in the order they were appended.
+ * The stream has late arrivals, so neighbouring chunks overlap in time, and NaN gaps.
+ */
+class PlotDataStoreRangeStatisticsTest {
+
+    private static final int SAMPLES = 60000;
+    private static final int WINDOWS = 2000;
+
+    @Test
+    void indexedStatisticsMatchScanWithLateArrivals() {
+        checkAgainstScan(new PlotDataStore(new PlotSeriesRegistry()));
+    }
+
+    @Test
+    void indexedStatisticsMatchScanOfSpilledChunks() {
+        PlotDataStore store = new PlotDataStore(new PlotSeriesRegistry());
+        store.setMemoryBudgetBytes(0); // The minimum: nearly every sealed chunk goes to the spill file
+        checkAgainstScan(store);
+    }
+
+    private static void checkAgainstScan(PlotDataStore store) {
+        Random random = new Random(7);
+        long[] timestamps = new long[SAMPLES];
+        double[] values = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            timestamps[i] = i * 2L;
+            if (random.nextInt(50) == 0) timestamps[i] -= random.nextInt(40);
+            values[i] = i % 997 == 0 ? Double.NaN : Math.sin(i * 0.001) * 10 + random.nextGaussian();
+            store.append(PlotDataStore.KIND_LINE, 1, timestamps[i], values[i]);
+        }
+        Integer[] scanOrder = scanOrder(timestamps);
+        PlotDataStore.Series series = store.findSeries(PlotDataStore.KIND_LINE, 1);
+
+        try {
+            for (int k = 0; k < WINDOWS; k++) {
+                long fromTs = random.nextInt(2 * SAMPLES) - 50, toTs = fromTs + random.nextInt(2 * SAMPLES);
+                RangeStatistics scanned = new RangeStatistics(fromTs, toTs);
+                for (int i : scanOrder) {
+                    if (timestamps[i] >= fromTs && timestamps[i] <= toTs) scanned.addSample(timestamps[i], values[i]);
+                }
+                RangeStatistics indexed = store.rangeStatistics(series, fromTs, toTs);
+
+                String window = "window " + fromTs + ".." + toTs;
+                double tolerance = 1e-9 * Math.max(1, Math.abs(scanned.getIntegral())) * Math.max(1, scanned.getCount());
+                assertEquals(scanned.getCount(), indexed.getCount(), window);
+                assertEquals(scanned.getMin(), indexed.getMin(), 0, window);
+                assertEquals(scanned.getMax(), indexed.getMax(), 0, window);
+                assertEquals(scanned.getMean(), indexed.getMean(), 1e-9, window);
+                assertEquals(scanned.getIntegral(), indexed.getIntegral(), tolerance, window);
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * @return the sample indices in the order the index summarises them: chunks of
+     * {@link PlotDataStore#CHUNK_CAPACITY} in arrival order, each kept sorted (stably) by timestamp.
+     */
+    private static Integer[] scanOrder(long[] timestamps) {
+        Integer[] order = new Integer[timestamps.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        for (int from = 0; from < order.length; from += PlotDataStore.CHUNK_CAPACITY) {
+            int to = Math.min(from + PlotDataStore.CHUNK_CAPACITY, order.length);
+            Arrays.sort(order, from, to, Comparator.comparingLong(i -> timestamps[i]));
+        }
+        return order;
+    }
+}